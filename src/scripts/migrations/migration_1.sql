@@ -0,0 +1,45 @@
+-- Versão 1 -> 2: registro de alterações para atualizar as telas abertas.
+
+CREATE TABLE IF NOT EXISTS Alteracao (
+    seq INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,
+    tabela TEXT NOT NULL,
+    registro_id INT NOT NULL,
+    operacao TEXT NOT NULL CHECK (operacao in ('I', 'A', 'R')), -- Inserção, atualização ou remoção.
+    criado_em INT NOT NULL DEFAULT (strftime('%s', 'now'))
+);
+
+CREATE TRIGGER IF NOT EXISTS veiculo_inserido AFTER INSERT ON Veiculo BEGIN
+    INSERT INTO Alteracao (tabela, registro_id, operacao) VALUES ('Veiculo', NEW.id, 'I');
+END;
+
+CREATE TRIGGER IF NOT EXISTS veiculo_atualizado AFTER UPDATE ON Veiculo BEGIN
+    INSERT INTO Alteracao (tabela, registro_id, operacao) VALUES ('Veiculo', NEW.id, 'A');
+END;
+
+CREATE TRIGGER IF NOT EXISTS veiculo_removido AFTER DELETE ON Veiculo BEGIN
+    INSERT INTO Alteracao (tabela, registro_id, operacao) VALUES ('Veiculo', OLD.id, 'R');
+END;
+
+CREATE TRIGGER IF NOT EXISTS produto_inserido AFTER INSERT ON Produto BEGIN
+    INSERT INTO Alteracao (tabela, registro_id, operacao) VALUES ('Produto', NEW.id, 'I');
+END;
+
+CREATE TRIGGER IF NOT EXISTS produto_atualizado AFTER UPDATE ON Produto BEGIN
+    INSERT INTO Alteracao (tabela, registro_id, operacao) VALUES ('Produto', NEW.id, 'A');
+END;
+
+CREATE TRIGGER IF NOT EXISTS produto_removido AFTER DELETE ON Produto BEGIN
+    INSERT INTO Alteracao (tabela, registro_id, operacao) VALUES ('Produto', OLD.id, 'R');
+END;
+
+CREATE TRIGGER IF NOT EXISTS embalagem_inserida AFTER INSERT ON Embalagem BEGIN
+    INSERT INTO Alteracao (tabela, registro_id, operacao) VALUES ('Embalagem', NEW.id, 'I');
+END;
+
+CREATE TRIGGER IF NOT EXISTS embalagem_atualizada AFTER UPDATE ON Embalagem BEGIN
+    INSERT INTO Alteracao (tabela, registro_id, operacao) VALUES ('Embalagem', NEW.id, 'A');
+END;
+
+CREATE TRIGGER IF NOT EXISTS embalagem_removida AFTER DELETE ON Embalagem BEGIN
+    INSERT INTO Alteracao (tabela, registro_id, operacao) VALUES ('Embalagem', OLD.id, 'R');
+END;
@@ -0,0 +1,7 @@
+-- Versão 2 -> 3: coluna de versão para o controle de concorrência otimista.
+
+ALTER TABLE Veiculo ADD COLUMN versao INT NOT NULL DEFAULT 1;
+
+ALTER TABLE Produto ADD COLUMN versao INT NOT NULL DEFAULT 1;
+
+ALTER TABLE Embalagem ADD COLUMN versao INT NOT NULL DEFAULT 1;
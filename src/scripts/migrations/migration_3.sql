@@ -0,0 +1,3 @@
+-- Versão 3 -> 4: índice usado pela remoção em cascata de embalagens.
+
+CREATE INDEX IF NOT EXISTS idx_embalagem_produto ON Embalagem(produto_id);
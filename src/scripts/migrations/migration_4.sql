@@ -0,0 +1,18 @@
+-- Versão 4 -> 5: momento da última alteração de cada embalagem, usado para
+-- mover as antigas para o banco de arquivo. As embalagens que já existem
+-- começam a contar a partir desta migration.
+
+ALTER TABLE Embalagem ADD COLUMN atualizado_em INT NOT NULL DEFAULT 0;
+
+-- O SQLite não aceita o momento atual como default de uma coluna nova, então
+-- as embalagens são preenchidas aqui, sem o gatilho de alterações: senão cada
+-- uma deixaria uma linha em Alteracao, como se tivesse sido editada.
+DROP TRIGGER IF EXISTS embalagem_atualizada;
+
+UPDATE Embalagem SET atualizado_em = strftime('%s', 'now');
+
+CREATE TRIGGER IF NOT EXISTS embalagem_atualizada AFTER UPDATE ON Embalagem BEGIN
+    INSERT INTO Alteracao (tabela, registro_id, operacao) VALUES ('Embalagem', NEW.id, 'A');
+END;
+
+CREATE INDEX IF NOT EXISTS idx_embalagem_atualizado_em ON Embalagem(atualizado_em);
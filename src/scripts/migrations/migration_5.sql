@@ -0,0 +1,9 @@
+-- Versão 5 -> 6: progresso das importações de CSV, gravado na mesma transação
+-- que cada lote, para que uma importação interrompida possa ser retomada.
+
+CREATE TABLE IF NOT EXISTS Importacao (
+    chave TEXT NOT NULL PRIMARY KEY, -- Tabela e caminho do arquivo importado.
+    assinatura TEXT NOT NULL, -- Tamanho e data de modificação do arquivo.
+    ultima_linha INT NOT NULL,
+    atualizado_em INT NOT NULL DEFAULT (strftime('%s', 'now'))
+);
@@ -0,0 +1,30 @@
+-- Versão 6 -> 7: cargas já planejadas, com o veículo escolhido e onde vai
+-- cada embalagem. As posições ficam juntas num BLOB em Carga; CargaItem liga
+-- a carga às embalagens e guarda a versão de cada uma no momento do plano,
+-- e Carga guarda a do veículo, para saber se o plano ainda vale.
+
+CREATE TABLE IF NOT EXISTS Carga (
+    id INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,
+    descricao TEXT,
+    veiculo_id INT NOT NULL,
+    versao_veiculo INT NOT NULL,
+    peso_carregado REAL NOT NULL,
+    volume_carregado REAL NOT NULL,
+    posicoes BLOB NOT NULL, -- Ver CargaRepositorio para o formato.
+    criado_em INT NOT NULL DEFAULT (strftime('%s', 'now')),
+    versao INT NOT NULL DEFAULT 1,
+    FOREIGN KEY (veiculo_id) REFERENCES Veiculo(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS CargaItem (
+    carga_id INT NOT NULL,
+    embalagem_id INT NOT NULL,
+    versao_embalagem INT NOT NULL,
+    PRIMARY KEY (carga_id, embalagem_id),
+    FOREIGN KEY (carga_id) REFERENCES Carga(id) ON DELETE CASCADE,
+    FOREIGN KEY (embalagem_id) REFERENCES Embalagem(id) ON DELETE CASCADE
+) WITHOUT ROWID;
+
+CREATE INDEX IF NOT EXISTS idx_carga_veiculo ON Carga(veiculo_id);
+
+CREATE INDEX IF NOT EXISTS idx_carga_item_embalagem ON CargaItem(embalagem_id);
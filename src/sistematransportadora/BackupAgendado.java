@@ -0,0 +1,201 @@
+package sistematransportadora;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Faz backups do banco com a aplicação aberta, em segundo plano.
+ * <p>
+ * Cada backup é uma cópia feita com {@link CopiaOnline} em passos pequenos,
+ * para que os cadastros feitos durante a cópia quase não esperem. A cópia é
+ * escrita num arquivo {@code .parcial} e só ganha o nome final quando termina,
+ * então a pasta de backups só tem cópias completas. Depois de cada backup,
+ * os mais antigos além da quantidade a manter são apagados.
+ * <p>
+ * O intervalo e a quantidade de backups mantidos vêm das propriedades
+ * {@code sistematransportadora.backup.intervalo} (em minutos, padrão 60) e
+ * {@code sistematransportadora.backup.manter} (padrão 24).
+ */
+public class BackupAgendado {
+    private static final Logger log = LoggerFactory.getLogger(BackupAgendado.class);
+    private static final DateTimeFormatter FORMATO_NOME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    /** Com páginas de 4 KiB, cada passo trava a origem só pelo tempo de copiar 64 KiB. */
+    private static final int PAGINAS_POR_PASSO = 16;
+
+    private final Banco banco;
+    private final File pasta;
+    private final String prefixo;
+    private final Duration intervalo;
+    private final int manter;
+    private ScheduledExecutorService agendador;
+
+    private int backupsFeitos;
+    private long bytesCopiados;
+    private long nanosCopiando;
+    private long maiorPausaNanos;
+    private Instant ultimoEm;
+
+    /**
+     * Métricas acumuladas desde que a aplicação abriu.
+     * @param backupsFeitos Quantidade de backups concluídos.
+     * @param bytesCopiados Total de bytes copiados.
+     * @param megabytesPorSegundo Vazão média das cópias.
+     * @param maiorPausaMs Maior tempo em que a origem ficou travada por um passo.
+     * @param ultimoEm Quando terminou o último backup, ou {@code null}.
+     */
+    public record Metricas(int backupsFeitos, long bytesCopiados, double megabytesPorSegundo,
+                           double maiorPausaMs, Instant ultimoEm) {}
+
+    /**
+     * @param banco Banco a ser copiado. Precisa estar num arquivo.
+     * @param pasta Pasta onde os backups ficam.
+     * @param intervalo Intervalo entre os backups.
+     * @param manter Quantidade de backups mantidos na pasta.
+     */
+    public BackupAgendado(Banco banco, File pasta, Duration intervalo, int manter) {
+        if (banco.getArquivo() == null)
+            throw new IllegalArgumentException("Só é possível fazer backup de um banco em arquivo.");
+        if (manter < 1)
+            throw new IllegalArgumentException("É preciso manter ao menos um backup.");
+
+        this.banco = banco;
+        this.pasta = pasta;
+        this.prefixo = banco.getArquivo().getName().replaceFirst("\\.db$", "") + "-";
+        this.intervalo = intervalo;
+        this.manter = manter;
+    }
+
+    /**
+     * Cria o agendamento com os backups na pasta {@code backups} ao lado do
+     * arquivo do banco e a configuração lida das propriedades.
+     * @param banco Banco a ser copiado.
+     * @return {@link BackupAgendado}
+     */
+    public static BackupAgendado de(Banco banco) {
+        var pasta = new File(banco.getArquivo().getAbsoluteFile().getParentFile(), "backups");
+        var intervalo = Duration.ofMinutes(Long.getLong("sistematransportadora.backup.intervalo", 60));
+        var manter = Integer.getInteger("sistematransportadora.backup.manter", 24);
+
+        return new BackupAgendado(banco, pasta, intervalo, manter);
+    }
+
+    /**
+     * Começa a fazer backups em segundo plano. O primeiro é feito depois de
+     * um intervalo, para não pesar na abertura da aplicação.
+     */
+    public synchronized void iniciar() {
+        if (agendador != null)
+            return;
+
+        agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            var thread = new Thread(tarefa, "backup-agendado");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(() -> {
+            try {
+                fazerBackup();
+            } catch (RuntimeException e) {
+                // O erro já foi registrado; a próxima tentativa segue no horário.
+            }
+        }, intervalo.toMillis(), intervalo.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Faz um backup agora e apaga os que passaram da quantidade a manter.
+     * @return O arquivo do backup feito.
+     */
+    public synchronized File fazerBackup() {
+        pasta.mkdirs();
+        var nome = prefixo + LocalDateTime.now().format(FORMATO_NOME);
+        var parcial = new File(pasta, nome + ".db.parcial");
+        var destino = new File(pasta, nome + ".db");
+
+        try (var conn = banco.abrirConnectionDedicada()) {
+            int tamanhoPagina;
+            try (var stmt = conn.createStatement();
+                 var rs = stmt.executeQuery("PRAGMA page_size")) {
+                tamanhoPagina = rs.getInt(1);
+            }
+
+            var estatisticas = CopiaOnline.copiar(conn, parcial, PAGINAS_POR_PASSO);
+            if (!parcial.renameTo(destino))
+                throw new SQLException("Não foi possível renomear " + parcial + " para " + destino + ".");
+
+            registrar(estatisticas, (long) estatisticas.paginas() * tamanhoPagina);
+        } catch (SQLException e) {
+            parcial.delete();
+
+            String err = "Erro ao fazer backup do banco: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+
+        aplicarRetencao();
+        return destino;
+    }
+
+    public synchronized Metricas getMetricas() {
+        double segundos = nanosCopiando / 1e9;
+        double megabytesPorSegundo = segundos > 0 ? bytesCopiados / 1e6 / segundos : 0;
+
+        return new Metricas(backupsFeitos, bytesCopiados, megabytesPorSegundo, maiorPausaNanos / 1e6, ultimoEm);
+    }
+
+    /**
+     * Para os backups agendados. Um backup em andamento termina antes.
+     */
+    public synchronized void parar() {
+        if (agendador != null)
+            agendador.shutdown();
+        agendador = null;
+    }
+
+    private void registrar(CopiaOnline.Estatisticas estatisticas, long bytes) {
+        backupsFeitos++;
+        bytesCopiados += bytes;
+        nanosCopiando += estatisticas.duracaoNanos();
+        maiorPausaNanos = Math.max(maiorPausaNanos, estatisticas.maiorPassoNanos());
+        ultimoEm = Instant.now();
+
+        double segundos = estatisticas.duracaoNanos() / 1e9;
+        log.info("Backup concluído: {} KiB em {} ms ({} MB/s), {} passos, maior pausa {} ms.",
+                bytes / 1024,
+                estatisticas.duracaoNanos() / 1_000_000,
+                String.format("%.1f", segundos > 0 ? bytes / 1e6 / segundos : 0),
+                estatisticas.passos(),
+                String.format("%.2f", estatisticas.maiorPassoNanos() / 1e6));
+    }
+
+    private void aplicarRetencao() {
+        // Sobras de cópias interrompidas quando a aplicação fechou.
+        var parciais = pasta.listFiles((dir, nome) -> nome.startsWith(prefixo) && nome.endsWith(".db.parcial"));
+        if (parciais != null)
+            Arrays.stream(parciais).forEach(File::delete);
+
+        var backups = pasta.listFiles((dir, nome) -> nome.startsWith(prefixo) && nome.endsWith(".db"));
+        if (backups == null || backups.length <= manter)
+            return;
+
+        // O nome tem a data em ordem crescente, então a ordem alfabética é a cronológica.
+        Arrays.sort(backups, Comparator.comparing(File::getName));
+        for (int i = 0; i < backups.length - manter; i++) {
+            if (!backups[i].delete())
+                log.warn("Não foi possível apagar o backup antigo {}.", backups[i]);
+        }
+    }
+}
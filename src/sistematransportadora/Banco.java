@@ -0,0 +1,316 @@
+package sistematransportadora;
+
+import com.zaxxer.hikari.HikariDataSource;
+import sistematransportadora.repositorio.ArquivadorEmbalagens;
+import sistematransportadora.repositorio.CacheConsultas;
+import sistematransportadora.repositorio.EmbalagemRepositorio;
+import sistematransportadora.repositorio.FotoCatalogo;
+import sistematransportadora.repositorio.IndiceEmbalagens;
+import sistematransportadora.repositorio.IndiceVeiculos;
+import sistematransportadora.repositorio.ObservadorAlteracoes;
+import sistematransportadora.repositorio.VeiculoRepositorio;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Um banco de dados SQLite, identificado pela URL JDBC, com o próprio pool de
+ * conexões, cache de consultas e observador de alterações.
+ * <p>
+ * O pool só é criado na primeira conexão pedida, então registrar um banco
+ * não custa nada até ele ser usado.
+ */
+public class Banco {
+    private final String url;
+    private final File arquivo;
+    private volatile HikariDataSource dataSource;
+    private Connection ancora;
+    private CacheConsultas cache;
+    private ObservadorAlteracoes observador;
+    private ReplicaLeitura replica;
+    private BackupAgendado backup;
+    private File arquivoHistorico;
+    private ArquivadorEmbalagens arquivador;
+    private FotoCatalogo foto;
+    private IndiceVeiculos indiceVeiculos;
+    private IndiceEmbalagens indiceEmbalagens;
+
+    private Banco(String url, File arquivo) {
+        this.url = url;
+        this.arquivo = arquivo;
+    }
+
+    /**
+     * Cria um banco a partir de um caminho de arquivo ou de uma URL JDBC
+     * começando com {@code jdbc:sqlite:}.
+     * @param caminhoOuUrl Caminho do arquivo ou URL JDBC.
+     * @return {@link Banco}
+     */
+    public static Banco de(String caminhoOuUrl) {
+        if (caminhoOuUrl.startsWith("jdbc:"))
+            return daUrl(caminhoOuUrl);
+
+        return doArquivo(new File(caminhoOuUrl));
+    }
+
+    public static Banco doArquivo(File arquivo) {
+        return new Banco(String.format("jdbc:sqlite:%s", arquivo.getPath()), arquivo);
+    }
+
+    public static Banco daUrl(String url) {
+        if (!url.startsWith("jdbc:sqlite:"))
+            throw new IllegalArgumentException("URL de banco não suportada: " + url);
+
+        var resto = url.substring("jdbc:sqlite:".length());
+        if (resto.isEmpty() || resto.equals(":memory:")) {
+            // Cada conexão a ":memory:" teria o próprio banco, o que não funciona com pool.
+            return emMemoria("memoria-" + UUID.randomUUID());
+        }
+
+        var ehArquivo = !resto.startsWith(":memory:") && !resto.startsWith("file:") && !resto.isEmpty();
+        return new Banco(url, ehArquivo ? new File(resto) : null);
+    }
+
+    /**
+     * Cria um banco em memória com nome, compartilhado por todas as conexões
+     * do pool. Ele existe até {@link #fechar()} ser chamado.
+     * @param nome Nome que identifica o banco dentro da JVM.
+     * @return {@link Banco}
+     */
+    public static Banco emMemoria(String nome) {
+        return new Banco(String.format("jdbc:sqlite:file:%s?mode=memory&cache=shared", nome), null);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return O arquivo do banco, ou {@code null} se ele estiver em memória.
+     */
+    public File getArquivo() {
+        return arquivo;
+    }
+
+    public Connection pegarConnection() throws SQLException {
+        var ds = dataSource;
+        if (ds == null)
+            ds = criarDataSource();
+
+        return ds.getConnection();
+    }
+
+    /**
+     * Abre uma conexão fora do pool, para uso exclusivo de quem a pediu.
+     * Quem chama é responsável por fechá-la.
+     * @return {@link Connection}
+     */
+    public Connection abrirConnectionDedicada() throws SQLException {
+        manterMemoria();
+        return DriverManager.getConnection(url);
+    }
+
+    public synchronized CacheConsultas pegarCache() {
+        if (cache == null)
+            cache = new CacheConsultas(this);
+
+        return cache;
+    }
+
+    public synchronized ObservadorAlteracoes pegarObservador() {
+        if (observador == null)
+            observador = new ObservadorAlteracoes(this);
+
+        return observador;
+    }
+
+    /**
+     * Busca a réplica de leitura do banco, criando-a e começando a atualizá-la
+     * em segundo plano na primeira chamada.
+     * @return {@link ReplicaLeitura}
+     */
+    public synchronized ReplicaLeitura pegarReplica() {
+        if (replica == null) {
+            replica = ReplicaLeitura.de(this);
+            replica.iniciar();
+        }
+
+        return replica;
+    }
+
+    /**
+     * Arquivo do banco de arquivo, onde ficam os registros antigos: ao lado do
+     * arquivo do banco, com {@code -arquivo} no nome, ou num arquivo temporário
+     * se o banco estiver em memória. O arquivo só é criado quando algo for arquivado.
+     * @return {@link File}
+     */
+    public synchronized File pegarArquivoHistorico() {
+        if (arquivoHistorico == null) {
+            if (arquivo != null) {
+                var nome = arquivo.getName().replaceFirst("(\\.db)?$", "-arquivo.db");
+                arquivoHistorico = new File(arquivo.getAbsoluteFile().getParentFile(), nome);
+            } else {
+                try {
+                    arquivoHistorico = File.createTempFile("arquivo-", ".db");
+                    arquivoHistorico.delete();
+                    arquivoHistorico.deleteOnExit();
+                } catch (IOException e) {
+                    throw new RuntimeException("Erro ao criar arquivo de histórico: " + e.getMessage());
+                }
+            }
+        }
+
+        return arquivoHistorico;
+    }
+
+    public synchronized ArquivadorEmbalagens pegarArquivador() {
+        if (arquivador == null)
+            arquivador = ArquivadorEmbalagens.de(this);
+
+        return arquivador;
+    }
+
+    /**
+     * Busca a foto do catálogo do banco, criando-a na primeira chamada. Ela só
+     * passa a ser usada depois de {@link FotoCatalogo#carregar()}.
+     * @return {@link FotoCatalogo}
+     */
+    public synchronized FotoCatalogo pegarFoto() {
+        if (foto == null)
+            foto = FotoCatalogo.de(this);
+
+        return foto;
+    }
+
+    /**
+     * Busca o índice de veículos por medidas do banco, criando-o na primeira
+     * chamada. Os veículos só são lidos na primeira consulta ao índice.
+     * @return {@link IndiceVeiculos}
+     */
+    public synchronized IndiceVeiculos pegarIndiceVeiculos() {
+        if (indiceVeiculos == null)
+            indiceVeiculos = new IndiceVeiculos(new VeiculoRepositorio(this));
+
+        return indiceVeiculos;
+    }
+
+    /**
+     * Busca o índice de embalagens por medidas do banco, criando-o na primeira
+     * chamada. As embalagens só são lidas na primeira consulta ao índice.
+     * @return {@link IndiceEmbalagens}
+     */
+    public synchronized IndiceEmbalagens pegarIndiceEmbalagens() {
+        if (indiceEmbalagens == null)
+            indiceEmbalagens = new IndiceEmbalagens(new EmbalagemRepositorio(this));
+
+        return indiceEmbalagens;
+    }
+
+    /**
+     * Busca o agendamento de backups do banco, criando-o na primeira chamada.
+     * @return {@link BackupAgendado}
+     * @throws IllegalArgumentException Se o banco estiver em memória.
+     */
+    public synchronized BackupAgendado pegarBackup() {
+        if (backup == null)
+            backup = BackupAgendado.de(this);
+
+        return backup;
+    }
+
+    /**
+     * Cria a pasta do arquivo, se preciso, aplica as migrations que faltam
+     * e coloca o arquivo no modo WAL.
+     * @param versaoAlvo A versão de banco esperada pela aplicação.
+     */
+    public void migrar(int versaoAlvo) {
+        criarPasta();
+
+        try (var conn = abrirConnectionDedicada()) {
+            new MigradorBanco(conn).migrar(versaoAlvo);
+
+            // No modo WAL, quem lê não trava quem escreve, o que permite as
+            // cópias online sem pausar os cadastros. O modo fica gravado no arquivo.
+            if (arquivo != null) {
+                try (var stmt = conn.createStatement()) {
+                    stmt.execute("PRAGMA journal_mode = WAL");
+                }
+            }
+        } catch (SQLException e) {
+            String err = "Erro ao conectar com o banco: " + e.getMessage();
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * Fecha o pool de conexões e para o observador de alterações, a réplica,
+     * os backups agendados e o arquivador. A foto do catálogo é descartada.
+     */
+    public synchronized void fechar() {
+        if (foto != null)
+            foto.fechar();
+        if (arquivador != null)
+            arquivador.parar();
+        if (backup != null)
+            backup.parar();
+        if (replica != null)
+            replica.parar();
+        if (observador != null)
+            observador.parar();
+        if (cache != null)
+            cache.fechar();
+        if (dataSource != null)
+            dataSource.close();
+
+        try {
+            if (ancora != null)
+                ancora.close();
+        } catch (SQLException ignored) {
+            // O banco em memória é descartado de qualquer forma.
+        }
+
+        observador = null;
+        replica = null;
+        backup = null;
+        arquivador = null;
+        foto = null;
+        dataSource = null;
+        ancora = null;
+    }
+
+    private synchronized HikariDataSource criarDataSource() throws SQLException {
+        if (dataSource == null) {
+            manterMemoria();
+            // O pool pode abrir a primeira conexão antes das migrations.
+            criarPasta();
+
+            var ds = new HikariDataSource();
+            ds.setJdbcUrl(url);
+            ds.setMaximumPoolSize(10);
+
+            // Ativando as verificações de foreign keys do sqlite
+            ds.setConnectionInitSql("PRAGMA foreign_keys = ON");
+            dataSource = ds;
+        }
+
+        return dataSource;
+    }
+
+    private void criarPasta() {
+        if (arquivo != null && arquivo.getParentFile() != null)
+            arquivo.getParentFile().mkdirs();
+    }
+
+    /**
+     * Um banco em memória some quando a última conexão com ele é fechada,
+     * então uma conexão fica aberta até o banco ser fechado.
+     */
+    private synchronized void manterMemoria() throws SQLException {
+        if (arquivo == null && ancora == null)
+            ancora = DriverManager.getConnection(url);
+    }
+}
@@ -0,0 +1,109 @@
+package sistematransportadora;
+
+import org.sqlite.SQLiteConnection;
+import org.sqlite.core.DB;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Copia um banco aberto para outro arquivo com a API de backup do SQLite,
+ * sem precisar fechar a aplicação.
+ * <p>
+ * A cópia é feita em passos de poucas páginas. Entre um passo e outro as
+ * travas do banco de origem são liberadas, então quem está escrevendo só
+ * espera, no máximo, o tempo de um passo. Se outra conexão alterar a origem
+ * no meio da cópia, o SQLite recomeça a cópia sozinho, e o resultado é
+ * sempre um retrato consistente do banco.
+ * <p>
+ * Com escritas frequentes, esses recomeços podem não deixar a cópia terminar.
+ * Por isso, quando a origem está em modo WAL, a cópia inteira é feita dentro
+ * de uma transação de leitura: todos os passos leem o mesmo retrato, nada é
+ * recomeçado e, no modo WAL, essa leitura não trava quem escreve.
+ */
+public final class CopiaOnline {
+    /** Páginas copiadas em cada passo. */
+    public static final int PAGINAS_POR_PASSO = 64;
+    /** Espera, em ms, quando o destino ou a origem estão travados. */
+    private static final int ESPERA_TRAVADO_MS = 10;
+    /** Quantas vezes esperar por uma trava antes de desistir. */
+    private static final int TENTATIVAS_TRAVADO = 300;
+
+    private CopiaOnline() {}
+
+    /**
+     * Estatísticas de uma cópia.
+     * @param paginas Páginas do banco copiado.
+     * @param passos Passos executados, contando recomeços.
+     * @param duracaoNanos Duração total da cópia.
+     * @param maiorPassoNanos Duração do passo mais longo, que é o maior tempo
+     *                        que um escritor pode ter ficado esperando.
+     */
+    public record Estatisticas(int paginas, int passos, long duracaoNanos, long maiorPassoNanos) {}
+
+    /**
+     * Copia o banco principal da conexão para o arquivo de destino,
+     * substituindo o conteúdo dele.
+     * @param origem Conexão com o banco a ser copiado.
+     * @param destino Arquivo que vai receber a cópia.
+     * @param paginasPorPasso Páginas copiadas em cada passo.
+     * @return {@link Estatisticas}
+     */
+    public static Estatisticas copiar(Connection origem, File destino, int paginasPorPasso) throws SQLException {
+        var banco = origem.unwrap(SQLiteConnection.class).getDatabase();
+        var medidor = new Medidor();
+        boolean retratoFixo = emModoWal(origem);
+
+        long inicio = System.nanoTime();
+        medidor.ultimo = inicio;
+        int resultado;
+        try (var stmt = origem.createStatement()) {
+            if (retratoFixo) {
+                stmt.execute("BEGIN");
+                // A transação só começa a ler, e fixa o retrato, na primeira consulta.
+                stmt.executeQuery("SELECT COUNT(*) FROM sqlite_master").close();
+            }
+
+            try {
+                resultado = banco.backup(
+                        "main", destino.getPath(), medidor,
+                        ESPERA_TRAVADO_MS, TENTATIVAS_TRAVADO, paginasPorPasso
+                );
+            } finally {
+                if (retratoFixo)
+                    stmt.execute("COMMIT");
+            }
+        }
+        long fim = System.nanoTime();
+
+        // SQLITE_OK
+        if (resultado != 0)
+            throw new SQLException("Cópia do banco falhou com código " + resultado + ".");
+
+        return new Estatisticas(medidor.paginas, medidor.passos, fim - inicio, medidor.maiorPasso);
+    }
+
+    private static boolean emModoWal(Connection conn) throws SQLException {
+        try (var stmt = conn.createStatement();
+             var rs = stmt.executeQuery("PRAGMA journal_mode")) {
+            return rs.next() && "wal".equalsIgnoreCase(rs.getString(1));
+        }
+    }
+
+    private static final class Medidor implements DB.ProgressObserver {
+        long ultimo;
+        long maiorPasso;
+        int passos;
+        int paginas;
+
+        @Override
+        public void progress(int restantes, int total) {
+            long agora = System.nanoTime();
+            maiorPasso = Math.max(maiorPasso, agora - ultimo);
+            ultimo = agora;
+            passos++;
+            paginas = total;
+        }
+    }
+}
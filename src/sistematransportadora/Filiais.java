@@ -0,0 +1,167 @@
+package sistematransportadora;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Conjunto de bancos divididos por filial, cada filial com o próprio arquivo.
+ * A primeira filial é a principal: é nela que ficam os registros sem filial
+ * definida e é dela que são lidos os tipos, que existem iguais em todas.
+ * <p>
+ * As consultas que precisam de todas as filiais rodam em paralelo com
+ * {@link #emParalelo(Function)}, uma thread por filial.
+ */
+public class Filiais {
+    private final Map<String, Banco> bancos;
+    private final String principal;
+    private ExecutorService executor;
+    private Filiais replicas;
+
+    /**
+     * @param bancos Bancos de cada filial, na ordem em que devem ser consultados.
+     */
+    public Filiais(Map<String, Banco> bancos) {
+        if (bancos.isEmpty())
+            throw new IllegalArgumentException("É preciso ao menos uma filial.");
+
+        this.bancos = Collections.unmodifiableMap(new LinkedHashMap<>(bancos));
+        this.principal = this.bancos.keySet().iterator().next();
+    }
+
+    /**
+     * Lê uma configuração no formato {@code nome=caminho;nome=caminho}, em que
+     * cada caminho pode ser um arquivo ou uma URL JDBC.
+     * @param configuracao A configuração das filiais.
+     * @return {@link Filiais}
+     */
+    public static Filiais de(String configuracao) {
+        var bancos = new LinkedHashMap<String, Banco>();
+        for (var item : configuracao.split(";")) {
+            if (item.isBlank())
+                continue;
+
+            int igual = item.indexOf('=');
+            if (igual <= 0)
+                throw new IllegalArgumentException("Filial sem nome na configuração: " + item);
+
+            var nome = item.substring(0, igual).trim();
+            if (bancos.put(nome, Banco.de(item.substring(igual + 1).trim())) != null)
+                throw new IllegalArgumentException("Filial repetida na configuração: " + nome);
+        }
+
+        return new Filiais(bancos);
+    }
+
+    public String principal() {
+        return principal;
+    }
+
+    public Set<String> nomes() {
+        return bancos.keySet();
+    }
+
+    /**
+     * @param filial Nome da filial.
+     * @return O banco da filial.
+     * @throws IllegalArgumentException Se a filial não existir.
+     */
+    public Banco pegar(String filial) {
+        var banco = bancos.get(filial);
+        if (banco == null)
+            throw new IllegalArgumentException("Filial desconhecida: " + filial);
+
+        return banco;
+    }
+
+    /**
+     * Executa a consulta em todas as filiais ao mesmo tempo e espera todas
+     * terminarem. A última filial roda na própria thread de quem chamou.
+     * @param consulta Recebe o nome da filial e devolve o resultado dela.
+     * @return Os resultados por filial, na ordem das filiais.
+     */
+    public <R> Map<String, R> emParalelo(Function<String, R> consulta) {
+        var nomes = new ArrayList<>(bancos.keySet());
+        var futuros = new ArrayList<Future<R>>(nomes.size() - 1);
+        var executor = pegarExecutor();
+
+        for (int i = 0; i < nomes.size() - 1; i++) {
+            var nome = nomes.get(i);
+            futuros.add(executor.submit(() -> consulta.apply(nome)));
+        }
+
+        var ultimo = consulta.apply(nomes.get(nomes.size() - 1));
+
+        var resultados = new LinkedHashMap<String, R>();
+        try {
+            for (int i = 0; i < futuros.size(); i++) {
+                resultados.put(nomes.get(i), futuros.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Consulta às filiais interrompida.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa)
+                throw causa;
+            throw new RuntimeException(e.getCause());
+        }
+        resultados.put(nomes.get(nomes.size() - 1), ultimo);
+
+        return resultados;
+    }
+
+    /**
+     * @return As réplicas de leitura das filiais, na mesma ordem e com os mesmos nomes.
+     */
+    public synchronized Filiais replicas() {
+        if (replicas == null)
+            replicas = new Filiais(emParalelo(nome -> pegar(nome).pegarReplica().pegarBanco()));
+
+        return replicas;
+    }
+
+    /**
+     * Aplica as migrations que faltam no banco de cada filial.
+     * @param versaoAlvo A versão de banco esperada pela aplicação.
+     */
+    public void migrar(int versaoAlvo) {
+        emParalelo(nome -> {
+            pegar(nome).migrar(versaoAlvo);
+            return null;
+        });
+    }
+
+    /**
+     * Fecha os bancos de todas as filiais.
+     */
+    public synchronized void fechar() {
+        if (replicas != null)
+            replicas.fechar();
+        replicas = null;
+
+        if (executor != null)
+            executor.shutdown();
+        executor = null;
+
+        bancos.values().forEach(Banco::fechar);
+    }
+
+    private synchronized ExecutorService pegarExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(1, bancos.size() - 1), tarefa -> {
+                var thread = new Thread(tarefa, "filiais-consulta");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return executor;
+    }
+}
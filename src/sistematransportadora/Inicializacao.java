@@ -0,0 +1,124 @@
+package sistematransportadora;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Medição das fases da inicialização da aplicação.
+ * <p>
+ * Os tempos são contados a partir do início do processo, então incluem a
+ * subida da própria JVM. Cada fase vai para o log quando termina e, quando
+ * {@link #resumir()} é chamado, um resumo compara o tempo até a primeira
+ * pintura da janela com a meta de {@value #META_PRIMEIRA_PINTURA_MS} ms.
+ */
+public final class Inicializacao {
+    private static final Logger log = LoggerFactory.getLogger(Inicializacao.class);
+    public static final long META_PRIMEIRA_PINTURA_MS = 300;
+    public static final String PRIMEIRA_PINTURA = "primeira pintura";
+
+    private static final long inicio = inicioDoProcesso();
+    private static final List<Fase> fases = new ArrayList<>();
+
+    /**
+     * Uma fase da inicialização.
+     * @param nome Nome da fase.
+     * @param duracaoMs Quanto a fase levou, ou {@code 0} para um marco.
+     * @param terminouEmMs Quando a fase terminou, desde o início do processo.
+     */
+    public record Fase(String nome, long duracaoMs, long terminouEmMs) {}
+
+    private Inicializacao() {}
+
+    /**
+     * Registra que a inicialização chegou a um ponto.
+     * @param marco Nome do ponto, como {@link #PRIMEIRA_PINTURA}.
+     */
+    public static void marcar(String marco) {
+        registrar(new Fase(marco, 0, decorrido()));
+    }
+
+    /**
+     * Executa uma fase e registra quanto ela levou.
+     * @param nome Nome da fase.
+     * @param fase O trabalho da fase.
+     */
+    public static void medir(String nome, Runnable fase) {
+        medir(nome, () -> {
+            fase.run();
+            return null;
+        });
+    }
+
+    /**
+     * Executa uma fase e registra quanto ela levou.
+     * @param nome Nome da fase.
+     * @param fase O trabalho da fase.
+     * @return O que a fase retornou.
+     */
+    public static <T> T medir(String nome, Supplier<T> fase) {
+        long comeco = System.currentTimeMillis();
+        try {
+            return fase.get();
+        } finally {
+            long fim = System.currentTimeMillis();
+            registrar(new Fase(nome, fim - comeco, fim - inicio));
+        }
+    }
+
+    /**
+     * @return As fases registradas até agora, na ordem em que terminaram.
+     */
+    public static List<Fase> fases() {
+        synchronized (fases) {
+            return List.copyOf(fases);
+        }
+    }
+
+    /**
+     * Registra no log quanto tempo a aplicação levou para abrir a janela e
+     * para ficar pronta.
+     */
+    public static void resumir() {
+        long pronta = decorrido();
+        var pintura = fases().stream()
+                .filter(fase -> fase.nome().equals(PRIMEIRA_PINTURA))
+                .findFirst();
+
+        if (pintura.isEmpty()) {
+            log.info("Inicialização pronta em {} ms.", pronta);
+        } else if (pintura.get().terminouEmMs() > META_PRIMEIRA_PINTURA_MS) {
+            log.warn("Inicialização pronta em {} ms; primeira pintura em {} ms, acima da meta de {} ms.",
+                    pronta, pintura.get().terminouEmMs(), META_PRIMEIRA_PINTURA_MS);
+        } else {
+            log.info("Inicialização pronta em {} ms; primeira pintura em {} ms.",
+                    pronta, pintura.get().terminouEmMs());
+        }
+    }
+
+    private static void registrar(Fase fase) {
+        synchronized (fases) {
+            fases.add(fase);
+        }
+
+        if (fase.duracaoMs() == 0)
+            log.info("Inicialização: {} em {} ms.", fase.nome(), fase.terminouEmMs());
+        else
+            log.info("Inicialização: {} levou {} ms (terminou em {} ms).",
+                    fase.nome(), fase.duracaoMs(), fase.terminouEmMs());
+    }
+
+    private static long decorrido() {
+        return System.currentTimeMillis() - inicio;
+    }
+
+    private static long inicioDoProcesso() {
+        return ProcessHandle.current().info().startInstant()
+                .map(Instant::toEpochMilli)
+                .orElseGet(System::currentTimeMillis);
+    }
+}
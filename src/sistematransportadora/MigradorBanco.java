@@ -0,0 +1,310 @@
+package sistematransportadora;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Leva o banco até a versão esperada pela aplicação.
+ * <p>
+ * A versão 1 é criada por {@code /scripts/schema.sql} e cada versão seguinte
+ * {@code v} por {@code /scripts/migrations/migration_(v - 1).sql}. Cada script
+ * aplicado fica registrado em {@code schema_history} junto com o checksum do
+ * seu conteúdo, e roda numa transação própria: se falhar, só ele é desfeito.
+ * <p>
+ * Quando o banco já está atualizado, a verificação é uma única consulta pela
+ * chave primária de {@code schema_history}.
+ */
+public class MigradorBanco {
+    private static final Logger log = LoggerFactory.getLogger(MigradorBanco.class);
+
+    private final Connection conn;
+
+    public MigradorBanco(Connection conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Aplica os scripts que faltam para chegar em {@code versaoAlvo}.
+     * @param versaoAlvo A versão de banco esperada pela aplicação.
+     */
+    public void migrar(int versaoAlvo) {
+        try {
+            if (versaoAtualRapida() >= versaoAlvo)
+                return;
+
+            try (var stmt = conn.createStatement()) {
+                stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_history (
+                        versao INTEGER NOT NULL PRIMARY KEY,
+                        script TEXT NOT NULL,
+                        checksum TEXT NOT NULL,
+                        aplicado_em INT NOT NULL DEFAULT (strftime('%s', 'now'))
+                    )
+                    """);
+            }
+
+            registrarBaselineSeNecessario();
+            var aplicadas = validarChecksums();
+
+            for (int v = 1; v <= versaoAlvo; v++) {
+                if (!aplicadas.contains(v))
+                    aplicar(v);
+            }
+        } catch (SQLException e) {
+            String err = "Erro ao migrar o banco: " + e.getMessage();
+            log.error(err, e);
+
+            throw new RuntimeException(err, e);
+        }
+    }
+
+    /**
+     * @return A maior versão registrada, ou {@code 0} se o histórico ainda não existir.
+     */
+    private int versaoAtualRapida() {
+        try (var stmt = conn.createStatement();
+             var rs = stmt.executeQuery("SELECT MAX(versao) FROM schema_history")) {
+            return rs.getInt(1);
+        } catch (SQLException e) {
+            // Banco novo ou criado antes do histórico existir.
+            return 0;
+        }
+    }
+
+    /**
+     * Bancos criados antes do histórico já têm as tabelas da versão 1. Nesse caso,
+     * ela é registrada como aplicada em vez de ser executada de novo.
+     */
+    private void registrarBaselineSeNecessario() throws SQLException {
+        var sql = """
+            SELECT NOT EXISTS(SELECT 1 FROM schema_history)
+            AND EXISTS(SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'Produto')
+            """;
+
+        boolean legado;
+        try (var stmt = conn.createStatement();
+             var rs = stmt.executeQuery(sql)) {
+            legado = rs.getBoolean(1);
+        }
+        if (!legado)
+            return;
+
+        log.info("Banco sem histórico de migrations, registrando versão 1 como base.");
+        try (var stmt = conn.prepareStatement("INSERT INTO schema_history (versao, script, checksum) VALUES (1, ?, ?)")) {
+            stmt.setString(1, caminhoScript(1));
+            stmt.setString(2, checksum(lerScript(1)));
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Confere se os scripts já aplicados continuam iguais aos da aplicação.
+     * @return As versões já aplicadas.
+     */
+    private Set<Integer> validarChecksums() throws SQLException {
+        var aplicados = new HashMap<Integer, String>();
+        try (var stmt = conn.createStatement();
+             var rs = stmt.executeQuery("SELECT versao, checksum FROM schema_history")) {
+            while (rs.next()) {
+                aplicados.put(rs.getInt("versao"), rs.getString("checksum"));
+            }
+        }
+
+        for (var aplicado : aplicados.entrySet()) {
+            var esperado = checksum(lerScript(aplicado.getKey()));
+            if (!esperado.equals(aplicado.getValue())) {
+                throw new SQLException(String.format(
+                        "O script da versão %d foi modificado depois de aplicado (%s).",
+                        aplicado.getKey(), caminhoScript(aplicado.getKey())
+                ));
+            }
+        }
+
+        return aplicados.keySet();
+    }
+
+    private void aplicar(int versao) throws SQLException {
+        // As foreign keys ficam desligadas durante o script, para que recriar
+        // uma tabela não apague em cascata os dependentes dela. Esse pragma
+        // não tem efeito dentro de uma transação.
+        try (var stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA foreign_keys = OFF");
+        }
+
+        try (var stmt = conn.createStatement()) {
+            // Transação aberta à mão para já travar a escrita antes de olhar o
+            // histórico, caso outra instância da aplicação esteja migrando o mesmo arquivo.
+            stmt.execute("BEGIN IMMEDIATE");
+
+            try {
+                try (var rs = stmt.executeQuery("SELECT EXISTS(SELECT 1 FROM schema_history WHERE versao = " + versao + ")")) {
+                    if (rs.getBoolean(1)) {
+                        stmt.execute("ROLLBACK");
+                        return;
+                    }
+                }
+
+                var script = lerScript(versao);
+                log.info("Aplicando {} (versão {}).", caminhoScript(versao), versao);
+                for (var sql : dividirComandos(script)) {
+                    stmt.execute(sql);
+                }
+
+                try (var rs = stmt.executeQuery("PRAGMA foreign_key_check")) {
+                    if (rs.next()) {
+                        throw new SQLException("Foreign key inválida na tabela " + rs.getString(1) + " após a migration.");
+                    }
+                }
+
+                try (var insert = conn.prepareStatement("INSERT INTO schema_history (versao, script, checksum) VALUES (?, ?, ?)")) {
+                    insert.setInt(1, versao);
+                    insert.setString(2, caminhoScript(versao));
+                    insert.setString(3, checksum(script));
+                    insert.executeUpdate();
+                }
+
+                stmt.execute("COMMIT");
+            } catch (SQLException e) {
+                var falha = new SQLException(String.format("falha na versão %d: %s", versao, e.getMessage()), e);
+                // Um erro no ROLLBACK não pode esconder o da migration.
+                try {
+                    stmt.execute("ROLLBACK");
+                } catch (SQLException erroRollback) {
+                    falha.addSuppressed(erroRollback);
+                }
+                throw falha;
+            }
+        } finally {
+            try (var stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA foreign_keys = ON");
+            }
+        }
+    }
+
+    private static String caminhoScript(int versao) {
+        return versao == 1
+                ? "/scripts/schema.sql"
+                : String.format("/scripts/migrations/migration_%d.sql", versao - 1);
+    }
+
+    private static String lerScript(int versao) throws SQLException {
+        var caminho = caminhoScript(versao);
+        try (InputStream arquivo = MigradorBanco.class.getResourceAsStream(caminho)) {
+            if (arquivo == null)
+                throw new SQLException("Script não encontrado: " + caminho);
+
+            // Normaliza as quebras de linha para o checksum não depender do sistema.
+            return new String(arquivo.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new SQLException("Erro ao ler " + caminho + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String checksum(String script) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(script.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Divide um script em comandos nos {@code ;} que encerram cada um. Ignora
+     * comentários e os {@code ;} dentro de textos, identificadores entre aspas e
+     * do corpo {@code BEGIN ... END} de um {@code CREATE TRIGGER}, incluindo
+     * expressões {@code CASE ... END} dentro desse corpo.
+     * @param script O conteúdo do script.
+     * @return Os comandos, sem o {@code ;} final.
+     */
+    static List<String> dividirComandos(String script) {
+        var comandos = new ArrayList<String>();
+        var atual = new StringBuilder();
+        var palavrasIniciais = new ArrayList<String>(3);
+        boolean emTrigger = false;
+        boolean noCorpo = false;
+        int casesAbertos = 0;
+
+        int i = 0;
+        int n = script.length();
+        while (i < n) {
+            char c = script.charAt(i);
+
+            if (c == '-' && i + 1 < n && script.charAt(i + 1) == '-') {
+                while (i < n && script.charAt(i) != '\n') i++;
+                continue;
+            }
+            if (c == '/' && i + 1 < n && script.charAt(i + 1) == '*') {
+                int fim = script.indexOf("*/", i + 2);
+                i = fim < 0 ? n : fim + 2;
+                atual.append(' ');
+                continue;
+            }
+            if (c == '\'' || c == '"' || c == '`' || c == '[') {
+                char fechamento = c == '[' ? ']' : c;
+                int fim = script.indexOf(fechamento, i + 1);
+                fim = fim < 0 ? n : fim + 1;
+                atual.append(script, i, fim);
+                i = fim;
+                continue;
+            }
+            if (Character.isLetterOrDigit(c) || c == '_') {
+                int inicio = i;
+                while (i < n && (Character.isLetterOrDigit(script.charAt(i)) || script.charAt(i) == '_')) i++;
+                var palavra = script.substring(inicio, i).toUpperCase(Locale.ROOT);
+                atual.append(script, inicio, i);
+
+                if (palavrasIniciais.size() < 3) {
+                    palavrasIniciais.add(palavra);
+                    emTrigger = palavrasIniciais.get(0).equals("CREATE") && palavrasIniciais.contains("TRIGGER");
+                } else if (emTrigger) {
+                    switch (palavra) {
+                        case "BEGIN" -> noCorpo = true;
+                        case "CASE" -> { if (noCorpo) casesAbertos++; }
+                        case "END" -> {
+                            if (casesAbertos > 0) casesAbertos--;
+                            else noCorpo = false;
+                        }
+                        default -> {}
+                    }
+                }
+                continue;
+            }
+            if (c == ';' && !noCorpo) {
+                var comando = atual.toString().trim();
+                if (!comando.isEmpty())
+                    comandos.add(comando);
+
+                atual.setLength(0);
+                palavrasIniciais.clear();
+                emTrigger = false;
+                casesAbertos = 0;
+                i++;
+                continue;
+            }
+
+            atual.append(c);
+            i++;
+        }
+
+        var ultimo = atual.toString().trim();
+        if (!ultimo.isEmpty())
+            comandos.add(ultimo);
+
+        return comandos;
+    }
+}
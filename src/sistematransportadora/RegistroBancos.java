@@ -0,0 +1,186 @@
+package sistematransportadora;
+
+import sistematransportadora.repositorio.ObservadorAlteracoes;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro dos bancos usados pela aplicação, cada um com um nome.
+ * <p>
+ * O banco padrão, usado quando nenhum outro é indicado, vem da propriedade
+ * {@code sistematransportadora.banco} ou da variável de ambiente
+ * {@code SISTEMA_TRANSPORTADORA_BANCO}, que aceitam um caminho ou uma URL JDBC.
+ * Sem nenhuma das duas, ele fica em {@code %APPDATA%/SistemaTransportadora/data.db}
+ * ou, onde {@code APPDATA} não existe, em {@code ~/.sistematransportadora/data.db}.
+ * <p>
+ * Com a propriedade {@code sistematransportadora.filiais} ou a variável
+ * {@code SISTEMA_TRANSPORTADORA_FILIAIS} no formato {@code nome=caminho;nome=caminho},
+ * a aplicação passa a ter um banco por filial (ver {@link Filiais}) e o banco
+ * padrão passa a ser o da filial principal.
+ */
+public class RegistroBancos {
+    public static final String PADRAO = "padrao";
+
+    private static final Map<String, Banco> bancos = new ConcurrentHashMap<>();
+    private static volatile Filiais filiais;
+    private static volatile boolean filiaisLidas;
+
+    private RegistroBancos() {}
+
+    /**
+     * Registra um banco com o nome dado, substituindo o que já existia.
+     * O banco substituído é fechado.
+     * @param nome Nome do banco.
+     * @param banco O banco.
+     */
+    public static void registrar(String nome, Banco banco) {
+        var anterior = bancos.put(nome, banco);
+        if (anterior != null && anterior != banco)
+            anterior.fechar();
+    }
+
+    /**
+     * Busca um banco registrado pelo nome.
+     * @param nome Nome do banco.
+     * @return {@link Banco} | {@code null}
+     */
+    public static Banco pegar(String nome) {
+        if (PADRAO.equals(nome))
+            return padrao();
+
+        return bancos.get(nome);
+    }
+
+    public static Banco padrao() {
+        return bancos.computeIfAbsent(PADRAO, n -> {
+            var divisao = filiais();
+            return divisao != null ? divisao.pegar(divisao.principal()) : Banco.de(localPadrao());
+        });
+    }
+
+    /**
+     * @return Os observadores de alterações de todos os bancos em uso: o de
+     * cada filial, ou só o do banco padrão.
+     */
+    public static List<ObservadorAlteracoes> observadores() {
+        var divisao = filiais();
+        if (divisao == null)
+            return List.of(padrao().pegarObservador());
+
+        var lista = new ArrayList<ObservadorAlteracoes>();
+        for (var nome : divisao.nomes()) {
+            lista.add(divisao.pegar(nome).pegarObservador());
+        }
+        return lista;
+    }
+
+    /**
+     * @return O momento da réplica de leitura mais desatualizada entre os bancos
+     * em uso, ou {@code null} se nenhuma réplica foi criada ainda.
+     */
+    public static Instant dadosDosRelatoriosEm() {
+        Instant maisAntigo = null;
+        for (var banco : bancosEmUso()) {
+            var momento = banco.pegarReplica().getAtualizadaEm();
+            if (momento != null && (maisAntigo == null || momento.isBefore(maisAntigo)))
+                maisAntigo = momento;
+        }
+        return maisAntigo;
+    }
+
+    /**
+     * Começa a criar as réplicas de leitura dos bancos em uso, se ainda não
+     * começou. A primeira cópia de cada uma é feita em segundo plano.
+     * @return Uma etapa que termina quando todas as réplicas tiverem a primeira cópia.
+     */
+    public static CompletableFuture<Void> relatoriosProntos() {
+        var copias = new ArrayList<CompletableFuture<Void>>();
+        for (var banco : bancosEmUso()) {
+            copias.add(banco.pegarReplica().pronta());
+        }
+        return CompletableFuture.allOf(copias.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * @return O banco de cada filial ou, sem filiais, o banco padrão.
+     */
+    private static List<Banco> bancosEmUso() {
+        var divisao = filiais();
+        if (divisao == null)
+            return List.of(padrao());
+
+        var lista = new ArrayList<Banco>();
+        for (var nome : divisao.nomes()) {
+            lista.add(divisao.pegar(nome));
+        }
+        return lista;
+    }
+
+    /**
+     * @return As filiais configuradas, ou {@code null} se a aplicação usa um só banco.
+     */
+    public static Filiais filiais() {
+        if (!filiaisLidas) {
+            synchronized (RegistroBancos.class) {
+                if (!filiaisLidas) {
+                    var configuracao = System.getProperty("sistematransportadora.filiais");
+                    if (configuracao == null)
+                        configuracao = System.getenv("SISTEMA_TRANSPORTADORA_FILIAIS");
+                    if (configuracao != null && !configuracao.isBlank())
+                        filiais = Filiais.de(configuracao);
+
+                    filiaisLidas = true;
+                }
+            }
+        }
+
+        return filiais;
+    }
+
+    /**
+     * Passa a usar um banco por filial, ou volta a usar um só banco com {@code null}.
+     * As filiais e o banco padrão usados antes são fechados.
+     * @param novasFiliais As filiais, ou {@code null}.
+     */
+    public static synchronized void usarFiliais(Filiais novasFiliais) {
+        var anteriores = filiais();
+        filiais = novasFiliais;
+        filiaisLidas = true;
+
+        var padraoAnterior = bancos.remove(PADRAO);
+        if (anteriores != null)
+            anteriores.fechar();
+        else if (padraoAnterior != null)
+            padraoAnterior.fechar();
+    }
+
+    /**
+     * Remove um banco do registro e o fecha.
+     * @param nome Nome do banco.
+     */
+    public static void remover(String nome) {
+        var banco = bancos.remove(nome);
+        if (banco != null)
+            banco.fechar();
+    }
+
+    private static String localPadrao() {
+        var configurado = System.getProperty("sistematransportadora.banco");
+        if (configurado == null)
+            configurado = System.getenv("SISTEMA_TRANSPORTADORA_BANCO");
+        if (configurado != null && !configurado.isBlank())
+            return configurado;
+
+        var appData = System.getenv("APPDATA");
+        if (appData != null)
+            return new File(appData, "SistemaTransportadora/data.db").getPath();
+
+        return new File(System.getProperty("user.home"), ".sistematransportadora/data.db").getPath();
+    }
+}
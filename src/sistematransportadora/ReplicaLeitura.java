@@ -0,0 +1,193 @@
+package sistematransportadora;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cópia de um banco usada pelos relatórios, para que as consultas longas
+ * deles não disputem o arquivo principal com quem está cadastrando.
+ * <p>
+ * A cópia é refeita periodicamente com {@link CopiaOnline}. Antes de copiar,
+ * a réplica consulta {@code PRAGMA data_version} do banco de origem e, se nada
+ * mudou desde a última cópia, só marca a réplica como atual, sem copiar nada.
+ * <p>
+ * A primeira cópia começa em {@link #iniciar()}, em segundo plano; quem não
+ * pode esperar por ela, como as telas, aguarda {@link #pronta()} antes de
+ * chamar {@link #pegarBanco()}.
+ */
+public class ReplicaLeitura {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLeitura.class);
+    public static final Duration INTERVALO_PADRAO = Duration.ofSeconds(30);
+
+    private final Banco origem;
+    private final File arquivo;
+    private final Banco banco;
+    private final Duration intervalo;
+    private ScheduledExecutorService agendador;
+    private Connection conexaoOrigem;
+    private long versaoCopiada = -1;
+    private volatile Instant atualizadaEm;
+    private final CompletableFuture<Void> primeiraCopia = new CompletableFuture<>();
+
+    /**
+     * @param origem Banco que será copiado.
+     * @param arquivo Arquivo da réplica.
+     * @param intervalo Intervalo entre as atualizações.
+     */
+    public ReplicaLeitura(Banco origem, File arquivo, Duration intervalo) {
+        this.origem = origem;
+        this.arquivo = arquivo;
+        this.banco = Banco.doArquivo(arquivo);
+        this.intervalo = intervalo;
+    }
+
+    /**
+     * Cria a réplica ao lado do arquivo do banco, com {@code -replica} no nome,
+     * ou num arquivo temporário se o banco estiver em memória.
+     * @param origem Banco que será copiado.
+     * @return {@link ReplicaLeitura}
+     */
+    public static ReplicaLeitura de(Banco origem) {
+        var arquivoOrigem = origem.getArquivo();
+        File arquivo;
+        if (arquivoOrigem != null) {
+            var nome = arquivoOrigem.getName().replaceFirst("(\\.db)?$", "-replica.db");
+            arquivo = new File(arquivoOrigem.getAbsoluteFile().getParentFile(), nome);
+        } else {
+            try {
+                arquivo = File.createTempFile("replica-", ".db");
+                arquivo.deleteOnExit();
+            } catch (IOException e) {
+                throw new RuntimeException("Erro ao criar arquivo da réplica: " + e.getMessage());
+            }
+        }
+
+        return new ReplicaLeitura(origem, arquivo, INTERVALO_PADRAO);
+    }
+
+    /**
+     * @return O banco da réplica, para ser usado só em leituras. Se a primeira
+     * cópia ainda não foi feita, ela é feita antes, nesta thread.
+     */
+    public Banco pegarBanco() {
+        if (atualizadaEm == null)
+            atualizar();
+
+        return banco;
+    }
+
+    /**
+     * @return Uma etapa que termina quando a primeira cópia da réplica estiver feita.
+     */
+    public CompletableFuture<Void> pronta() {
+        return primeiraCopia;
+    }
+
+    /**
+     * @return O momento em que a réplica foi conferida com a origem pela última vez,
+     * ou {@code null} se ela ainda não foi criada.
+     */
+    public Instant getAtualizadaEm() {
+        return atualizadaEm;
+    }
+
+    /**
+     * @return Há quanto tempo a réplica foi conferida com a origem.
+     */
+    public Duration atraso() {
+        var momento = atualizadaEm;
+        return momento == null ? null : Duration.between(momento, Instant.now());
+    }
+
+    /**
+     * Começa a atualizar a réplica em segundo plano, no intervalo configurado.
+     */
+    public synchronized void iniciar() {
+        if (agendador != null)
+            return;
+
+        agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            var thread = new Thread(tarefa, "replica-leitura");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(() -> {
+            try {
+                atualizar();
+            } catch (RuntimeException e) {
+                // O erro já foi registrado; a próxima tentativa segue no horário.
+            }
+        }, 0, intervalo.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Copia o banco de origem para a réplica, se ele mudou desde a última cópia.
+     * @return {@code true} se a cópia foi feita, {@code false} se a réplica já estava atual.
+     */
+    public synchronized boolean atualizar() {
+        var inicio = Instant.now();
+        try {
+            if (conexaoOrigem == null)
+                conexaoOrigem = origem.abrirConnectionDedicada();
+
+            long versao;
+            try (var stmt = conexaoOrigem.createStatement();
+                 var rs = stmt.executeQuery("PRAGMA data_version")) {
+                versao = rs.getLong(1);
+            }
+
+            if (versao == versaoCopiada && atualizadaEm != null) {
+                atualizadaEm = inicio;
+                return false;
+            }
+
+            var estatisticas = CopiaOnline.copiar(conexaoOrigem, arquivo, CopiaOnline.PAGINAS_POR_PASSO);
+            versaoCopiada = versao;
+            atualizadaEm = inicio;
+            primeiraCopia.complete(null);
+
+            log.debug("Réplica atualizada: {} páginas em {} ms.",
+                    estatisticas.paginas(), estatisticas.duracaoNanos() / 1_000_000);
+            return true;
+        } catch (SQLException e) {
+            String err = "Erro ao atualizar a réplica de leitura: " + e.getMessage();
+            log.error(err);
+            fecharConexao();
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * Para as atualizações e fecha a réplica.
+     */
+    public synchronized void parar() {
+        if (agendador != null)
+            agendador.shutdownNow();
+        agendador = null;
+
+        fecharConexao();
+        banco.fechar();
+    }
+
+    private void fecharConexao() {
+        try {
+            if (conexaoOrigem != null)
+                conexaoOrigem.close();
+        } catch (SQLException ignored) {
+            // A conexão é descartada de qualquer forma.
+        }
+        conexaoOrigem = null;
+    }
+}
@@ -1,161 +1,193 @@
 package sistematransportadora;
 
-import java.io.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sistematransportadora.exportacao.Exportar;
+import sistematransportadora.importacao.Importar;
+import sistematransportadora.repositorio.EmbalagemRepositorio;
+import sistematransportadora.repositorio.ProdutoRepositorio;
+import sistematransportadora.repositorio.VeiculoRepositorio;
+import sistematransportadora.ui.TelaPrincipal;
+
+import java.io.IOException;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
-import java.sql.Connection;
-import sistematransportadora.ui.TelaPrincipal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
 
 /**
  *
  * @author pedro
  */
 public class SistemaTransportadora {
+    private static final Logger log = LoggerFactory.getLogger(SistemaTransportadora.class);
     public static final String VERSAO_APP = "v1.0.0";
-    public static final int VERSAO_BANCO = 1;
+    public static final int VERSAO_BANCO = 7;
     
-    public static void main(String[] args) {
-        prepararBanco();
-        TelaPrincipal.main(null);
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("importar")) {
+            prepararBanco();
+            System.exit(Importar.executar(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("exportar")) {
+            prepararBanco();
+            System.exit(Exportar.executar(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("foto")) {
+            prepararBanco();
+            gravarFotos(false);
+            System.exit(0);
+        }
+
+        // A janela abre já; os bancos são preparados enquanto ela aparece.
+        var preparacao = prepararEmSegundoPlano();
+        TelaPrincipal.exibir(preparacao);
+    }
+
+    /**
+     * Prepara os bancos em segundo plano. As migrations e a abertura do pool
+     * de conexões correm juntas; as fotos do catálogo, as tarefas de fundo e
+     * as réplicas de leitura esperam as migrations, e o cache de consultas é
+     * preenchido por último.
+     * @return Uma etapa que termina quando os bancos já podem ser usados pelas
+     * telas, sem esperar o cache.
+     */
+    private static CompletableFuture<Void> prepararEmSegundoPlano() {
+        var executor = Executors.newCachedThreadPool(tarefa -> {
+            var thread = new Thread(tarefa, "inicializacao");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        var migracoes = CompletableFuture.runAsync(
+                () -> Inicializacao.medir("migrações", SistemaTransportadora::prepararBanco), executor);
+        var pool = CompletableFuture.runAsync(
+                () -> Inicializacao.medir("pool de conexões", SistemaTransportadora::aquecerPool), executor);
+        var fotos = migracoes.thenRunAsync(
+                () -> Inicializacao.medir("fotos do catálogo", SistemaTransportadora::carregarFotos), executor);
+        var tarefas = migracoes.thenRunAsync(
+                () -> Inicializacao.medir("tarefas de fundo", SistemaTransportadora::iniciarTarefasDeFundo), executor);
+        // Só começa a primeira cópia das réplicas; ela segue na thread delas e o resumo espera por ela.
+        var replicas = migracoes.thenRunAsync(
+                () -> Inicializacao.medir("réplicas de leitura", RegistroBancos::relatoriosProntos), executor);
+        var cache = CompletableFuture.allOf(fotos, pool).thenRunAsync(
+                () -> Inicializacao.medir("cache de consultas", SistemaTransportadora::preencherCache), executor);
+
+        CompletableFuture.allOf(tarefas, replicas, cache).whenComplete((nada, erro) -> {
+            executor.shutdown();
+            Inicializacao.resumir();
+        });
+
+        return CompletableFuture.allOf(migracoes, fotos);
     }
 
     private static void prepararBanco() {
-        String pastaAppData = System.getenv("APPDATA");
-        File pastaSistema = new File(pastaAppData, "SistemaTransportadora");
-        File bd = new File (pastaSistema.getPath(), "data.db");
-
-        var existiaPasta = !pastaSistema.mkdirs();
-        if (!existiaPasta || !bd.exists()) {
-            try (var bdConn = ConexaoBanco.pegarConnection()) {
-                InputStream arquivoSql = SistemaTransportadora.class
-                        .getResourceAsStream("/scripts/schema.sql");
-                var stmt = bdConn.createStatement();
-
-                if (arquivoSql != null) {
-                    executarArquivoSQL(arquivoSql, stmt);
-                } else {
-                    throw new FileNotFoundException("Não foi possível encontra a schema necessária.");
-                }
-            } catch (SQLException | FileNotFoundException e) {
-                String err = "Erro ao conectar com o banco: " + e.getMessage();
-                throw  new RuntimeException(err);
+        var filiais = RegistroBancos.filiais();
+        if (filiais != null)
+            filiais.migrar(VERSAO_BANCO);
+        else
+            RegistroBancos.padrao().migrar(VERSAO_BANCO);
+    }
+
+    /**
+     * Abre a primeira conexão do pool de cada banco em uso, que é a mais demorada.
+     */
+    private static void aquecerPool() {
+        for (var banco : bancosEmUso()) {
+            try {
+                // Só abrir a conexão já basta.
+                banco.pegarConnection().close();
+            } catch (SQLException e) {
+                // A mesma falha aparece para quem usar o banco depois.
+                log.error("Erro ao abrir o pool do banco {}: {}", banco.getUrl(), e.getMessage());
             }
-            return;
         }
-        
-        verificarNecessidadeDeMigrations();
     }
 
-    private static void executarArquivoSQL(InputStream file, Statement stmt) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file))) {
-            String linha;
-            StringBuilder sql = new StringBuilder();
+    /**
+     * Faz as consultas das telas de cadastro e de visualização uma vez, para
+     * elas abrirem com o cache já preenchido.
+     */
+    private static void preencherCache() {
+        try {
+            var produtos = ProdutoRepositorio.padrao();
+            produtos.buscarTipos();
+            produtos.buscarTodos();
 
-            while ((linha = reader.readLine()) != null) {
-                sql.append(linha).append("\n");
-            }
+            var veiculos = VeiculoRepositorio.padrao();
+            veiculos.buscarTipos();
+            veiculos.buscarTodos();
 
-            stmt.executeLargeUpdate(sql.toString());
-        } catch (IOException | SQLException e) {
-            System.out.println("Erro ao executar script SQL de criação: " + e.getMessage());
+            var embalagens = EmbalagemRepositorio.padrao();
+            embalagens.buscarTipos();
+            embalagens.buscarTodos();
+        } catch (RuntimeException e) {
+            // O erro já foi registrado; as telas consultam o banco quando abrirem.
         }
     }
-    
-    private static void verificarNecessidadeDeMigrations() {
-        int versaoBancoLocal;
-        
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement("SELECT * FROM Versao WHERE id = 1");
-            var rs = stmt.executeQuery();
-            versaoBancoLocal = rs.getInt("numero_versao");
-            
-            // Por enquanto sem tratamento para caso a aplicação
-            // esteja desatualizada.
-            if (VERSAO_BANCO <= versaoBancoLocal)
-                return;
-        } catch (SQLException e) {
-            System.out.println("Erro ao verificar necessidade de migrations: " + e.getMessage());
-            return;
+
+    /**
+     * Agenda os backups e o arquivamento de embalagens de cada banco em uso.
+     * Bancos em memória não têm backup.
+     */
+    private static void iniciarTarefasDeFundo() {
+        for (var banco : bancosEmUso()) {
+            if (banco.getArquivo() != null)
+                banco.pegarBackup().iniciar();
+            banco.pegarArquivador().iniciar();
         }
-        
-        executarMigrationsParaVersao(versaoBancoLocal);
     }
-    
-    private static void executarMigrationsParaVersao(int versaoAtual) {
-        StringBuilder sqlBuilder = new StringBuilder();
-
-        for (int v = versaoAtual; v < VERSAO_BANCO; v++) {
-            var arquivo = SistemaTransportadora.class.getResourceAsStream(
-                String.format("/scripts/migrations/migration_%d.sql", v)
-            );
-            if (arquivo == null) continue;
-
-            try (var reader = new BufferedReader(new InputStreamReader(arquivo))) {
-                String linha;
-                while ((linha = reader.readLine()) != null) {
-                    if (linha.startsWith("--")) continue;
-                    sqlBuilder.append(linha).append("\n");
-                }
-            } catch (IOException e) {
-                System.err.println("Erro ao ler arquivo de migration: " + e.getMessage());
-                return;
-            }
+
+    /**
+     * Carrega a foto do catálogo de cada banco em uso e agenda a gravação de
+     * uma nova no fechamento da aplicação, se o banco tiver mudado.
+     */
+    private static void carregarFotos() {
+        for (var banco : bancosEmUso()) {
+            banco.pegarFoto().carregar();
         }
 
-        String[] comandos = sqlBuilder.toString().split(";");
-        ArrayList<String> comandosDrop = new ArrayList<>();
-        ArrayList<String> comandosTransacionais = new ArrayList<>();
+        var gravacao = new Thread(() -> gravarFotos(true), "foto-catalogo");
+        Runtime.getRuntime().addShutdownHook(gravacao);
+    }
 
-        for (String cmd : comandos) {
-            String sql = cmd.trim();
-            if (sql.isEmpty()) continue;
+    /**
+     * Grava a foto do catálogo de cada banco em uso.
+     * @param soDesatualizadas Se só as fotos que não correspondem mais ao banco devem ser gravadas.
+     */
+    private static void gravarFotos(boolean soDesatualizadas) {
+        for (var banco : bancosEmUso()) {
+            if (banco.getArquivo() == null)
+                continue;
 
-            if (sql.toUpperCase().startsWith("DROP TABLE")) {
-                comandosDrop.add(sql);
-            } else {
-                comandosTransacionais.add(sql);
+            try {
+                var foto = banco.pegarFoto();
+                if (soDesatualizadas)
+                    foto.gravarSeDesatualizada();
+                else
+                    foto.gravar();
+            } catch (RuntimeException e) {
+                // O erro já foi registrado; a próxima abertura só fica mais lenta.
             }
         }
+    }
 
-        // Executa os comandos transacionais.
-        try (Connection conn = ConexaoBanco.pegarConnection()) {
-            conn.setAutoCommit(false);
-            for (String sql : comandosTransacionais) {
-                System.out.println("Executando: " + sql);
-                try (Statement stmt = conn.createStatement()) {
-                    stmt.execute(sql);
-                }
-            }
-            conn.commit();
-        } catch (SQLException e) {
-            try (Connection conn = ConexaoBanco.pegarConnection()) {
-                conn.rollback();
-            } catch (SQLException rollbackEx) {
-                System.err.println("Erro ao fazer rollback: " + rollbackEx.getMessage());
-            }
-            
-            System.err.println("Erro ao executar migrations: " + e.getMessage());
-            return;
-        } finally {
-            try (Connection conn = ConexaoBanco.pegarConnection()) {
-                conn.setAutoCommit(true);
-            } catch (Exception e) {
-                System.out.println("Erro ao ativar autoCommit: " + e.getMessage());
+    /**
+     * @return O banco de cada filial ou, sem filiais, o banco padrão.
+     */
+    private static List<Banco> bancosEmUso() {
+        var filiais = RegistroBancos.filiais();
+        var bancos = new ArrayList<Banco>();
+        if (filiais != null) {
+            for (var nome : filiais.nomes()) {
+                bancos.add(filiais.pegar(nome));
             }
+        } else {
+            bancos.add(RegistroBancos.padrao());
         }
 
-        // Executa os comandos de DROP fora da transação.
-        for (String sql : comandosDrop) {
-            System.out.println("Executando DROP fora da transação: " + sql);
-            try (
-                Connection conn = ConexaoBanco.pegarConnection();
-                Statement stmt = conn.createStatement()
-            ) {
-                stmt.execute(sql);
-            } catch (SQLException e) {
-                System.err.println("Erro ao executar DROP TABLE: " + e.getMessage());
-            }
-        }
+        return bancos;
     }
 }
@@ -0,0 +1,33 @@
+package sistematransportadora.carga;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * O resultado de um ajuste feito num plano de carga.
+ * @param mantidas Quantas embalagens carregadas antes do ajuste continuam no mesmo lugar.
+ * @param movidas Quantas embalagens carregadas antes do ajuste mudaram de lugar ou saíram do veículo.
+ * @param recusadas As embalagens incluídas ou redimensionadas no ajuste que
+ * não couberam, e as que tiveram de sair para aliviar um eixo e não couberam em outro lugar.
+ * @param eixosExcedidos Os eixos que ficaram com mais carga do que aguentam
+ * depois do ajuste, da frente para trás; vazio se o plano continua dentro
+ * dos limites ou o veículo não tiver eixos conhecidos.
+ * @param duracao Quanto o ajuste levou.
+ */
+public record AjusteCarga(int mantidas, int movidas, List<EmbalagemRecusada> recusadas,
+                          List<EixosVeiculo.Eixo> eixosExcedidos, Duration duracao) {
+    /**
+     * @return Se o plano ajustado pode ser carregado como está, sem nenhum eixo acima do limite.
+     */
+    public boolean viavel() {
+        return eixosExcedidos.isEmpty();
+    }
+
+    /**
+     * @return A fração do plano anterior que ficou onde estava, entre 0 e 1.
+     */
+    public double fracaoMantida() {
+        int total = mantidas + movidas;
+        return total > 0 ? (double) mantidas / total : 1;
+    }
+}
@@ -0,0 +1,28 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Embalagem;
+
+/**
+ * Uma mudança num plano de carga já montado.
+ * @param tipo O que mudou.
+ * @param embalagem A embalagem; num redimensionamento, já com as medidas novas.
+ */
+public record AlteracaoCarga(Tipo tipo, Embalagem embalagem) {
+    public enum Tipo {
+        INCLUSAO,
+        REMOCAO,
+        REDIMENSIONAMENTO
+    }
+
+    public static AlteracaoCarga inclusao(Embalagem embalagem) {
+        return new AlteracaoCarga(Tipo.INCLUSAO, embalagem);
+    }
+
+    public static AlteracaoCarga remocao(Embalagem embalagem) {
+        return new AlteracaoCarga(Tipo.REMOCAO, embalagem);
+    }
+
+    public static AlteracaoCarga redimensionamento(Embalagem embalagem) {
+        return new AlteracaoCarga(Tipo.REDIMENSIONAMENTO, embalagem);
+    }
+}
@@ -0,0 +1,525 @@
+package sistematransportadora.carga;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Fragilidade;
+import sistematransportadora.modelo.Veiculo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Guarda planos de carga já feitos, para não planejar de novo as mesmas cargas.
+ * <p>
+ * A chave não olha ids: é o perfil do veículo (medidas internas, capacidade
+ * de peso e a {@linkplain EixosVeiculo.Composicao composição dos eixos}) e o conjunto das assinaturas das embalagens pedidas, onde a
+ * assinatura é o que o planejamento usa de uma embalagem (medidas, peso, se é
+ * empilhável e a fragilidade). As embalagens com a mesma assinatura são
+ * trocáveis entre si, então um plano guardado serve para qualquer pedido com as
+ * mesmas assinaturas, em qualquer ordem: as embalagens do pedido entram nos
+ * lugares das que tinham a mesma assinatura.
+ * <p>
+ * O conjunto vira um resumo de 128 bits que não depende da ordem das
+ * embalagens (a soma de um resumo de cada assinatura), então montar a chave
+ * custa uma passada pelas embalagens, sem ordenar. Antes de servir um plano, as
+ * assinaturas do pedido são conferidas com as do plano guardado, e uma colisão
+ * do resumo conta como falta.
+ * <p>
+ * O último plano servido também fica guardado pronto, com o pedido que o
+ * gerou: um pedido repetido com as mesmas embalagens, na mesma ordem e sem
+ * mudanças no que o planejamento usa delas, recebe esse plano sem resumo nem
+ * montagem, só com a conferência de cada embalagem.
+ * <p>
+ * Quando passa do tamanho máximo, sai o plano usado há mais tempo. Com um
+ * arquivo, os planos guardados são lidos ao criar o cache e gravados em
+ * {@link #gravar()}. Um cache deve servir a um planejador só, já que a chave não
+ * diz qual estratégia fez o plano.
+ */
+public class CachePlanos {
+    private static final Logger log = LoggerFactory.getLogger(CachePlanos.class);
+    private static final int MAGICO = 0x53545043; // "STPC"
+    private static final int FORMATO = 3;
+    public static final int TAMANHO_PADRAO = 512;
+
+    /**
+     * O que o planejamento usa de uma embalagem.
+     */
+    private record Assinatura(double altura, double largura, double comprimento, double peso,
+                              boolean empilhavel, Fragilidade fragilidade) {
+        /**
+         * @return A assinatura, ou {@code null} se a embalagem não tiver dimensões.
+         */
+        static Assinatura de(Embalagem embalagem) {
+            var d = embalagem.getDimensoes();
+            if (d == null)
+                return null;
+
+            return new Assinatura(d.altura, d.largura, d.comprimento, embalagem.getPeso(),
+                    embalagem.isEmpilhavel(), RegrasEmpilhamento.fragilidade(embalagem));
+        }
+
+        /**
+         * @return Se a embalagem ainda tem esta assinatura, sem criar uma nova.
+         */
+        boolean confere(Embalagem embalagem) {
+            var d = embalagem.getDimensoes();
+            return d != null && d.altura == altura && d.largura == largura && d.comprimento == comprimento
+                    && embalagem.getPeso() == peso && embalagem.isEmpilhavel() == empilhavel
+                    && RegrasEmpilhamento.fragilidade(embalagem) == fragilidade;
+        }
+
+        long resumo(long semente) {
+            long h = semente;
+            h = misturar(h ^ Double.doubleToLongBits(altura));
+            h = misturar(h ^ Double.doubleToLongBits(largura));
+            h = misturar(h ^ Double.doubleToLongBits(comprimento));
+            h = misturar(h ^ Double.doubleToLongBits(peso));
+            return misturar(h ^ ((long) fragilidade.ordinal() << 1 | (empilhavel ? 1 : 0)));
+        }
+    }
+
+    /**
+     * @param eixos A {@link EixosVeiculo.Composicao} do veículo mais um, ou 0 se ele não tiver uma.
+     */
+    private record Chave(double altura, double largura, double comprimento, double capacidade, int eixos,
+                         int quantidade, long resumo1, long resumo2) {
+        /**
+         * @return Se o perfil do veículo ainda é o desta chave.
+         */
+        boolean serve(Veiculo veiculo) {
+            var interno = veiculo.getDimensoesInternas();
+            return interno != null && interno.altura == altura && interno.largura == largura
+                    && interno.comprimento == comprimento && veiculo.getCapacidadeDePeso() == capacidade
+                    && CachePlanos.eixos(veiculo) == eixos;
+        }
+    }
+
+    private record Lugar(Assinatura assinatura, double x, double y, double z,
+                         double largura, double comprimento, double altura, boolean girada) {}
+
+    private record Recusa(Assinatura assinatura, String motivo) {}
+
+    private record Guardado(List<Lugar> lugares, List<Recusa> recusas, double peso, double volume) {}
+
+    /**
+     * Um plano já montado e o pedido que o gerou.
+     */
+    private record Servido(Chave chave, Guardado guardado, Veiculo veiculo, Embalagem[] embalagens,
+                           Assinatura[] assinaturas, PlanoCarga plano) {
+        /**
+         * @return Se o pedido é o mesmo: o mesmo veículo e as mesmas
+         * embalagens, na mesma ordem, com as mesmas assinaturas.
+         */
+        boolean atende(Veiculo veiculo, Collection<Embalagem> pedido) {
+            if (veiculo != this.veiculo || pedido.size() != embalagens.length || !chave.serve(veiculo))
+                return false;
+
+            int i = 0;
+            for (var embalagem : pedido) {
+                if (embalagem != embalagens[i] || !assinaturas[i].confere(embalagem))
+                    return false;
+                i++;
+            }
+            return true;
+        }
+    }
+
+    private final int tamanhoMaximo;
+    private final File arquivo;
+    private final Map<Chave, Guardado> planos;
+    private volatile Servido servido;
+    private long acertos;
+    private long faltas;
+
+    /**
+     * Cria um cache só em memória.
+     * @param tamanhoMaximo Quantos planos guardar.
+     */
+    public CachePlanos(int tamanhoMaximo) {
+        this(tamanhoMaximo, null);
+    }
+
+    /**
+     * Cria um cache gravado num arquivo. Se o arquivo já existir, os planos
+     * dele são lidos; se não puder ser lido, o cache começa vazio.
+     * @param tamanhoMaximo Quantos planos guardar.
+     * @param arquivo Onde os planos são gravados, ou {@code null} para ficar só em memória.
+     */
+    public CachePlanos(int tamanhoMaximo, File arquivo) {
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.arquivo = arquivo;
+        this.planos = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Chave, Guardado> maisAntigo) {
+                return size() > CachePlanos.this.tamanhoMaximo;
+            }
+        };
+
+        if (arquivo != null && arquivo.isFile())
+            ler();
+    }
+
+    /**
+     * Devolve o plano guardado para o pedido, ou planeja e guarda o resultado.
+     * @param veiculo O veículo.
+     * @param embalagens As embalagens pedidas.
+     * @param planejar Quem planeja quando não há plano guardado, como
+     *                 {@code new PlanejadorCarga()::planejar}.
+     * @return {@link PlanoCarga}
+     */
+    public PlanoCarga planejar(Veiculo veiculo, Collection<Embalagem> embalagens,
+                               BiFunction<Veiculo, Collection<Embalagem>, PlanoCarga> planejar) {
+        var plano = buscar(veiculo, embalagens);
+        if (plano != null)
+            return plano;
+
+        plano = planejar.apply(veiculo, embalagens);
+        guardar(plano);
+        return plano;
+    }
+
+    /**
+     * @return O plano guardado para o pedido, já com as embalagens dele, ou
+     * {@code null} se não houver.
+     */
+    public PlanoCarga buscar(Veiculo veiculo, Collection<Embalagem> embalagens) {
+        long inicio = System.nanoTime();
+        var anterior = servido;
+        if (anterior != null && anterior.atende(veiculo, embalagens)) {
+            synchronized (planos) {
+                // Só vale enquanto o plano continua guardado com a mesma chave.
+                if (planos.get(anterior.chave()) == anterior.guardado()) {
+                    acertos++;
+                    var plano = anterior.plano();
+                    return new PlanoCarga(veiculo, plano.posicionamentos(), plano.recusadas(),
+                            plano.pesoCarregado(), plano.volumeCarregado(),
+                            Duration.ofNanos(System.nanoTime() - inicio));
+                }
+            }
+        }
+
+        var assinaturas = assinaturas(embalagens);
+        var chave = assinaturas != null ? chave(veiculo, assinaturas) : null;
+        Guardado guardado = null;
+        synchronized (planos) {
+            if (chave != null)
+                guardado = planos.get(chave);
+        }
+
+        var plano = guardado != null ? montar(guardado, veiculo, embalagens, assinaturas, inicio) : null;
+        if (plano != null)
+            servido = new Servido(chave, guardado, veiculo, embalagens.toArray(new Embalagem[0]), assinaturas, plano);
+        synchronized (planos) {
+            if (plano != null)
+                acertos++;
+            else
+                faltas++;
+        }
+        return plano;
+    }
+
+    /**
+     * Guarda um plano. As embalagens pedidas são as carregadas e as recusadas dele.
+     */
+    public void guardar(PlanoCarga plano) {
+        var embalagens = new ArrayList<Embalagem>(plano.posicionamentos().size() + plano.recusadas().size());
+        for (var p : plano.posicionamentos()) {
+            embalagens.add(p.embalagem());
+        }
+        for (var r : plano.recusadas()) {
+            embalagens.add(r.embalagem());
+        }
+        var assinaturas = assinaturas(embalagens);
+        if (assinaturas == null)
+            return;
+
+        var chave = chave(plano.veiculo(), assinaturas);
+        if (chave == null)
+            return;
+
+        // As assinaturas estão na ordem de embalagens: primeiro as carregadas, depois as recusadas.
+        int i = 0;
+        var lugares = new ArrayList<Lugar>(plano.posicionamentos().size());
+        for (var p : plano.posicionamentos()) {
+            lugares.add(new Lugar(assinaturas[i++], p.x(), p.y(), p.z(),
+                    p.largura(), p.comprimento(), p.altura(), p.girada()));
+        }
+        var recusas = new ArrayList<Recusa>(plano.recusadas().size());
+        for (var r : plano.recusadas()) {
+            recusas.add(new Recusa(assinaturas[i++], r.motivo()));
+        }
+
+        var guardado = new Guardado(List.copyOf(lugares), List.copyOf(recusas),
+                plano.pesoCarregado(), plano.volumeCarregado());
+        synchronized (planos) {
+            planos.put(chave, guardado);
+        }
+    }
+
+    public int getTamanho() {
+        synchronized (planos) {
+            return planos.size();
+        }
+    }
+
+    /**
+     * @return Quantos pedidos foram servidos com um plano guardado.
+     */
+    public long getAcertos() {
+        synchronized (planos) {
+            return acertos;
+        }
+    }
+
+    /**
+     * @return Quantos pedidos não tinham plano guardado.
+     */
+    public long getFaltas() {
+        synchronized (planos) {
+            return faltas;
+        }
+    }
+
+    public void limpar() {
+        synchronized (planos) {
+            planos.clear();
+            servido = null;
+        }
+    }
+
+    /**
+     * Grava os planos guardados no arquivo do cache, do usado há mais tempo ao
+     * mais recente, para a ordem de saída continuar a mesma quando forem lidos.
+     */
+    public void gravar() {
+        if (arquivo == null)
+            throw new IllegalStateException("O cache de planos não tem arquivo.");
+
+        List<Map.Entry<Chave, Guardado>> copia;
+        synchronized (planos) {
+            copia = new ArrayList<>(planos.entrySet());
+        }
+
+        var parcial = new File(arquivo.getPath() + ".parcial");
+        try (var saida = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(parcial), 1 << 16))) {
+            saida.writeInt(MAGICO);
+            saida.writeInt(FORMATO);
+            saida.writeInt(copia.size());
+            for (var entrada : copia) {
+                gravar(saida, entrada.getKey(), entrada.getValue());
+            }
+        } catch (IOException e) {
+            parcial.delete();
+            String err = "Erro ao gravar o cache de planos: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+
+        try {
+            Files.move(parcial.toPath(), arquivo.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            parcial.delete();
+            String err = "Não foi possível renomear " + parcial + " para " + arquivo + ": " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * @return As assinaturas das embalagens, na ordem delas, ou {@code null}
+     * se alguma não tiver dimensões; esses pedidos não são guardados.
+     */
+    private static Assinatura[] assinaturas(Collection<Embalagem> embalagens) {
+        var assinaturas = new Assinatura[embalagens.size()];
+        int i = 0;
+        for (var embalagem : embalagens) {
+            assinaturas[i] = Assinatura.de(embalagem);
+            if (assinaturas[i++] == null)
+                return null;
+        }
+        return assinaturas;
+    }
+
+    /**
+     * @return A chave do pedido, ou {@code null} se o veículo não tiver as
+     * dimensões internas; esses pedidos não são guardados.
+     */
+    private static Chave chave(Veiculo veiculo, Assinatura[] assinaturas) {
+        var interno = veiculo.getDimensoesInternas();
+        if (interno == null)
+            return null;
+
+        long resumo1 = 0;
+        long resumo2 = 0;
+        for (var assinatura : assinaturas) {
+            resumo1 += assinatura.resumo(0x5DEECE66DL);
+            resumo2 += assinatura.resumo(0x2545F4914F6CDD1DL);
+        }
+        return new Chave(interno.altura, interno.largura, interno.comprimento, veiculo.getCapacidadeDePeso(),
+                eixos(veiculo), assinaturas.length, resumo1, resumo2);
+    }
+
+    /**
+     * @return A {@link EixosVeiculo.Composicao} do veículo mais um, ou 0 se ele não tiver uma.
+     */
+    private static int eixos(Veiculo veiculo) {
+        var composicao = EixosVeiculo.Composicao.de(veiculo);
+        return composicao != null ? composicao.ordinal() + 1 : 0;
+    }
+
+    /**
+     * Põe as embalagens do pedido nos lugares do plano guardado.
+     * @return O plano, ou {@code null} se as assinaturas não baterem.
+     */
+    private static PlanoCarga montar(Guardado guardado, Veiculo veiculo, Collection<Embalagem> embalagens,
+                                     Assinatura[] assinaturas, long inicio) {
+        var porAssinatura = new HashMap<Assinatura, ArrayDeque<Embalagem>>();
+        int i = 0;
+        for (var embalagem : embalagens) {
+            porAssinatura.computeIfAbsent(assinaturas[i++], a -> new ArrayDeque<>()).add(embalagem);
+        }
+
+        var posicionamentos = new ArrayList<Posicionamento>(guardado.lugares().size());
+        for (var lugar : guardado.lugares()) {
+            var embalagem = tirar(porAssinatura, lugar.assinatura());
+            if (embalagem == null)
+                return null;
+
+            posicionamentos.add(new Posicionamento(embalagem, lugar.x(), lugar.y(), lugar.z(),
+                    lugar.largura(), lugar.comprimento(), lugar.altura(), lugar.girada()));
+        }
+        var recusadas = new ArrayList<EmbalagemRecusada>(guardado.recusas().size());
+        for (var recusa : guardado.recusas()) {
+            var embalagem = tirar(porAssinatura, recusa.assinatura());
+            if (embalagem == null)
+                return null;
+
+            recusadas.add(new EmbalagemRecusada(embalagem, recusa.motivo()));
+        }
+
+        // O plano pode ser servido de novo a outro pedido igual, então as listas não mudam.
+        return new PlanoCarga(veiculo, List.copyOf(posicionamentos), List.copyOf(recusadas),
+                guardado.peso(), guardado.volume(), Duration.ofNanos(System.nanoTime() - inicio));
+    }
+
+    private static Embalagem tirar(Map<Assinatura, ArrayDeque<Embalagem>> porAssinatura, Assinatura assinatura) {
+        var fila = porAssinatura.get(assinatura);
+        return fila != null ? fila.poll() : null;
+    }
+
+    private void ler() {
+        long inicio = System.nanoTime();
+        try (var entrada = new DataInputStream(new BufferedInputStream(new FileInputStream(arquivo), 1 << 16))) {
+            if (entrada.readInt() != MAGICO || entrada.readInt() != FORMATO) {
+                log.warn("{} não é um cache de planos conhecido, ignorando.", arquivo);
+                return;
+            }
+
+            int quantidade = entrada.readInt();
+            var lidos = new LinkedHashMap<Chave, Guardado>();
+            for (int i = 0; i < quantidade; i++) {
+                var chave = new Chave(entrada.readDouble(), entrada.readDouble(), entrada.readDouble(),
+                        entrada.readDouble(), entrada.readInt(), entrada.readInt(), entrada.readLong(),
+                        entrada.readLong());
+                lidos.put(chave, lerGuardado(entrada));
+            }
+
+            synchronized (planos) {
+                planos.putAll(lidos);
+            }
+            log.info("{} planos de carga lidos de {} em {} ms.", lidos.size(), arquivo,
+                    (System.nanoTime() - inicio) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.error("Erro ao ler o cache de planos, ignorando: " + e.getMessage());
+        }
+    }
+
+    private static void gravar(DataOutputStream saida, Chave chave, Guardado guardado) throws IOException {
+        saida.writeDouble(chave.altura());
+        saida.writeDouble(chave.largura());
+        saida.writeDouble(chave.comprimento());
+        saida.writeDouble(chave.capacidade());
+        saida.writeInt(chave.eixos());
+        saida.writeInt(chave.quantidade());
+        saida.writeLong(chave.resumo1());
+        saida.writeLong(chave.resumo2());
+
+        saida.writeDouble(guardado.peso());
+        saida.writeDouble(guardado.volume());
+        saida.writeInt(guardado.lugares().size());
+        for (var lugar : guardado.lugares()) {
+            gravar(saida, lugar.assinatura());
+            saida.writeDouble(lugar.x());
+            saida.writeDouble(lugar.y());
+            saida.writeDouble(lugar.z());
+            saida.writeDouble(lugar.largura());
+            saida.writeDouble(lugar.comprimento());
+            saida.writeDouble(lugar.altura());
+            saida.writeBoolean(lugar.girada());
+        }
+        saida.writeInt(guardado.recusas().size());
+        for (var recusa : guardado.recusas()) {
+            gravar(saida, recusa.assinatura());
+            saida.writeUTF(recusa.motivo());
+        }
+    }
+
+    private static void gravar(DataOutputStream saida, Assinatura assinatura) throws IOException {
+        saida.writeDouble(assinatura.altura());
+        saida.writeDouble(assinatura.largura());
+        saida.writeDouble(assinatura.comprimento());
+        saida.writeDouble(assinatura.peso());
+        saida.writeBoolean(assinatura.empilhavel());
+        saida.writeByte(assinatura.fragilidade().ordinal());
+    }
+
+    private static Guardado lerGuardado(DataInputStream entrada) throws IOException {
+        double peso = entrada.readDouble();
+        double volume = entrada.readDouble();
+        int quantidadeLugares = entrada.readInt();
+        var lugares = new ArrayList<Lugar>(quantidadeLugares);
+        for (int i = 0; i < quantidadeLugares; i++) {
+            lugares.add(new Lugar(lerAssinatura(entrada), entrada.readDouble(), entrada.readDouble(),
+                    entrada.readDouble(), entrada.readDouble(), entrada.readDouble(), entrada.readDouble(),
+                    entrada.readBoolean()));
+        }
+        int quantidadeRecusas = entrada.readInt();
+        var recusas = new ArrayList<Recusa>(quantidadeRecusas);
+        for (int i = 0; i < quantidadeRecusas; i++) {
+            recusas.add(new Recusa(lerAssinatura(entrada), entrada.readUTF()));
+        }
+        return new Guardado(List.copyOf(lugares), List.copyOf(recusas), peso, volume);
+    }
+
+    private static Assinatura lerAssinatura(DataInputStream entrada) throws IOException {
+        return new Assinatura(entrada.readDouble(), entrada.readDouble(), entrada.readDouble(), entrada.readDouble(),
+                entrada.readBoolean(), Fragilidade.values()[entrada.readByte()]);
+    }
+
+    /** Finalizador do SplitMix64. */
+    private static long misturar(long h) {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
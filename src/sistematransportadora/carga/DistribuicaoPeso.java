@@ -0,0 +1,177 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Veiculo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Como o peso da carga se distribui no veículo: o centro de gravidade e,
+ * nos veículos com {@linkplain EixosVeiculo eixos conhecidos}, a carga de cada eixo.
+ * <p>
+ * Cada embalagem conta como um ponto com o peso dela no centro da caixa que
+ * ocupa, então a distribuição é mantida somando e tirando uma embalagem de
+ * cada vez, e conferir se mais uma embalagem cabe nos eixos custa uma conta
+ * por eixo. É isso que deixa as estratégias usarem os eixos como restrição
+ * enquanto procuram lugar, e não só conferirem o plano pronto.
+ * <p>
+ * Cada embalagem fica inteira no baú de um semirreboque, já que as
+ * estratégias não deixam nenhuma cruzar as {@linkplain EixosVeiculo#divisas()
+ * divisas}, então o peso dela vai todo para a viga desse semirreboque.
+ */
+public final class DistribuicaoPeso {
+    private final Veiculo veiculo;
+    private final EixosVeiculo eixos;
+    private final double[] cargaEixos;
+    private final double[] capacidades;
+    private double peso;
+    private double momentoX;
+    private double momentoY;
+    private double momentoZ;
+
+    /**
+     * O centro de gravidade da carga, nas coordenadas de {@link Posicionamento}.
+     */
+    public record Centro(double x, double y, double z) {}
+
+    DistribuicaoPeso(Veiculo veiculo) {
+        this.veiculo = veiculo;
+        this.eixos = EixosVeiculo.de(veiculo);
+        this.cargaEixos = new double[eixos != null ? eixos.eixos().size() : 0];
+        this.capacidades = new double[cargaEixos.length];
+        for (int e = 0; e < capacidades.length; e++) {
+            capacidades[e] = eixos.eixos().get(e).capacidade();
+        }
+    }
+
+    /**
+     * Calcula a distribuição de um plano pronto.
+     * @param plano O plano.
+     * @return {@link DistribuicaoPeso}
+     */
+    public static DistribuicaoPeso de(PlanoCarga plano) {
+        var distribuicao = new DistribuicaoPeso(plano.veiculo());
+        for (var posicionamento : plano.posicionamentos()) {
+            distribuicao.adicionar(posicionamento);
+        }
+        return distribuicao;
+    }
+
+    /**
+     * @return Os eixos do veículo, ou {@code null} se o tipo dele não tiver uma composição conhecida.
+     */
+    public EixosVeiculo getEixos() {
+        return eixos;
+    }
+
+    public double getPeso() {
+        return peso;
+    }
+
+    /**
+     * @return A carga sobre o eixo, na ordem de {@link EixosVeiculo#eixos()}.
+     */
+    public double cargaEixo(int eixo) {
+        return cargaEixos[eixo];
+    }
+
+    /**
+     * @return Os eixos com mais carga do que aguentam, da frente para trás.
+     */
+    public List<EixosVeiculo.Eixo> eixosExcedidos() {
+        var excedidos = new ArrayList<EixosVeiculo.Eixo>();
+        for (int e = 0; e < cargaEixos.length; e++) {
+            if (cargaEixos[e] > capacidades[e] + RegrasEmpilhamento.FOLGA)
+                excedidos.add(eixos.eixos().get(e));
+        }
+        return excedidos;
+    }
+
+    /**
+     * @return O primeiro eixo com mais carga do que aguenta, na ordem de
+     * {@link EixosVeiculo#eixos()}, ou -1 se nenhum passar.
+     */
+    int primeiroExcedido() {
+        for (int e = 0; e < cargaEixos.length; e++) {
+            if (cargaEixos[e] > capacidades[e] + RegrasEmpilhamento.FOLGA)
+                return e;
+        }
+        return -1;
+    }
+
+    /**
+     * @return Quanto do peso da embalagem posicionada chega ao eixo; pode ser
+     * negativo, quando ela alivia o eixo.
+     */
+    double cargaNoEixo(Posicionamento p, int eixo) {
+        double centroY = p.y() + p.comprimento() / 2;
+        int trecho = eixos.trecho(centroY);
+        return p.embalagem().getPeso() * (eixos.porPeso(eixo, trecho) + eixos.porMomento(eixo, trecho) * centroY);
+    }
+
+    /**
+     * @return O centro de gravidade da carga, ou {@code null} se o veículo estiver vazio.
+     */
+    public Centro centroDeGravidade() {
+        if (peso <= 0)
+            return null;
+
+        return new Centro(momentoX / peso, momentoY / peso, momentoZ / peso);
+    }
+
+    /**
+     * @return Quanto o centro de gravidade fica fora do meio da largura, em
+     * fração da largura interna: 0 no meio, 0,5 encostado numa parede.
+     */
+    public double desvioLateral() {
+        var centro = centroDeGravidade();
+        if (centro == null)
+            return 0;
+
+        double largura = veiculo.getDimensoesInternas().largura;
+        return Math.abs(centro.x() - largura / 2) / largura;
+    }
+
+    /**
+     * Confere se mais um peso, com o centro na posição dada do comprimento,
+     * deixa os eixos dentro do que aguentam. Um eixo que já passou do limite
+     * só barra o peso se ele aumentar a carga do eixo.
+     * @return Se o peso cabe nos eixos; sempre {@code true} num veículo sem eixos conhecidos.
+     */
+    boolean cabe(double pesoNovo, double centroY) {
+        if (eixos == null)
+            return true;
+
+        int trecho = eixos.trecho(centroY);
+        for (int e = 0; e < cargaEixos.length; e++) {
+            double acrescimo = pesoNovo * (eixos.porPeso(e, trecho) + eixos.porMomento(e, trecho) * centroY);
+            if (acrescimo > 0 && cargaEixos[e] + acrescimo > capacidades[e] + RegrasEmpilhamento.FOLGA)
+                return false;
+        }
+        return true;
+    }
+
+    void adicionar(Posicionamento posicionamento) {
+        somar(posicionamento, 1);
+    }
+
+    void remover(Posicionamento posicionamento) {
+        somar(posicionamento, -1);
+    }
+
+    private void somar(Posicionamento p, int sinal) {
+        double w = sinal * p.embalagem().getPeso();
+        double centroY = p.y() + p.comprimento() / 2;
+        peso += w;
+        momentoX += w * (p.x() + p.largura() / 2);
+        momentoY += w * centroY;
+        momentoZ += w * (p.z() + p.altura() / 2);
+        if (eixos == null)
+            return;
+
+        int trecho = eixos.trecho(centroY);
+        for (int e = 0; e < cargaEixos.length; e++) {
+            cargaEixos[e] += w * (eixos.porPeso(e, trecho) + eixos.porMomento(e, trecho) * centroY);
+        }
+    }
+}
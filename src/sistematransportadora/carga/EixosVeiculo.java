@@ -0,0 +1,272 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Veiculo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Os eixos de um veículo articulado e quanto do peso da carga chega a cada um.
+ * <p>
+ * O veículo é visto como uma sequência de vigas apoiadas em dois pontos: o
+ * cavalo, apoiado no eixo dianteiro e no de tração, e cada semirreboque,
+ * apoiado na frente pelo pino-rei sobre a quinta roda do veículo da frente e
+ * atrás pelo seu conjunto de eixos. O peso posto numa viga se divide entre os
+ * dois apoios pela regra da alavanca, e o que cai sobre uma quinta roda passa
+ * para a viga da frente. Como tudo isso é linear, a carga de cada eixo é uma
+ * soma de coeficientes vezes o peso e o momento de cada trecho do baú, e os
+ * coeficientes são calculados uma vez só, na criação.
+ * <p>
+ * As posições são medidas a partir da cabine, como em {@link Posicionamento},
+ * e podem ficar fora do baú, como as dos eixos do cavalo. As capacidades são a
+ * parte da carga útil que cada eixo aguenta, sem o peso do próprio veículo.
+ * As medidas de {@link Composicao} são frações do comprimento interno e da
+ * capacidade de peso, tiradas de composições típicas.
+ * <p>
+ * Cada semirreboque tem o seu baú, e as {@linkplain #divisas() divisas} entre
+ * eles são paredes: nenhuma embalagem pode ficar com parte num semirreboque e
+ * parte no outro.
+ */
+public final class EixosVeiculo {
+    /**
+     * Um eixo, ou conjunto de eixos, do veículo.
+     * @param nome Nome para telas.
+     * @param posicao Posição no comprimento, a partir da frente do baú.
+     * @param capacidade Quanto da carga o eixo aguenta.
+     */
+    public record Eixo(String nome, double posicao, double capacidade) {}
+
+    /**
+     * As composições com eixos conhecidos, pelo nome do tipo do veículo.
+     */
+    public enum Composicao {
+        /** Cavalo com um semirreboque. */
+        CARRETA("Carreta"),
+        /** Cavalo com dois semirreboques, o segundo na quinta roda do primeiro. */
+        BITREM("Bitrem");
+
+        private final String tipo;
+
+        Composicao(String tipo) {
+            this.tipo = tipo;
+        }
+
+        /**
+         * @return A composição do tipo do veículo, ou {@code null} se o tipo não tiver uma.
+         */
+        public static Composicao de(Veiculo veiculo) {
+            if (veiculo.getTipo() == null || veiculo.getTipo().nome() == null)
+                return null;
+
+            var nome = veiculo.getTipo().nome().strip();
+            for (var composicao : values()) {
+                if (composicao.tipo.equalsIgnoreCase(nome))
+                    return composicao;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Onde uma viga se apoia: num eixo, ou na quinta roda de outra viga.
+     * Só um dos dois índices vale; o outro é -1.
+     */
+    private record Apoio(double posicao, int eixo, int viga) {
+        static Apoio eixo(double posicao, int eixo) {
+            return new Apoio(posicao, eixo, -1);
+        }
+
+        static Apoio quintaRoda(double posicao, int viga) {
+            return new Apoio(posicao, -1, viga);
+        }
+    }
+
+    private record Viga(Apoio frente, Apoio tras) {}
+
+    private final Composicao composicao;
+    private final List<Eixo> eixos;
+    /** Onde começa cada trecho do baú, em ordem; cada trecho é carregado por uma viga. */
+    private final double[] inicioTrechos;
+    private final double comprimento;
+    /** Quanto de cada unidade de peso e de momento de cada trecho chega a cada eixo, por [eixo][trecho]. */
+    private final double[][] porPeso;
+    private final double[][] porMomento;
+
+    private EixosVeiculo(Composicao composicao, List<Eixo> eixos, List<Viga> vigas,
+                         double[] inicioTrechos, int[] vigaTrechos, double comprimento) {
+        this.composicao = composicao;
+        this.eixos = List.copyOf(eixos);
+        this.inicioTrechos = inicioTrechos;
+        this.comprimento = comprimento;
+        this.porPeso = new double[eixos.size()][inicioTrechos.length];
+        this.porMomento = new double[eixos.size()][inicioTrechos.length];
+        for (int t = 0; t < inicioTrechos.length; t++) {
+            var unitario = distribuir(vigas, vigaTrechos[t], 1, 0);
+            var momento = distribuir(vigas, vigaTrechos[t], 0, 1);
+            for (int e = 0; e < eixos.size(); e++) {
+                porPeso[e][t] = unitario[e];
+                porMomento[e][t] = momento[e];
+            }
+        }
+    }
+
+    /**
+     * Monta os eixos do veículo pela composição do tipo dele.
+     * @return {@link EixosVeiculo}, ou {@code null} se o tipo não tiver uma
+     * composição conhecida ou o veículo não tiver as medidas internas cadastradas.
+     */
+    public static EixosVeiculo de(Veiculo veiculo) {
+        var composicao = Composicao.de(veiculo);
+        var interno = veiculo.getDimensoesInternas();
+        if (composicao == null || interno == null || interno.comprimento <= 0)
+            return null;
+
+        double l = interno.comprimento;
+        double c = veiculo.getCapacidadeDePeso();
+        var eixos = new ArrayList<Eixo>();
+        var vigas = new ArrayList<Viga>();
+        eixos.add(new Eixo("Dianteiro", -0.20 * l, 0.06 * c));
+        return switch (composicao) {
+            case CARRETA -> {
+                eixos.add(new Eixo("Tração", 0.08 * l, 0.45 * c));
+                eixos.add(new Eixo("Semirreboque", 0.82 * l, 0.62 * c));
+                vigas.add(new Viga(Apoio.eixo(-0.20 * l, 0), Apoio.eixo(0.08 * l, 1)));
+                vigas.add(new Viga(Apoio.quintaRoda(0.06 * l, 0), Apoio.eixo(0.82 * l, 2)));
+                yield new EixosVeiculo(composicao, eixos, vigas, new double[] {0}, new int[] {1}, l);
+            }
+            case BITREM -> {
+                eixos.add(new Eixo("Tração", 0.04 * l, 0.40 * c));
+                eixos.add(new Eixo("Primeiro semirreboque", 0.44 * l, 0.48 * c));
+                eixos.add(new Eixo("Segundo semirreboque", 0.88 * l, 0.42 * c));
+                vigas.add(new Viga(Apoio.eixo(-0.20 * l, 0), Apoio.eixo(0.04 * l, 1)));
+                vigas.add(new Viga(Apoio.quintaRoda(0.03 * l, 0), Apoio.eixo(0.44 * l, 2)));
+                // A quinta roda do primeiro semirreboque fica sobre os eixos dele.
+                vigas.add(new Viga(Apoio.quintaRoda(0.44 * l, 1), Apoio.eixo(0.88 * l, 3)));
+                yield new EixosVeiculo(composicao, eixos, vigas, new double[] {0, 0.5 * l}, new int[] {1, 2}, l);
+            }
+        };
+    }
+
+    public Composicao composicao() {
+        return composicao;
+    }
+
+    public List<Eixo> eixos() {
+        return eixos;
+    }
+
+    /**
+     * @return Onde termina o baú de um semirreboque e começa o do próximo, no
+     * comprimento e da frente para trás; vazio se houver um baú só.
+     */
+    public double[] divisas() {
+        return Arrays.copyOfRange(inicioTrechos, 1, inicioTrechos.length);
+    }
+
+    /**
+     * @return Se uma embalagem de {@code y} a {@code y + comprimento} passaria
+     * de um semirreboque para o outro. Encostar na divisa não conta.
+     */
+    boolean cruzaDivisa(double y, double comprimento) {
+        return divisaCruzada(y, comprimento) >= 0;
+    }
+
+    /**
+     * @return O começo do baú seguinte, se uma embalagem de {@code y} a
+     * {@code y + comprimento} cruzaria uma divisa; senão, o próprio {@code y}.
+     */
+    double semCruzarDivisa(double y, double comprimento) {
+        double divisa = divisaCruzada(y, comprimento);
+        return divisa >= 0 ? divisa : y;
+    }
+
+    /**
+     * @return O comprimento do maior baú entre os dos semirreboques.
+     */
+    double maiorBau() {
+        double maior = 0;
+        for (int t = 0; t < inicioTrechos.length; t++) {
+            double fim = t + 1 < inicioTrechos.length ? inicioTrechos[t + 1] : comprimento;
+            maior = Math.max(maior, fim - inicioTrechos[t]);
+        }
+        return maior;
+    }
+
+    /**
+     * @return A primeira divisa que fica dentro do trecho dado, ou -1 se nenhuma ficar.
+     */
+    private double divisaCruzada(double y, double comprimento) {
+        for (int t = 1; t < inicioTrechos.length; t++) {
+            double divisa = inicioTrechos[t];
+            if (y < divisa - RegrasEmpilhamento.FOLGA && y + comprimento > divisa + RegrasEmpilhamento.FOLGA)
+                return divisa;
+        }
+        return -1;
+    }
+
+    /**
+     * @return Quantos trechos o baú tem, um por semirreboque.
+     */
+    int trechos() {
+        return inicioTrechos.length;
+    }
+
+    /**
+     * @return O trecho do baú onde fica a posição dada no comprimento.
+     */
+    int trecho(double y) {
+        int t = 0;
+        while (t + 1 < inicioTrechos.length && y >= inicioTrechos[t + 1])
+            t++;
+        return t;
+    }
+
+    /**
+     * A carga de um eixo é a soma, em cada trecho, de {@code porPeso} vezes o
+     * peso no trecho e {@link #porMomento} vezes o momento, a soma de cada
+     * peso vezes a posição dele no comprimento.
+     * @return O coeficiente do peso do trecho na carga do eixo.
+     */
+    double porPeso(int eixo, int trecho) {
+        return porPeso[eixo][trecho];
+    }
+
+    /**
+     * @return O coeficiente do momento do trecho na carga do eixo.
+     */
+    double porMomento(int eixo, int trecho) {
+        return porMomento[eixo][trecho];
+    }
+
+    /**
+     * Passa um peso e um momento postos numa viga pelas vigas até os eixos,
+     * de trás para a frente, já que uma viga só se apoia nas da frente.
+     * @return A carga de cada eixo.
+     */
+    private double[] distribuir(List<Viga> vigas, int viga, double peso, double momento) {
+        var pesos = new double[vigas.size()];
+        var momentos = new double[vigas.size()];
+        pesos[viga] = peso;
+        momentos[viga] = momento;
+
+        var cargas = new double[eixos.size()];
+        for (int v = vigas.size() - 1; v >= 0; v--) {
+            var frente = vigas.get(v).frente();
+            var tras = vigas.get(v).tras();
+            double reacaoTras = (momentos[v] - frente.posicao() * pesos[v]) / (tras.posicao() - frente.posicao());
+            apoiar(frente, pesos[v] - reacaoTras, cargas, pesos, momentos);
+            apoiar(tras, reacaoTras, cargas, pesos, momentos);
+        }
+        return cargas;
+    }
+
+    private static void apoiar(Apoio apoio, double forca, double[] cargas, double[] pesos, double[] momentos) {
+        if (apoio.eixo() >= 0) {
+            cargas[apoio.eixo()] += forca;
+        } else {
+            pesos[apoio.viga()] += forca;
+            momentos[apoio.viga()] += forca * apoio.posicao();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Embalagem;
+
+/**
+ * Uma embalagem que ficou fora do plano de carga.
+ * @param embalagem A embalagem.
+ * @param motivo Por que ela não foi carregada.
+ */
+public record EmbalagemRecusada(Embalagem embalagem, String motivo) {}
@@ -0,0 +1,112 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Veiculo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Carrega em camadas que atravessam a largura do baú, uma atrás da outra a
+ * partir da cabine.
+ * <p>
+ * As embalagens são empilhadas em colunas como em {@link PlanejadorCarga}, e
+ * cada coluna vai para a primeira camada onde couber, com o lado maior na
+ * largura. A profundidade de uma camada é a da primeira coluna que a abriu;
+ * como as colunas chegam da mais profunda para a mais rasa, as seguintes
+ * sempre cabem nela. Quando a pilha passaria da capacidade de um eixo na
+ * primeira camada onde cabe, ela vai para a próxima onde caiba nos eixos.
+ * Uma camada nova que passaria pela divisa entre os semirreboques de um
+ * bitrem começa no baú seguinte.
+ * Funciona bem quando as embalagens têm poucos tamanhos diferentes, que
+ * formam fileiras retas.
+ */
+final class EstrategiaCamadas implements EstrategiaCarga {
+    /** Uma faixa do comprimento, com a largura já ocupada até {@code x}. */
+    private static final class Camada {
+        final double y;
+        final double profundidade;
+        double x;
+
+        Camada(double y, double profundidade) {
+            this.y = y;
+            this.profundidade = profundidade;
+        }
+    }
+
+    @Override
+    public String nome() {
+        return "camadas";
+    }
+
+    @Override
+    public PlanoCarga planejar(Veiculo veiculo, Collection<Embalagem> embalagens, Random aleatorio) {
+        var montagem = new MontagemCarga(veiculo, embalagens);
+        var interno = montagem.interno();
+        var pilhas = PlanejadorCarga.empilhar(montagem.candidatas(), interno.altura);
+        pilhas.sort(Comparator.comparingDouble((Pilha p) -> -profundidade(p, interno.largura))
+                .thenComparingDouble(p -> -p.altura()));
+
+        var camadas = new ArrayList<Camada>();
+        double ocupado = 0;
+        for (var pilha : pilhas) {
+            if (!montagem.aliviar(pilha))
+                continue;
+
+            double profundidade = profundidade(pilha, interno.largura);
+            boolean girada = profundidade != pilha.comprimento();
+            double largura = girada ? pilha.comprimento() : pilha.largura();
+
+            // A primeira camada com espaço onde a pilha inteira cabe nos eixos;
+            // se não houver, a primeira com espaço, e a pilha é aliviada ali.
+            Camada escolhida = null;
+            Camada comEspaco = null;
+            for (var camada : camadas) {
+                if (camada.x + largura <= interno.largura + RegrasEmpilhamento.FOLGA
+                        && profundidade <= camada.profundidade + RegrasEmpilhamento.FOLGA) {
+                    if (comEspaco == null)
+                        comEspaco = camada;
+                    if (montagem.cabeEixos(pilha.peso(), camada.y, profundidade)) {
+                        escolhida = camada;
+                        break;
+                    }
+                }
+            }
+            double inicioNova = montagem.semCruzarDivisa(ocupado, profundidade);
+            boolean cabeNova = inicioNova + profundidade <= interno.comprimento + RegrasEmpilhamento.FOLGA;
+            boolean nova = escolhida == null && cabeNova
+                    && (comEspaco == null || montagem.cabeEixos(pilha.peso(), inicioNova, profundidade));
+            if (nova)
+                escolhida = new Camada(inicioNova, profundidade);
+            else if (escolhida == null)
+                escolhida = comEspaco;
+
+            if (escolhida == null) {
+                montagem.recusar(pilha, MontagemCarga.SEM_ESPACO);
+                continue;
+            }
+            if (!montagem.aliviarEixos(pilha, escolhida.y, girada))
+                continue;
+            if (nova) {
+                camadas.add(escolhida);
+                ocupado = inicioNova + profundidade;
+            }
+            montagem.colocar(pilha, escolhida.x, escolhida.y, girada);
+            escolhida.x += largura;
+        }
+
+        return montagem.concluir();
+    }
+
+    /**
+     * @return Quanto a pilha ocupa no comprimento, deitada com o lado maior na
+     * largura quando ele couber ali.
+     */
+    private static double profundidade(Pilha pilha, double larguraVeiculo) {
+        double maior = Math.max(pilha.largura(), pilha.comprimento());
+        double menor = Math.min(pilha.largura(), pilha.comprimento());
+        return maior <= larguraVeiculo + RegrasEmpilhamento.FOLGA ? menor : maior;
+    }
+}
@@ -0,0 +1,41 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Veiculo;
+import sistematransportadora.servico.ValorInvalidoException;
+
+import java.util.Collection;
+import java.util.Random;
+
+/**
+ * Um jeito de arrumar as embalagens dentro de um veículo.
+ * <p>
+ * Toda estratégia respeita as medidas internas e a capacidade de peso do
+ * veículo, deixa cada embalagem apoiada por inteiro e segue
+ * {@link RegrasEmpilhamento}. As implementações não guardam estado entre
+ * chamadas e podem ser usadas por várias threads ao mesmo tempo.
+ */
+public interface EstrategiaCarga {
+    /**
+     * @return Nome curto da estratégia, para logs e telas.
+     */
+    String nome();
+
+    /**
+     * Planeja a carga.
+     * @param veiculo Veículo a ser carregado.
+     * @param embalagens Embalagens a carregar.
+     * @param aleatorio Fonte de sorteio, usada só pelas estratégias {@linkplain #aleatoria() aleatórias}.
+     * @return {@link PlanoCarga}
+     * @throws ValorInvalidoException Se o veículo não tiver as dimensões internas cadastradas.
+     */
+    PlanoCarga planejar(Veiculo veiculo, Collection<Embalagem> embalagens, Random aleatorio);
+
+    /**
+     * @return Se cada execução pode dar um plano diferente, conforme o sorteio.
+     * Estratégias que não são aleatórias só precisam rodar uma vez para o mesmo pedido.
+     */
+    default boolean aleatoria() {
+        return false;
+    }
+}
@@ -0,0 +1,162 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Veiculo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Carrega cortando o espaço livre em blocos, como uma guilhotina.
+ * <p>
+ * Cada embalagem vai para o menor bloco livre onde cabe, no canto junto à
+ * cabine, sem passar da capacidade dos eixos do veículo. O resto do bloco
+ * vira três blocos novos: o que fica em cima da embalagem, do tamanho do topo
+ * dela, e dois ao lado, cortados na direção que deixa o maior deles o maior
+ * possível. Os blocos nunca se sobrepõem, então não é preciso comparar uma
+ * embalagem com as já carregadas.
+ * <p>
+ * Cada bloco sabe sobre o que está apoiado: o piso ou o topo de uma
+ * embalagem, que sempre cobre o bloco inteiro. É assim que
+ * {@link RegrasEmpilhamento} é respeitado.
+ * <p>
+ * Num bitrem, o espaço começa cortado nas divisas entre os semirreboques, um
+ * bloco por baú, e assim nenhuma embalagem fica com parte em cada um.
+ */
+final class EstrategiaGuilhotina implements EstrategiaCarga {
+    /**
+     * Ordem de carregamento: as menos frágeis primeiro, para ficarem embaixo,
+     * e entre elas as maiores.
+     */
+    private static final Comparator<Embalagem> ORDEM = Comparator
+            .comparing((Embalagem e) -> RegrasEmpilhamento.fragilidade(e).ordinal())
+            .thenComparingDouble(e -> -volume(e));
+
+    /**
+     * Um bloco livre.
+     * @param apoio A embalagem em cujo topo o bloco está, ou {@code null} se for o piso.
+     */
+    private record Bloco(double x, double y, double z, double largura, double comprimento, double altura,
+                         Embalagem apoio) {
+        double volume() {
+            return largura * comprimento * altura;
+        }
+
+        boolean aceita(Embalagem embalagem) {
+            return apoio == null || RegrasEmpilhamento.podeApoiar(apoio, embalagem);
+        }
+    }
+
+    @Override
+    public String nome() {
+        return "guilhotina";
+    }
+
+    @Override
+    public PlanoCarga planejar(Veiculo veiculo, Collection<Embalagem> embalagens, Random aleatorio) {
+        var montagem = new MontagemCarga(veiculo, embalagens);
+        var interno = montagem.interno();
+        var livres = new ArrayList<Bloco>();
+        double inicio = 0;
+        for (double divisa : montagem.divisas()) {
+            livres.add(new Bloco(0, inicio, 0, interno.largura, divisa - inicio, interno.altura, null));
+            inicio = divisa;
+        }
+        livres.add(new Bloco(0, inicio, 0, interno.largura, interno.comprimento - inicio, interno.altura, null));
+
+        var candidatas = montagem.candidatas();
+        candidatas.sort(ORDEM);
+        for (var embalagem : candidatas) {
+            if (!montagem.cabePeso(embalagem.getPeso())) {
+                montagem.recusar(embalagem, MontagemCarga.SEM_PESO);
+                continue;
+            }
+
+            var dimensoes = embalagem.getDimensoes();
+            int escolhido = -1;
+            boolean girada = false;
+            boolean barradaPorEixo = false;
+            for (int i = 0; i < livres.size(); i++) {
+                var bloco = livres.get(i);
+                if (dimensoes.altura > bloco.altura() + RegrasEmpilhamento.FOLGA || !bloco.aceita(embalagem))
+                    continue;
+                if (escolhido != -1 && bloco.volume() >= livres.get(escolhido).volume())
+                    continue;
+
+                boolean cabe = dimensoes.largura <= bloco.largura() + RegrasEmpilhamento.FOLGA
+                        && dimensoes.comprimento <= bloco.comprimento() + RegrasEmpilhamento.FOLGA;
+                boolean cabeGirada = dimensoes.comprimento <= bloco.largura() + RegrasEmpilhamento.FOLGA
+                        && dimensoes.largura <= bloco.comprimento() + RegrasEmpilhamento.FOLGA;
+                if (!cabe && !cabeGirada)
+                    continue;
+
+                cabe = cabe && montagem.cabeEixos(embalagem.getPeso(), bloco.y(), dimensoes.comprimento);
+                cabeGirada = cabeGirada && montagem.cabeEixos(embalagem.getPeso(), bloco.y(), dimensoes.largura);
+                if (cabe || cabeGirada) {
+                    escolhido = i;
+                    girada = !cabe;
+                } else {
+                    barradaPorEixo = true;
+                }
+            }
+
+            if (escolhido == -1) {
+                montagem.recusar(embalagem, barradaPorEixo ? MontagemCarga.SEM_EIXO : MontagemCarga.SEM_ESPACO);
+                continue;
+            }
+
+            // A ordem dos blocos não importa, então o último ocupa o lugar do removido.
+            var bloco = livres.get(escolhido);
+            livres.set(escolhido, livres.get(livres.size() - 1));
+            livres.remove(livres.size() - 1);
+
+            double l = girada ? dimensoes.comprimento : dimensoes.largura;
+            double c = girada ? dimensoes.largura : dimensoes.comprimento;
+            var posicionamento = new Posicionamento(embalagem, bloco.x(), bloco.y(), bloco.z(),
+                    l, c, dimensoes.altura, girada);
+            montagem.colocar(posicionamento);
+            cortar(bloco, posicionamento, livres);
+        }
+
+        return montagem.concluir();
+    }
+
+    /**
+     * Divide o que sobrou do bloco em volta da embalagem.
+     */
+    private static void cortar(Bloco bloco, Posicionamento p, List<Bloco> livres) {
+        double acima = bloco.altura() - p.altura();
+        if (acima > RegrasEmpilhamento.FOLGA && RegrasEmpilhamento.podeApoiar(p.embalagem()))
+            adicionar(livres, new Bloco(p.x(), p.y(), p.z() + p.altura(), p.largura(), p.comprimento(), acima,
+                    p.embalagem()));
+
+        double lado = bloco.largura() - p.largura();
+        double frente = bloco.comprimento() - p.comprimento();
+        // O corte ao lado vai até o fim do comprimento quando a sobra ao lado é a
+        // maior; senão, o corte da frente atravessa a largura inteira.
+        if (lado * bloco.comprimento() >= frente * bloco.largura()) {
+            adicionar(livres, new Bloco(p.x() + p.largura(), bloco.y(), bloco.z(), lado, bloco.comprimento(),
+                    bloco.altura(), bloco.apoio()));
+            adicionar(livres, new Bloco(bloco.x(), p.y() + p.comprimento(), bloco.z(), p.largura(), frente,
+                    bloco.altura(), bloco.apoio()));
+        } else {
+            adicionar(livres, new Bloco(p.x() + p.largura(), bloco.y(), bloco.z(), lado, p.comprimento(),
+                    bloco.altura(), bloco.apoio()));
+            adicionar(livres, new Bloco(bloco.x(), p.y() + p.comprimento(), bloco.z(), bloco.largura(), frente,
+                    bloco.altura(), bloco.apoio()));
+        }
+    }
+
+    private static void adicionar(List<Bloco> livres, Bloco bloco) {
+        if (bloco.largura() > RegrasEmpilhamento.FOLGA && bloco.comprimento() > RegrasEmpilhamento.FOLGA)
+            livres.add(bloco);
+    }
+
+    private static double volume(Embalagem embalagem) {
+        var dimensoes = embalagem.getDimensoes();
+        return dimensoes.altura * dimensoes.largura * dimensoes.comprimento;
+    }
+}
@@ -0,0 +1,154 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Veiculo;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Carrega pelos pontos extremos: os cantos que cada embalagem colocada deixa
+ * livres ao lado, à frente e em cima dela.
+ * <p>
+ * Cada embalagem vai para o ponto mais baixo e mais perto da cabine onde
+ * cabe sem esbarrar em nada, de preferência sem girar. Uma embalagem só fica
+ * no alto se couber inteira sobre o topo de uma outra que possa apoiá-la, e
+ * só num ponto onde o peso dela ainda caiba nos eixos do veículo. Num
+ * bitrem, o começo de cada baú também é um ponto livre, e nenhuma embalagem
+ * fica com parte em cada semirreboque.
+ * <p>
+ * Na versão aleatória, a ordem das embalagens de mesma fragilidade é
+ * embaralhada em parte e o lado de cada uma sobre o piso é sorteado, então
+ * cada execução dá um plano diferente. É a estratégia dos reinícios
+ * aleatórios do {@link PortfolioCarga}.
+ */
+final class EstrategiaPontosExtremos implements EstrategiaCarga {
+    /** Quanto o volume de cada embalagem pode variar, para mais ou para menos, no sorteio da ordem. */
+    private static final double RUIDO = 0.3;
+
+    private static final Comparator<Ponto> ORDEM_PONTOS = Comparator
+            .comparingDouble(Ponto::z)
+            .thenComparingDouble(Ponto::y)
+            .thenComparingDouble(Ponto::x);
+
+    private final boolean aleatoria;
+
+    /**
+     * Um canto livre.
+     * @param apoio A embalagem em cujo topo o ponto está, ou {@code null} se for o piso.
+     */
+    private record Ponto(double x, double y, double z, Posicionamento apoio) {}
+
+    EstrategiaPontosExtremos(boolean aleatoria) {
+        this.aleatoria = aleatoria;
+    }
+
+    @Override
+    public String nome() {
+        return aleatoria ? "reinícios aleatórios" : "pontos extremos";
+    }
+
+    @Override
+    public boolean aleatoria() {
+        return aleatoria;
+    }
+
+    @Override
+    public PlanoCarga planejar(Veiculo veiculo, Collection<Embalagem> embalagens, Random aleatorio) {
+        var montagem = new MontagemCarga(veiculo, embalagens);
+        var interno = montagem.interno();
+        var ocupacao = new Ocupacao(interno.largura, interno.comprimento);
+        var pontos = new TreeSet<>(ORDEM_PONTOS);
+        pontos.add(new Ponto(0, 0, 0, null));
+        for (double divisa : montagem.divisas()) {
+            pontos.add(new Ponto(0, divisa, 0, null));
+        }
+
+        var candidatas = montagem.candidatas();
+        var chaves = new IdentityHashMap<Embalagem, Double>(candidatas.size());
+        for (var embalagem : candidatas) {
+            var d = embalagem.getDimensoes();
+            double volume = d.altura * d.largura * d.comprimento;
+            chaves.put(embalagem, aleatoria ? volume * (1 + RUIDO * (2 * aleatorio.nextDouble() - 1)) : volume);
+        }
+        candidatas.sort(Comparator
+                .comparing((Embalagem e) -> RegrasEmpilhamento.fragilidade(e).ordinal())
+                .thenComparingDouble(e -> -chaves.get(e)));
+
+        for (var embalagem : candidatas) {
+            if (!montagem.cabePeso(embalagem.getPeso())) {
+                montagem.recusar(embalagem, MontagemCarga.SEM_PESO);
+                continue;
+            }
+
+            var d = embalagem.getDimensoes();
+            boolean giradaPrimeiro = aleatoria && aleatorio.nextBoolean();
+            Posicionamento escolhido = null;
+            Ponto usado = null;
+            boolean barradaPorEixo = false;
+            for (var iterador = pontos.iterator(); iterador.hasNext() && escolhido == null; ) {
+                var ponto = iterador.next();
+                if (ocupacao.ocupado(ponto.x(), ponto.y(), ponto.z())) {
+                    iterador.remove();
+                    continue;
+                }
+
+                for (int tentativa = 0; tentativa < 2 && escolhido == null; tentativa++) {
+                    boolean girada = (tentativa == 1) != giradaPrimeiro;
+                    double l = girada ? d.comprimento : d.largura;
+                    double c = girada ? d.largura : d.comprimento;
+                    if (!cabe(ponto, embalagem, l, c, d.altura, interno.largura, interno.comprimento, interno.altura)
+                            || montagem.cruzaDivisa(ponto.y(), c)
+                            || !ocupacao.livre(ponto.x(), ponto.y(), ponto.z(), l, c, d.altura))
+                        continue;
+
+                    if (!montagem.cabeEixos(embalagem.getPeso(), ponto.y(), c)) {
+                        barradaPorEixo = true;
+                        continue;
+                    }
+                    escolhido = new Posicionamento(embalagem, ponto.x(), ponto.y(), ponto.z(), l, c, d.altura, girada);
+                    usado = ponto;
+                }
+            }
+
+            if (escolhido == null) {
+                montagem.recusar(embalagem, barradaPorEixo ? MontagemCarga.SEM_EIXO : MontagemCarga.SEM_ESPACO);
+                continue;
+            }
+
+            montagem.colocar(escolhido);
+            ocupacao.ocupar(escolhido);
+            pontos.remove(usado);
+            var p = escolhido;
+            pontos.add(new Ponto(p.x() + p.largura(), p.y(), p.z(), usado.apoio()));
+            pontos.add(new Ponto(p.x(), p.y() + p.comprimento(), p.z(), usado.apoio()));
+            if (RegrasEmpilhamento.podeApoiar(embalagem))
+                pontos.add(new Ponto(p.x(), p.y(), p.z() + p.altura(), p));
+        }
+
+        return montagem.concluir();
+    }
+
+    /**
+     * @return Se a embalagem, com as medidas dadas, fica dentro do veículo e
+     * apoiada por inteiro a partir do ponto.
+     */
+    private static boolean cabe(Ponto ponto, Embalagem embalagem, double l, double c, double a,
+                                double largura, double comprimento, double altura) {
+        if (ponto.x() + l > largura + RegrasEmpilhamento.FOLGA
+                || ponto.y() + c > comprimento + RegrasEmpilhamento.FOLGA
+                || ponto.z() + a > altura + RegrasEmpilhamento.FOLGA)
+            return false;
+
+        var apoio = ponto.apoio();
+        if (apoio == null)
+            return true;
+
+        return RegrasEmpilhamento.podeApoiar(apoio.embalagem(), embalagem)
+                && ponto.x() + l <= apoio.x() + apoio.largura() + RegrasEmpilhamento.FOLGA
+                && ponto.y() + c <= apoio.y() + apoio.comprimento() + RegrasEmpilhamento.FOLGA;
+    }
+}
@@ -0,0 +1,124 @@
+package sistematransportadora.carga;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Um planejamento do {@link PortfolioCarga} em andamento. O melhor plano até
+ * agora pode ser consultado de qualquer thread, a qualquer momento.
+ */
+public class ExecucaoPortfolio {
+    /**
+     * O melhor plano encontrado e a estratégia que o encontrou.
+     * @param plano O plano.
+     * @param estrategia Nome da estratégia.
+     */
+    public record Melhor(PlanoCarga plano, String estrategia) {}
+
+    private final AtomicReference<Melhor> melhor = new AtomicReference<>();
+    private final AtomicInteger tentativas = new AtomicInteger();
+    private final CompletableFuture<Melhor> resultado = new CompletableFuture<>();
+    private final Consumer<PlanoCarga> aoMelhorar;
+    private final Object aviso = new Object();
+    private volatile ExecutorService executor;
+    private volatile boolean parada;
+
+    ExecucaoPortfolio(Consumer<PlanoCarga> aoMelhorar) {
+        this.aoMelhorar = aoMelhorar;
+    }
+
+    /**
+     * @return O melhor plano até agora, ou {@code null} se nenhuma estratégia terminou ainda.
+     */
+    public Melhor getMelhor() {
+        return melhor.get();
+    }
+
+    /**
+     * @return Quantos planos já foram terminados, contando os que não foram melhores.
+     */
+    public int getTentativas() {
+        return tentativas.get();
+    }
+
+    public boolean isParada() {
+        return parada;
+    }
+
+    /**
+     * Para o planejamento. As estratégias que estiverem no meio de um plano
+     * terminam em segundo plano e o plano delas é descartado, a não ser que
+     * nenhuma tenha terminado ainda: aí espera-se por elas, para sempre haver
+     * um plano a devolver.
+     * @return O melhor plano até agora.
+     */
+    public Melhor parar() {
+        parada = true;
+        var executorAtual = executor;
+        if (executorAtual != null)
+            executorAtual.shutdown();
+
+        var atual = melhor.get();
+        if (atual == null)
+            return resultado.join();
+
+        resultado.complete(atual);
+        return atual;
+    }
+
+    /**
+     * @return O melhor plano, que fica pronto quando todas as estratégias
+     * terminam, quando uma delas carrega tudo ou quando o planejamento é parado.
+     */
+    public CompletableFuture<Melhor> getResultado() {
+        return resultado;
+    }
+
+    void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Oferece um plano recém-terminado. Se for melhor que o atual, passa a ser
+     * o melhor e quem acompanha o planejamento é avisado.
+     * @return Se o plano passou a ser o melhor.
+     */
+    boolean oferecer(PlanoCarga plano, String estrategia) {
+        tentativas.incrementAndGet();
+        if (parada && melhor.get() != null)
+            return false;
+
+        var candidato = new Melhor(plano, estrategia);
+        Melhor atual;
+        do {
+            atual = melhor.get();
+            if (atual != null && !melhorQue(plano, atual.plano()))
+                return false;
+        } while (!melhor.compareAndSet(atual, candidato));
+
+        // Dois planos podem ganhar quase juntos; só é avisado o que ainda for o
+        // melhor, para quem acompanha nunca ver um plano pior depois de um melhor.
+        synchronized (aviso) {
+            if (melhor.get() == candidato && !parada && aoMelhorar != null)
+                aoMelhorar.accept(plano);
+        }
+        return true;
+    }
+
+    void concluir() {
+        resultado.complete(melhor.get());
+    }
+
+    /**
+     * Ganha o plano que carrega mais volume e, empatando, o mais pesado.
+     */
+    private static boolean melhorQue(PlanoCarga plano, PlanoCarga atual) {
+        if (Math.abs(plano.volumeCarregado() - atual.volumeCarregado()) > RegrasEmpilhamento.FOLGA)
+            return plano.volumeCarregado() > atual.volumeCarregado();
+
+        return plano.pesoCarregado() > atual.pesoCarregado() + RegrasEmpilhamento.FOLGA;
+    }
+}
@@ -0,0 +1,214 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Dimensoes;
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Veiculo;
+import sistematransportadora.servico.ValorInvalidoException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * O plano de um veículo enquanto está sendo montado, com o que já foi
+ * carregado, o que ficou de fora e quanto peso ainda cabe.
+ * <p>
+ * Ao ser criada, já separa as embalagens que não podem ir no veículo de jeito
+ * nenhum, então as estratégias só recebem as que podem.
+ * <p>
+ * Também acompanha a {@link DistribuicaoPeso} da carga, para as estratégias
+ * conferirem os eixos antes de escolher cada lugar, e diz onde ficam as
+ * {@linkplain EixosVeiculo#divisas() divisas} entre os semirreboques, que
+ * nenhuma embalagem pode cruzar.
+ */
+final class MontagemCarga {
+    static final String SEM_ESPACO = "Não há mais espaço no veículo.";
+    static final String SEM_PESO = "A capacidade de peso do veículo foi atingida.";
+    static final String SEM_EIXO = "A embalagem passaria da capacidade de um eixo do veículo.";
+
+    private final long inicio = System.nanoTime();
+    private final Veiculo veiculo;
+    private final List<Embalagem> candidatas;
+    private final List<Posicionamento> posicionamentos;
+    private final List<EmbalagemRecusada> recusadas = new ArrayList<>();
+    private final DistribuicaoPeso distribuicao;
+    private double peso;
+    private double volume;
+
+    /**
+     * @throws ValorInvalidoException Se o veículo não tiver as dimensões internas cadastradas.
+     */
+    MontagemCarga(Veiculo veiculo, Collection<Embalagem> embalagens) {
+        var interno = veiculo.getDimensoesInternas();
+        if (interno == null || interno.altura <= 0 || interno.largura <= 0 || interno.comprimento <= 0)
+            throw new ValorInvalidoException("O veículo " + veiculo.getNome() + " não tem as dimensões internas cadastradas.");
+
+        this.veiculo = veiculo;
+        this.distribuicao = new DistribuicaoPeso(veiculo);
+        this.candidatas = new ArrayList<>(embalagens.size());
+        this.posicionamentos = new ArrayList<>(embalagens.size());
+        for (var embalagem : embalagens) {
+            var motivo = motivoRecusa(veiculo, distribuicao.getEixos(), embalagem);
+            if (motivo != null)
+                recusadas.add(new EmbalagemRecusada(embalagem, motivo));
+            else
+                candidatas.add(embalagem);
+        }
+    }
+
+    Veiculo veiculo() {
+        return veiculo;
+    }
+
+    Dimensoes interno() {
+        return veiculo.getDimensoesInternas();
+    }
+
+    /**
+     * @return As embalagens que podem ir no veículo. A lista pode ser reordenada à vontade.
+     */
+    List<Embalagem> candidatas() {
+        return candidatas;
+    }
+
+    /**
+     * @return Se o peso da embalagem ainda cabe na capacidade do veículo.
+     */
+    boolean cabePeso(double pesoEmbalagem) {
+        return peso + pesoEmbalagem <= veiculo.getCapacidadeDePeso() + RegrasEmpilhamento.FOLGA;
+    }
+
+    /**
+     * @param y Onde a embalagem começa no comprimento.
+     * @param comprimento Quanto ela ocupa no comprimento, já girada ou não.
+     * @return Se a embalagem, naquele trecho do comprimento, ainda cabe nos eixos do veículo.
+     */
+    boolean cabeEixos(double pesoEmbalagem, double y, double comprimento) {
+        return distribuicao.cabe(pesoEmbalagem, y + comprimento / 2);
+    }
+
+    /**
+     * @return Os eixos do veículo, ou {@code null} se o tipo dele não tiver uma composição conhecida.
+     */
+    EixosVeiculo eixos() {
+        return distribuicao.getEixos();
+    }
+
+    /**
+     * @return Onde ficam as divisas entre os semirreboques; vazio se o baú for um só.
+     */
+    double[] divisas() {
+        return eixos() != null ? eixos().divisas() : new double[0];
+    }
+
+    /**
+     * @param y Onde a embalagem começa no comprimento.
+     * @param comprimento Quanto ela ocupa no comprimento, já girada ou não.
+     * @return Se a embalagem ficaria com parte em cada semirreboque.
+     */
+    boolean cruzaDivisa(double y, double comprimento) {
+        return eixos() != null && eixos().cruzaDivisa(y, comprimento);
+    }
+
+    /**
+     * @return O primeiro lugar a partir de {@code y} onde a embalagem fica num semirreboque só.
+     */
+    double semCruzarDivisa(double y, double comprimento) {
+        return eixos() != null ? eixos().semCruzarDivisa(y, comprimento) : y;
+    }
+
+    /**
+     * Tira embalagens do topo da pilha até ela caber nos eixos com a base em
+     * {@code y}. Como cada camada fica centralizada sobre a de baixo, a pilha
+     * inteira pesa sobre o centro da base.
+     * @return Se sobrou alguma embalagem na pilha.
+     */
+    boolean aliviarEixos(Pilha pilha, double y, boolean girada) {
+        double comprimento = girada ? pilha.largura() : pilha.comprimento();
+        while (!pilha.vazia() && !cabeEixos(pilha.peso(), y, comprimento)) {
+            recusar(pilha.desempilhar(), SEM_EIXO);
+        }
+        return !pilha.vazia();
+    }
+
+    void colocar(Posicionamento posicionamento) {
+        posicionamentos.add(posicionamento);
+        distribuicao.adicionar(posicionamento);
+        peso += posicionamento.embalagem().getPeso();
+        volume += posicionamento.volume();
+    }
+
+    void recusar(Embalagem embalagem, String motivo) {
+        recusadas.add(new EmbalagemRecusada(embalagem, motivo));
+    }
+
+    /**
+     * Tira embalagens do topo da pilha até o peso dela caber no que falta da capacidade.
+     * @return Se sobrou alguma embalagem na pilha.
+     */
+    boolean aliviar(Pilha pilha) {
+        while (!pilha.vazia() && !cabePeso(pilha.peso())) {
+            recusar(pilha.desempilhar(), SEM_PESO);
+        }
+        return !pilha.vazia();
+    }
+
+    /**
+     * Carrega a pilha inteira com a base no lugar dado.
+     */
+    void colocar(Pilha pilha, double x, double y, boolean girada) {
+        for (var camada : pilha.camadas()) {
+            var posicionamento = girada ? camada.transposto() : camada;
+            colocar(posicionamento.deslocado(x, y));
+        }
+    }
+
+    void recusar(Pilha pilha, String motivo) {
+        for (var camada : pilha.camadas()) {
+            recusar(camada.embalagem(), motivo);
+        }
+    }
+
+    PlanoCarga concluir() {
+        return new PlanoCarga(
+                veiculo, posicionamentos, recusadas, peso, volume,
+                Duration.ofNanos(System.nanoTime() - inicio)
+        );
+    }
+
+    /**
+     * @param eixos Os eixos do veículo, ou {@code null} se ele não tiver uma composição conhecida.
+     * @return Por que a embalagem não pode ir no veículo de jeito nenhum, ou
+     * {@code null} se ela pode.
+     */
+    static String motivoRecusa(Veiculo veiculo, EixosVeiculo eixos, Embalagem embalagem) {
+        var dimensoes = embalagem.getDimensoes();
+        if (dimensoes == null || dimensoes.altura <= 0 || dimensoes.largura <= 0 || dimensoes.comprimento <= 0)
+            return "A embalagem não tem dimensões válidas.";
+
+        var interno = veiculo.getDimensoesInternas();
+        if (dimensoes.altura > interno.altura + RegrasEmpilhamento.FOLGA)
+            return "A embalagem é mais alta que o veículo.";
+
+        boolean cabe = dimensoes.largura <= interno.largura + RegrasEmpilhamento.FOLGA
+                && dimensoes.comprimento <= interno.comprimento + RegrasEmpilhamento.FOLGA;
+        boolean cabeGirada = dimensoes.comprimento <= interno.largura + RegrasEmpilhamento.FOLGA
+                && dimensoes.largura <= interno.comprimento + RegrasEmpilhamento.FOLGA;
+        if (!cabe && !cabeGirada)
+            return "A embalagem não cabe no piso do veículo.";
+
+        if (eixos != null && eixos.divisas().length > 0) {
+            double bau = eixos.maiorBau();
+            cabe = cabe && dimensoes.comprimento <= bau + RegrasEmpilhamento.FOLGA;
+            cabeGirada = cabeGirada && dimensoes.largura <= bau + RegrasEmpilhamento.FOLGA;
+            if (!cabe && !cabeGirada)
+                return "A embalagem não cabe no piso de um semirreboque.";
+        }
+
+        if (embalagem.getPeso() > veiculo.getCapacidadeDePeso() + RegrasEmpilhamento.FOLGA)
+            return "A embalagem é mais pesada que a capacidade do veículo.";
+
+        return null;
+    }
+}
@@ -0,0 +1,144 @@
+package sistematransportadora.carga;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * O espaço já ocupado dentro do veículo, para saber se uma embalagem nova
+ * esbarra em alguma outra.
+ * <p>
+ * O piso é dividido numa grade, e cada célula guarda as embalagens que passam
+ * por cima dela; uma consulta só olha as embalagens das células que a
+ * embalagem nova cobre.
+ */
+final class Ocupacao {
+    /** Quantas células a grade tem no lado maior do piso. */
+    private static final int CELULAS = 64;
+
+    private final double lado;
+    private final int colunas;
+    private final int linhas;
+    private final List<List<Posicionamento>> celulas;
+
+    Ocupacao(double largura, double comprimento) {
+        this.lado = Math.max(largura, comprimento) / CELULAS;
+        this.colunas = Math.max(1, (int) Math.ceil(largura / lado));
+        this.linhas = Math.max(1, (int) Math.ceil(comprimento / lado));
+        this.celulas = new ArrayList<>(colunas * linhas);
+        for (int i = 0; i < colunas * linhas; i++) {
+            celulas.add(new ArrayList<>());
+        }
+    }
+
+    void ocupar(Posicionamento p) {
+        int x1 = coluna(p.x() + p.largura() - RegrasEmpilhamento.FOLGA);
+        int y1 = linha(p.y() + p.comprimento() - RegrasEmpilhamento.FOLGA);
+        for (int j = linha(p.y()); j <= y1; j++) {
+            for (int i = coluna(p.x()); i <= x1; i++) {
+                celulas.get(j * colunas + i).add(p);
+            }
+        }
+    }
+
+    void desocupar(Posicionamento p) {
+        int x1 = coluna(p.x() + p.largura() - RegrasEmpilhamento.FOLGA);
+        int y1 = linha(p.y() + p.comprimento() - RegrasEmpilhamento.FOLGA);
+        for (int j = linha(p.y()); j <= y1; j++) {
+            for (int i = coluna(p.x()); i <= x1; i++) {
+                var celula = celulas.get(j * colunas + i);
+                for (int k = 0; k < celula.size(); k++) {
+                    if (celula.get(k) == p) {
+                        celula.remove(k);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return A embalagem cujo topo fica na altura {@code z} e cobre a área
+     * dada por inteiro, ou {@code null} se não houver.
+     */
+    Posicionamento apoio(double x, double y, double z, double largura, double comprimento) {
+        for (var p : celulas.get(linha(y) * colunas + coluna(x))) {
+            if (Math.abs(p.z() + p.altura() - z) <= RegrasEmpilhamento.FOLGA
+                    && p.x() <= x + RegrasEmpilhamento.FOLGA
+                    && p.y() <= y + RegrasEmpilhamento.FOLGA
+                    && x + largura <= p.x() + p.largura() + RegrasEmpilhamento.FOLGA
+                    && y + comprimento <= p.y() + p.comprimento() + RegrasEmpilhamento.FOLGA)
+                return p;
+        }
+        return null;
+    }
+
+    /**
+     * @return As embalagens apoiadas diretamente sobre o topo da dada.
+     */
+    List<Posicionamento> acima(Posicionamento embaixo) {
+        double topo = embaixo.z() + embaixo.altura();
+        var apoiadas = new ArrayList<Posicionamento>();
+        int x1 = coluna(embaixo.x() + embaixo.largura() - RegrasEmpilhamento.FOLGA);
+        int y1 = linha(embaixo.y() + embaixo.comprimento() - RegrasEmpilhamento.FOLGA);
+        for (int j = linha(embaixo.y()); j <= y1; j++) {
+            for (int i = coluna(embaixo.x()); i <= x1; i++) {
+                for (var p : celulas.get(j * colunas + i)) {
+                    // Cada embalagem aparece em todas as células que cobre; conta só na do canto dela.
+                    if (Math.abs(p.z() - topo) <= RegrasEmpilhamento.FOLGA
+                            && coluna(p.x()) == i && linha(p.y()) == j
+                            && sobrepoe(p.x(), p.largura(), embaixo.x(), embaixo.largura())
+                            && sobrepoe(p.y(), p.comprimento(), embaixo.y(), embaixo.comprimento()))
+                        apoiadas.add(p);
+                }
+            }
+        }
+        return apoiadas;
+    }
+
+    /**
+     * @return Se a caixa dada não esbarra em nenhuma embalagem já colocada.
+     */
+    boolean livre(double x, double y, double z, double largura, double comprimento, double altura) {
+        int x1 = coluna(x + largura - RegrasEmpilhamento.FOLGA);
+        int y1 = linha(y + comprimento - RegrasEmpilhamento.FOLGA);
+        for (int j = linha(y); j <= y1; j++) {
+            for (int i = coluna(x); i <= x1; i++) {
+                for (var p : celulas.get(j * colunas + i)) {
+                    if (sobrepoe(x, largura, p.x(), p.largura())
+                            && sobrepoe(y, comprimento, p.y(), p.comprimento())
+                            && sobrepoe(z, altura, p.z(), p.altura()))
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Se o ponto fica dentro de alguma embalagem já colocada, e não só na beira dela.
+     */
+    boolean ocupado(double x, double y, double z) {
+        for (var p : celulas.get(linha(y) * colunas + coluna(x))) {
+            if (dentro(x, p.x(), p.largura()) && dentro(y, p.y(), p.comprimento()) && dentro(z, p.z(), p.altura()))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean sobrepoe(double inicio, double medida, double outroInicio, double outraMedida) {
+        return inicio < outroInicio + outraMedida - RegrasEmpilhamento.FOLGA
+                && outroInicio < inicio + medida - RegrasEmpilhamento.FOLGA;
+    }
+
+    private static boolean dentro(double valor, double inicio, double medida) {
+        return valor >= inicio - RegrasEmpilhamento.FOLGA && valor < inicio + medida - RegrasEmpilhamento.FOLGA;
+    }
+
+    private int coluna(double x) {
+        return Math.min(colunas - 1, Math.max(0, (int) (x / lado)));
+    }
+
+    private int linha(double y) {
+        return Math.min(linhas - 1, Math.max(0, (int) (y / lado)));
+    }
+}
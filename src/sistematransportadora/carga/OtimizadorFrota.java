@@ -0,0 +1,445 @@
+package sistematransportadora.carga;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Veiculo;
+import sistematransportadora.repositorio.VeiculoRepositorio;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Distribui as embalagens do dia entre os veículos da frota, usando o menor
+ * número de veículos que der.
+ * <p>
+ * A distribuição inicial enche um veículo por vez: a cada rodada, todos os
+ * modelos de veículo ainda disponíveis são planejados em paralelo com o que
+ * falta carregar, e fica o que carrega mais volume ou, se algum leva tudo, o
+ * menor que leva tudo. Veículos com as mesmas medidas e capacidade são
+ * planejados uma vez só, então uma frota de centenas de veículos custa o
+ * mesmo que a quantidade de modelos dela.
+ * <p>
+ * Depois, enquanto houver tempo, uma busca local tenta esvaziar o veículo
+ * menos aproveitado, passando a carga dele para os outros, e trocar veículos
+ * por outros menores que levem a mesma carga. As avaliações de cada passo
+ * rodam em paralelo num {@link ForkJoinPool}. A distribuição inicial sempre é
+ * feita por inteiro, mesmo que passe do tempo limite.
+ */
+public class OtimizadorFrota {
+    private static final Logger log = LoggerFactory.getLogger(OtimizadorFrota.class);
+    public static final Duration TEMPO_LIMITE_PADRAO = Duration.ofSeconds(5);
+
+    private final VeiculoRepositorio repositorio;
+    private final PlanejadorCarga planejador;
+    private final ForkJoinPool pool;
+    private Duration tempoLimite = TEMPO_LIMITE_PADRAO;
+
+    /**
+     * @param repositorio Repositório de onde vem a frota.
+     * @param planejador Planejador da carga de cada veículo.
+     * @param pool Pool onde os planos são avaliados.
+     */
+    public OtimizadorFrota(VeiculoRepositorio repositorio, PlanejadorCarga planejador, ForkJoinPool pool) {
+        this.repositorio = repositorio;
+        this.planejador = planejador;
+        this.pool = pool;
+    }
+
+    /**
+     * Cria o otimizador com a frota do repositório padrão, usando o pool comum.
+     * @return {@link OtimizadorFrota}
+     */
+    public static OtimizadorFrota padrao() {
+        return new OtimizadorFrota(VeiculoRepositorio.padrao(), new PlanejadorCarga(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param tempoLimite Quanto tempo a otimização pode levar, contando a distribuição inicial.
+     */
+    public void setTempoLimite(Duration tempoLimite) {
+        this.tempoLimite = tempoLimite;
+    }
+
+    /**
+     * Distribui as embalagens entre todos os veículos cadastrados.
+     * @param embalagens Embalagens a carregar.
+     * @return {@link PlanoFrota}
+     */
+    public PlanoFrota otimizar(Collection<Embalagem> embalagens) {
+        return otimizar(Arrays.asList(repositorio.buscarTodos()), embalagens);
+    }
+
+    /**
+     * Distribui as embalagens entre os veículos dados.
+     * @param veiculos Veículos disponíveis. Os que não têm dimensões internas são ignorados.
+     * @param embalagens Embalagens a carregar.
+     * @return {@link PlanoFrota}
+     */
+    public PlanoFrota otimizar(Collection<Veiculo> veiculos, Collection<Embalagem> embalagens) {
+        long inicio = System.nanoTime();
+        var execucao = new Execucao(veiculos, inicio + tempoLimite.toNanos());
+
+        var naoAlocadas = execucao.distribuir(new ArrayList<>(embalagens));
+        execucao.melhorar();
+
+        var resultado = new PlanoFrota(
+                List.copyOf(execucao.solucao), naoAlocadas, execucao.melhorias,
+                Duration.ofNanos(System.nanoTime() - inicio)
+        );
+        log.info("Frota otimizada: {} embalagens em {} veículos, {} sem veículo, {} melhorias em {} ms.",
+                embalagens.size(), resultado.planos().size(), naoAlocadas.size(), resultado.melhorias(),
+                resultado.duracao().toMillis());
+        return resultado;
+    }
+
+    /**
+     * Medidas, capacidade e composição de eixos de um veículo: dois veículos
+     * com o mesmo perfil têm sempre o mesmo plano para as mesmas embalagens.
+     * A composição entra porque os eixos restringem onde cada embalagem pode ficar.
+     */
+    private record Perfil(double altura, double largura, double comprimento, double capacidade,
+                          EixosVeiculo.Composicao composicao) {
+        static Perfil de(Veiculo veiculo) {
+            var interno = veiculo.getDimensoesInternas();
+            return new Perfil(interno.altura, interno.largura, interno.comprimento, veiculo.getCapacidadeDePeso(),
+                    EixosVeiculo.Composicao.de(veiculo));
+        }
+
+        double volume() {
+            return altura * largura * comprimento;
+        }
+    }
+
+    private final class Execucao {
+        private final long prazo;
+        /** Veículos ainda sem carga, por perfil, do perfil de menor volume para o de maior. */
+        private final Map<Perfil, ArrayDeque<Veiculo>> disponiveis = new LinkedHashMap<>();
+        private final List<PlanoCarga> solucao = new ArrayList<>();
+        /** Planos que já se tentou esvaziar ou trocar por um veículo menor, sem sucesso. */
+        private final Set<PlanoCarga> semEsvaziar = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<PlanoCarga> semReduzir = Collections.newSetFromMap(new IdentityHashMap<>());
+        private int melhorias;
+
+        Execucao(Collection<Veiculo> veiculos, long prazo) {
+            this.prazo = prazo;
+
+            var validos = new ArrayList<Veiculo>();
+            for (var veiculo : veiculos) {
+                var interno = veiculo.getDimensoesInternas();
+                if (interno != null && interno.altura > 0 && interno.largura > 0 && interno.comprimento > 0)
+                    validos.add(veiculo);
+            }
+            validos.sort(Comparator.comparingDouble(v -> Perfil.de(v).volume()));
+            for (var veiculo : validos) {
+                disponiveis.computeIfAbsent(Perfil.de(veiculo), p -> new ArrayDeque<>()).add(veiculo);
+            }
+        }
+
+        /**
+         * Monta a distribuição inicial, um veículo por vez.
+         * @return As embalagens que não couberam em nenhum veículo.
+         */
+        List<EmbalagemRecusada> distribuir(List<Embalagem> restantes) {
+            List<EmbalagemRecusada> sobras = List.of();
+            while (!restantes.isEmpty()) {
+                var perfis = perfisDisponiveis();
+                if (perfis.isEmpty()) {
+                    return restantes.stream()
+                            .map(e -> new EmbalagemRecusada(e, "Não há mais veículos disponíveis."))
+                            .toList();
+                }
+
+                var carga = restantes;
+                var planos = emParalelo(perfis.stream()
+                        .map(perfil -> (Supplier<PlanoCarga>) () -> planejador.planejar(disponiveis.get(perfil).peek(), carga))
+                        .toList());
+
+                PlanoCarga melhor = null;
+                for (var plano : planos) {
+                    if (melhor == null || melhorNaDistribuicao(plano, melhor))
+                        melhor = plano;
+                }
+
+                if (melhor.posicionamentos().isEmpty()) {
+                    sobras = melhor.recusadas();
+                    break;
+                }
+
+                usar(melhor);
+                sobras = melhor.recusadas();
+                restantes = new ArrayList<>(sobras.stream().map(EmbalagemRecusada::embalagem).toList());
+            }
+
+            return sobras;
+        }
+
+        /**
+         * Aplica as melhorias enquanto houver tempo e alguma delas der certo.
+         */
+        void melhorar() {
+            while (!passouDoPrazo() && (esvaziarVeiculo() || reduzirVeiculos())) {
+                melhorias++;
+            }
+        }
+
+        /**
+         * Tenta passar toda a carga de um veículo para os outros, começando pelo
+         * menos aproveitado.
+         * @return Se algum veículo foi esvaziado.
+         */
+        private boolean esvaziarVeiculo() {
+            var candidatos = new ArrayList<PlanoCarga>();
+            for (var plano : solucao) {
+                if (!semEsvaziar.contains(plano))
+                    candidatos.add(plano);
+            }
+            candidatos.sort(Comparator.comparingDouble(PlanoCarga::aproveitamentoVolume));
+
+            for (var alvo : candidatos) {
+                if (passouDoPrazo())
+                    return false;
+
+                var outros = new ArrayList<>(solucao);
+                outros.remove(alvo);
+                if (outros.isEmpty())
+                    return false;
+
+                if (absorver(outros, embalagensDe(alvo))) {
+                    solucao.clear();
+                    solucao.addAll(outros);
+                    devolver(alvo.veiculo());
+                    return true;
+                }
+                semEsvaziar.add(alvo);
+            }
+
+            return false;
+        }
+
+        /**
+         * Distribui as embalagens entre os planos dados, substituindo cada plano
+         * que recebe alguma pelo plano novo. A cada passo, todos os planos são
+         * refeitos em paralelo com o que sobra e fica o que absorve mais volume.
+         * @return Se todas as embalagens foram absorvidas.
+         */
+        private boolean absorver(List<PlanoCarga> planos, List<Embalagem> sobra) {
+            while (!sobra.isEmpty()) {
+                if (passouDoPrazo())
+                    return false;
+
+                var carga = sobra;
+                var tentativas = emParalelo(planos.stream()
+                        .map(plano -> (Supplier<PlanoCarga>) () -> {
+                            var todas = new ArrayList<>(embalagensDe(plano));
+                            todas.addAll(carga);
+                            var novo = planejador.planejar(plano.veiculo(), todas);
+                            // O veículo não pode largar nada do que já levava.
+                            return recusouAlguma(novo, embalagensDe(plano)) ? null : novo;
+                        })
+                        .toList());
+
+                int melhor = -1;
+                double maiorGanho = 0;
+                for (int i = 0; i < tentativas.size(); i++) {
+                    var tentativa = tentativas.get(i);
+                    if (tentativa == null)
+                        continue;
+
+                    double ganho = tentativa.volumeCarregado() - planos.get(i).volumeCarregado();
+                    if (ganho > maiorGanho) {
+                        melhor = i;
+                        maiorGanho = ganho;
+                    }
+                }
+                if (melhor == -1)
+                    return false;
+
+                var escolhido = tentativas.get(melhor);
+                planos.set(melhor, escolhido);
+                sobra = new ArrayList<>(escolhido.recusadas().stream().map(EmbalagemRecusada::embalagem).toList());
+            }
+
+            return true;
+        }
+
+        /**
+         * Procura, em paralelo para cada veículo usado, o veículo disponível de
+         * menor volume que leve a mesma carga, e faz as trocas que couberem na frota.
+         * @return Se alguma troca foi feita.
+         */
+        private boolean reduzirVeiculos() {
+            var candidatos = new ArrayList<PlanoCarga>();
+            for (var plano : solucao) {
+                if (!semReduzir.contains(plano))
+                    candidatos.add(plano);
+            }
+            if (candidatos.isEmpty())
+                return false;
+
+            var perfis = perfisDisponiveis();
+            var menores = emParalelo(candidatos.stream()
+                    .map(plano -> (Supplier<PlanoCarga>) () -> menorQueLeva(plano, perfis))
+                    .toList());
+
+            boolean trocou = false;
+            for (int i = 0; i < candidatos.size(); i++) {
+                var atual = candidatos.get(i);
+                var menor = menores.get(i);
+                if (menor == null) {
+                    semReduzir.add(atual);
+                    continue;
+                }
+
+                // Outro plano pode já ter ficado com o último veículo do perfil.
+                var fila = disponiveis.get(Perfil.de(menor.veiculo()));
+                if (fila.isEmpty())
+                    continue;
+
+                var veiculo = fila.poll();
+                var trocado = veiculo == menor.veiculo() ? menor : planejador.planejar(veiculo, embalagensDe(atual));
+                if (!trocado.completo()) {
+                    devolver(veiculo);
+                    semReduzir.add(atual);
+                    continue;
+                }
+
+                solucao.set(solucao.indexOf(atual), trocado);
+                devolver(atual.veiculo());
+                trocou = true;
+            }
+
+            return trocou;
+        }
+
+        /**
+         * @return O plano no menor veículo disponível, menor que o do plano dado,
+         * que leva todas as embalagens dele, ou {@code null}.
+         */
+        private PlanoCarga menorQueLeva(PlanoCarga plano, List<Perfil> perfis) {
+            double volumeAtual = plano.volumeVeiculo();
+            var embalagens = embalagensDe(plano);
+            for (var perfil : perfis) {
+                if (perfil.volume() >= volumeAtual || passouDoPrazo())
+                    break;
+
+                var tentativa = planejador.planejar(disponiveis.get(perfil).peek(), embalagens);
+                if (tentativa.completo())
+                    return tentativa;
+            }
+
+            return null;
+        }
+
+        private void usar(PlanoCarga plano) {
+            disponiveis.get(Perfil.de(plano.veiculo())).remove(plano.veiculo());
+            solucao.add(plano);
+        }
+
+        private void devolver(Veiculo veiculo) {
+            disponiveis.get(Perfil.de(veiculo)).push(veiculo);
+        }
+
+        /**
+         * @return Os perfis que ainda têm veículo disponível, do menor volume para o maior.
+         */
+        private List<Perfil> perfisDisponiveis() {
+            var perfis = new ArrayList<Perfil>();
+            disponiveis.forEach((perfil, fila) -> {
+                if (!fila.isEmpty())
+                    perfis.add(perfil);
+            });
+            return perfis;
+        }
+
+        private boolean passouDoPrazo() {
+            return System.nanoTime() > prazo;
+        }
+    }
+
+    /**
+     * Na distribuição inicial, um veículo que leva tudo ganha de um que não
+     * leva, e entre os que levam tudo ganha o menor. Se nenhum leva tudo, ganha
+     * o que carrega mais volume e, empatando, o menor.
+     */
+    private static boolean melhorNaDistribuicao(PlanoCarga plano, PlanoCarga melhor) {
+        if (plano.completo() != melhor.completo())
+            return plano.completo();
+        if (plano.completo())
+            return plano.volumeVeiculo() < melhor.volumeVeiculo();
+        if (plano.volumeCarregado() != melhor.volumeCarregado())
+            return plano.volumeCarregado() > melhor.volumeCarregado();
+
+        return plano.volumeVeiculo() < melhor.volumeVeiculo();
+    }
+
+    private static List<Embalagem> embalagensDe(PlanoCarga plano) {
+        return plano.posicionamentos().stream().map(Posicionamento::embalagem).toList();
+    }
+
+    private static boolean recusouAlguma(PlanoCarga plano, List<Embalagem> embalagens) {
+        if (plano.recusadas().isEmpty())
+            return false;
+
+        var recusadas = Collections.newSetFromMap(new IdentityHashMap<Embalagem, Boolean>());
+        plano.recusadas().forEach(r -> recusadas.add(r.embalagem()));
+        for (var embalagem : embalagens) {
+            if (recusadas.contains(embalagem))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Executa as tarefas no pool, dividindo a lista ao meio até sobrar uma
+     * tarefa por parte.
+     * @return Os resultados, na ordem das tarefas.
+     */
+    private <T> List<T> emParalelo(List<Supplier<T>> tarefas) {
+        var resultados = new Object[tarefas.size()];
+        pool.invoke(new Divisao<>(tarefas, resultados, 0, tarefas.size()));
+
+        @SuppressWarnings("unchecked")
+        var lista = (List<T>) Arrays.asList(resultados);
+        return lista;
+    }
+
+    private static final class Divisao<T> extends RecursiveAction {
+        private final List<Supplier<T>> tarefas;
+        private final Object[] resultados;
+        private final int inicio;
+        private final int fim;
+
+        Divisao(List<Supplier<T>> tarefas, Object[] resultados, int inicio, int fim) {
+            this.tarefas = tarefas;
+            this.resultados = resultados;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio <= 1) {
+                if (fim > inicio)
+                    resultados[inicio] = tarefas.get(inicio).get();
+                return;
+            }
+
+            int meio = (inicio + fim) >>> 1;
+            invokeAll(new Divisao<>(tarefas, resultados, inicio, meio), new Divisao<>(tarefas, resultados, meio, fim));
+        }
+    }
+}
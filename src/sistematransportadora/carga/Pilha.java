@@ -0,0 +1,122 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Embalagem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Uma coluna de embalagens, uma sobre a outra, montada antes de ir para o piso.
+ * <p>
+ * Cada embalagem fica centralizada sobre a de baixo e precisa caber dentro da
+ * área do topo dela, então sempre tem apoio por inteiro. As posições são
+ * relativas ao canto da base da pilha.
+ */
+final class Pilha {
+    private final List<Posicionamento> camadas = new ArrayList<>();
+    private final double largura;
+    private final double comprimento;
+    private double altura;
+    private double peso;
+
+    Pilha(Embalagem base, double largura, double comprimento, double altura) {
+        this.largura = largura;
+        this.comprimento = comprimento;
+        empilhar(new Posicionamento(base, 0, 0, 0, largura, comprimento, altura, false));
+    }
+
+    double largura() {
+        return largura;
+    }
+
+    double comprimento() {
+        return comprimento;
+    }
+
+    double altura() {
+        return altura;
+    }
+
+    double peso() {
+        return peso;
+    }
+
+    double area() {
+        return largura * comprimento;
+    }
+
+    boolean vazia() {
+        return camadas.isEmpty();
+    }
+
+    List<Posicionamento> camadas() {
+        return camadas;
+    }
+
+    /**
+     * @return Se ainda cabe alguma embalagem sobre o topo.
+     */
+    boolean aberta() {
+        return !camadas.isEmpty() && RegrasEmpilhamento.podeApoiar(topo().embalagem());
+    }
+
+    /**
+     * Procura como a embalagem ficaria sobre o topo, girada ou não.
+     * @return O posicionamento sobre o topo, ou {@code null} se ela não puder ficar ali.
+     */
+    Posicionamento encaixe(Embalagem embalagem, double largura, double comprimento, double altura,
+                           double alturaMaxima) {
+        var topo = topo();
+        if (this.altura + altura > alturaMaxima + RegrasEmpilhamento.FOLGA
+                || !RegrasEmpilhamento.podeApoiar(topo.embalagem(), embalagem))
+            return null;
+
+        boolean cabe = largura <= topo.largura() + RegrasEmpilhamento.FOLGA
+                && comprimento <= topo.comprimento() + RegrasEmpilhamento.FOLGA;
+        boolean cabeGirada = comprimento <= topo.largura() + RegrasEmpilhamento.FOLGA
+                && largura <= topo.comprimento() + RegrasEmpilhamento.FOLGA;
+        if (!cabe && !cabeGirada)
+            return null;
+
+        // Girada só quando a posição original não cabe.
+        boolean girada = !cabe;
+        double l = girada ? comprimento : largura;
+        double c = girada ? largura : comprimento;
+        return new Posicionamento(
+                embalagem,
+                topo.x() + (topo.largura() - l) / 2,
+                topo.y() + (topo.comprimento() - c) / 2,
+                this.altura,
+                l, c, altura, girada
+        );
+    }
+
+    /**
+     * @return A área do topo que sobraria com a embalagem em cima; quanto menor, melhor o encaixe.
+     */
+    double sobra(Posicionamento encaixe) {
+        var topo = topo();
+        return topo.largura() * topo.comprimento() - encaixe.largura() * encaixe.comprimento();
+    }
+
+    void empilhar(Posicionamento posicionamento) {
+        camadas.add(posicionamento);
+        altura = posicionamento.z() + posicionamento.altura();
+        peso += posicionamento.embalagem().getPeso();
+    }
+
+    /**
+     * Tira a embalagem do topo.
+     * @return A embalagem retirada.
+     */
+    Embalagem desempilhar() {
+        var removida = camadas.remove(camadas.size() - 1);
+        peso -= removida.embalagem().getPeso();
+        altura = camadas.isEmpty() ? 0 : topo().z() + topo().altura();
+        return removida.embalagem();
+    }
+
+    private Posicionamento topo() {
+        return camadas.get(camadas.size() - 1);
+    }
+}
@@ -0,0 +1,134 @@
+package sistematransportadora.carga;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * O piso do veículo, ocupado da cabine para a porta pela regra do canto
+ * inferior esquerdo sobre um horizonte (skyline).
+ * <p>
+ * O horizonte guarda, para cada faixa da largura, até onde o comprimento já
+ * está ocupado. Cada retângulo vai para a faixa onde termina mais perto da
+ * cabine, o que enche o piso em fileiras sem precisar comparar com cada
+ * retângulo já colocado.
+ * <p>
+ * Num veículo com mais de um semirreboque, um retângulo que passaria pela
+ * divisa entre dois baús vai para o começo do baú seguinte, e o pedaço que
+ * sobra antes da divisa naquela faixa fica vazio.
+ */
+final class Piso {
+    private final double largura;
+    private final double comprimento;
+    private final EixosVeiculo eixos;
+    private final List<Faixa> faixas = new ArrayList<>();
+
+    /** Um trecho da largura, com o comprimento ocupado até {@code y}. */
+    private static final class Faixa {
+        double x;
+        double largura;
+        double y;
+
+        Faixa(double x, double largura, double y) {
+            this.x = x;
+            this.largura = largura;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Onde um retângulo foi colocado.
+     * @param x Posição na largura.
+     * @param y Posição no comprimento.
+     * @param girado Se largura e comprimento foram trocados.
+     */
+    record Lugar(double x, double y, boolean girado) {}
+
+    /**
+     * @param eixos Os eixos do veículo, com as divisas entre os baús, ou {@code null} se não forem conhecidos.
+     */
+    Piso(double largura, double comprimento, EixosVeiculo eixos) {
+        this.largura = largura;
+        this.comprimento = comprimento;
+        this.eixos = eixos;
+        faixas.add(new Faixa(0, largura, 0));
+    }
+
+    /**
+     * Coloca um retângulo no piso, girado ou não, onde ele termina mais perto da cabine.
+     * @return O lugar escolhido, ou {@code null} se ele não couber mais.
+     */
+    Lugar colocar(double largura, double comprimento) {
+        var normal = procurar(largura, comprimento);
+        var girado = largura != comprimento ? procurar(comprimento, largura) : null;
+
+        boolean usarGirado = girado != null
+                && (normal == null || girado[1] + largura < normal[1] + comprimento - RegrasEmpilhamento.FOLGA);
+        var escolhido = usarGirado ? girado : normal;
+        if (escolhido == null)
+            return null;
+
+        double l = usarGirado ? comprimento : largura;
+        double c = usarGirado ? largura : comprimento;
+        ocupar((int) escolhido[2], escolhido[0], escolhido[1] + c, l);
+        return new Lugar(escolhido[0], escolhido[1], usarGirado);
+    }
+
+    /**
+     * @return {@code {x, y, faixa}} do melhor lugar, ou {@code null}.
+     */
+    private double[] procurar(double largura, double comprimento) {
+        double[] melhor = null;
+        for (int i = 0; i < faixas.size(); i++) {
+            double x = faixas.get(i).x;
+            if (x + largura > this.largura + RegrasEmpilhamento.FOLGA)
+                break;
+
+            // O retângulo apoia na faixa mais funda entre as que ele cobre.
+            double y = 0;
+            double coberto = 0;
+            for (int j = i; j < faixas.size() && coberto < largura - RegrasEmpilhamento.FOLGA; j++) {
+                y = Math.max(y, faixas.get(j).y);
+                coberto += faixas.get(j).largura;
+            }
+            if (eixos != null)
+                y = eixos.semCruzarDivisa(y, comprimento);
+
+            if (y + comprimento > this.comprimento + RegrasEmpilhamento.FOLGA)
+                continue;
+            if (melhor == null || y < melhor[1] - RegrasEmpilhamento.FOLGA)
+                melhor = new double[] {x, y, i};
+        }
+
+        return melhor;
+    }
+
+    /**
+     * Sobe o horizonte até {@code y} no trecho {@code [x, x + largura)}, a partir da faixa {@code i}.
+     */
+    private void ocupar(int i, double x, double y, double largura) {
+        double fim = x + largura;
+
+        // Tira as faixas cobertas, cortando a última se ela passar do fim.
+        while (i < faixas.size() && faixas.get(i).x < fim - RegrasEmpilhamento.FOLGA) {
+            var faixa = faixas.get(i);
+            double fimFaixa = faixa.x + faixa.largura;
+            if (fimFaixa > fim + RegrasEmpilhamento.FOLGA) {
+                faixa.largura = fimFaixa - fim;
+                faixa.x = fim;
+                break;
+            }
+            faixas.remove(i);
+        }
+        faixas.add(i, new Faixa(x, largura, y));
+
+        // Junta com as vizinhas de mesma profundidade.
+        if (i + 1 < faixas.size() && Math.abs(faixas.get(i + 1).y - y) <= RegrasEmpilhamento.FOLGA) {
+            faixas.get(i).largura += faixas.get(i + 1).largura;
+            faixas.remove(i + 1);
+        }
+        if (i > 0 && Math.abs(faixas.get(i - 1).y - y) <= RegrasEmpilhamento.FOLGA) {
+            faixas.get(i - 1).largura += faixas.get(i).largura;
+            faixas.remove(i);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Veiculo;
+import sistematransportadora.servico.ValorInvalidoException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Planeja como carregar um conjunto de embalagens num veículo.
+ * <p>
+ * O planejamento é feito em duas etapas. Primeiro as embalagens são
+ * empilhadas em colunas: cada uma vai para a pilha cujo topo a comporta com a
+ * menor sobra de área, respeitando {@link RegrasEmpilhamento}, ou começa uma
+ * pilha nova. Depois as bases das pilhas são distribuídas pelo piso, da
+ * cabine para a porta, pela regra do canto inferior esquerdo ({@link Piso}).
+ * As embalagens só giram sobre o piso; a altura fica sempre na vertical.
+ * <p>
+ * A capacidade de peso é conferida ao colocar cada pilha no piso: se a pilha
+ * passar do que falta, as embalagens do topo ficam de fora até ela caber,
+ * antes de a pilha ocupar o piso. Os eixos do veículo são conferidos do mesmo
+ * jeito, já com o lugar da pilha escolhido; se a pilha inteira ficar de fora
+ * por causa deles, o lugar dela no piso fica vazio. Nenhuma pilha cruza a
+ * divisa entre os semirreboques de um bitrem.
+ */
+public class PlanejadorCarga implements EstrategiaCarga {
+    /**
+     * Ordem de montagem das pilhas: as menos frágeis e as empilháveis primeiro,
+     * para servirem de base, e entre elas as de maior área e mais pesadas.
+     */
+    private static final Comparator<Embalagem> ORDEM_EMPILHAMENTO = Comparator
+            .comparing((Embalagem e) -> RegrasEmpilhamento.fragilidade(e).ordinal())
+            .thenComparing(e -> !e.isEmpilhavel())
+            .thenComparing(e -> -area(e))
+            .thenComparing(e -> -e.getPeso());
+
+    /**
+     * Ordem de ida para o piso: as pilhas mais altas primeiro, que aproveitam
+     * melhor cada pedaço do piso quando não cabe tudo, e entre elas as de maior base.
+     */
+    private static final Comparator<Pilha> ORDEM_PISO = Comparator
+            .comparingDouble((Pilha p) -> -p.altura())
+            .thenComparingDouble(p -> -p.area());
+
+    /**
+     * Planeja a carga.
+     * @param veiculo Veículo a ser carregado.
+     * @param embalagens Embalagens a carregar.
+     * @return {@link PlanoCarga}
+     * @throws ValorInvalidoException Se o veículo não tiver as dimensões internas cadastradas.
+     */
+    public PlanoCarga planejar(Veiculo veiculo, Collection<Embalagem> embalagens) {
+        var montagem = new MontagemCarga(veiculo, embalagens);
+        var pilhas = empilhar(montagem.candidatas(), montagem.interno().altura);
+        distribuir(montagem, pilhas);
+        return montagem.concluir();
+    }
+
+    /**
+     * O planejamento em colunas não tem sorteio; o mesmo pedido dá sempre o mesmo plano.
+     */
+    @Override
+    public PlanoCarga planejar(Veiculo veiculo, Collection<Embalagem> embalagens, Random aleatorio) {
+        return planejar(veiculo, embalagens);
+    }
+
+    @Override
+    public String nome() {
+        return "colunas";
+    }
+
+    /**
+     * Monta as pilhas, sem posição no piso ainda.
+     * @param embalagens Embalagens a empilhar; a lista é reordenada.
+     * @param alturaMaxima Altura interna do veículo.
+     */
+    static List<Pilha> empilhar(List<Embalagem> embalagens, double alturaMaxima) {
+        embalagens.sort(ORDEM_EMPILHAMENTO);
+
+        var pilhas = new ArrayList<Pilha>();
+        // Só as pilhas cujo topo ainda aceita alguma embalagem são consultadas.
+        var abertas = new ArrayList<Pilha>();
+        for (var embalagem : embalagens) {
+            var dimensoes = embalagem.getDimensoes();
+            // Uma embalagem que não aguenta nada em cima fecha a pilha onde ficar,
+            // então ela vai para a mais alta, que tem menos a perder.
+            boolean fecha = !RegrasEmpilhamento.podeApoiar(embalagem);
+
+            Pilha escolhida = null;
+            Posicionamento encaixe = null;
+            double menorSobra = Double.MAX_VALUE;
+            for (var pilha : abertas) {
+                var candidato = pilha.encaixe(embalagem, dimensoes.largura, dimensoes.comprimento,
+                        dimensoes.altura, alturaMaxima);
+                if (candidato == null)
+                    continue;
+
+                double sobra = fecha ? alturaMaxima - pilha.altura() : pilha.sobra(candidato);
+                if (sobra < menorSobra) {
+                    escolhida = pilha;
+                    encaixe = candidato;
+                    menorSobra = sobra;
+                }
+            }
+
+            if (escolhida != null) {
+                escolhida.empilhar(encaixe);
+                if (!escolhida.aberta())
+                    abertas.remove(escolhida);
+                continue;
+            }
+
+            var nova = new Pilha(embalagem, dimensoes.largura, dimensoes.comprimento, dimensoes.altura);
+            pilhas.add(nova);
+            if (nova.aberta())
+                abertas.add(nova);
+        }
+
+        return pilhas;
+    }
+
+    /**
+     * Coloca as pilhas no piso, da cabine para a porta.
+     */
+    private static void distribuir(MontagemCarga montagem, List<Pilha> pilhas) {
+        var interno = montagem.interno();
+        var piso = new Piso(interno.largura, interno.comprimento, montagem.eixos());
+
+        pilhas.sort(ORDEM_PISO);
+        for (var pilha : pilhas) {
+            if (!montagem.aliviar(pilha))
+                continue;
+
+            var lugar = piso.colocar(pilha.largura(), pilha.comprimento());
+            if (lugar == null)
+                montagem.recusar(pilha, MontagemCarga.SEM_ESPACO);
+            else if (montagem.aliviarEixos(pilha, lugar.y(), lugar.girado()))
+                montagem.colocar(pilha, lugar.x(), lugar.y(), lugar.girado());
+        }
+    }
+
+    private static double area(Embalagem embalagem) {
+        return embalagem.getDimensoes().largura * embalagem.getDimensoes().comprimento;
+    }
+}
@@ -0,0 +1,56 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Veiculo;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * O resultado do planejamento da carga de um veículo.
+ * @param veiculo O veículo planejado.
+ * @param posicionamentos As embalagens carregadas e onde cada uma fica.
+ * @param recusadas As embalagens que ficaram de fora.
+ * @param pesoCarregado Soma dos pesos das embalagens carregadas.
+ * @param volumeCarregado Soma dos volumes das embalagens carregadas.
+ * @param duracao Quanto o planejamento levou.
+ */
+public record PlanoCarga(Veiculo veiculo, List<Posicionamento> posicionamentos, List<EmbalagemRecusada> recusadas,
+                         double pesoCarregado, double volumeCarregado, Duration duracao) {
+    /**
+     * @return O volume interno do veículo.
+     */
+    public double volumeVeiculo() {
+        var dimensoes = veiculo.getDimensoesInternas();
+        return dimensoes.altura * dimensoes.largura * dimensoes.comprimento;
+    }
+
+    /**
+     * @return A fração do volume interno ocupada, entre 0 e 1.
+     */
+    public double aproveitamentoVolume() {
+        double volume = volumeVeiculo();
+        return volume > 0 ? volumeCarregado / volume : 0;
+    }
+
+    /**
+     * @return A fração da capacidade de peso usada, entre 0 e 1.
+     */
+    public double aproveitamentoPeso() {
+        double capacidade = veiculo.getCapacidadeDePeso();
+        return capacidade > 0 ? pesoCarregado / capacidade : 0;
+    }
+
+    /**
+     * @return O centro de gravidade da carga e a carga de cada eixo do veículo.
+     */
+    public DistribuicaoPeso distribuicaoPeso() {
+        return DistribuicaoPeso.de(this);
+    }
+
+    /**
+     * @return Se todas as embalagens pedidas foram carregadas.
+     */
+    public boolean completo() {
+        return recusadas.isEmpty();
+    }
+}
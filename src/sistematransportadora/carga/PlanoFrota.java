@@ -0,0 +1,37 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Veiculo;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * O resultado da distribuição de embalagens entre os veículos da frota.
+ * @param planos O plano de carga de cada veículo usado.
+ * @param naoAlocadas As embalagens que nenhum veículo disponível comportou.
+ * @param melhorias Quantas melhorias a busca local conseguiu sobre a distribuição inicial.
+ * @param duracao Quanto a otimização levou.
+ */
+public record PlanoFrota(List<PlanoCarga> planos, List<EmbalagemRecusada> naoAlocadas, int melhorias,
+                         Duration duracao) {
+    /**
+     * @return Os veículos usados, na ordem dos planos.
+     */
+    public List<Veiculo> veiculos() {
+        return planos.stream().map(PlanoCarga::veiculo).toList();
+    }
+
+    /**
+     * @return Se todas as embalagens foram alocadas.
+     */
+    public boolean completo() {
+        return naoAlocadas.isEmpty();
+    }
+
+    /**
+     * @return A soma dos volumes internos dos veículos usados.
+     */
+    public double volumeVeiculos() {
+        return planos.stream().mapToDouble(PlanoCarga::volumeVeiculo).sum();
+    }
+}
@@ -0,0 +1,161 @@
+package sistematransportadora.carga;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Veiculo;
+import sistematransportadora.servico.ValorInvalidoException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Planeja a carga de um veículo com várias estratégias ao mesmo tempo e fica
+ * com o melhor plano.
+ * <p>
+ * Nenhuma estratégia ganha sempre: as colunas vão bem com muitas embalagens
+ * empilháveis, as camadas com poucos tamanhos diferentes e os pontos extremos
+ * com tamanhos variados. Cada estratégia roda numa thread; as que não são
+ * aleatórias rodam uma vez, e as aleatórias repetem com sorteios diferentes
+ * até {@link #setReinicios(int) o limite de reinícios}.
+ * <p>
+ * O planejamento termina quando todas acabam, quando um plano carrega tudo ou
+ * quando quem pediu {@linkplain ExecucaoPortfolio#parar() para}, ficando com o
+ * melhor plano encontrado até ali.
+ */
+public class PortfolioCarga {
+    private static final Logger log = LoggerFactory.getLogger(PortfolioCarga.class);
+    public static final int REINICIOS_PADRAO = 64;
+
+    private final List<EstrategiaCarga> estrategias;
+    private final int threads;
+    private int reinicios = REINICIOS_PADRAO;
+    private long semente = 1;
+
+    /**
+     * @param estrategias Estratégias a usar.
+     * @param threads Quantas estratégias rodam ao mesmo tempo.
+     */
+    public PortfolioCarga(List<EstrategiaCarga> estrategias, int threads) {
+        if (estrategias.isEmpty())
+            throw new ValorInvalidoException("O portfólio precisa de pelo menos uma estratégia.");
+        if (threads < 1)
+            throw new ValorInvalidoException("O portfólio precisa de pelo menos uma thread.");
+
+        this.estrategias = List.copyOf(estrategias);
+        this.threads = threads;
+    }
+
+    /**
+     * Cria o portfólio com todas as estratégias, usando todos os processadores.
+     * @return {@link PortfolioCarga}
+     */
+    public static PortfolioCarga padrao() {
+        return new PortfolioCarga(List.of(
+                new PlanejadorCarga(),
+                new EstrategiaCamadas(),
+                new EstrategiaGuilhotina(),
+                new EstrategiaPontosExtremos(false),
+                new EstrategiaPontosExtremos(true)
+        ), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param reinicios Quantas vezes, somadas, as estratégias aleatórias rodam.
+     */
+    public void setReinicios(int reinicios) {
+        this.reinicios = reinicios;
+    }
+
+    /**
+     * @param semente Semente dos sorteios; a mesma semente repete os mesmos planos.
+     */
+    public void setSemente(long semente) {
+        this.semente = semente;
+    }
+
+    /**
+     * Começa o planejamento em threads de fundo.
+     * @param veiculo Veículo a ser carregado.
+     * @param embalagens Embalagens a carregar.
+     * @param aoMelhorar Chamado, na thread da estratégia, cada vez que aparece
+     *                   um plano melhor que todos os anteriores. Pode ser {@code null}.
+     * @return A execução, para acompanhar, parar e pegar o melhor plano.
+     * @throws ValorInvalidoException Se o veículo não tiver as dimensões internas cadastradas.
+     */
+    public ExecucaoPortfolio iniciar(Veiculo veiculo, Collection<Embalagem> embalagens, Consumer<PlanoCarga> aoMelhorar) {
+        var interno = veiculo.getDimensoesInternas();
+        if (interno == null || interno.altura <= 0 || interno.largura <= 0 || interno.comprimento <= 0)
+            throw new ValorInvalidoException("O veículo " + veiculo.getNome() + " não tem as dimensões internas cadastradas.");
+
+        var rodadas = montarRodadas();
+        var pedido = List.copyOf(embalagens);
+        var execucao = new ExecucaoPortfolio(aoMelhorar);
+        long inicio = System.nanoTime();
+
+        int quantas = Math.min(threads, rodadas.size());
+        var executor = Executors.newFixedThreadPool(quantas, tarefa -> {
+            var thread = new Thread(tarefa, "portfolio-carga");
+            thread.setDaemon(true);
+            return thread;
+        });
+        execucao.setExecutor(executor);
+
+        var proxima = new AtomicInteger();
+        var ativas = new AtomicInteger(quantas);
+        for (int t = 0; t < quantas; t++) {
+            executor.execute(() -> {
+                try {
+                    int i;
+                    while (!execucao.isParada() && (i = proxima.getAndIncrement()) < rodadas.size()) {
+                        var estrategia = rodadas.get(i);
+                        try {
+                            var plano = estrategia.planejar(veiculo, pedido, new Random(semente * 31 + i));
+                            execucao.oferecer(plano, estrategia.nome());
+                            // Ninguém carrega mais que tudo.
+                            if (plano.completo() && !execucao.isParada())
+                                execucao.parar();
+                        } catch (RuntimeException e) {
+                            log.error("Erro na estratégia {} do portfólio de carga: {}", estrategia.nome(), e.getMessage());
+                        }
+                    }
+                } finally {
+                    if (ativas.decrementAndGet() == 0) {
+                        executor.shutdown();
+                        execucao.concluir();
+                        var melhor = execucao.getMelhor();
+                        log.info("Portfólio de carga de {} terminou em {} ms com {} planos; melhor: {}.",
+                                veiculo.getNome(), (System.nanoTime() - inicio) / 1_000_000, execucao.getTentativas(),
+                                melhor == null ? "nenhum" : melhor.estrategia());
+                    }
+                }
+            });
+        }
+
+        return execucao;
+    }
+
+    /**
+     * @return A ordem em que as estratégias rodam: cada uma das que não são
+     * aleatórias uma vez, primeiro, e depois os reinícios das aleatórias, revezando.
+     */
+    private List<EstrategiaCarga> montarRodadas() {
+        var rodadas = new ArrayList<EstrategiaCarga>();
+        var aleatorias = new ArrayList<EstrategiaCarga>();
+        for (var estrategia : estrategias) {
+            rodadas.add(estrategia);
+            if (estrategia.aleatoria())
+                aleatorias.add(estrategia);
+        }
+
+        for (int i = aleatorias.size(); i < reinicios && !aleatorias.isEmpty(); i++) {
+            rodadas.add(aleatorias.get(i % aleatorias.size()));
+        }
+        return rodadas;
+    }
+}
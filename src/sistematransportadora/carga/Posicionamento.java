@@ -0,0 +1,42 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Embalagem;
+
+/**
+ * Onde uma embalagem fica dentro do veículo.
+ * <p>
+ * A origem é o canto do fundo do baú junto à cabine, do lado esquerdo:
+ * {@code x} corre pela largura, {@code y} pelo comprimento, a partir da cabine,
+ * e {@code z} pela altura, a partir do piso. As medidas são as da embalagem já
+ * na posição em que foi colocada, na mesma unidade do cadastro.
+ *
+ * @param embalagem A embalagem.
+ * @param x Posição na largura.
+ * @param y Posição no comprimento.
+ * @param z Posição na altura.
+ * @param largura Medida ocupada na largura.
+ * @param comprimento Medida ocupada no comprimento.
+ * @param altura Medida ocupada na altura.
+ * @param girada Se a embalagem foi girada em 90 graus sobre o piso, trocando largura e comprimento.
+ */
+public record Posicionamento(Embalagem embalagem, double x, double y, double z,
+                             double largura, double comprimento, double altura, boolean girada) {
+    public double volume() {
+        return largura * comprimento * altura;
+    }
+
+    /**
+     * @return O mesmo posicionamento, deslocado sobre o piso.
+     */
+    Posicionamento deslocado(double dx, double dy) {
+        return new Posicionamento(embalagem, x + dx, y + dy, z, largura, comprimento, altura, girada);
+    }
+
+    /**
+     * @return O mesmo posicionamento com largura e comprimento trocados, como
+     * fica quando a pilha inteira é girada sobre o piso.
+     */
+    Posicionamento transposto() {
+        return new Posicionamento(embalagem, y, x, z, comprimento, largura, altura, !girada);
+    }
+}
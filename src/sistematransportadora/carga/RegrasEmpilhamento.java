@@ -0,0 +1,41 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Fragilidade;
+
+/**
+ * O que pode ficar em cima do quê.
+ * <p>
+ * Nada fica sobre uma embalagem que não é empilhável nem sobre uma de
+ * fragilidade alta. Sobre uma de fragilidade média só fica outra de
+ * fragilidade média ou alta, então as frágeis sempre terminam no alto das pilhas.
+ * A fragilidade é a do produto da embalagem.
+ */
+final class RegrasEmpilhamento {
+    /** Tolerância nas comparações de medidas, para não recusar por arredondamento. */
+    static final double FOLGA = 1e-9;
+
+    private RegrasEmpilhamento() {}
+
+    static Fragilidade fragilidade(Embalagem embalagem) {
+        var produto = embalagem.getProdutoAssociado();
+        if (produto == null || produto.getGrauFragilidade() == null)
+            return Fragilidade.BAIXA;
+
+        return produto.getGrauFragilidade();
+    }
+
+    /**
+     * @return Se a embalagem aguenta alguma outra em cima.
+     */
+    static boolean podeApoiar(Embalagem embaixo) {
+        return embaixo.isEmpilhavel() && fragilidade(embaixo) != Fragilidade.ALTA;
+    }
+
+    /**
+     * @return Se {@code emCima} pode ficar sobre {@code embaixo}.
+     */
+    static boolean podeApoiar(Embalagem embaixo, Embalagem emCima) {
+        return podeApoiar(embaixo) && fragilidade(emCima).ordinal() >= fragilidade(embaixo).ordinal();
+    }
+}
@@ -0,0 +1,324 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.servico.ValorInvalidoException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Ajusta um plano de carga já montado quando uma embalagem entra, sai ou muda
+ * de tamanho, sem refazer o plano inteiro.
+ * <p>
+ * Só a região da mudança é mexida. Quando uma embalagem sai, as que estavam
+ * apoiadas sobre ela, e as apoiadas sobre essas, descem a altura dela: como
+ * cada uma cabe dentro do topo da de baixo, a coluna inteira desce sem
+ * esbarrar em nada e continua apoiada. Quando uma embalagem entra, ela vai
+ * para o ponto livre mais baixo e mais perto da cabine entre os cantos que as
+ * embalagens carregadas deixam, como em {@link EstrategiaPontosExtremos}, e
+ * nada mais se mexe, desde que o peso dela caiba nos eixos do veículo e ela
+ * não cruze a divisa entre os semirreboques de um bitrem. Uma embalagem
+ * redimensionada sai e entra de novo. Se a saída de uma embalagem deixar
+ * algum eixo acima do que aguenta, as que mais pesam sobre ele saem e entram
+ * de novo em outro lugar, ou ficam de fora.
+ * <p>
+ * O replanejador guarda o espaço ocupado e os cantos livres entre um ajuste e
+ * outro, e só monta o {@link PlanoCarga} quando ele é pedido, então cada
+ * ajuste custa só o que mexe. Um replanejador acompanha um plano só e não
+ * deve ser usado por várias threads ao mesmo tempo.
+ * <p>
+ * As embalagens que já tinham ficado de fora não são tentadas de novo no
+ * espaço que se abre; para isso, o plano precisa ser refeito.
+ */
+public class ReplanejadorCarga {
+    private static final Comparator<Canto> ORDEM_CANTOS = Comparator
+            .comparingDouble(Canto::z)
+            .thenComparingDouble(Canto::y)
+            .thenComparingDouble(Canto::x);
+
+    private final PlanoCarga original;
+    private final Ocupacao ocupacao;
+    private final DistribuicaoPeso distribuicao;
+    /** As posições e as recusas, pelo id da embalagem. */
+    private final Map<Integer, Posicionamento> posicionamentos = new LinkedHashMap<>();
+    private final Map<Integer, EmbalagemRecusada> recusadas = new LinkedHashMap<>();
+    /** Os cantos onde uma embalagem nova pode ir, do mais baixo e mais perto da cabine em diante. */
+    private final TreeSet<Canto> cantos = new TreeSet<>(ORDEM_CANTOS);
+    private double peso;
+    private double volume;
+    /** O plano com os ajustes feitos, ou {@code null} se ainda não foi montado desde o último ajuste. */
+    private PlanoCarga plano;
+    private long duracaoAjustes;
+
+    /** Ids das embalagens tiradas do lugar e das que não estavam no plano, no ajuste em andamento. */
+    private final Set<Integer> mexidas = new HashSet<>();
+    private final Set<Integer> incluidas = new HashSet<>();
+    private final List<EmbalagemRecusada> recusadasNoAjuste = new ArrayList<>();
+    private int carregadas;
+    /** Se a última procura por {@link #lugar} achou espaço livre que os eixos não aceitaram. */
+    private boolean barradaPorEixo;
+
+    private record Canto(double x, double y, double z) {}
+
+    /**
+     * @param plano O plano a acompanhar. Não é modificado.
+     */
+    public ReplanejadorCarga(PlanoCarga plano) {
+        var interno = plano.veiculo().getDimensoesInternas();
+        this.original = plano;
+        this.ocupacao = new Ocupacao(interno.largura, interno.comprimento);
+        this.distribuicao = new DistribuicaoPeso(plano.veiculo());
+        this.peso = plano.pesoCarregado();
+        this.volume = plano.volumeCarregado();
+        this.carregadas = plano.posicionamentos().size();
+
+        cantos.add(new Canto(0, 0, 0));
+        if (distribuicao.getEixos() != null) {
+            for (double divisa : distribuicao.getEixos().divisas()) {
+                cantos.add(new Canto(0, divisa, 0));
+            }
+        }
+        for (var p : plano.posicionamentos()) {
+            posicionamentos.put(p.embalagem().getId(), p);
+            ocupacao.ocupar(p);
+            distribuicao.adicionar(p);
+            adicionarCantos(p);
+        }
+        for (var r : plano.recusadas()) {
+            recusadas.put(r.embalagem().getId(), r);
+        }
+    }
+
+    /**
+     * @return O plano com todos os ajustes feitos até agora. A duração é a
+     * soma da do plano original com a dos ajustes.
+     */
+    public PlanoCarga getPlano() {
+        if (plano == null) {
+            plano = new PlanoCarga(
+                    original.veiculo(), List.copyOf(posicionamentos.values()), List.copyOf(recusadas.values()),
+                    peso, volume, original.duracao().plusNanos(duracaoAjustes)
+            );
+        }
+        return plano;
+    }
+
+    /**
+     * Aplica uma alteração ao plano.
+     * @param alteracao O que mudou.
+     * @return {@link AjusteCarga}
+     * @throws ValorInvalidoException Se a embalagem incluída já estiver no
+     * plano, ou se a removida ou redimensionada não estiver.
+     */
+    public AjusteCarga ajustar(AlteracaoCarga alteracao) {
+        return ajustar(List.of(alteracao));
+    }
+
+    /**
+     * Aplica várias alterações ao plano, na ordem dada.
+     * @param alteracoes O que mudou.
+     * @return {@link AjusteCarga}, comparando com o plano de antes destas
+     * alterações e com os eixos que ainda passarem do limite, se o plano já
+     * chegou assim ao replanejador.
+     * @throws ValorInvalidoException Se alguma embalagem incluída já estiver
+     * no plano, ou se alguma removida ou redimensionada não estiver.
+     */
+    public AjusteCarga ajustar(List<AlteracaoCarga> alteracoes) {
+        long inicio = System.nanoTime();
+        int anteriores = carregadas;
+        mexidas.clear();
+        incluidas.clear();
+        recusadasNoAjuste.clear();
+        plano = null;
+
+        for (var alteracao : alteracoes) {
+            var embalagem = alteracao.embalagem();
+            switch (alteracao.tipo()) {
+                case INCLUSAO -> incluir(embalagem);
+                case REMOCAO -> remover(embalagem);
+                case REDIMENSIONAMENTO -> {
+                    remover(embalagem);
+                    incluir(embalagem);
+                }
+            }
+        }
+
+        // O que foi incluído e mexido no mesmo ajuste não estava no plano anterior.
+        mexidas.removeAll(incluidas);
+        carregadas = posicionamentos.size();
+        long duracao = System.nanoTime() - inicio;
+        duracaoAjustes += duracao;
+        return new AjusteCarga(anteriores - mexidas.size(), mexidas.size(), List.copyOf(recusadasNoAjuste),
+                List.copyOf(distribuicao.eixosExcedidos()), Duration.ofNanos(duracao));
+    }
+
+    private void remover(Embalagem embalagem) {
+        int id = embalagem.getId();
+        var removido = posicionamentos.remove(id);
+        if (removido == null) {
+            if (recusadas.remove(id) == null)
+                throw new ValorInvalidoException("A embalagem " + id + " não está no plano.");
+            return;
+        }
+
+        tirar(removido);
+        equilibrarEixos();
+    }
+
+    /**
+     * Tira a embalagem do veículo e desce as que estavam apoiadas sobre ela.
+     * Ela já deve ter saído de {@link #posicionamentos}.
+     */
+    private void tirar(Posicionamento removido) {
+        mexidas.add(removido.embalagem().getId());
+        ocupacao.desocupar(removido);
+        distribuicao.remover(removido);
+        peso -= removido.embalagem().getPeso();
+        volume -= removido.volume();
+        cantos.add(new Canto(removido.x(), removido.y(), removido.z()));
+
+        // As apoiadas são achadas antes de cada uma descer, enquanto ainda
+        // estão na altura do topo da de baixo.
+        var descendo = new ArrayDeque<>(ocupacao.acima(removido));
+        while (!descendo.isEmpty()) {
+            var p = descendo.poll();
+            descendo.addAll(ocupacao.acima(p));
+
+            var descido = new Posicionamento(p.embalagem(), p.x(), p.y(), p.z() - removido.altura(),
+                    p.largura(), p.comprimento(), p.altura(), p.girada());
+            ocupacao.desocupar(p);
+            ocupacao.ocupar(descido);
+            distribuicao.remover(p);
+            distribuicao.adicionar(descido);
+            posicionamentos.put(p.embalagem().getId(), descido);
+            mexidas.add(p.embalagem().getId());
+            adicionarCantos(descido);
+        }
+    }
+
+    /**
+     * Tirar peso de um lado do apoio de uma viga alivia um eixo e pode
+     * carregar outro: sem o peso de trás do pino-rei, por exemplo, o da frente
+     * passa a pesar mais no eixo de tração. Enquanto algum eixo passar do que
+     * aguenta, sai a embalagem que mais pesa sobre ele; no fim, as que saíram
+     * são incluídas de novo onde couberem, ou ficam de fora.
+     */
+    private void equilibrarEixos() {
+        if (distribuicao.getEixos() == null)
+            return;
+
+        var tiradas = new ArrayList<Embalagem>();
+        for (int eixo = distribuicao.primeiroExcedido(); eixo >= 0; eixo = distribuicao.primeiroExcedido()) {
+            Posicionamento maior = null;
+            double maiorCarga = 0;
+            for (var p : posicionamentos.values()) {
+                double carga = distribuicao.cargaNoEixo(p, eixo);
+                if (carga > maiorCarga) {
+                    maior = p;
+                    maiorCarga = carga;
+                }
+            }
+            if (maior == null)
+                break;
+
+            posicionamentos.remove(maior.embalagem().getId());
+            tirar(maior);
+            tiradas.add(maior.embalagem());
+        }
+
+        for (var embalagem : tiradas) {
+            incluir(embalagem);
+        }
+    }
+
+    private void incluir(Embalagem embalagem) {
+        int id = embalagem.getId();
+        if (posicionamentos.containsKey(id) || recusadas.containsKey(id))
+            throw new ValorInvalidoException("A embalagem " + id + " já está no plano.");
+
+        // Quem foi tirado do lugar neste ajuste já estava no plano anterior.
+        if (!mexidas.contains(id))
+            incluidas.add(id);
+        var veiculo = original.veiculo();
+        var motivo = MontagemCarga.motivoRecusa(veiculo, distribuicao.getEixos(), embalagem);
+        if (motivo == null && peso + embalagem.getPeso() > veiculo.getCapacidadeDePeso() + RegrasEmpilhamento.FOLGA)
+            motivo = MontagemCarga.SEM_PESO;
+
+        var lugar = motivo == null ? lugar(embalagem) : null;
+        if (lugar == null) {
+            if (motivo == null)
+                motivo = barradaPorEixo ? MontagemCarga.SEM_EIXO : MontagemCarga.SEM_ESPACO;
+            var recusada = new EmbalagemRecusada(embalagem, motivo);
+            recusadas.put(id, recusada);
+            recusadasNoAjuste.add(recusada);
+            return;
+        }
+
+        posicionamentos.put(id, lugar);
+        ocupacao.ocupar(lugar);
+        distribuicao.adicionar(lugar);
+        peso += embalagem.getPeso();
+        volume += lugar.volume();
+        adicionarCantos(lugar);
+    }
+
+    /**
+     * Procura o primeiro canto onde a embalagem cabe apoiada, sem esbarrar em
+     * nada, sem cruzar uma divisa entre semirreboques e sem passar da
+     * capacidade dos eixos. Os cantos que ficaram dentro de alguma embalagem são descartados no caminho.
+     * @return O lugar, ou {@code null} se ela não couber em nenhum.
+     */
+    private Posicionamento lugar(Embalagem embalagem) {
+        var interno = original.veiculo().getDimensoesInternas();
+        var d = embalagem.getDimensoes();
+        var eixos = distribuicao.getEixos();
+        barradaPorEixo = false;
+        for (var iterador = cantos.iterator(); iterador.hasNext(); ) {
+            var canto = iterador.next();
+            if (ocupacao.ocupado(canto.x(), canto.y(), canto.z())) {
+                iterador.remove();
+                continue;
+            }
+
+            for (int tentativa = 0; tentativa < 2; tentativa++) {
+                boolean girada = tentativa == 1;
+                double l = girada ? d.comprimento : d.largura;
+                double c = girada ? d.largura : d.comprimento;
+                if (canto.x() + l > interno.largura + RegrasEmpilhamento.FOLGA
+                        || canto.y() + c > interno.comprimento + RegrasEmpilhamento.FOLGA
+                        || canto.z() + d.altura > interno.altura + RegrasEmpilhamento.FOLGA
+                        || eixos != null && eixos.cruzaDivisa(canto.y(), c))
+                    continue;
+
+                if (canto.z() > RegrasEmpilhamento.FOLGA) {
+                    var apoio = ocupacao.apoio(canto.x(), canto.y(), canto.z(), l, c);
+                    if (apoio == null || !RegrasEmpilhamento.podeApoiar(apoio.embalagem(), embalagem))
+                        continue;
+                }
+                if (!ocupacao.livre(canto.x(), canto.y(), canto.z(), l, c, d.altura))
+                    continue;
+                if (!distribuicao.cabe(embalagem.getPeso(), canto.y() + c / 2)) {
+                    barradaPorEixo = true;
+                    continue;
+                }
+                return new Posicionamento(embalagem, canto.x(), canto.y(), canto.z(), l, c, d.altura, girada);
+            }
+        }
+        return null;
+    }
+
+    private void adicionarCantos(Posicionamento p) {
+        cantos.add(new Canto(p.x() + p.largura(), p.y(), p.z()));
+        cantos.add(new Canto(p.x(), p.y() + p.comprimento(), p.z()));
+        if (RegrasEmpilhamento.podeApoiar(p.embalagem()))
+            cantos.add(new Canto(p.x(), p.y(), p.z() + p.altura()));
+    }
+}
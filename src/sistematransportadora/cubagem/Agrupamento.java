@@ -0,0 +1,10 @@
+package sistematransportadora.cubagem;
+
+/**
+ * Por qual campo os resultados da cubagem são somados.
+ */
+public enum Agrupamento {
+    TIPO,
+    FAMILIA,
+    LOTE
+}
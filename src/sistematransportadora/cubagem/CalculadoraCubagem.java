@@ -0,0 +1,173 @@
+package sistematransportadora.cubagem;
+
+import sistematransportadora.servico.ValorInvalidoException;
+
+import java.util.stream.IntStream;
+
+/**
+ * Calcula a cubagem de produtos ou embalagens guardados em
+ * {@link ColunasCubagem}: o volume, o peso cubado, o peso taxado e a densidade
+ * de cada item, e as somas por tipo, família e lote.
+ * <p>
+ * O cálculo por item é um laço sobre arrays de {@code double}, sem objetos nem
+ * desvios além do da densidade, do jeito que o compilador da JVM consegue
+ * vetorizar. Acima de {@value #LIMIAR_PARALELO} itens, os itens são divididos
+ * em blocos que rodam em paralelo, cada um com as próprias somas, juntadas no
+ * fim.
+ * <p>
+ * As medidas são lidas na {@link UnidadeComprimento} dada e os volumes
+ * saem em m³, então o fator de cubagem é sempre em kg por m³ e as
+ * densidades em kg/m³, qualquer que seja a unidade do cadastro.
+ */
+public class CalculadoraCubagem {
+    /** Fator de cubagem do transporte rodoviário, em kg por m³. */
+    public static final double FATOR_RODOVIARIO = 300;
+    /** A unidade das medidas nas telas de cadastro. */
+    public static final UnidadeComprimento UNIDADE_CADASTRO = UnidadeComprimento.CENTIMETRO;
+    static final int LIMIAR_PARALELO = 1 << 16;
+    private static final int TAMANHO_BLOCO = 1 << 14;
+
+    private final double fator;
+    private final double metrosCubicos;
+    private boolean paralelo = true;
+
+    /**
+     * @param fator Fator de cubagem, o peso em kg cobrado por m³.
+     * @param unidade A unidade das medidas dos itens.
+     * @throws ValorInvalidoException Se o fator não for positivo.
+     */
+    public CalculadoraCubagem(double fator, UnidadeComprimento unidade) {
+        if (!(fator > 0))
+            throw new ValorInvalidoException("O fator de cubagem precisa ser positivo.");
+
+        this.fator = fator;
+        this.metrosCubicos = unidade.emMetrosCubicos();
+    }
+
+    /**
+     * Cria a calculadora com o {@linkplain #FATOR_RODOVIARIO fator rodoviário},
+     * para medidas na {@linkplain #UNIDADE_CADASTRO unidade do cadastro}.
+     * @return {@link CalculadoraCubagem}
+     */
+    public static CalculadoraCubagem padrao() {
+        return new CalculadoraCubagem(FATOR_RODOVIARIO, UNIDADE_CADASTRO);
+    }
+
+    /**
+     * @param paralelo Se conjuntos grandes podem ser calculados em várias threads.
+     */
+    public void setParalelo(boolean paralelo) {
+        this.paralelo = paralelo;
+    }
+
+    /**
+     * @param colunas Os itens.
+     * @return {@link ResultadoCubagem}
+     */
+    public ResultadoCubagem calcular(ColunasCubagem colunas) {
+        int n = colunas.tamanho;
+        var resultado = new ResultadoCubagem(colunas, n);
+
+        Somas somas;
+        if (paralelo && n >= LIMIAR_PARALELO) {
+            int blocos = (n + TAMANHO_BLOCO - 1) / TAMANHO_BLOCO;
+            somas = IntStream.range(0, blocos).parallel()
+                    .mapToObj(b -> calcular(colunas, resultado, b * TAMANHO_BLOCO,
+                            Math.min(n, (b + 1) * TAMANHO_BLOCO)))
+                    .reduce(Somas::juntar)
+                    .orElseGet(() -> new Somas(colunas));
+        } else {
+            somas = calcular(colunas, resultado, 0, n);
+        }
+
+        resultado.resumir(somas.quantidade, somas.volume, somas.peso, somas.pesoCubado, somas.pesoTaxado);
+        return resultado;
+    }
+
+    private Somas calcular(ColunasCubagem colunas, ResultadoCubagem resultado, int inicio, int fim) {
+        var altura = colunas.altura;
+        var largura = colunas.largura;
+        var comprimento = colunas.comprimento;
+        var peso = colunas.peso;
+        var volume = resultado.volume;
+        var pesoCubado = resultado.pesoCubado;
+        var pesoTaxado = resultado.pesoTaxado;
+        var densidade = resultado.densidade;
+        var metrosCubicos = this.metrosCubicos;
+
+        // Um laço por resultado, cada um só com contas sobre arrays, para
+        // o compilador poder usar instruções vetoriais.
+        for (int i = inicio; i < fim; i++) {
+            volume[i] = altura[i] * largura[i] * comprimento[i] * metrosCubicos;
+        }
+        for (int i = inicio; i < fim; i++) {
+            pesoCubado[i] = volume[i] * fator;
+        }
+        for (int i = inicio; i < fim; i++) {
+            pesoTaxado[i] = Math.max(peso[i], pesoCubado[i]);
+        }
+        for (int i = inicio; i < fim; i++) {
+            densidade[i] = volume[i] > 0 ? peso[i] / volume[i] : 0;
+        }
+
+        var somas = new Somas(colunas);
+        for (int a = 0; a < somas.quantidade.length; a++) {
+            var codigo = colunas.codigos[a];
+            var q = somas.quantidade[a];
+            var v = somas.volume[a];
+            var p = somas.peso[a];
+            var c = somas.pesoCubado[a];
+            var t = somas.pesoTaxado[a];
+            for (int i = inicio; i < fim; i++) {
+                int g = codigo[i];
+                q[g]++;
+                v[g] += volume[i];
+                p[g] += peso[i];
+                c[g] += pesoCubado[i];
+                t[g] += pesoTaxado[i];
+            }
+        }
+        return somas;
+    }
+
+    /**
+     * As somas de um bloco de itens, para cada {@link Agrupamento} e cada grupo.
+     */
+    private static final class Somas {
+        final int[][] quantidade;
+        final double[][] volume;
+        final double[][] peso;
+        final double[][] pesoCubado;
+        final double[][] pesoTaxado;
+
+        Somas(ColunasCubagem colunas) {
+            int agrupamentos = colunas.nomes.length;
+            quantidade = new int[agrupamentos][];
+            volume = new double[agrupamentos][];
+            peso = new double[agrupamentos][];
+            pesoCubado = new double[agrupamentos][];
+            pesoTaxado = new double[agrupamentos][];
+            for (int a = 0; a < agrupamentos; a++) {
+                int grupos = colunas.nomes[a].length;
+                quantidade[a] = new int[grupos];
+                volume[a] = new double[grupos];
+                peso[a] = new double[grupos];
+                pesoCubado[a] = new double[grupos];
+                pesoTaxado[a] = new double[grupos];
+            }
+        }
+
+        Somas juntar(Somas outras) {
+            for (int a = 0; a < quantidade.length; a++) {
+                for (int g = 0; g < quantidade[a].length; g++) {
+                    quantidade[a][g] += outras.quantidade[a][g];
+                    volume[a][g] += outras.volume[a][g];
+                    peso[a][g] += outras.peso[a][g];
+                    pesoCubado[a][g] += outras.pesoCubado[a][g];
+                    pesoTaxado[a][g] += outras.pesoTaxado[a][g];
+                }
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package sistematransportadora.cubagem;
+
+import sistematransportadora.modelo.Dimensoes;
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Produto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Os campos que a cubagem usa, de vários produtos ou embalagens, guardados
+ * por coluna: um array de {@code double} para cada medida e outro para o peso,
+ * na mesma ordem. Assim a {@link CalculadoraCubagem} percorre arrays
+ * contíguos em vez de seguir uma referência por objeto.
+ * <p>
+ * O tipo, a família e o lote viram códigos: cada nome diferente ganha um
+ * número, e cada item guarda só o número do seu grupo. Um item sem o campo
+ * fica no grupo {@value #SEM_GRUPO}.
+ */
+public final class ColunasCubagem {
+    public static final String SEM_GRUPO = "(sem valor)";
+
+    final int tamanho;
+    final int[] ids;
+    final double[] altura;
+    final double[] largura;
+    final double[] comprimento;
+    final double[] peso;
+    /** Para cada {@link Agrupamento}, o código do grupo de cada item. */
+    final int[][] codigos;
+    /** Para cada {@link Agrupamento}, o nome de cada código. */
+    final String[][] nomes;
+
+    private ColunasCubagem(int tamanho) {
+        this.tamanho = tamanho;
+        this.ids = new int[tamanho];
+        this.altura = new double[tamanho];
+        this.largura = new double[tamanho];
+        this.comprimento = new double[tamanho];
+        this.peso = new double[tamanho];
+        this.codigos = new int[Agrupamento.values().length][tamanho];
+        this.nomes = new String[Agrupamento.values().length][];
+    }
+
+    /**
+     * Monta as colunas a partir dos produtos. Um produto sem dimensões entra
+     * com volume 0.
+     * @param produtos Os produtos.
+     * @return {@link ColunasCubagem}
+     */
+    public static ColunasCubagem deProdutos(Produto[] produtos) {
+        var colunas = new ColunasCubagem(produtos.length);
+        var dicionarios = novosDicionarios();
+        for (int i = 0; i < produtos.length; i++) {
+            var produto = produtos[i];
+            colunas.preencher(i, produto.getId(), produto.getDimensoes(), produto.getPeso());
+            colunas.agrupar(dicionarios, i,
+                    produto.getTipo() != null ? produto.getTipo().nome() : null,
+                    produto.getFamilia(), produto.getLote());
+        }
+        colunas.fecharDicionarios(dicionarios);
+        return colunas;
+    }
+
+    /**
+     * Monta as colunas a partir das embalagens. A família e o lote são os do
+     * produto de cada embalagem.
+     * @param embalagens As embalagens.
+     * @return {@link ColunasCubagem}
+     */
+    public static ColunasCubagem deEmbalagens(Embalagem[] embalagens) {
+        var colunas = new ColunasCubagem(embalagens.length);
+        var dicionarios = novosDicionarios();
+        for (int i = 0; i < embalagens.length; i++) {
+            var embalagem = embalagens[i];
+            var produto = embalagem.getProdutoAssociado();
+            colunas.preencher(i, embalagem.getId(), embalagem.getDimensoes(), embalagem.getPeso());
+            colunas.agrupar(dicionarios, i,
+                    embalagem.getTipo() != null ? embalagem.getTipo().nome() : null,
+                    produto != null ? produto.getFamilia() : null,
+                    produto != null ? produto.getLote() : null);
+        }
+        colunas.fecharDicionarios(dicionarios);
+        return colunas;
+    }
+
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * @return A id do item na posição dada.
+     */
+    public int id(int posicao) {
+        return ids[posicao];
+    }
+
+    private void preencher(int i, int id, Dimensoes dimensoes, double pesoItem) {
+        ids[i] = id;
+        if (dimensoes != null) {
+            altura[i] = dimensoes.altura;
+            largura[i] = dimensoes.largura;
+            comprimento[i] = dimensoes.comprimento;
+        }
+        peso[i] = pesoItem;
+    }
+
+    private void agrupar(List<Map<String, Integer>> dicionarios, int i, String... valores) {
+        for (int a = 0; a < valores.length; a++) {
+            var nome = valores[a] == null || valores[a].isBlank() ? SEM_GRUPO : valores[a];
+            var dicionario = dicionarios.get(a);
+            Integer codigo = dicionario.get(nome);
+            if (codigo == null) {
+                codigo = dicionario.size();
+                dicionario.put(nome, codigo);
+            }
+            codigos[a][i] = codigo;
+        }
+    }
+
+    private void fecharDicionarios(List<Map<String, Integer>> dicionarios) {
+        for (int a = 0; a < nomes.length; a++) {
+            var dicionario = dicionarios.get(a);
+            nomes[a] = new String[dicionario.size()];
+            for (var entrada : dicionario.entrySet()) {
+                nomes[a][entrada.getValue()] = entrada.getKey();
+            }
+        }
+    }
+
+    private static List<Map<String, Integer>> novosDicionarios() {
+        var dicionarios = new ArrayList<Map<String, Integer>>();
+        for (int a = 0; a < Agrupamento.values().length; a++) {
+            dicionarios.add(new HashMap<>());
+        }
+        return dicionarios;
+    }
+}
@@ -0,0 +1,104 @@
+package sistematransportadora.cubagem;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * O resultado de {@link CalculadoraCubagem#calcular(ColunasCubagem)}: os
+ * valores de cada item, na ordem das colunas, e as somas por grupo.
+ */
+public class ResultadoCubagem {
+    private final ColunasCubagem colunas;
+    final double[] volume;
+    final double[] pesoCubado;
+    final double[] pesoTaxado;
+    final double[] densidade;
+    private final Map<Agrupamento, List<ResumoCubagem>> grupos = new EnumMap<>(Agrupamento.class);
+    private ResumoCubagem total;
+
+    ResultadoCubagem(ColunasCubagem colunas, int tamanho) {
+        this.colunas = colunas;
+        this.volume = new double[tamanho];
+        this.pesoCubado = new double[tamanho];
+        this.pesoTaxado = new double[tamanho];
+        this.densidade = new double[tamanho];
+    }
+
+    public int tamanho() {
+        return volume.length;
+    }
+
+    /**
+     * @return A id do item na posição dada.
+     */
+    public int id(int posicao) {
+        return colunas.id(posicao);
+    }
+
+    /**
+     * @return O volume do item, em m³.
+     */
+    public double volume(int posicao) {
+        return volume[posicao];
+    }
+
+    public double pesoCubado(int posicao) {
+        return pesoCubado[posicao];
+    }
+
+    public double pesoTaxado(int posicao) {
+        return pesoTaxado[posicao];
+    }
+
+    /**
+     * @return O peso por m³ do item, ou 0 se ele não tiver volume.
+     */
+    public double densidade(int posicao) {
+        return densidade[posicao];
+    }
+
+    /**
+     * @return As somas de todos os itens.
+     */
+    public ResumoCubagem total() {
+        return total;
+    }
+
+    /**
+     * @param agrupamento Por qual campo somar.
+     * @return As somas de cada grupo, em ordem de nome.
+     */
+    public List<ResumoCubagem> porGrupo(Agrupamento agrupamento) {
+        return grupos.get(agrupamento);
+    }
+
+    void resumir(int[][] quantidade, double[][] volumes, double[][] pesos, double[][] pesosCubados,
+                 double[][] pesosTaxados) {
+        for (var agrupamento : Agrupamento.values()) {
+            int a = agrupamento.ordinal();
+            var nomes = colunas.nomes[a];
+            var lista = new ArrayList<ResumoCubagem>(nomes.length);
+            for (int g = 0; g < nomes.length; g++) {
+                lista.add(new ResumoCubagem(nomes[g], quantidade[a][g], volumes[a][g], pesos[a][g],
+                        pesosCubados[a][g], pesosTaxados[a][g]));
+            }
+            lista.sort(Comparator.comparing(ResumoCubagem::grupo));
+            grupos.put(agrupamento, List.copyOf(lista));
+        }
+
+        // Todo item está em exatamente um tipo, então o total é a soma dos tipos.
+        int q = 0;
+        double v = 0, p = 0, c = 0, t = 0;
+        for (var resumo : grupos.get(Agrupamento.TIPO)) {
+            q += resumo.quantidade();
+            v += resumo.volume();
+            p += resumo.peso();
+            c += resumo.pesoCubado();
+            t += resumo.pesoTaxado();
+        }
+        total = new ResumoCubagem(null, q, v, p, c, t);
+    }
+}
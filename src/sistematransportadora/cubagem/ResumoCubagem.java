@@ -0,0 +1,20 @@
+package sistematransportadora.cubagem;
+
+/**
+ * As somas da cubagem de um grupo de produtos ou embalagens.
+ * @param grupo O nome do grupo, como o tipo, a família ou o lote.
+ * @param quantidade Quantos itens há no grupo.
+ * @param volume Soma dos volumes, em m³.
+ * @param peso Soma dos pesos reais.
+ * @param pesoCubado Soma dos pesos cubados, o volume vezes o fator de cubagem.
+ * @param pesoTaxado Soma dos pesos taxados, o maior entre o real e o cubado de cada item.
+ */
+public record ResumoCubagem(String grupo, int quantidade, double volume, double peso,
+                            double pesoCubado, double pesoTaxado) {
+    /**
+     * @return O peso por m³ do grupo todo, ou 0 se o volume for 0.
+     */
+    public double densidade() {
+        return volume > 0 ? peso / volume : 0;
+    }
+}
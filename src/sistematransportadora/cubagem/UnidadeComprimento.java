@@ -0,0 +1,24 @@
+package sistematransportadora.cubagem;
+
+/**
+ * A unidade das medidas cadastradas. As telas de cadastro só aceitam números
+ * inteiros nas medidas, então, na prática, elas estão em centímetros.
+ */
+public enum UnidadeComprimento {
+    METRO(1),
+    CENTIMETRO(0.01),
+    MILIMETRO(0.001);
+
+    private final double emMetros;
+
+    UnidadeComprimento(double emMetros) {
+        this.emMetros = emMetros;
+    }
+
+    /**
+     * @return Quantos metros cúbicos tem uma unidade cúbica desta unidade.
+     */
+    public double emMetrosCubicos() {
+        return emMetros * emMetros * emMetros;
+    }
+}
@@ -0,0 +1,59 @@
+package sistematransportadora.exportacao;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * CSV separado por ponto e vírgula, com cabeçalho. Os campos com o
+ * separador, aspas ou quebras de linha vão entre aspas. O arquivo pode ser
+ * lido de volta pela importação de CSV.
+ */
+final class EscritorCsv implements EscritorRegistros {
+    private static final char SEPARADOR = ';';
+
+    private final Writer saida;
+    private final String[] colunas;
+
+    EscritorCsv(Writer saida, String[] colunas) {
+        this.saida = saida;
+        this.colunas = colunas;
+    }
+
+    @Override
+    public void comecar() throws IOException {
+        escrever(colunas);
+    }
+
+    @Override
+    public void escrever(Object[] valores) throws IOException {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0)
+                saida.write(SEPARADOR);
+            if (valores[i] != null)
+                escreverCampo(valores[i].toString());
+        }
+        saida.write('\n');
+    }
+
+    private void escreverCampo(String campo) throws IOException {
+        boolean precisaAspas = false;
+        for (int i = 0; i < campo.length() && !precisaAspas; i++) {
+            char c = campo.charAt(i);
+            precisaAspas = c == SEPARADOR || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!precisaAspas) {
+            saida.write(campo);
+            return;
+        }
+
+        saida.write('"');
+        for (int i = 0; i < campo.length(); i++) {
+            char c = campo.charAt(i);
+            if (c == '"')
+                saida.write('"');
+            saida.write(c);
+        }
+        saida.write('"');
+    }
+}
@@ -0,0 +1,71 @@
+package sistematransportadora.exportacao;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Um objeto JSON por linha, com os nomes das colunas como chaves. Os números
+ * ficam como números e os valores vazios como {@code null}.
+ */
+final class EscritorNdjson implements EscritorRegistros {
+    private final Writer saida;
+    private final String[] chaves;
+
+    EscritorNdjson(Writer saida, String[] colunas) {
+        this.saida = saida;
+        // As chaves são iguais em todas as linhas, então são montadas uma vez.
+        this.chaves = new String[colunas.length];
+        for (int i = 0; i < colunas.length; i++) {
+            var chave = new StringBuilder();
+            chave.append(i == 0 ? '{' : ',');
+            texto(chave, colunas[i]);
+            chave.append(':');
+            this.chaves[i] = chave.toString();
+        }
+    }
+
+    @Override
+    public void comecar() {
+        // O NDJSON não tem cabeçalho.
+    }
+
+    @Override
+    public void escrever(Object[] valores) throws IOException {
+        var linha = new StringBuilder(256);
+        for (int i = 0; i < valores.length; i++) {
+            linha.append(chaves[i]);
+
+            var valor = valores[i];
+            if (valor == null)
+                linha.append("null");
+            else if (valor instanceof Number numero)
+                linha.append(numero);
+            else
+                texto(linha, valor.toString());
+        }
+        linha.append("}\n");
+
+        saida.append(linha);
+    }
+
+    private static void texto(StringBuilder destino, String texto) {
+        destino.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"' -> destino.append("\\\"");
+                case '\\' -> destino.append("\\\\");
+                case '\n' -> destino.append("\\n");
+                case '\r' -> destino.append("\\r");
+                case '\t' -> destino.append("\\t");
+                default -> {
+                    if (c < 0x20)
+                        destino.append(String.format("\\u%04x", (int) c));
+                    else
+                        destino.append(c);
+                }
+            }
+        }
+        destino.append('"');
+    }
+}
@@ -0,0 +1,20 @@
+package sistematransportadora.exportacao;
+
+import java.io.IOException;
+
+/**
+ * Escreve os registros de uma consulta, um por vez, no formato do arquivo.
+ * Nada é guardado entre um registro e outro.
+ */
+interface EscritorRegistros {
+    /**
+     * Escreve o que vem antes do primeiro registro.
+     */
+    void comecar() throws IOException;
+
+    /**
+     * @param valores Os valores do registro, na ordem das colunas. Podem ser
+     *                {@code null}, {@link Number} ou {@link String}.
+     */
+    void escrever(Object[] valores) throws IOException;
+}
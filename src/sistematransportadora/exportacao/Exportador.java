@@ -0,0 +1,175 @@
+package sistematransportadora.exportacao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sistematransportadora.Banco;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Exporta tabelas inteiras para arquivo, registro por registro.
+ * <p>
+ * Os registros vêm de um cursor que só anda para frente e vão direto para o
+ * arquivo, sem passar por listas nem por objetos do modelo, então a memória
+ * usada é a mesma para dez ou dez milhões de registros. A contagem usada no
+ * progresso e os registros são lidos na mesma transação, e no modo WAL essa
+ * leitura não trava quem está cadastrando.
+ * <p>
+ * O arquivo é escrito com {@code .parcial} no nome e só ganha o nome final
+ * quando a exportação termina.
+ */
+public class Exportador {
+    private static final Logger log = LoggerFactory.getLogger(Exportador.class);
+    private static final int TAMANHO_BUFFER = 1 << 16;
+    /** De quantos em quantos registros o progresso é atualizado. */
+    private static final int REGISTROS_POR_AVISO = 1000;
+
+    private final Banco banco;
+
+    /**
+     * @param banco Banco de onde os registros são lidos. Para não pesar no
+     *              banco principal, pode ser o de uma réplica de leitura.
+     */
+    public Exportador(Banco banco) {
+        this.banco = banco;
+    }
+
+    /**
+     * Começa a exportação numa thread de fundo.
+     * @param tabela Tabela a ser exportada.
+     * @param destino Arquivo que vai receber os registros.
+     * @param formato Formato do arquivo.
+     * @return A tarefa, para acompanhar o progresso, cancelar e pegar o resultado.
+     */
+    public TarefaExportacao iniciar(TabelaExportada tabela, File destino, FormatoExportacao formato) {
+        var tarefa = new TarefaExportacao(tabela);
+
+        var thread = new Thread(() -> {
+            try {
+                tarefa.getResultado().complete(executar(tarefa, destino, formato));
+            } catch (RuntimeException e) {
+                tarefa.getResultado().completeExceptionally(e);
+            }
+        }, "exportacao");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+
+        return tarefa;
+    }
+
+    /**
+     * Exporta na própria thread de quem chamou.
+     * @param tabela Tabela a ser exportada.
+     * @param destino Arquivo que vai receber os registros.
+     * @param formato Formato do arquivo.
+     * @return {@link ResultadoExportacao}
+     */
+    public ResultadoExportacao exportar(TabelaExportada tabela, File destino, FormatoExportacao formato) {
+        return executar(new TarefaExportacao(tabela), destino, formato);
+    }
+
+    private ResultadoExportacao executar(TarefaExportacao tarefa, File destino, FormatoExportacao formato) {
+        var tabela = tarefa.getTabela();
+        var parcial = new File(destino.getPath() + ".parcial");
+        long inicio = System.nanoTime();
+        long registros;
+
+        try (var conn = banco.pegarConnection();
+             var canal = FileChannel.open(parcial.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             var saida = new BufferedWriter(Channels.newWriter(canal, StandardCharsets.UTF_8), TAMANHO_BUFFER)) {
+            // A contagem e os registros precisam vir do mesmo retrato do banco.
+            conn.setAutoCommit(false);
+            try {
+                tarefa.setTotal(contar(conn, tabela));
+                registros = copiar(conn, tarefa, formato, saida);
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException | IOException e) {
+            parcial.delete();
+
+            String err = "Erro ao exportar " + tabela.getTabela() + ": " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+
+        var duracao = Duration.ofNanos(System.nanoTime() - inicio);
+        if (tarefa.isCancelada()) {
+            parcial.delete();
+            log.info("Exportação de {} cancelada depois de {} registros.", tabela.getTabela(), registros);
+            return new ResultadoExportacao(null, registros, 0, true, duracao);
+        }
+
+        try {
+            Files.move(parcial.toPath(), destino.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            String err = "Não foi possível renomear " + parcial + " para " + destino + ": " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+
+        var resultado = new ResultadoExportacao(destino, registros, destino.length(), false, duracao);
+        log.info("Exportação de {} concluída: {} registros, {} KiB em {} ms ({} por segundo).",
+                tabela.getTabela(), registros, resultado.bytes() / 1024, duracao.toMillis(),
+                String.format("%.0f", resultado.registrosPorSegundo()));
+        return resultado;
+    }
+
+    private static long contar(Connection conn, TabelaExportada tabela) throws SQLException {
+        try (var stmt = conn.createStatement();
+             var rs = stmt.executeQuery("SELECT COUNT(*) FROM " + tabela.getTabela())) {
+            return rs.getLong(1);
+        }
+    }
+
+    private static long copiar(Connection conn, TarefaExportacao tarefa, FormatoExportacao formato,
+                               BufferedWriter saida) throws SQLException, IOException {
+        try (var stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(REGISTROS_POR_AVISO);
+
+            try (var rs = stmt.executeQuery(tarefa.getTabela().getSql())) {
+                var meta = rs.getMetaData();
+                var colunas = new String[meta.getColumnCount()];
+                for (int i = 0; i < colunas.length; i++) {
+                    colunas[i] = meta.getColumnLabel(i + 1);
+                }
+
+                var escritor = formato.criarEscritor(saida, colunas);
+                escritor.comecar();
+
+                // O mesmo array serve para todos os registros.
+                var valores = new Object[colunas.length];
+                long registros = 0;
+                while (!tarefa.isCancelada() && rs.next()) {
+                    for (int i = 0; i < valores.length; i++) {
+                        valores[i] = rs.getObject(i + 1);
+                    }
+                    escritor.escrever(valores);
+
+                    if (++registros % REGISTROS_POR_AVISO == 0)
+                        tarefa.setExportados(registros);
+                }
+                tarefa.setExportados(registros);
+
+                return registros;
+            }
+        }
+    }
+}
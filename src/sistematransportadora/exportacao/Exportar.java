@@ -0,0 +1,55 @@
+package sistematransportadora.exportacao;
+
+import sistematransportadora.RegistroBancos;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Exportação pela linha de comando, sem abrir a interface:
+ * <pre>
+ * java -jar SistemaTransportadora.jar exportar &lt;produtos|veiculos|embalagens&gt; &lt;arquivo&gt; [--ndjson] [--filial nome]
+ * </pre>
+ * Sem {@code --ndjson}, o arquivo sai em CSV. Com a aplicação dividida por
+ * filial, os registros vêm da filial indicada, ou da principal.
+ */
+public final class Exportar {
+    private Exportar() {}
+
+    /**
+     * @param args Os argumentos depois de {@code exportar}.
+     * @return O código de saída do processo.
+     */
+    public static int executar(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Uso: exportar <produtos|veiculos|embalagens> <arquivo> [--ndjson] [--filial nome]");
+            return 2;
+        }
+
+        var tabela = switch (args[0]) {
+            case "produtos" -> TabelaExportada.PRODUTO;
+            case "veiculos" -> TabelaExportada.VEICULO;
+            case "embalagens" -> TabelaExportada.EMBALAGEM;
+            default -> null;
+        };
+        if (tabela == null) {
+            System.err.println("Tabela desconhecida: " + args[0]);
+            return 2;
+        }
+
+        var opcoes = Arrays.asList(args);
+        var formato = opcoes.contains("--ndjson") ? FormatoExportacao.NDJSON : FormatoExportacao.CSV;
+        int indiceFilial = opcoes.indexOf("--filial");
+        var filiais = RegistroBancos.filiais();
+        var banco = indiceFilial >= 0 && filiais != null && indiceFilial + 1 < args.length
+                ? filiais.pegar(args[indiceFilial + 1])
+                : RegistroBancos.padrao();
+
+        var resultado = new Exportador(banco).exportar(tabela, new File(args[1]), formato);
+
+        System.out.printf("%d registros, %d KiB em %d ms (%.0f por segundo).%n",
+                resultado.registros(), resultado.bytes() / 1024,
+                resultado.duracao().toMillis(), resultado.registrosPorSegundo());
+        return 0;
+    }
+}
@@ -0,0 +1,30 @@
+package sistematransportadora.exportacao;
+
+import java.io.Writer;
+
+/**
+ * Os formatos de arquivo em que uma tabela pode ser exportada.
+ */
+public enum FormatoExportacao {
+    /** Separado por ponto e vírgula, como o Excel abre em português. */
+    CSV(".csv"),
+    /** Um objeto JSON por linha. */
+    NDJSON(".ndjson");
+
+    private final String extensao;
+
+    FormatoExportacao(String extensao) {
+        this.extensao = extensao;
+    }
+
+    public String getExtensao() {
+        return extensao;
+    }
+
+    EscritorRegistros criarEscritor(Writer saida, String[] colunas) {
+        return switch (this) {
+            case CSV -> new EscritorCsv(saida, colunas);
+            case NDJSON -> new EscritorNdjson(saida, colunas);
+        };
+    }
+}
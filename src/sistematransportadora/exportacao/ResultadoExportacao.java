@@ -0,0 +1,22 @@
+package sistematransportadora.exportacao;
+
+import java.io.File;
+import java.time.Duration;
+
+/**
+ * O resumo de uma exportação.
+ * @param arquivo O arquivo gerado, ou {@code null} se a exportação foi cancelada.
+ * @param registros Registros escritos.
+ * @param bytes Tamanho do arquivo.
+ * @param cancelada Se a exportação foi cancelada antes do fim.
+ * @param duracao Duração da exportação.
+ */
+public record ResultadoExportacao(File arquivo, long registros, long bytes, boolean cancelada, Duration duracao) {
+    /**
+     * @return Registros escritos por segundo.
+     */
+    public double registrosPorSegundo() {
+        double segundos = duracao.toNanos() / 1e9;
+        return segundos > 0 ? registros / segundos : 0;
+    }
+}
@@ -0,0 +1,46 @@
+package sistematransportadora.exportacao;
+
+/**
+ * As tabelas que podem ser exportadas. O tipo sai pelo nome, e as colunas
+ * têm os mesmos nomes que a importação de CSV espera.
+ */
+public enum TabelaExportada {
+    PRODUTO("Produto", """
+        SELECT p.id, p.nome, p.descricao, p.familia, tp.nome AS tipo, p.lote,
+        p.altura, p.largura, p.comprimento, p.peso, p.grau_fragilidade AS fragilidade, p.observacoes
+        FROM Produto p
+        JOIN Tipo_Produto tp ON tp.id = p.tipo_id
+        ORDER BY p.id
+        """),
+    VEICULO("Veiculo", """
+        SELECT v.id, v.nome, v.placa, v.modelo, tv.nome AS tipo,
+        v.altura_interna AS altura, v.largura_interna AS largura, v.comprimento_interno AS comprimento,
+        v.capacidade_peso, v.observacoes
+        FROM Veiculo v
+        JOIN Tipo_Veiculo tv ON tv.id = v.tipo_id
+        ORDER BY v.id
+        """),
+    EMBALAGEM("Embalagem", """
+        SELECT e.id, te.nome AS tipo, e.produto_id, e.altura, e.largura, e.comprimento,
+        e.peso, e.empilhavel, e.observacoes
+        FROM Embalagem e
+        JOIN Tipo_Embalagem te ON te.id = e.tipo_id
+        ORDER BY e.id
+        """);
+
+    private final String tabela;
+    private final String sql;
+
+    TabelaExportada(String tabela, String sql) {
+        this.tabela = tabela;
+        this.sql = sql;
+    }
+
+    public String getTabela() {
+        return tabela;
+    }
+
+    String getSql() {
+        return sql;
+    }
+}
@@ -0,0 +1,71 @@
+package sistematransportadora.exportacao;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Uma exportação em andamento. O progresso pode ser consultado de qualquer
+ * thread enquanto a exportação roda.
+ */
+public class TarefaExportacao {
+    private final TabelaExportada tabela;
+    private final CompletableFuture<ResultadoExportacao> resultado = new CompletableFuture<>();
+    private volatile boolean cancelada;
+    private volatile long exportados;
+    private volatile long total = -1;
+
+    TarefaExportacao(TabelaExportada tabela) {
+        this.tabela = tabela;
+    }
+
+    public TabelaExportada getTabela() {
+        return tabela;
+    }
+
+    /**
+     * Pede para a exportação parar. O arquivo incompleto é apagado.
+     */
+    public void cancelar() {
+        cancelada = true;
+    }
+
+    public boolean isCancelada() {
+        return cancelada;
+    }
+
+    public long getExportados() {
+        return exportados;
+    }
+
+    /**
+     * @return Quantos registros serão exportados, ou {@code -1} se a contagem ainda não foi feita.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return O progresso, de 0 a 100.
+     */
+    public int getPercentual() {
+        long totalAtual = total;
+        if (totalAtual <= 0)
+            return totalAtual == 0 ? 100 : 0;
+
+        return (int) Math.min(100, exportados * 100 / totalAtual);
+    }
+
+    /**
+     * @return O resultado, que fica pronto quando a exportação termina ou é cancelada.
+     */
+    public CompletableFuture<ResultadoExportacao> getResultado() {
+        return resultado;
+    }
+
+    void setExportados(long exportados) {
+        this.exportados = exportados;
+    }
+
+    void setTotal(long total) {
+        this.total = total;
+    }
+}
@@ -0,0 +1,81 @@
+package sistematransportadora.importacao;
+
+import sistematransportadora.Banco;
+import sistematransportadora.modelo.Dimensoes;
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.EmbalagemTipo;
+import sistematransportadora.modelo.Produto;
+import sistematransportadora.repositorio.EmbalagemRepositorio;
+import sistematransportadora.servico.EmbalagemServico;
+
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * Embalagens em CSV, com as colunas {@code id}, {@code tipo},
+ * {@code produto_id}, {@code altura}, {@code largura}, {@code comprimento} e
+ * {@code peso}, e as opcionais {@code empilhavel} e {@code observacoes}.
+ * O produto precisa já estar cadastrado no mesmo banco.
+ */
+public class EmbalagemCsv implements FormatoCsv<Embalagem> {
+    private Banco banco;
+    private EmbalagemRepositorio repositorio;
+    private TiposCsv<EmbalagemTipo> tipos;
+
+    @Override
+    public String tabela() {
+        return "Embalagem";
+    }
+
+    @Override
+    public void preparar(Banco banco) {
+        this.banco = banco;
+        repositorio = new EmbalagemRepositorio(banco);
+        tipos = new TiposCsv<>(repositorio.buscarTipos(), EmbalagemTipo::id, EmbalagemTipo::nome, "Tipo de embalagem inválido!");
+    }
+
+    @Override
+    public Embalagem converter(RegistroCsv registro) {
+        // Só a id do produto é gravada; ele é conferido no banco junto com o lote.
+        var produto = new Produto(registro.inteiro("produto_id"), null, null);
+        var embalagem = new Embalagem(
+                registro.inteiro("id"),
+                tipos.buscar(registro.texto("tipo")),
+                produto,
+                new Dimensoes(registro.decimal("altura"), registro.decimal("largura"), registro.decimal("comprimento")),
+                registro.decimal("peso")
+        );
+        embalagem.setEmpilhavel(registro.booleano("empilhavel", false));
+        embalagem.setObservacoes(registro.textoOpcional("observacoes"));
+
+        EmbalagemServico.validarCampos(embalagem);
+        return embalagem;
+    }
+
+    @Override
+    public void abrir(Connection conn) {
+        repositorio.anexarArquivo(conn);
+    }
+
+    @Override
+    public boolean[] gravar(Connection conn, List<Embalagem> objs) {
+        return repositorio.criarVarios(conn, objs);
+    }
+
+    @Override
+    public void fechar(Connection conn) {
+        repositorio.desanexarArquivo(conn);
+        banco.pegarIndiceEmbalagens().descartar();
+    }
+
+    @Override
+    public String motivoRecusa(Connection conn, Embalagem obj) {
+        var produtoId = obj.getProdutoAssociado().getId();
+        if (!Recusas.existe(conn, "SELECT EXISTS(SELECT 1 FROM Produto WHERE id = ?)", produtoId))
+            return String.format("Não há produto cadastrado com id %d.", produtoId);
+        if (Recusas.existe(conn, "SELECT EXISTS(SELECT 1 FROM Embalagem WHERE id = ?)", obj.getId()))
+            return "Id de embalagem já existe no banco de dados.";
+
+        return "Id de embalagem já foi usada por uma embalagem arquivada.";
+    }
+}
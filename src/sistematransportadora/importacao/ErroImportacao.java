@@ -0,0 +1,13 @@
+package sistematransportadora.importacao;
+
+/**
+ * Uma linha do arquivo que não foi importada.
+ * @param linha Linha do arquivo onde o registro começa.
+ * @param mensagem O motivo.
+ */
+public record ErroImportacao(long linha, String mensagem) {
+    @Override
+    public String toString() {
+        return "Linha " + linha + ": " + mensagem;
+    }
+}
@@ -0,0 +1,15 @@
+package sistematransportadora.importacao;
+
+import java.nio.file.Path;
+
+/**
+ * Uma nota, ou um item dela, que não foi importado.
+ * @param arquivo O arquivo da nota.
+ * @param mensagem O motivo.
+ */
+public record ErroNfe(Path arquivo, String mensagem) {
+    @Override
+    public String toString() {
+        return arquivo.getFileName() + ": " + mensagem;
+    }
+}
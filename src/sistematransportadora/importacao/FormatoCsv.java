@@ -0,0 +1,64 @@
+package sistematransportadora.importacao;
+
+import sistematransportadora.Banco;
+
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * Como um tipo de registro é lido do CSV e gravado no banco pelo
+ * {@link ImportadorCsv}.
+ *
+ * @param <T> O tipo de registro importado.
+ */
+public interface FormatoCsv<T> {
+    /**
+     * @return A tabela que recebe os registros.
+     */
+    String tabela();
+
+    /**
+     * Carrega do banco o que a conversão precisa, como os tipos cadastrados.
+     * É chamado uma vez, antes da leitura do arquivo.
+     * @param banco Banco que vai receber os registros.
+     */
+    void preparar(Banco banco);
+
+    /**
+     * Converte um registro do CSV e confere as regras de negócio que não
+     * dependem do banco. É chamado por várias threads ao mesmo tempo.
+     * @param registro O registro lido.
+     * @return O registro convertido.
+     * @throws sistematransportadora.servico.ValorInvalidoException Se o registro não for válido.
+     */
+    T converter(RegistroCsv registro);
+
+    /**
+     * Prepara a conexão que vai gravar os lotes. É chamado fora de uma transação.
+     * @param conn Conexão que vai gravar os lotes.
+     */
+    default void abrir(Connection conn) {}
+
+    /**
+     * Grava um lote na transação já aberta na conexão.
+     * @param conn Conexão com a transação do lote.
+     * @param objs Registros do lote.
+     * @return Para cada registro, na mesma ordem, se ele foi gravado.
+     */
+    boolean[] gravar(Connection conn, List<T> objs);
+
+    /**
+     * Desfaz o que {@link #abrir(Connection)} fez na conexão.
+     * @param conn Conexão que gravou os lotes.
+     */
+    default void fechar(Connection conn) {}
+
+    /**
+     * Explica por que o banco recusou um registro. É chamado na transação
+     * do lote, logo depois de {@link #gravar(Connection, List)}.
+     * @param conn Conexão com a transação do lote.
+     * @param obj Registro que não foi gravado.
+     * @return O motivo, para o relatório de erros.
+     */
+    String motivoRecusa(Connection conn, T obj);
+}
@@ -0,0 +1,389 @@
+package sistematransportadora.importacao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sistematransportadora.Banco;
+import sistematransportadora.repositorio.ImportacaoRepositorio;
+import sistematransportadora.servico.ValorInvalidoException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Importa um arquivo CSV grande para o banco sem carregá-lo inteiro.
+ * <p>
+ * A importação é uma esteira de três etapas:
+ * <ol>
+ *     <li>quem chamou lê o arquivo e junta os registros em blocos;</li>
+ *     <li>várias threads dividem os campos, convertem e validam cada bloco
+ *     com as regras dos serviços que não dependem do banco;</li>
+ *     <li>uma só thread grava os blocos, na ordem do arquivo, cada um numa
+ *     transação com um {@code INSERT} em lote. As regras que dependem do
+ *     banco, como id repetida, são conferidas pelo próprio {@code INSERT}.</li>
+ * </ol>
+ * Só uma quantidade fixa de blocos fica em andamento ao mesmo tempo: quando
+ * a gravação não acompanha, a leitura espera, e a memória usada não cresce
+ * com o tamanho do arquivo.
+ * <p>
+ * Junto com cada bloco é gravada a última linha importada. Uma importação
+ * interrompida pode ser retomada de onde parou, desde que o arquivo não
+ * tenha mudado.
+ *
+ * @param <T> O tipo de registro importado.
+ */
+public class ImportadorCsv<T> {
+    private static final Logger log = LoggerFactory.getLogger(ImportadorCsv.class);
+    /** Registros por bloco, e portanto por transação. */
+    private static final int TAMANHO_BLOCO = 2000;
+    /** Blocos em andamento por thread de validação. */
+    private static final int BLOCOS_POR_VALIDADOR = 4;
+    private static final long ESPERA_MS = 100;
+
+    private final Banco banco;
+    private final FormatoCsv<T> formato;
+    private final ImportacaoRepositorio progresso;
+    private final int validadores;
+    private Consumer<ErroImportacao> aoEncontrarErro = erro -> {};
+    private LongConsumer aoProgredir = linha -> {};
+    private volatile boolean cancelado;
+
+    /**
+     * @param banco Banco que vai receber os registros.
+     * @param formato Formato dos registros do arquivo.
+     */
+    public ImportadorCsv(Banco banco, FormatoCsv<T> formato) {
+        this.banco = banco;
+        this.formato = formato;
+        this.progresso = new ImportacaoRepositorio(banco);
+        // A leitura e a gravação ficam com uma thread cada.
+        this.validadores = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+    }
+
+    /**
+     * @param aoEncontrarErro Recebe cada linha que não foi importada, na ordem do arquivo.
+     */
+    public void setAoEncontrarErro(Consumer<ErroImportacao> aoEncontrarErro) {
+        this.aoEncontrarErro = aoEncontrarErro;
+    }
+
+    /**
+     * @param aoProgredir Recebe a última linha gravada depois de cada bloco.
+     */
+    public void setAoProgredir(LongConsumer aoProgredir) {
+        this.aoProgredir = aoProgredir;
+    }
+
+    /**
+     * Pede para a importação parar depois do bloco que está sendo gravado.
+     * O que já foi gravado fica, e a importação pode ser retomada depois.
+     */
+    public void cancelar() {
+        cancelado = true;
+    }
+
+    /**
+     * Importa o arquivo. A primeira linha precisa ser o cabeçalho com os nomes
+     * das colunas, separados por ponto e vírgula ou por vírgula.
+     * @param arquivo Arquivo CSV em UTF-8.
+     * @param retomar Se deve continuar de onde uma importação anterior do
+     *                mesmo arquivo parou.
+     * @return {@link ResultadoImportacao}
+     * @throws IOException Se o arquivo não puder ser lido.
+     */
+    public ResultadoImportacao importar(File arquivo, boolean retomar) throws IOException {
+        cancelado = false;
+        long inicio = System.nanoTime();
+
+        var chave = formato.tabela() + ":" + arquivo.getCanonicalPath();
+        var assinatura = arquivo.length() + ":" + arquivo.lastModified();
+        long ultimaImportada = retomar ? progresso.buscarUltimaLinha(chave, assinatura) : 0;
+
+        formato.preparar(banco);
+
+        try (var leitor = new LeitorCsv(new InputStreamReader(new FileInputStream(arquivo), StandardCharsets.UTF_8))) {
+            var cabecalho = leitor.proximo();
+            if (cabecalho == null)
+                throw new IOException("O arquivo está vazio: " + arquivo);
+
+            char separador = LeitorCsv.detectarSeparador(cabecalho.texto());
+            var execucao = new Execucao(chave, assinatura, separador,
+                    LeitorCsv.colunas(LeitorCsv.dividir(cabecalho.texto(), separador)));
+
+            execucao.iniciar();
+            try {
+                execucao.ler(leitor, ultimaImportada);
+            } finally {
+                execucao.terminarLeitura();
+            }
+            execucao.esperar();
+
+            var resultado = new ResultadoImportacao(
+                    execucao.lidas, execucao.puladas, execucao.gravadas, execucao.recusadas,
+                    cancelado, Duration.ofNanos(System.nanoTime() - inicio)
+            );
+            if (!cancelado)
+                progresso.apagar(chave);
+
+            log.info("Importação de {} em {}: {} gravados, {} recusados, {} pulados em {} ms ({} por segundo).",
+                    arquivo.getName(), formato.tabela(), resultado.gravadas(), resultado.recusadas(),
+                    resultado.puladas(), resultado.duracao().toMillis(),
+                    String.format("%.0f", resultado.registrosPorSegundo()));
+            return resultado;
+        }
+    }
+
+    private record Bloco(long sequencia, List<LeitorCsv.Registro> registros) {}
+
+    private record BlocoValidado<T>(long sequencia, List<T> objs, long[] linhas,
+                                    List<ErroImportacao> erros, long ultimaLinha) {}
+
+    /**
+     * O estado de uma importação em andamento, compartilhado pelas threads.
+     */
+    private final class Execucao {
+        private static final Bloco FIM = new Bloco(-1, List.of());
+
+        private final String chave;
+        private final String assinatura;
+        private final char separador;
+        private final Map<String, Integer> colunas;
+
+        private final BlockingQueue<Bloco> paraValidar = new LinkedBlockingQueue<>();
+        private final BlockingQueue<BlocoValidado<T>> paraGravar = new LinkedBlockingQueue<>();
+        private final Semaphore emAndamento = new Semaphore(validadores * BLOCOS_POR_VALIDADOR);
+        private final AtomicReference<Throwable> falha = new AtomicReference<>();
+        private ExecutorService executorValidacao;
+        private Thread threadGravacao;
+
+        private long proximaSequencia;
+        private volatile long totalBlocos = -1;
+
+        private long lidas;
+        private long puladas;
+        private long gravadas;
+        private long recusadas;
+
+        Execucao(String chave, String assinatura, char separador, Map<String, Integer> colunas) {
+            this.chave = chave;
+            this.assinatura = assinatura;
+            this.separador = separador;
+            this.colunas = colunas;
+        }
+
+        void iniciar() {
+            executorValidacao = Executors.newFixedThreadPool(validadores, tarefa -> {
+                var thread = new Thread(tarefa, "importacao-validacao");
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < validadores; i++) {
+                executorValidacao.execute(this::validar);
+            }
+
+            threadGravacao = new Thread(this::gravar, "importacao-gravacao");
+            threadGravacao.setDaemon(true);
+            threadGravacao.start();
+        }
+
+        void ler(LeitorCsv leitor, long ultimaImportada) throws IOException {
+            var registros = new ArrayList<LeitorCsv.Registro>(TAMANHO_BLOCO);
+            LeitorCsv.Registro registro;
+
+            while (!parando() && (registro = leitor.proximo()) != null) {
+                if (registro.texto().isBlank())
+                    continue;
+
+                lidas++;
+                if (registro.linha() <= ultimaImportada) {
+                    puladas++;
+                    continue;
+                }
+
+                registros.add(registro);
+                if (registros.size() == TAMANHO_BLOCO) {
+                    enviar(registros);
+                    registros = new ArrayList<>(TAMANHO_BLOCO);
+                }
+            }
+
+            if (!registros.isEmpty())
+                enviar(registros);
+        }
+
+        /**
+         * Avisa as outras threads que não vêm mais blocos.
+         */
+        void terminarLeitura() {
+            totalBlocos = proximaSequencia;
+            for (int i = 0; i < validadores; i++) {
+                paraValidar.add(FIM);
+            }
+        }
+
+        void esperar() {
+            try {
+                threadGravacao.join();
+                executorValidacao.shutdown();
+                executorValidacao.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelado = true;
+            }
+
+            var erro = falha.get();
+            if (erro != null) {
+                String err = "Erro ao importar para " + formato.tabela() + ": " + erro.getMessage();
+                log.error(err);
+
+                throw new RuntimeException(err);
+            }
+        }
+
+        private boolean parando() {
+            return cancelado || falha.get() != null;
+        }
+
+        private void enviar(List<LeitorCsv.Registro> registros) {
+            try {
+                // Espera a gravação liberar espaço, sem deixar de notar um cancelamento.
+                while (!emAndamento.tryAcquire(ESPERA_MS, TimeUnit.MILLISECONDS)) {
+                    if (parando())
+                        return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelado = true;
+                return;
+            }
+
+            paraValidar.add(new Bloco(proximaSequencia++, registros));
+        }
+
+        private void validar() {
+            try {
+                while (true) {
+                    var bloco = paraValidar.take();
+                    if (bloco == FIM)
+                        return;
+                    if (parando())
+                        continue;
+
+                    paraGravar.add(validar(bloco));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                falha.compareAndSet(null, e);
+            }
+        }
+
+        private BlocoValidado<T> validar(Bloco bloco) {
+            var registros = bloco.registros();
+            var objs = new ArrayList<T>(registros.size());
+            var linhas = new long[registros.size()];
+            var erros = new ArrayList<ErroImportacao>();
+
+            for (var registro : registros) {
+                var campos = LeitorCsv.dividir(registro.texto(), separador);
+                try {
+                    objs.add(formato.converter(new RegistroCsv(registro.linha(), campos, colunas)));
+                    linhas[objs.size() - 1] = registro.linha();
+                } catch (ValorInvalidoException e) {
+                    erros.add(new ErroImportacao(registro.linha(), e.getMessage()));
+                }
+            }
+
+            long ultimaLinha = registros.get(registros.size() - 1).linha();
+            return new BlocoValidado<>(bloco.sequencia(), objs, linhas, erros, ultimaLinha);
+        }
+
+        private void gravar() {
+            try (var conn = banco.pegarConnection()) {
+                formato.abrir(conn);
+                try {
+                    // Os blocos chegam fora de ordem e esperam aqui até a vez deles.
+                    var prontos = new HashMap<Long, BlocoValidado<T>>();
+                    long proximo = 0;
+
+                    while (!parando()) {
+                        long total = totalBlocos;
+                        if (total >= 0 && proximo >= total)
+                            break;
+
+                        var bloco = paraGravar.poll(ESPERA_MS, TimeUnit.MILLISECONDS);
+                        if (bloco == null)
+                            continue;
+
+                        prontos.put(bloco.sequencia(), bloco);
+                        while (!cancelado && (bloco = prontos.remove(proximo)) != null) {
+                            gravar(conn, bloco);
+                            proximo++;
+                            emAndamento.release();
+                        }
+                    }
+                } finally {
+                    formato.fechar(conn);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                falha.compareAndSet(null, e);
+            } catch (SQLException | RuntimeException e) {
+                falha.compareAndSet(null, e);
+            }
+        }
+
+        private void gravar(Connection conn, BlocoValidado<T> bloco) throws SQLException {
+            var erros = new ArrayList<>(bloco.erros());
+            int gravadasNoBloco = 0;
+
+            conn.setAutoCommit(false);
+            try {
+                if (!bloco.objs().isEmpty()) {
+                    var gravados = formato.gravar(conn, bloco.objs());
+                    for (int i = 0; i < gravados.length; i++) {
+                        if (gravados[i]) {
+                            gravadasNoBloco++;
+                        } else {
+                            erros.add(new ErroImportacao(bloco.linhas()[i], formato.motivoRecusa(conn, bloco.objs().get(i))));
+                        }
+                    }
+                }
+                progresso.gravarUltimaLinha(conn, chave, assinatura, bloco.ultimaLinha());
+
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+            gravadas += gravadasNoBloco;
+            recusadas += erros.size();
+
+            erros.sort(Comparator.comparingLong(ErroImportacao::linha));
+            erros.forEach(aoEncontrarErro);
+            aoProgredir.accept(bloco.ultimaLinha());
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package sistematransportadora.importacao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sistematransportadora.modelo.Dimensoes;
+import sistematransportadora.modelo.Fragilidade;
+import sistematransportadora.modelo.Produto;
+import sistematransportadora.modelo.ProdutoTipo;
+import sistematransportadora.repositorio.ProdutoRepositorio;
+import sistematransportadora.servico.ProdutoServico;
+import sistematransportadora.servico.ValorInvalidoException;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Cadastra os produtos das NF-e de uma pasta.
+ * <p>
+ * Os arquivos são lidos em paralelo, um por thread, com {@link LeitorNfe}.
+ * Os itens viram produtos e são salvos em lotes por
+ * {@link ProdutoRepositorio#salvarVarios(List)}: os novos são cadastrados e os
+ * que já existem têm nome e lote atualizados, e família e peso preenchidos só
+ * se ainda estavam vazios, para as estimativas da nota não apagarem o que foi
+ * cadastrado. Só uma quantidade fixa de notas fica lida e esperando para ser
+ * salva, então a memória usada não cresce com a quantidade de arquivos.
+ * <p>
+ * O código do produto no emitente ({@code cProd}) vira a id do produto, então
+ * só são aceitos códigos numéricos. A NF-e não traz o peso de cada item: ele
+ * é estimado dividindo o peso líquido dos volumes pela quantidade de itens
+ * da nota, a não ser que o item seja vendido por quilo. Os produtos novos
+ * entram com o tipo configurado em {@code sistematransportadora.nfe.tipo}
+ * (id ou nome), ou com o primeiro tipo cadastrado, e sem dimensões.
+ */
+public class ImportadorNfe {
+    private static final Logger log = LoggerFactory.getLogger(ImportadorNfe.class);
+    /** Produtos salvos por transação. */
+    private static final int TAMANHO_LOTE = 500;
+    /** Notas lidas e esperando para serem salvas, por thread de leitura. */
+    private static final int NOTAS_POR_LEITOR = 8;
+    private static final Set<String> UNIDADES_DE_PESO = Set.of("KG", "KGM", "KGS", "KILO", "QUILO");
+    private static final long ESPERA_MS = 100;
+
+    private final ProdutoRepositorio repositorio;
+    private final ProdutoTipo tipo;
+    private final int leitores;
+    private Consumer<ErroNfe> aoEncontrarErro = erro -> {};
+
+    /**
+     * @param repositorio Repositório que recebe os produtos.
+     * @param tipo Tipo dos produtos novos.
+     */
+    public ImportadorNfe(ProdutoRepositorio repositorio, ProdutoTipo tipo) {
+        this.repositorio = repositorio;
+        this.tipo = tipo;
+        // Quem chamou fica com a gravação.
+        this.leitores = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    /**
+     * Cria o importador com o repositório padrão e o tipo configurado.
+     * @return {@link ImportadorNfe}
+     */
+    public static ImportadorNfe padrao() {
+        var repositorio = ProdutoRepositorio.padrao();
+        var tipos = repositorio.buscarTipos();
+        if (tipos.length == 0)
+            throw new ValorInvalidoException("Não há tipo de produto cadastrado para os produtos das notas.");
+
+        var configurado = System.getProperty("sistematransportadora.nfe.tipo");
+        var tipo = configurado == null
+                ? tipos[0]
+                : new TiposCsv<>(tipos, ProdutoTipo::id, ProdutoTipo::nome, "Tipo de produto inválido: " + configurado)
+                        .buscar(configurado);
+
+        return new ImportadorNfe(repositorio, tipo);
+    }
+
+    /**
+     * @param aoEncontrarErro Recebe cada nota ou item que não foi importado.
+     */
+    public void setAoEncontrarErro(Consumer<ErroNfe> aoEncontrarErro) {
+        this.aoEncontrarErro = aoEncontrarErro;
+    }
+
+    /**
+     * Importa todos os arquivos {@code .xml} da pasta e das subpastas.
+     * @param pasta Pasta com as notas.
+     * @return {@link ResultadoImportacaoNfe}
+     * @throws IOException Se a pasta não puder ser percorrida.
+     */
+    public ResultadoImportacaoNfe importar(Path pasta) throws IOException {
+        long inicio = System.nanoTime();
+        var execucao = new Execucao();
+
+        execucao.iniciar();
+        try {
+            // A pasta é percorrida numa thread à parte, porque esta fica salvando.
+            var envio = new Thread(() -> execucao.enviarTodos(pasta), "importacao-nfe-arquivos");
+            envio.setDaemon(true);
+            envio.start();
+
+            execucao.gravar();
+            envio.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Importação de NF-e interrompida.", e);
+        } finally {
+            execucao.encerrar();
+        }
+        execucao.lancarFalhaDoEnvio();
+
+        var resultado = new ResultadoImportacaoNfe(
+                execucao.arquivos, execucao.notas, execucao.itens, execucao.produtos, execucao.recusados,
+                Duration.ofNanos(System.nanoTime() - inicio)
+        );
+        log.info("Importação de NF-e de {}: {} notas, {} itens, {} produtos salvos, {} recusados em {} ms.",
+                pasta, resultado.notas(), resultado.itens(), resultado.produtos(), resultado.recusados(),
+                resultado.duracao().toMillis());
+        return resultado;
+    }
+
+    /**
+     * Os produtos e erros de um arquivo, já convertidos pela thread que o leu.
+     */
+    private record NotaLida(List<Produto> produtos, List<ErroNfe> erros, int itens, boolean lida) {}
+
+    private final class Execucao {
+        private final BlockingQueue<NotaLida> lidas = new LinkedBlockingQueue<>();
+        private final Semaphore emAndamento = new Semaphore(leitores * NOTAS_POR_LEITOR);
+        private ExecutorService executor;
+        private volatile long enviados;
+        private volatile boolean envioTerminado;
+        private volatile boolean encerrada;
+        private volatile Exception falhaDoEnvio;
+
+        private long arquivos;
+        private long notas;
+        private long itens;
+        private long produtos;
+        private long recusados;
+
+        void iniciar() {
+            executor = Executors.newFixedThreadPool(leitores, tarefa -> {
+                var thread = new Thread(tarefa, "importacao-nfe");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        void enviarTodos(Path pasta) {
+            try (var arquivos = Files.walk(pasta)) {
+                arquivos.filter(Files::isRegularFile)
+                        .filter(arquivo -> arquivo.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".xml"))
+                        .forEach(this::enviar);
+            } catch (IOException | RuntimeException e) {
+                falhaDoEnvio = e;
+            } finally {
+                envioTerminado = true;
+            }
+        }
+
+        void lancarFalhaDoEnvio() throws IOException {
+            var falha = falhaDoEnvio;
+            if (falha instanceof UncheckedIOException e)
+                throw e.getCause();
+            if (falha instanceof IOException e)
+                throw e;
+            if (falha instanceof RuntimeException e)
+                throw e;
+        }
+
+        private void enviar(Path arquivo) {
+            try {
+                // Espera a gravação liberar espaço, sem ficar presa se ela tiver falhado.
+                while (!emAndamento.tryAcquire(ESPERA_MS, TimeUnit.MILLISECONDS)) {
+                    if (encerrada)
+                        throw new IllegalStateException("A importação de NF-e foi encerrada.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Importação de NF-e interrompida.", e);
+            }
+
+            enviados++;
+            executor.execute(() -> lidas.add(ler(arquivo)));
+        }
+
+        /**
+         * Salva os produtos conforme as notas vão sendo lidas. Um produto que
+         * aparece em várias notas do mesmo lote é salvo uma vez só, com os
+         * dados da última.
+         */
+        void gravar() {
+            var lote = new LinkedHashMap<Integer, Produto>();
+            long recebidas = 0;
+
+            try {
+                while (!envioTerminado || recebidas < enviados) {
+                    var nota = lidas.poll(ESPERA_MS, TimeUnit.MILLISECONDS);
+                    if (nota == null)
+                        continue;
+
+                    recebidas++;
+                    emAndamento.release();
+                    contar(nota);
+
+                    for (var produto : nota.produtos()) {
+                        lote.put(produto.getId(), produto);
+                    }
+                    if (lote.size() >= TAMANHO_LOTE)
+                        salvar(lote);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Importação de NF-e interrompida.", e);
+            }
+
+            salvar(lote);
+        }
+
+        void encerrar() {
+            encerrada = true;
+            if (executor != null)
+                executor.shutdownNow();
+        }
+
+        private void contar(NotaLida nota) {
+            arquivos++;
+            if (nota.lida())
+                notas++;
+            itens += nota.itens();
+            recusados += nota.lida() ? nota.erros().size() : 0;
+            nota.erros().forEach(aoEncontrarErro);
+        }
+
+        private void salvar(Map<Integer, Produto> lote) {
+            if (lote.isEmpty())
+                return;
+
+            repositorio.salvarVarios(new ArrayList<>(lote.values()));
+            produtos += lote.size();
+            lote.clear();
+        }
+    }
+
+    private NotaLida ler(Path arquivo) {
+        LeitorNfe.Nota nota;
+        try {
+            nota = LeitorNfe.ler(arquivo);
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            return new NotaLida(List.of(), List.of(new ErroNfe(arquivo, "Nota ilegível: " + e.getMessage())), 0, false);
+        }
+
+        var produtos = new ArrayList<Produto>(nota.itens().size());
+        var erros = new ArrayList<ErroNfe>();
+        double pesoPorUnidade = pesoPorUnidade(nota);
+
+        for (var item : nota.itens()) {
+            try {
+                produtos.add(paraProduto(nota, item, pesoPorUnidade));
+            } catch (ValorInvalidoException e) {
+                erros.add(new ErroNfe(arquivo, String.format("Item %s: %s", item.codigo(), e.getMessage())));
+            }
+        }
+
+        return new NotaLida(produtos, erros, nota.itens().size(), true);
+    }
+
+    private Produto paraProduto(LeitorNfe.Nota nota, LeitorNfe.Item item, double pesoPorUnidade) {
+        int id;
+        try {
+            id = Integer.parseInt(item.codigo());
+        } catch (NumberFormatException e) {
+            throw new ValorInvalidoException("Código de produto não numérico: " + item.codigo());
+        }
+        if (id <= 0)
+            throw new ValorInvalidoException("Código de produto inválido: " + item.codigo());
+
+        var produto = new Produto(id, item.nome() != null ? item.nome() : "", tipo);
+        produto.setFamilia(item.ncm());
+        produto.setLote(item.lote());
+        produto.setDimensoes(new Dimensoes(0, 0, 0));
+        produto.setPeso(vendidoPorPeso(item) ? 1 : pesoPorUnidade);
+        produto.setGrauFragilidade(Fragilidade.BAIXA);
+        produto.setObservacoes("Cadastrado pela NF-e " + nota.chave());
+
+        ProdutoServico.validarCampos(produto);
+        return produto;
+    }
+
+    private static double pesoPorUnidade(LeitorNfe.Nota nota) {
+        double peso = nota.pesoLiquido() > 0 ? nota.pesoLiquido() : nota.pesoBruto();
+        double quantidade = 0;
+        for (var item : nota.itens()) {
+            if (!vendidoPorPeso(item))
+                quantidade += item.quantidade();
+            else
+                peso -= item.quantidade();
+        }
+
+        return quantidade > 0 && peso > 0 ? peso / quantidade : 0;
+    }
+
+    private static boolean vendidoPorPeso(LeitorNfe.Item item) {
+        return item.unidade() != null && UNIDADES_DE_PESO.contains(item.unidade().toUpperCase(Locale.ROOT));
+    }
+}
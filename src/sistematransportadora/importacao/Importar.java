@@ -0,0 +1,76 @@
+package sistematransportadora.importacao;
+
+import sistematransportadora.RegistroBancos;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Importação de CSV pela linha de comando, sem abrir a interface:
+ * <pre>
+ * java -jar SistemaTransportadora.jar importar &lt;produtos|veiculos|embalagens&gt; &lt;arquivo.csv&gt; [--retomar] [--filial nome]
+ * java -jar SistemaTransportadora.jar importar nfe &lt;pasta&gt;
+ * </pre>
+ * As linhas recusadas são escritas na saída de erro e, no fim, é mostrado
+ * um resumo. Com a aplicação dividida por filial, os registros vão para a
+ * filial indicada, ou para a principal.
+ */
+public final class Importar {
+    private Importar() {}
+
+    /**
+     * @param args Os argumentos depois de {@code importar}.
+     * @return O código de saída do processo.
+     */
+    public static int executar(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: importar <produtos|veiculos|embalagens> <arquivo.csv> [--retomar] [--filial nome]");
+            System.err.println("     importar nfe <pasta>");
+            return 2;
+        }
+
+        if (args[0].equals("nfe"))
+            return importarNotas(Path.of(args[1]));
+
+        FormatoCsv<?> formato = switch (args[0]) {
+            case "produtos" -> new ProdutoCsv();
+            case "veiculos" -> new VeiculoCsv();
+            case "embalagens" -> new EmbalagemCsv();
+            default -> null;
+        };
+        if (formato == null) {
+            System.err.println("Tabela desconhecida: " + args[0]);
+            return 2;
+        }
+
+        var opcoes = Arrays.asList(args);
+        boolean retomar = opcoes.contains("--retomar");
+        int indiceFilial = opcoes.indexOf("--filial");
+        var filiais = RegistroBancos.filiais();
+        var banco = indiceFilial >= 0 && filiais != null && indiceFilial + 1 < args.length
+                ? filiais.pegar(args[indiceFilial + 1])
+                : RegistroBancos.padrao();
+
+        var importador = new ImportadorCsv<>(banco, formato);
+        importador.setAoEncontrarErro(System.err::println);
+        var resultado = importador.importar(new File(args[1]), retomar);
+
+        System.out.printf("%d gravados, %d recusados, %d pulados em %d ms (%.0f por segundo).%n",
+                resultado.gravadas(), resultado.recusadas(), resultado.puladas(),
+                resultado.duracao().toMillis(), resultado.registrosPorSegundo());
+        return resultado.recusadas() > 0 ? 1 : 0;
+    }
+
+    private static int importarNotas(Path pasta) throws IOException {
+        var importador = ImportadorNfe.padrao();
+        importador.setAoEncontrarErro(System.err::println);
+        var resultado = importador.importar(pasta);
+
+        System.out.printf("%d notas, %d itens, %d produtos salvos, %d recusados em %d ms (%.0f notas por segundo).%n",
+                resultado.notas(), resultado.itens(), resultado.produtos(), resultado.recusados(),
+                resultado.duracao().toMillis(), resultado.notasPorSegundo());
+        return resultado.notas() < resultado.arquivos() || resultado.recusados() > 0 ? 1 : 0;
+    }
+}
@@ -0,0 +1,155 @@
+package sistematransportadora.importacao;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lê um arquivo CSV registro por registro, sem carregar o arquivo inteiro.
+ * <p>
+ * O leitor só separa os registros, que ocupam mais de uma linha quando um
+ * campo entre aspas tem quebras de linha. A divisão em campos fica com
+ * {@link #dividir(String, char)}, para poder ser feita em paralelo por quem
+ * valida os registros.
+ */
+final class LeitorCsv implements Closeable {
+    private static final int TAMANHO_BUFFER = 1 << 16;
+
+    /**
+     * @param linha Linha do arquivo onde o registro começa, a partir de 1.
+     * @param texto O registro como está no arquivo, sem a quebra de linha final.
+     */
+    record Registro(long linha, String texto) {}
+
+    private final BufferedReader leitor;
+    private long linhaAtual;
+
+    LeitorCsv(Reader reader) {
+        this.leitor = new BufferedReader(reader, TAMANHO_BUFFER);
+    }
+
+    /**
+     * @return O próximo registro, ou {@code null} no fim do arquivo.
+     * @throws IOException Se o arquivo terminar com aspas abertas.
+     */
+    Registro proximo() throws IOException {
+        var linha = leitor.readLine();
+        if (linha == null)
+            return null;
+
+        long inicio = ++linhaAtual;
+        if (inicio == 1 && linha.startsWith("\uFEFF"))
+            linha = linha.substring(1);
+
+        if (contarAspas(linha) % 2 == 0)
+            return new Registro(inicio, linha);
+
+        var texto = new StringBuilder(linha);
+        boolean aberto = true;
+        while (aberto) {
+            var continuacao = leitor.readLine();
+            if (continuacao == null)
+                throw new IOException("Aspas sem fechamento no registro que começa na linha " + inicio + ".");
+
+            linhaAtual++;
+            texto.append('\n').append(continuacao);
+            aberto = contarAspas(continuacao) % 2 == 0;
+        }
+
+        return new Registro(inicio, texto.toString());
+    }
+
+    @Override
+    public void close() throws IOException {
+        leitor.close();
+    }
+
+    /**
+     * Descobre o separador pelo cabeçalho: ponto e vírgula, como o Excel
+     * salva em português, ou vírgula.
+     * @param cabecalho Primeira linha do arquivo.
+     * @return {@code ';'} ou {@code ','}.
+     */
+    static char detectarSeparador(String cabecalho) {
+        int pontoEVirgula = 0;
+        int virgula = 0;
+        boolean entreAspas = false;
+
+        for (int i = 0; i < cabecalho.length(); i++) {
+            char c = cabecalho.charAt(i);
+            if (c == '"')
+                entreAspas = !entreAspas;
+            else if (!entreAspas && c == ';')
+                pontoEVirgula++;
+            else if (!entreAspas && c == ',')
+                virgula++;
+        }
+
+        return pontoEVirgula >= virgula && pontoEVirgula > 0 ? ';' : ',';
+    }
+
+    /**
+     * Divide um registro em campos. Campos entre aspas podem ter o separador,
+     * quebras de linha e aspas duplicadas ({@code ""}), que viram uma só.
+     * @param texto O registro.
+     * @param separador O separador de campos.
+     * @return Os campos do registro.
+     */
+    static String[] dividir(String texto, char separador) {
+        var campos = new ArrayList<String>();
+        var campo = new StringBuilder();
+        boolean entreAspas = false;
+
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (entreAspas) {
+                if (c != '"') {
+                    campo.append(c);
+                } else if (i + 1 < texto.length() && texto.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else {
+                    entreAspas = false;
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c != '\r') {
+                campo.append(c);
+            }
+        }
+        campos.add(campo.toString());
+
+        return campos.toArray(String[]::new);
+    }
+
+    /**
+     * @param cabecalho Os campos do cabeçalho.
+     * @return A posição de cada coluna, pelo nome em minúsculas.
+     */
+    static Map<String, Integer> colunas(String[] cabecalho) {
+        var colunas = new HashMap<String, Integer>();
+        for (int i = 0; i < cabecalho.length; i++) {
+            colunas.putIfAbsent(cabecalho[i].trim().toLowerCase(Locale.ROOT), i);
+        }
+
+        return colunas;
+    }
+
+    private static int contarAspas(String linha) {
+        int aspas = 0;
+        for (int i = 0; i < linha.length(); i++) {
+            if (linha.charAt(i) == '"')
+                aspas++;
+        }
+
+        return aspas;
+    }
+}
@@ -0,0 +1,112 @@
+package sistematransportadora.importacao;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lê os itens de uma NF-e com StAX, elemento por elemento, sem montar a
+ * árvore do documento. Só as tags usadas no cadastro de produtos são
+ * guardadas; o resto do arquivo é só percorrido.
+ */
+final class LeitorNfe {
+    // Uma fábrica por thread, já que a especificação não garante que ela possa ser compartilhada.
+    private static final ThreadLocal<XMLInputFactory> FABRICA = ThreadLocal.withInitial(() -> {
+        var fabrica = XMLInputFactory.newInstance();
+        // Uma nota não tem DTD; desligar evita ler entidades externas de arquivos de terceiros.
+        fabrica.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        fabrica.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        fabrica.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return fabrica;
+    });
+
+    /**
+     * @param codigo Código do produto no emitente ({@code cProd}).
+     * @param nome Descrição do produto na nota ({@code xProd}).
+     * @param ncm Classificação fiscal ({@code NCM}).
+     * @param unidade Unidade comercial ({@code uCom}).
+     * @param quantidade Quantidade comercial ({@code qCom}).
+     * @param lote Número do lote ({@code rastro/nLote}), se houver.
+     */
+    record Item(String codigo, String nome, String ncm, String unidade, double quantidade, String lote) {}
+
+    /**
+     * @param chave Chave de acesso da nota, sem o prefixo {@code NFe}.
+     * @param itens Itens da nota, na ordem da nota.
+     * @param pesoLiquido Soma dos pesos líquidos dos volumes ({@code transp/vol/pesoL}).
+     * @param pesoBruto Soma dos pesos brutos dos volumes ({@code transp/vol/pesoB}).
+     */
+    record Nota(String chave, List<Item> itens, double pesoLiquido, double pesoBruto) {}
+
+    private LeitorNfe() {}
+
+    static Nota ler(Path arquivo) throws IOException, XMLStreamException {
+        try (InputStream entrada = new BufferedInputStream(Files.newInputStream(arquivo), 1 << 16)) {
+            return ler(entrada);
+        }
+    }
+
+    static Nota ler(InputStream entrada) throws XMLStreamException {
+        var xml = FABRICA.get().createXMLStreamReader(entrada);
+        try {
+            String chave = null;
+            var itens = new ArrayList<Item>();
+            double pesoLiquido = 0;
+            double pesoBruto = 0;
+
+            boolean noItem = false;
+            String codigo = null, nome = null, ncm = null, unidade = null, lote = null;
+            double quantidade = 0;
+
+            while (xml.hasNext()) {
+                if (xml.next() != XMLStreamConstants.START_ELEMENT) {
+                    if (xml.getEventType() == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("det")) {
+                        itens.add(new Item(codigo, nome, ncm, unidade, quantidade, lote));
+                        noItem = false;
+                    }
+                    continue;
+                }
+
+                switch (xml.getLocalName()) {
+                    case "infNFe" -> {
+                        var id = xml.getAttributeValue(null, "Id");
+                        if (id != null)
+                            chave = id.startsWith("NFe") ? id.substring(3) : id;
+                    }
+                    case "det" -> {
+                        noItem = true;
+                        codigo = nome = ncm = unidade = lote = null;
+                        quantidade = 0;
+                    }
+                    case "cProd" -> { if (noItem) codigo = xml.getElementText().trim(); }
+                    case "xProd" -> { if (noItem) nome = xml.getElementText().trim(); }
+                    case "NCM" -> { if (noItem) ncm = xml.getElementText().trim(); }
+                    case "uCom" -> { if (noItem) unidade = xml.getElementText().trim(); }
+                    case "qCom" -> { if (noItem) quantidade = Double.parseDouble(xml.getElementText().trim()); }
+                    case "nLote" -> { if (noItem) lote = xml.getElementText().trim(); }
+                    case "pesoL" -> pesoLiquido += Double.parseDouble(xml.getElementText().trim());
+                    case "pesoB" -> pesoBruto += Double.parseDouble(xml.getElementText().trim());
+                    default -> {
+                        // Tags que não entram no cadastro.
+                    }
+                }
+            }
+
+            if (chave == null)
+                throw new XMLStreamException("O arquivo não é uma NF-e: não tem a tag infNFe.");
+
+            return new Nota(chave, itens, pesoLiquido, pesoBruto);
+        } catch (NumberFormatException e) {
+            throw new XMLStreamException("Número inválido na nota: " + e.getMessage(), e);
+        } finally {
+            xml.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package sistematransportadora.importacao;
+
+import sistematransportadora.Banco;
+import sistematransportadora.modelo.Dimensoes;
+import sistematransportadora.modelo.Fragilidade;
+import sistematransportadora.modelo.Produto;
+import sistematransportadora.modelo.ProdutoTipo;
+import sistematransportadora.repositorio.ProdutoRepositorio;
+import sistematransportadora.servico.ProdutoServico;
+import sistematransportadora.servico.ValorInvalidoException;
+
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * Produtos em CSV, com as colunas {@code id}, {@code nome}, {@code tipo},
+ * {@code altura}, {@code largura}, {@code comprimento} e {@code peso}, e as
+ * opcionais {@code descricao}, {@code familia}, {@code lote},
+ * {@code fragilidade} ({@code alta}, {@code média} ou {@code baixa}) e
+ * {@code observacoes}.
+ */
+public class ProdutoCsv implements FormatoCsv<Produto> {
+    private ProdutoRepositorio repositorio;
+    private TiposCsv<ProdutoTipo> tipos;
+
+    @Override
+    public String tabela() {
+        return "Produto";
+    }
+
+    @Override
+    public void preparar(Banco banco) {
+        repositorio = new ProdutoRepositorio(banco);
+        tipos = new TiposCsv<>(repositorio.buscarTipos(), ProdutoTipo::id, ProdutoTipo::nome, "Tipo de produto inválido!");
+    }
+
+    @Override
+    public Produto converter(RegistroCsv registro) {
+        var produto = new Produto(registro.inteiro("id"), registro.texto("nome"), tipos.buscar(registro.texto("tipo")));
+        produto.setDescricao(registro.textoOpcional("descricao"));
+        produto.setFamilia(registro.textoOpcional("familia"));
+        produto.setLote(registro.textoOpcional("lote"));
+        produto.setDimensoes(new Dimensoes(
+                registro.decimal("altura"), registro.decimal("largura"), registro.decimal("comprimento")
+        ));
+        produto.setPeso(registro.decimal("peso"));
+        produto.setGrauFragilidade(fragilidade(registro.textoOpcional("fragilidade")));
+        produto.setObservacoes(registro.textoOpcional("observacoes"));
+
+        ProdutoServico.validarCampos(produto);
+        return produto;
+    }
+
+    @Override
+    public boolean[] gravar(Connection conn, List<Produto> objs) {
+        return repositorio.criarVarios(conn, objs);
+    }
+
+    @Override
+    public String motivoRecusa(Connection conn, Produto obj) {
+        if (Recusas.existe(conn, "SELECT EXISTS(SELECT 1 FROM Produto WHERE id = ?)", obj.getId()))
+            return "Id de produto já existe no banco de dados.";
+
+        return "Produto recusado pelo banco de dados.";
+    }
+
+    private static Fragilidade fragilidade(String valor) {
+        if (valor == null)
+            return Fragilidade.BAIXA;
+
+        return switch (valor.toLowerCase()) {
+            case "alta" -> Fragilidade.ALTA;
+            case "média", "media" -> Fragilidade.MEDIA;
+            case "baixa" -> Fragilidade.BAIXA;
+            default -> throw new ValorInvalidoException("Grau de fragilidade inválido: " + valor);
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package sistematransportadora.importacao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Consultas que os formatos usam para explicar por que um registro não foi
+ * gravado. Rodam na conexão do lote, então enxergam também o que as linhas
+ * anteriores do mesmo arquivo já gravaram.
+ */
+final class Recusas {
+    private static final Logger log = LoggerFactory.getLogger(Recusas.class);
+
+    private Recusas() {}
+
+    /**
+     * @param sql Consulta {@code SELECT EXISTS(...)} com um parâmetro.
+     * @return Se a consulta encontrou algum registro.
+     */
+    static boolean existe(Connection conn, String sql, Object valor) {
+        try (var stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, valor);
+            try (var rs = stmt.executeQuery()) {
+                return rs.getBoolean(1);
+            }
+        } catch (SQLException e) {
+            String err = "Erro ao conferir registro recusado: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+}
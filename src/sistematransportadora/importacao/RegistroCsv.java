@@ -0,0 +1,95 @@
+package sistematransportadora.importacao;
+
+import sistematransportadora.servico.ValorInvalidoException;
+
+import java.util.Map;
+
+/**
+ * Um registro do CSV já dividido em campos, lido pelo nome da coluna.
+ * Os valores que faltam ou não são do tipo esperado viram uma
+ * {@link ValorInvalidoException} com a coluna e o valor no texto.
+ */
+public class RegistroCsv {
+    private final long linha;
+    private final String[] campos;
+    private final Map<String, Integer> colunas;
+
+    RegistroCsv(long linha, String[] campos, Map<String, Integer> colunas) {
+        this.linha = linha;
+        this.campos = campos;
+        this.colunas = colunas;
+    }
+
+    public long getLinha() {
+        return linha;
+    }
+
+    /**
+     * @param coluna Nome da coluna, em minúsculas.
+     * @return O valor sem espaços nas pontas.
+     * @throws ValorInvalidoException Se o valor estiver vazio ou a coluna não existir.
+     */
+    public String texto(String coluna) {
+        var valor = textoOpcional(coluna);
+        if (valor == null)
+            throw new ValorInvalidoException(String.format("A coluna '%s' é obrigatória.", coluna));
+
+        return valor;
+    }
+
+    /**
+     * @param coluna Nome da coluna, em minúsculas.
+     * @return O valor sem espaços nas pontas, ou {@code null} se estiver vazio
+     * ou a coluna não existir.
+     */
+    public String textoOpcional(String coluna) {
+        var indice = colunas.get(coluna);
+        if (indice == null || indice >= campos.length)
+            return null;
+
+        var valor = campos[indice].trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    public int inteiro(String coluna) {
+        var valor = texto(coluna);
+        try {
+            return Integer.parseInt(valor);
+        } catch (NumberFormatException e) {
+            throw valorInvalido(coluna, valor);
+        }
+    }
+
+    /**
+     * Aceita tanto vírgula quanto ponto como separador decimal.
+     */
+    public double decimal(String coluna) {
+        var valor = texto(coluna);
+        try {
+            return Double.parseDouble(valor.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw valorInvalido(coluna, valor);
+        }
+    }
+
+    /**
+     * Aceita {@code sim}, {@code s}, {@code true} e {@code 1} como verdadeiro e
+     * {@code não}, {@code nao}, {@code n}, {@code false} e {@code 0} como falso.
+     * @param padrao O valor quando o campo está vazio.
+     */
+    public boolean booleano(String coluna, boolean padrao) {
+        var valor = textoOpcional(coluna);
+        if (valor == null)
+            return padrao;
+
+        return switch (valor.toLowerCase()) {
+            case "sim", "s", "true", "1" -> true;
+            case "não", "nao", "n", "false", "0" -> false;
+            default -> throw valorInvalido(coluna, valor);
+        };
+    }
+
+    private static ValorInvalidoException valorInvalido(String coluna, String valor) {
+        return new ValorInvalidoException(String.format("Valor inválido na coluna '%s': %s", coluna, valor));
+    }
+}
@@ -0,0 +1,23 @@
+package sistematransportadora.importacao;
+
+import java.time.Duration;
+
+/**
+ * O resumo de uma importação.
+ * @param lidas Registros lidos do arquivo, sem contar o cabeçalho.
+ * @param puladas Registros pulados por já terem sido importados antes da retomada.
+ * @param gravadas Registros gravados no banco.
+ * @param recusadas Registros com erro, que não foram gravados.
+ * @param cancelada Se a importação foi cancelada antes do fim.
+ * @param duracao Duração da importação.
+ */
+public record ResultadoImportacao(long lidas, long puladas, long gravadas, long recusadas,
+                                  boolean cancelada, Duration duracao) {
+    /**
+     * @return Registros processados por segundo, sem contar os pulados.
+     */
+    public double registrosPorSegundo() {
+        double segundos = duracao.toNanos() / 1e9;
+        return segundos > 0 ? (lidas - puladas) / segundos : 0;
+    }
+}
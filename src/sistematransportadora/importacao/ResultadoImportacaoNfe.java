@@ -0,0 +1,23 @@
+package sistematransportadora.importacao;
+
+import java.time.Duration;
+
+/**
+ * O resumo de uma importação de notas.
+ * @param arquivos Arquivos XML encontrados.
+ * @param notas Notas lidas sem erro.
+ * @param itens Itens lidos das notas.
+ * @param produtos Produtos diferentes cadastrados ou atualizados.
+ * @param recusados Itens que não viraram produto.
+ * @param duracao Duração da importação.
+ */
+public record ResultadoImportacaoNfe(long arquivos, long notas, long itens, long produtos, long recusados,
+                                     Duration duracao) {
+    /**
+     * @return Notas lidas por segundo.
+     */
+    public double notasPorSegundo() {
+        double segundos = duracao.toNanos() / 1e9;
+        return segundos > 0 ? notas / segundos : 0;
+    }
+}
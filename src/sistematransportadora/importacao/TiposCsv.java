@@ -0,0 +1,50 @@
+package sistematransportadora.importacao;
+
+import sistematransportadora.servico.ValorInvalidoException;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Os tipos cadastrados, carregados uma vez antes da importação, para que a
+ * coluna de tipo seja conferida sem ir ao banco em cada linha. A coluna
+ * aceita tanto a id quanto o nome do tipo.
+ *
+ * @param <T> O tipo de registro de tipo.
+ */
+final class TiposCsv<T> {
+    private final Map<Integer, T> porId = new HashMap<>();
+    private final Map<String, T> porNome = new HashMap<>();
+    private final String mensagemInvalido;
+
+    /**
+     * @param tipos Os tipos cadastrados.
+     * @param id Id de cada tipo.
+     * @param nome Nome de cada tipo.
+     * @param mensagemInvalido Mensagem quando o valor não é de nenhum tipo.
+     */
+    TiposCsv(T[] tipos, ToIntFunction<T> id, Function<T, String> nome, String mensagemInvalido) {
+        for (var tipo : tipos) {
+            porId.put(id.applyAsInt(tipo), tipo);
+            porNome.put(nome.apply(tipo).trim().toLowerCase(Locale.ROOT), tipo);
+        }
+        this.mensagemInvalido = mensagemInvalido;
+    }
+
+    T buscar(String valor) {
+        T tipo;
+        try {
+            tipo = porId.get(Integer.parseInt(valor));
+        } catch (NumberFormatException e) {
+            tipo = porNome.get(valor.toLowerCase(Locale.ROOT));
+        }
+
+        if (tipo == null)
+            throw new ValorInvalidoException(mensagemInvalido);
+
+        return tipo;
+    }
+}
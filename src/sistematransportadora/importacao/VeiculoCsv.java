@@ -0,0 +1,77 @@
+package sistematransportadora.importacao;
+
+import sistematransportadora.Banco;
+import sistematransportadora.modelo.Dimensoes;
+import sistematransportadora.modelo.Veiculo;
+import sistematransportadora.modelo.VeiculoTipo;
+import sistematransportadora.repositorio.VeiculoRepositorio;
+import sistematransportadora.servico.VeiculoServico;
+
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * Veículos em CSV, com as colunas {@code id}, {@code nome}, {@code placa},
+ * {@code modelo}, {@code tipo} e {@code capacidade_peso}, e as opcionais
+ * {@code altura}, {@code largura}, {@code comprimento} e {@code observacoes}.
+ * As dimensões internas só são gravadas se a altura vier preenchida.
+ */
+public class VeiculoCsv implements FormatoCsv<Veiculo> {
+    private Banco banco;
+    private VeiculoRepositorio repositorio;
+    private TiposCsv<VeiculoTipo> tipos;
+
+    @Override
+    public String tabela() {
+        return "Veiculo";
+    }
+
+    @Override
+    public void preparar(Banco banco) {
+        this.banco = banco;
+        repositorio = new VeiculoRepositorio(banco);
+        tipos = new TiposCsv<>(repositorio.buscarTipos(), VeiculoTipo::id, VeiculoTipo::nome,
+                "Tipo de veículo inválido! Não foi possível encontrar um tipo cadastrado com id correspondente.");
+    }
+
+    @Override
+    public Veiculo converter(RegistroCsv registro) {
+        var veiculo = new Veiculo(
+                registro.inteiro("id"),
+                registro.texto("nome"),
+                tipos.buscar(registro.texto("tipo")),
+                registro.texto("placa"),
+                registro.texto("modelo"),
+                registro.decimal("capacidade_peso")
+        );
+        if (registro.textoOpcional("altura") != null) {
+            veiculo.setDimensoesInternas(new Dimensoes(
+                    registro.decimal("altura"), registro.decimal("largura"), registro.decimal("comprimento")
+            ));
+        }
+        veiculo.setObservacoes(registro.textoOpcional("observacoes"));
+
+        VeiculoServico.validarCampos(veiculo);
+        return veiculo;
+    }
+
+    @Override
+    public boolean[] gravar(Connection conn, List<Veiculo> objs) {
+        return repositorio.criarVarios(conn, objs);
+    }
+
+    @Override
+    public void fechar(Connection conn) {
+        banco.pegarIndiceVeiculos().descartar();
+    }
+
+    @Override
+    public String motivoRecusa(Connection conn, Veiculo obj) {
+        if (Recusas.existe(conn, "SELECT EXISTS(SELECT 1 FROM Veiculo WHERE id = ?)", obj.getId()))
+            return "Id de veículo já existe no banco de dados.";
+        if (Recusas.existe(conn, "SELECT EXISTS(SELECT 1 FROM Veiculo WHERE placa = ?)", obj.getPlaca()))
+            return "Placa de veículo já existe no banco de dados.";
+
+        return "Veículo recusado pelo banco de dados.";
+    }
+}
@@ -0,0 +1,14 @@
+package sistematransportadora.modelo;
+
+public record Alteracao(
+        long seq,
+        String tabela,
+        int registroId,
+        Operacao operacao
+) {
+    public enum Operacao {
+        INSERCAO,
+        ATUALIZACAO,
+        REMOCAO
+    }
+}
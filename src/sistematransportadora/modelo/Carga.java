@@ -0,0 +1,115 @@
+package sistematransportadora.modelo;
+
+import java.util.List;
+
+public class Carga {
+    // Dada pelo banco quando a carga é gravada; 0 até lá.
+    private int id;
+    private String descricao;
+    private Veiculo veiculo;
+    // Versão do veículo quando a carga foi planejada.
+    private int versaoVeiculo;
+    private List<CargaItem> itens;
+    private double pesoCarregado;
+    private double volumeCarregado;
+    private long criadaEm;
+    private int versao = 1;
+
+    public Carga(Veiculo veiculo, List<CargaItem> itens, double pesoCarregado, double volumeCarregado) {
+        this.veiculo = veiculo;
+        this.versaoVeiculo = veiculo != null ? veiculo.getVersao() : 0;
+        this.itens = itens;
+        this.pesoCarregado = pesoCarregado;
+        this.volumeCarregado = volumeCarregado;
+    }
+
+    /**
+     * @return Uma cópia com todos os campos, inclusive do veículo, que pode
+     * ser alterada sem mexer nesta.
+     */
+    public Carga copiar() {
+        var copia = new Carga(veiculo != null ? veiculo.copiar() : null, itens != null ? List.copyOf(itens) : null,
+                pesoCarregado, volumeCarregado);
+        copia.id = id;
+        copia.descricao = descricao;
+        copia.versaoVeiculo = versaoVeiculo;
+        copia.criadaEm = criadaEm;
+        copia.versao = versao;
+        return copia;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+
+    public void setDescricao(String descricao) {
+        this.descricao = descricao;
+    }
+
+    public Veiculo getVeiculo() {
+        return veiculo;
+    }
+
+    public void setVeiculo(Veiculo veiculo) {
+        this.veiculo = veiculo;
+    }
+
+    public int getVersaoVeiculo() {
+        return versaoVeiculo;
+    }
+
+    public void setVersaoVeiculo(int versaoVeiculo) {
+        this.versaoVeiculo = versaoVeiculo;
+    }
+
+    public List<CargaItem> getItens() {
+        return itens;
+    }
+
+    public void setItens(List<CargaItem> itens) {
+        this.itens = itens;
+    }
+
+    public double getPesoCarregado() {
+        return pesoCarregado;
+    }
+
+    public void setPesoCarregado(double pesoCarregado) {
+        this.pesoCarregado = pesoCarregado;
+    }
+
+    public double getVolumeCarregado() {
+        return volumeCarregado;
+    }
+
+    public void setVolumeCarregado(double volumeCarregado) {
+        this.volumeCarregado = volumeCarregado;
+    }
+
+    /**
+     * @return Quando a carga foi gravada, em segundos desde 1970.
+     */
+    public long getCriadaEm() {
+        return criadaEm;
+    }
+
+    public void setCriadaEm(long criadaEm) {
+        this.criadaEm = criadaEm;
+    }
+
+    public int getVersao() {
+        return versao;
+    }
+
+    public void setVersao(int versao) {
+        this.versao = versao;
+    }
+}
@@ -0,0 +1,12 @@
+package sistematransportadora.modelo;
+
+/**
+ * Onde uma embalagem vai dentro do veículo de uma carga.
+ * @param embalagemId Id da embalagem.
+ * @param versaoEmbalagem Versão da embalagem quando a carga foi planejada.
+ * @param x Posição na largura.
+ * @param y Posição no comprimento, a partir da cabine.
+ * @param z Posição na altura, a partir do piso.
+ * @param girada Se a embalagem vai girada em 90 graus sobre o piso.
+ */
+public record CargaItem(int embalagemId, int versaoEmbalagem, double x, double y, double z, boolean girada) {}
@@ -11,6 +11,13 @@ public class Dimensoes {
         this.comprimento = comprimento;
     }
 
+    /**
+     * @return Uma cópia, que pode ser alterada sem mexer nesta.
+     */
+    public Dimensoes copiar() {
+        return new Dimensoes(altura, largura, comprimento);
+    }
+
     public boolean isValida() {
         return !(this.altura < 0 || this.largura < 0 || this.comprimento < 0);
     }
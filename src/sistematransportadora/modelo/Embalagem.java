@@ -8,6 +8,7 @@ public class Embalagem {
     private String observacoes;
     private EmbalagemTipo tipo;
     private Produto produtoAssociado;
+    private int versao = 1;
 
     public Embalagem(int id, EmbalagemTipo tipo, Produto produtoAssociado, Dimensoes dimensoes, double peso) {
         this.id = id;
@@ -18,6 +19,27 @@ public class Embalagem {
 
     }
 
+    /**
+     * @return Uma cópia com todos os campos, inclusive do produto associado,
+     * que pode ser alterada sem mexer nesta.
+     */
+    public Embalagem copiar() {
+        return copiar(produtoAssociado != null ? produtoAssociado.copiar() : null);
+    }
+
+    /**
+     * @param produtoAssociado O produto da cópia, para cópias de várias
+     *                         embalagens do mesmo produto dividirem um só.
+     * @return Uma cópia com todos os campos, menos o produto, que é o dado.
+     */
+    public Embalagem copiar(Produto produtoAssociado) {
+        var copia = new Embalagem(id, tipo, produtoAssociado, dimensoes != null ? dimensoes.copiar() : null, peso);
+        copia.empilhavel = empilhavel;
+        copia.observacoes = observacoes;
+        copia.versao = versao;
+        return copia;
+    }
+
     public int getId() {
         return id;
     }
@@ -69,4 +91,12 @@ public class Embalagem {
     public void setProdutoAssociado(Produto produtoAssociado) {
         this.produtoAssociado = produtoAssociado;
     }
+
+    public int getVersao() {
+        return versao;
+    }
+
+    public void setVersao(int versao) {
+        this.versao = versao;
+    }
 }
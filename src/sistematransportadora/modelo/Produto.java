@@ -11,6 +11,9 @@ public class Produto {
     private double peso;
     private Fragilidade grauFragilidade;
     private String observacoes;
+    private int versao = 1;
+    // Não fica salvo no banco: é o próprio banco da filial que guarda o registro.
+    private String filial;
 
     public Produto(int id, String nome, ProdutoTipo tipo) {
         this.id = id;
@@ -18,6 +21,23 @@ public class Produto {
         this.tipo = tipo;
     }
 
+    /**
+     * @return Uma cópia com todos os campos, que pode ser alterada sem mexer neste.
+     */
+    public Produto copiar() {
+        var copia = new Produto(id, nome, tipo);
+        copia.descricao = descricao;
+        copia.familia = familia;
+        copia.lote = lote;
+        copia.dimensoes = dimensoes != null ? dimensoes.copiar() : null;
+        copia.peso = peso;
+        copia.grauFragilidade = grauFragilidade;
+        copia.observacoes = observacoes;
+        copia.versao = versao;
+        copia.filial = filial;
+        return copia;
+    }
+
     public int getId() {
         return id;
     }
@@ -93,4 +113,24 @@ public class Produto {
     public void setObservacoes(String observacoes) {
         this.observacoes = observacoes;
     }
+
+    public int getVersao() {
+        return versao;
+    }
+
+    public void setVersao(int versao) {
+        this.versao = versao;
+    }
+
+    /**
+     * @return A filial onde o registro está guardado, ou {@code null} se a
+     * aplicação usa um só banco ou o registro ainda não foi salvo.
+     */
+    public String getFilial() {
+        return filial;
+    }
+
+    public void setFilial(String filial) {
+        this.filial = filial;
+    }
 }
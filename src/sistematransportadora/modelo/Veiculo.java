@@ -9,6 +9,9 @@ public class Veiculo {
     private Dimensoes dimensoesInternas;
     private double capacidadeDePeso;
     private String observacoes;
+    private int versao = 1;
+    // Não fica salvo no banco: é o próprio banco da filial que guarda o registro.
+    private String filial;
 
     public Veiculo(int id, String nome, VeiculoTipo tipo, String placa, String modelo, double capacidadeDePeso) {
         this.id = id;
@@ -19,6 +22,18 @@ public class Veiculo {
         this.capacidadeDePeso = capacidadeDePeso;
     }
 
+    /**
+     * @return Uma cópia com todos os campos, que pode ser alterada sem mexer neste.
+     */
+    public Veiculo copiar() {
+        var copia = new Veiculo(id, nome, tipo, placa, modelo, capacidadeDePeso);
+        copia.dimensoesInternas = dimensoesInternas != null ? dimensoesInternas.copiar() : null;
+        copia.observacoes = observacoes;
+        copia.versao = versao;
+        copia.filial = filial;
+        return copia;
+    }
+
     public int getId() {
         return id;
     }
@@ -78,4 +93,24 @@ public class Veiculo {
     public void setObservacoes(String observacoes) {
         this.observacoes = observacoes;
     }
+
+    public int getVersao() {
+        return versao;
+    }
+
+    public void setVersao(int versao) {
+        this.versao = versao;
+    }
+
+    /**
+     * @return A filial onde o registro está guardado, ou {@code null} se a
+     * aplicação usa um só banco ou o registro ainda não foi salvo.
+     */
+    public String getFilial() {
+        return filial;
+    }
+
+    public void setFilial(String filial) {
+        this.filial = filial;
+    }
 }
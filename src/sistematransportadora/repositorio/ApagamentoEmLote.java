@@ -0,0 +1,74 @@
+package sistematransportadora.repositorio;
+
+import sistematransportadora.Banco;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Apaga vários registros de uma tabela numa única transação. As ids são
+ * colocadas numa tabela temporária e a remoção é feita com um só
+ * {@code DELETE ... WHERE id IN (SELECT ...)}, então as remoções em cascata
+ * também acontecem de uma vez, sem limite de quantidade de parâmetros.
+ */
+final class ApagamentoEmLote {
+    private ApagamentoEmLote() {}
+
+    /**
+     * @param banco Banco onde está a tabela.
+     * @param tabela Tabela de onde os registros serão apagados.
+     * @param sqlContarCascata Consulta que conta os registros dependentes cujas
+     *                         referências estão em {@code temp.ids_apagar}, ou
+     *                         {@code null} se a tabela não tiver dependentes.
+     * @param ids Ids dos registros a serem apagados.
+     * @return A quantidade de registros dependentes apagados em cascata.
+     */
+    static int apagar(Banco banco, String tabela, String sqlContarCascata, int[] ids) throws SQLException {
+        if (ids.length == 0)
+            return 0;
+
+        try (var conn = banco.pegarConnection()) {
+            conn.setAutoCommit(false);
+
+            try {
+                prepararIds(conn, ids);
+
+                int cascata = 0;
+                if (sqlContarCascata != null) {
+                    try (var stmt = conn.prepareStatement(sqlContarCascata);
+                         var rs = stmt.executeQuery()) {
+                        cascata = rs.getInt(1);
+                    }
+                }
+
+                try (var stmt = conn.createStatement()) {
+                    stmt.executeUpdate("DELETE FROM " + tabela + " WHERE id IN (SELECT id FROM temp.ids_apagar)");
+                    stmt.executeUpdate("DELETE FROM temp.ids_apagar");
+                }
+
+                conn.commit();
+                return cascata;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static void prepararIds(Connection conn, int[] ids) throws SQLException {
+        try (var stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TEMP TABLE IF NOT EXISTS ids_apagar (id INTEGER PRIMARY KEY)");
+            stmt.executeUpdate("DELETE FROM temp.ids_apagar");
+        }
+
+        try (var stmt = conn.prepareStatement("INSERT OR IGNORE INTO temp.ids_apagar VALUES (?)")) {
+            for (int id : ids) {
+                stmt.setInt(1, id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package sistematransportadora.repositorio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sistematransportadora.Banco;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move para o banco de arquivo as embalagens que não são alteradas há mais
+ * tempo que a retenção, deixando a tabela principal só com as recentes.
+ * <p>
+ * As embalagens são movidas em lotes, para não segurar a escrita do banco por
+ * muito tempo. Com o banco em modo WAL, uma transação entre dois bancos
+ * anexados não é atômica entre eles, então cada lote é primeiro copiado para
+ * o arquivo, numa transação, e só depois apagado do banco principal, em
+ * outra. Se a aplicação fechar entre as duas, a embalagem fica nos dois
+ * bancos: o próximo lote a copia de novo, já que o arquivo usa
+ * {@code INSERT OR REPLACE}, e {@link #limparOrfas()} apaga a cópia se ela
+ * tiver deixado de ser arquivável. Embalagens usadas em cargas planejadas não
+ * são arquivadas.
+ * <p>
+ * A retenção vem da propriedade {@code sistematransportadora.arquivo.retencao},
+ * em dias, com padrão de 365.
+ */
+public class ArquivadorEmbalagens {
+    private static final Logger log = LoggerFactory.getLogger(ArquivadorEmbalagens.class);
+    private static final int TAMANHO_LOTE = 500;
+    private static final Duration INTERVALO = Duration.ofHours(1);
+
+    private final Banco banco;
+    private final Duration retencao;
+    private ScheduledExecutorService agendador;
+
+    /**
+     * @param banco Banco de onde as embalagens serão arquivadas.
+     * @param retencao Tempo sem alterações depois do qual a embalagem é arquivada.
+     */
+    public ArquivadorEmbalagens(Banco banco, Duration retencao) {
+        this.banco = banco;
+        this.retencao = retencao;
+    }
+
+    public static ArquivadorEmbalagens de(Banco banco) {
+        var dias = Long.getLong("sistematransportadora.arquivo.retencao", 365);
+        return new ArquivadorEmbalagens(banco, Duration.ofDays(dias));
+    }
+
+    /**
+     * Começa a arquivar em segundo plano, uma vez por hora, limpando também
+     * as embalagens órfãs do arquivo e o registro de alterações, que cresce a
+     * cada escrita mesmo sem nenhuma tela observando. O primeiro ciclo roda um
+     * minuto depois de iniciar.
+     */
+    public synchronized void iniciar() {
+        if (agendador != null)
+            return;
+
+        agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            var thread = new Thread(tarefa, "arquivador-embalagens");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(() -> {
+            try {
+                // O registro vem primeiro, para não depender do arquivamento dar certo.
+                banco.pegarObservador().limparRegistro();
+                arquivar();
+                limparOrfas();
+            } catch (RuntimeException e) {
+                // O erro já foi registrado; a próxima tentativa segue no horário.
+            }
+        }, 1, INTERVALO.toMinutes(), TimeUnit.MINUTES);
+    }
+
+    /**
+     * Move as embalagens sem alterações há mais tempo que a retenção.
+     * @return A quantidade de embalagens movidas.
+     */
+    public synchronized int arquivar() {
+        long limite = Instant.now().minus(retencao).getEpochSecond();
+
+        try (var conn = banco.pegarConnection()) {
+            if (!haEmbalagensAntigas(conn, limite))
+                return 0;
+
+            ArquivoEmbalagens.anexar(banco, conn);
+            try {
+                int total = 0;
+                int movidas;
+                do {
+                    movidas = moverLote(conn, limite);
+                    total += movidas;
+                } while (movidas == TAMANHO_LOTE);
+
+                if (total > 0) {
+                    log.info("{} embalagens movidas para o arquivo.", total);
+                    banco.pegarIndiceEmbalagens().descartar();
+                }
+                return total;
+            } finally {
+                ArquivoEmbalagens.desanexar(conn);
+            }
+        } catch (SQLException e) {
+            String err = "Erro ao arquivar embalagens: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * Apaga do arquivo as embalagens cujo produto não existe mais, que no
+     * banco principal seriam apagadas em cascata junto com o produto, e as
+     * que também estão no banco principal, copiadas por um lote interrompido
+     * antes de apagá-las de lá.
+     * @return A quantidade de embalagens apagadas.
+     */
+    public synchronized int limparOrfas() {
+        if (!ArquivoEmbalagens.existe(banco))
+            return 0;
+
+        try (var conn = banco.pegarConnection()) {
+            ArquivoEmbalagens.anexar(banco, conn);
+            try (var stmt = conn.createStatement()) {
+                return stmt.executeUpdate(
+                        "DELETE FROM arquivo.Embalagem WHERE produto_id NOT IN (SELECT id FROM main.Produto)"
+                ) + stmt.executeUpdate(
+                        "DELETE FROM arquivo.Embalagem WHERE id IN (SELECT id FROM main.Embalagem)"
+                );
+            } finally {
+                ArquivoEmbalagens.desanexar(conn);
+            }
+        } catch (SQLException e) {
+            String err = "Erro ao limpar o arquivo de embalagens: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    public synchronized void parar() {
+        if (agendador != null)
+            agendador.shutdown();
+        agendador = null;
+    }
+
+    private boolean haEmbalagensAntigas(Connection conn, long limite) throws SQLException {
+        try (var stmt = conn.prepareStatement("SELECT EXISTS(SELECT 1 FROM Embalagem WHERE atualizado_em < ?)")) {
+            stmt.setLong(1, limite);
+            try (var rs = stmt.executeQuery()) {
+                return rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Move um lote em duas transações, já que uma só não seria atômica entre
+     * os dois bancos: a primeira escolhe as embalagens e as copia para o
+     * arquivo, e a segunda apaga do banco principal as que continuam antigas,
+     * fora de cargas e com a cópia no arquivo. As que mudaram entre as duas
+     * perdem a cópia, que ficaria desatualizada.
+     */
+    private int moverLote(Connection conn, long limite) throws SQLException {
+        try (var stmt = conn.createStatement()) {
+            stmt.execute("CREATE TEMP TABLE IF NOT EXISTS ids_arquivar (id INTEGER PRIMARY KEY)");
+
+            int movidas;
+            stmt.execute("BEGIN IMMEDIATE");
+            try {
+                stmt.executeUpdate("DELETE FROM temp.ids_arquivar");
+                // Uma embalagem numa carga planejada fica: apagá-la levaria o item da carga junto.
+                try (var lote = conn.prepareStatement("""
+                        INSERT INTO temp.ids_arquivar
+                        SELECT id FROM main.Embalagem
+                        WHERE atualizado_em < ? AND id NOT IN (SELECT embalagem_id FROM main.CargaItem)
+                        LIMIT ?
+                        """)) {
+                    lote.setLong(1, limite);
+                    lote.setInt(2, TAMANHO_LOTE);
+                    movidas = lote.executeUpdate();
+                }
+
+                stmt.executeUpdate(String.format("""
+                        INSERT OR REPLACE INTO arquivo.Embalagem (%1$s)
+                        SELECT %1$s FROM main.Embalagem WHERE id IN (SELECT id FROM temp.ids_arquivar)
+                        """, ArquivoEmbalagens.COLUNAS));
+
+                stmt.execute("COMMIT");
+            } catch (SQLException e) {
+                stmt.execute("ROLLBACK");
+                throw e;
+            }
+
+            stmt.execute("BEGIN IMMEDIATE");
+            try (var apagar = conn.prepareStatement("""
+                    DELETE FROM main.Embalagem
+                    WHERE id IN (SELECT id FROM temp.ids_arquivar)
+                      AND id IN (SELECT id FROM arquivo.Embalagem)
+                      AND id NOT IN (SELECT embalagem_id FROM main.CargaItem)
+                      AND atualizado_em < ?
+                    """)) {
+                apagar.setLong(1, limite);
+                apagar.executeUpdate();
+                stmt.executeUpdate("""
+                        DELETE FROM arquivo.Embalagem
+                        WHERE id IN (SELECT id FROM temp.ids_arquivar) AND id IN (SELECT id FROM main.Embalagem)
+                        """);
+
+                stmt.execute("COMMIT");
+            } catch (SQLException e) {
+                stmt.execute("ROLLBACK");
+                throw e;
+            }
+
+            // A contagem vem da tabela temporária: a do DELETE inclui o que os triggers escrevem.
+            return movidas;
+        }
+    }
+}
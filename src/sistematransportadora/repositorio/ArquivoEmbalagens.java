@@ -0,0 +1,67 @@
+package sistematransportadora.repositorio;
+
+import sistematransportadora.Banco;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Acesso ao banco de arquivo, onde ficam as embalagens antigas. O banco é
+ * anexado à conexão com {@code ATTACH} só enquanto é usado, então as consultas
+ * do dia a dia não pagam nada por ele existir.
+ */
+final class ArquivoEmbalagens {
+    static final String COLUNAS = """
+        id, altura, largura, comprimento, peso, empilhavel,
+        observacoes, tipo_id, produto_id, versao, atualizado_em""";
+
+    private ArquivoEmbalagens() {}
+
+    /**
+     * @return Se o arquivo já recebeu alguma embalagem.
+     */
+    static boolean existe(Banco banco) {
+        return banco.pegarArquivoHistorico().exists();
+    }
+
+    /**
+     * Anexa o banco de arquivo à conexão com o nome {@code arquivo}, criando a
+     * tabela de embalagens nele se for preciso. Precisa ser chamado fora de
+     * uma transação.
+     */
+    static void anexar(Banco banco, Connection conn) throws SQLException {
+        try (var stmt = conn.prepareStatement("ATTACH DATABASE ? AS arquivo")) {
+            stmt.setString(1, banco.pegarArquivoHistorico().getPath());
+            stmt.execute();
+        }
+
+        try (var stmt = conn.createStatement()) {
+            // Sem foreign keys: o produto e o tipo ficam no banco principal.
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS arquivo.Embalagem (
+                    id INTEGER NOT NULL PRIMARY KEY,
+                    altura REAL NOT NULL,
+                    largura REAL NOT NULL,
+                    comprimento REAL NOT NULL,
+                    peso REAL NOT NULL,
+                    empilhavel BOOLEAN NOT NULL,
+                    observacoes TEXT,
+                    tipo_id INT NOT NULL,
+                    produto_id INT NOT NULL,
+                    versao INT NOT NULL,
+                    atualizado_em INT NOT NULL,
+                    arquivado_em INT NOT NULL DEFAULT (strftime('%s', 'now'))
+                )
+                """);
+        }
+    }
+
+    /**
+     * Desanexa o banco de arquivo, para a conexão voltar ao pool como estava.
+     */
+    static void desanexar(Connection conn) throws SQLException {
+        try (var stmt = conn.createStatement()) {
+            stmt.execute("DETACH DATABASE arquivo");
+        }
+    }
+}
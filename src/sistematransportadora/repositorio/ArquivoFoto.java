@@ -0,0 +1,417 @@
+package sistematransportadora.repositorio;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Formato binário da foto do catálogo (ver {@link FotoCatalogo}).
+ * <p>
+ * O arquivo tem um cabeçalho, uma tabela de textos e um bloco por tabela.
+ * Cada texto diferente é gravado uma vez só na tabela de textos e as colunas
+ * de texto guardam só a posição dele, com {@code -1} para {@code null}. Dentro
+ * de cada bloco os valores ficam por coluna, um depois do outro, então uma
+ * coluna inteira é lida de uma vez direto do arquivo mapeado.
+ */
+final class ArquivoFoto {
+    private static final int MAGICO = 0x53544654; // "STFT"
+    private static final int FORMATO = 1;
+    private static final int TAMANHO_CABECALHO = 4 + 4 + 4 + 8 + 8 + 8 * (Tabela.values().length + 1);
+
+    enum Tipo { INTEIRO, REAL, TEXTO, LOGICO }
+
+    record Coluna(String nome, Tipo tipo) {}
+
+    /**
+     * As tabelas guardadas na foto, na ordem dos blocos no arquivo.
+     */
+    enum Tabela {
+        PRODUTO("Produto",
+                new Coluna("id", Tipo.INTEIRO),
+                new Coluna("nome", Tipo.TEXTO),
+                new Coluna("descricao", Tipo.TEXTO),
+                new Coluna("familia", Tipo.TEXTO),
+                new Coluna("tipo_id", Tipo.INTEIRO),
+                new Coluna("lote", Tipo.TEXTO),
+                new Coluna("altura", Tipo.REAL),
+                new Coluna("largura", Tipo.REAL),
+                new Coluna("comprimento", Tipo.REAL),
+                new Coluna("peso", Tipo.REAL),
+                new Coluna("grau_fragilidade", Tipo.TEXTO),
+                new Coluna("observacoes", Tipo.TEXTO),
+                new Coluna("versao", Tipo.INTEIRO)),
+        VEICULO("Veiculo",
+                new Coluna("id", Tipo.INTEIRO),
+                new Coluna("nome", Tipo.TEXTO),
+                new Coluna("placa", Tipo.TEXTO),
+                new Coluna("modelo", Tipo.TEXTO),
+                new Coluna("tipo_id", Tipo.INTEIRO),
+                new Coluna("altura_interna", Tipo.REAL),
+                new Coluna("largura_interna", Tipo.REAL),
+                new Coluna("comprimento_interno", Tipo.REAL),
+                new Coluna("capacidade_peso", Tipo.REAL),
+                new Coluna("observacoes", Tipo.TEXTO),
+                new Coluna("versao", Tipo.INTEIRO)),
+        EMBALAGEM("Embalagem",
+                new Coluna("id", Tipo.INTEIRO),
+                new Coluna("altura", Tipo.REAL),
+                new Coluna("largura", Tipo.REAL),
+                new Coluna("comprimento", Tipo.REAL),
+                new Coluna("peso", Tipo.REAL),
+                new Coluna("empilhavel", Tipo.LOGICO),
+                new Coluna("observacoes", Tipo.TEXTO),
+                new Coluna("tipo_id", Tipo.INTEIRO),
+                new Coluna("produto_id", Tipo.INTEIRO),
+                new Coluna("versao", Tipo.INTEIRO));
+
+        final String nome;
+        final Coluna[] colunas;
+
+        Tabela(String nome, Coluna... colunas) {
+            this.nome = nome;
+            this.colunas = colunas;
+        }
+
+        String sql() {
+            var nomes = Arrays.stream(colunas).map(Coluna::nome).toArray(String[]::new);
+            return "SELECT " + String.join(", ", nomes) + " FROM " + nome + " ORDER BY id";
+        }
+    }
+
+    /**
+     * O que identifica o estado do banco quando a foto foi tirada.
+     * @param versaoSchema A última migration aplicada.
+     * @param sequencia O último número do registro de alterações.
+     * @param criadaEm Quando a foto foi gravada, em milissegundos.
+     */
+    record Cabecalho(int versaoSchema, long sequencia, long criadaEm) {}
+
+    private final MappedByteBuffer dados;
+    private final Cabecalho cabecalho;
+    private final long[] posicoes;
+    private String[] textos;
+
+    private ArquivoFoto(MappedByteBuffer dados, Cabecalho cabecalho, long[] posicoes) {
+        this.dados = dados;
+        this.cabecalho = cabecalho;
+        this.posicoes = posicoes;
+    }
+
+    Cabecalho cabecalho() {
+        return cabecalho;
+    }
+
+    /**
+     * Lê só o cabeçalho, sem mapear o arquivo.
+     * @return {@link Cabecalho} | {@code null} se o arquivo não existir ou não for uma foto.
+     */
+    static Cabecalho lerCabecalho(File arquivo) throws IOException {
+        if (!arquivo.isFile() || arquivo.length() < TAMANHO_CABECALHO)
+            return null;
+
+        try (var canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            var buffer = ByteBuffer.allocate(TAMANHO_CABECALHO);
+            while (buffer.hasRemaining() && canal.read(buffer) >= 0) {
+                // Lê até completar o cabeçalho.
+            }
+            buffer.flip();
+            return buffer.remaining() == TAMANHO_CABECALHO ? lerCabecalho(buffer) : null;
+        }
+    }
+
+    /**
+     * Mapeia o arquivo na memória. Nada além do cabeçalho é lido até os blocos serem pedidos.
+     * @return {@link ArquivoFoto} | {@code null} se o arquivo não for uma foto.
+     */
+    static ArquivoFoto abrir(File arquivo) throws IOException {
+        try (var canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            if (canal.size() < TAMANHO_CABECALHO)
+                return null;
+
+            // O mapeamento continua válido depois que o canal é fechado.
+            var dados = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            var cabecalho = lerCabecalho(dados.duplicate());
+            if (cabecalho == null)
+                return null;
+
+            var posicoes = new long[Tabela.values().length + 1];
+            dados.position(TAMANHO_CABECALHO - 8 * posicoes.length);
+            for (int i = 0; i < posicoes.length; i++) {
+                posicoes[i] = dados.getLong();
+                if (posicoes[i] < TAMANHO_CABECALHO || posicoes[i] > canal.size())
+                    return null;
+            }
+
+            return new ArquivoFoto(dados, cabecalho, posicoes);
+        }
+    }
+
+    private static Cabecalho lerCabecalho(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGICO || buffer.getInt() != FORMATO)
+            return null;
+
+        return new Cabecalho(buffer.getInt(), buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Lê as colunas de uma tabela.
+     * @return {@link Bloco}
+     */
+    synchronized Bloco ler(Tabela tabela) {
+        if (textos == null)
+            textos = lerTextos();
+
+        var buffer = dados.duplicate();
+        buffer.position(Math.toIntExact(posicoes[tabela.ordinal() + 1]));
+        int linhas = buffer.getInt();
+
+        var valores = new HashMap<String, Object>();
+        for (var coluna : tabela.colunas) {
+            Object valor = switch (coluna.tipo()) {
+                case INTEIRO, TEXTO -> {
+                    var coluna32 = new int[linhas];
+                    buffer.asIntBuffer().get(coluna32);
+                    buffer.position(buffer.position() + linhas * 4);
+                    yield coluna32;
+                }
+                case REAL -> {
+                    var coluna64 = new double[linhas];
+                    buffer.asDoubleBuffer().get(coluna64);
+                    buffer.position(buffer.position() + linhas * 8);
+                    yield coluna64;
+                }
+                case LOGICO -> {
+                    var coluna8 = new byte[linhas];
+                    buffer.get(coluna8);
+                    yield coluna8;
+                }
+            };
+            valores.put(coluna.nome(), valor);
+        }
+
+        return new Bloco(linhas, valores, textos);
+    }
+
+    private String[] lerTextos() {
+        var buffer = dados.duplicate();
+        buffer.position(Math.toIntExact(posicoes[0]));
+
+        var lidos = new String[buffer.getInt()];
+        var bytes = new byte[256];
+        for (int i = 0; i < lidos.length; i++) {
+            int tamanho = buffer.getInt();
+            if (tamanho > bytes.length)
+                bytes = new byte[Math.max(tamanho, bytes.length * 2)];
+
+            buffer.get(bytes, 0, tamanho);
+            lidos[i] = new String(bytes, 0, tamanho, StandardCharsets.UTF_8);
+        }
+
+        return lidos;
+    }
+
+    /**
+     * As colunas de uma tabela lidas da foto. Os textos iguais são o mesmo
+     * objeto {@link String}.
+     */
+    static final class Bloco {
+        private final int linhas;
+        private final Map<String, Object> colunas;
+        private final String[] textos;
+
+        private Bloco(int linhas, Map<String, Object> colunas, String[] textos) {
+            this.linhas = linhas;
+            this.colunas = colunas;
+            this.textos = textos;
+        }
+
+        int linhas() {
+            return linhas;
+        }
+
+        int[] inteiros(String coluna) {
+            return (int[]) colunas.get(coluna);
+        }
+
+        double[] reais(String coluna) {
+            return (double[]) colunas.get(coluna);
+        }
+
+        boolean logico(String coluna, int linha) {
+            return ((byte[]) colunas.get(coluna))[linha] != 0;
+        }
+
+        String texto(String coluna, int linha) {
+            int indice = ((int[]) colunas.get(coluna))[linha];
+            return indice < 0 ? null : textos[indice];
+        }
+    }
+
+    /**
+     * Grava uma foto das tabelas pela conexão dada. Quem chama deve abrir uma
+     * transação antes, para que todas as tabelas sejam lidas no mesmo estado
+     * do cabeçalho.
+     * @param conn Conexão com o banco.
+     * @param destino Arquivo que recebe a foto. Se já existir, é sobrescrito.
+     * @param cabecalho O estado do banco na transação.
+     * @return A quantidade de registros gravados.
+     */
+    static long gravar(Connection conn, File destino, Cabecalho cabecalho) throws SQLException, IOException {
+        var textos = new Textos();
+        var blocos = new ArrayList<BlocoGravado>();
+        long registros = 0;
+        for (var tabela : Tabela.values()) {
+            var bloco = lerTabela(conn, tabela, textos);
+            registros += bloco.linhas;
+            blocos.add(bloco);
+        }
+
+        try (var canal = FileChannel.open(destino.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var saida = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(canal), 1 << 16));
+            var posicoes = new long[blocos.size() + 1];
+
+            // O cabeçalho é completado no fim, quando as posições dos blocos são conhecidas.
+            saida.write(new byte[TAMANHO_CABECALHO]);
+
+            saida.flush();
+            posicoes[0] = canal.position();
+            textos.gravar(saida);
+
+            for (int i = 0; i < blocos.size(); i++) {
+                saida.flush();
+                posicoes[i + 1] = canal.position();
+                blocos.get(i).gravar(saida);
+            }
+            saida.flush();
+
+            var inicio = ByteBuffer.allocate(TAMANHO_CABECALHO);
+            inicio.putInt(MAGICO).putInt(FORMATO)
+                    .putInt(cabecalho.versaoSchema()).putLong(cabecalho.sequencia()).putLong(cabecalho.criadaEm());
+            for (var posicao : posicoes) {
+                inicio.putLong(posicao);
+            }
+            inicio.flip();
+            canal.write(inicio, 0);
+            canal.force(true);
+        }
+
+        return registros;
+    }
+
+    private static BlocoGravado lerTabela(Connection conn, Tabela tabela, Textos textos) throws SQLException {
+        var colunas = tabela.colunas;
+        var valores = new Object[colunas.length];
+        int capacidade = 1024;
+        for (int c = 0; c < colunas.length; c++) {
+            valores[c] = novaColuna(colunas[c].tipo(), capacidade);
+        }
+
+        int linhas = 0;
+        try (var stmt = conn.prepareStatement(tabela.sql());
+             var rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                if (linhas == capacidade) {
+                    capacidade *= 2;
+                    for (int c = 0; c < colunas.length; c++) {
+                        valores[c] = aumentar(valores[c], capacidade);
+                    }
+                }
+
+                for (int c = 0; c < colunas.length; c++) {
+                    switch (colunas[c].tipo()) {
+                        case INTEIRO -> ((int[]) valores[c])[linhas] = rs.getInt(c + 1);
+                        case REAL -> ((double[]) valores[c])[linhas] = rs.getDouble(c + 1);
+                        case TEXTO -> ((int[]) valores[c])[linhas] = textos.indice(rs.getString(c + 1));
+                        case LOGICO -> ((byte[]) valores[c])[linhas] = (byte) (rs.getBoolean(c + 1) ? 1 : 0);
+                    }
+                }
+                linhas++;
+            }
+        }
+
+        return new BlocoGravado(linhas, colunas, valores);
+    }
+
+    private static Object novaColuna(Tipo tipo, int capacidade) {
+        return switch (tipo) {
+            case INTEIRO, TEXTO -> new int[capacidade];
+            case REAL -> new double[capacidade];
+            case LOGICO -> new byte[capacidade];
+        };
+    }
+
+    private static Object aumentar(Object coluna, int capacidade) {
+        if (coluna instanceof int[] inteiros)
+            return Arrays.copyOf(inteiros, capacidade);
+        if (coluna instanceof double[] reais)
+            return Arrays.copyOf(reais, capacidade);
+
+        return Arrays.copyOf((byte[]) coluna, capacidade);
+    }
+
+    private record BlocoGravado(int linhas, Coluna[] colunas, Object[] valores) {
+        void gravar(DataOutputStream saida) throws IOException {
+            saida.writeInt(linhas);
+            for (int c = 0; c < colunas.length; c++) {
+                var valor = valores[c];
+                switch (colunas[c].tipo()) {
+                    case INTEIRO, TEXTO -> {
+                        var inteiros = (int[]) valor;
+                        for (int i = 0; i < linhas; i++) {
+                            saida.writeInt(inteiros[i]);
+                        }
+                    }
+                    case REAL -> {
+                        var reais = (double[]) valor;
+                        for (int i = 0; i < linhas; i++) {
+                            saida.writeDouble(reais[i]);
+                        }
+                    }
+                    case LOGICO -> saida.write((byte[]) valor, 0, linhas);
+                }
+            }
+        }
+    }
+
+    /**
+     * A tabela de textos sendo montada: cada texto diferente ganha uma posição.
+     */
+    private static final class Textos {
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<String> lista = new ArrayList<>();
+
+        int indice(String texto) {
+            if (texto == null)
+                return -1;
+
+            return indices.computeIfAbsent(texto, t -> {
+                lista.add(t);
+                return lista.size() - 1;
+            });
+        }
+
+        void gravar(DataOutputStream saida) throws IOException {
+            saida.writeInt(lista.size());
+            for (var texto : lista) {
+                var bytes = texto.getBytes(StandardCharsets.UTF_8);
+                saida.writeInt(bytes.length);
+                saida.write(bytes);
+            }
+        }
+    }
+}
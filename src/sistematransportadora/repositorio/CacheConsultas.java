@@ -0,0 +1,141 @@
+package sistematransportadora.repositorio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sistematransportadora.Banco;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache dos resultados de consultas, com chave formada pelo SQL e pelos parâmetros.
+ * <p>
+ * Antes de servir um resultado guardado, o cache consulta {@code PRAGMA data_version}
+ * numa conexão sentinela que nunca escreve. O SQLite muda esse valor sempre que
+ * outra conexão faz commit no arquivo, seja ela do pool ou de outro processo, então
+ * qualquer escrita invalida tudo o que foi guardado antes dela.
+ * <p>
+ * Resultados que podem ser alterados, como os registros, são buscados com
+ * uma função de cópia: o cache guarda o que foi carregado e entrega uma cópia
+ * a cada chamada, então alterar o que se recebeu não muda o que está guardado
+ * nem o que os outros receberam. Sem a função, o próprio objeto guardado é
+ * entregue, o que só serve para resultados imutáveis.
+ */
+public class CacheConsultas {
+    private static final Logger log = LoggerFactory.getLogger(CacheConsultas.class);
+    private static final int TAMANHO_MAXIMO = 256;
+
+    private final Map<Chave, Entrada> entradas = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Chave, Entrada> maisAntiga) {
+            return size() > TAMANHO_MAXIMO;
+        }
+    };
+    private final Banco banco;
+    private final Object travaSentinela = new Object();
+    private Connection sentinela;
+    private PreparedStatement stmtVersao;
+
+    public CacheConsultas(Banco banco) {
+        this.banco = banco;
+    }
+
+    /**
+     * Retorna o resultado guardado para a consulta, se ele ainda for válido,
+     * ou executa {@code carregar} e guarda o que for retornado.
+     * @param sql O SQL da consulta, usado como parte da chave.
+     * @param parametros Os parâmetros da consulta, na ordem em que são passados.
+     * @param carregar Função que executa a consulta no banco. O resultado
+     *                 precisa ser imutável, já que é entregue a todos.
+     * @return O resultado da consulta.
+     */
+    public <R> R buscar(String sql, Object[] parametros, Supplier<R> carregar) {
+        return buscar(sql, parametros, carregar, UnaryOperator.identity());
+    }
+
+    /**
+     * Como {@link #buscar(String, Object[], Supplier)}, mas entrega uma cópia
+     * do resultado, guardado ou recém-carregado.
+     * @param copiar Faz a cópia entregue; não é chamada com {@code null}.
+     * @return A cópia do resultado da consulta, ou {@code null} se ela não achou nada.
+     */
+    public <R> R buscar(String sql, Object[] parametros, Supplier<R> carregar, UnaryOperator<R> copiar) {
+        long versao = versaoBanco();
+        if (versao < 0)
+            return carregar.get();
+
+        var chave = new Chave(sql, Arrays.asList(parametros));
+        synchronized (entradas) {
+            var entrada = entradas.get(chave);
+            if (entrada != null && entrada.versao() == versao) {
+                @SuppressWarnings("unchecked")
+                R valor = (R) entrada.valor();
+                return valor != null ? copiar.apply(valor) : null;
+            }
+        }
+
+        // A versão foi lida antes da consulta, então uma escrita feita durante
+        // o carregamento deixa a entrada já vencida na próxima leitura.
+        R valor = carregar.get();
+        synchronized (entradas) {
+            entradas.put(chave, new Entrada(versao, valor));
+        }
+
+        return valor != null ? copiar.apply(valor) : null;
+    }
+
+    /**
+     * Lê o {@code data_version} do banco pela conexão sentinela.
+     * @return A versão atual, ou {@code -1} se não for possível verificá-la.
+     */
+    private long versaoBanco() {
+        synchronized (travaSentinela) {
+            try {
+                if (sentinela == null || sentinela.isClosed()) {
+                    sentinela = banco.abrirConnectionDedicada();
+                    stmtVersao = sentinela.prepareStatement("PRAGMA data_version");
+                }
+
+                try (var rs = stmtVersao.executeQuery()) {
+                    return rs.getLong(1);
+                }
+            } catch (SQLException e) {
+                log.error("Erro ao verificar versão do banco, ignorando cache: " + e.getMessage());
+                fecharSentinela();
+
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Fecha a conexão sentinela. Ela é reaberta se o cache voltar a ser usado.
+     */
+    public void fechar() {
+        synchronized (travaSentinela) {
+            fecharSentinela();
+        }
+    }
+
+    private void fecharSentinela() {
+        try {
+            if (sentinela != null)
+                sentinela.close();
+        } catch (SQLException ignored) {
+            // A conexão já estava inutilizável.
+        }
+        sentinela = null;
+        stmtVersao = null;
+    }
+
+    private record Chave(String sql, List<Object> parametros) {}
+
+    private record Entrada(long versao, Object valor) {}
+}
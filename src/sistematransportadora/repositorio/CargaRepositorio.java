@@ -0,0 +1,404 @@
+package sistematransportadora.repositorio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sistematransportadora.Banco;
+import sistematransportadora.RegistroBancos;
+import sistematransportadora.modelo.Carga;
+import sistematransportadora.modelo.CargaItem;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Guarda as cargas planejadas.
+ * <p>
+ * As posições das embalagens de uma carga ficam todas num único BLOB da
+ * coluna {@code Carga.posicoes}: um byte com a versão do formato e, para cada
+ * embalagem, o id (int), x, y e z (double) e um byte de opções, cujo bit 0
+ * diz se ela vai girada; tudo em little-endian, 29 bytes por embalagem. As
+ * medidas não são guardadas porque vêm da própria embalagem. A tabela
+ * {@code CargaItem} liga a carga às embalagens, com a versão de cada uma no
+ * momento do plano.
+ */
+public class CargaRepositorio {
+    private static final Logger log = LoggerFactory.getLogger(CargaRepositorio.class);
+    private static final byte FORMATO_POSICOES = 1;
+    private static final int BYTES_POR_ITEM = Integer.BYTES + 3 * Double.BYTES + 1;
+    private static final byte GIRADA = 1;
+
+    private final Banco banco;
+    private final CacheConsultas cache;
+
+    public CargaRepositorio() {
+        this(RegistroBancos.padrao());
+    }
+
+    public CargaRepositorio(Banco banco) {
+        this.banco = banco;
+        this.cache = banco.pegarCache();
+    }
+
+    /**
+     * Grava uma nova carga com os itens dela, numa única transação. A id
+     * dada pelo banco é colocada no objeto.
+     * @param obj Nova carga.
+     */
+    public void criarNovo(Carga obj) {
+        var sql = """
+            INSERT INTO Carga (descricao, veiculo_id, versao_veiculo, peso_carregado, volume_carregado, posicoes)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+        try (var conn = banco.pegarConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int id;
+                try (var stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, obj.getDescricao());
+                    stmt.setInt(2, obj.getVeiculo().getId());
+                    stmt.setInt(3, obj.getVersaoVeiculo());
+                    stmt.setDouble(4, obj.getPesoCarregado());
+                    stmt.setDouble(5, obj.getVolumeCarregado());
+                    stmt.setBytes(6, empacotar(obj.getItens()));
+                    stmt.executeUpdate();
+                }
+                try (var stmt = conn.createStatement();
+                     var rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+                    id = rs.getInt(1);
+                }
+                gravarItens(conn, id, obj.getItens());
+
+                conn.commit();
+                obj.setId(id);
+                obj.setCriadaEm(Instant.now().getEpochSecond());
+                obj.setVersao(1);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            String err = "Erro ao adicionar carga: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * Busca por uma carga com id correspondente e a retorna, com os itens.
+     * Se não houver, retorna {@code null}.
+     * @param id Id da carga.
+     * @return {@link Carga} | {@code null}
+     */
+    public Carga buscarPorId(int id) {
+        var sql = "SELECT * FROM Carga WHERE id = ?";
+
+        return cache.buscar(sql, new Object[] {id}, () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                stmt.setInt(1, id);
+
+                var rs = stmt.executeQuery();
+                if (!rs.next())
+                    return null;
+
+                return resultParaCarga(rs, buscarVersoes(bdConn, "WHERE carga_id = ?", id));
+            } catch (SQLException e) {
+                String err = "Erro ao buscar carga: " + e.getMessage();
+                log.error(err);
+
+                throw new RuntimeException(err);
+            }
+        }, Carga::copiar);
+    }
+
+    /**
+     * Busca todas as cargas, com os itens.
+     * @return {@code Carga[]}
+     */
+    public Carga[] buscarTodos() {
+        return buscarOnde("", null);
+    }
+
+    /**
+     * Busca as cargas planejadas para um veículo, com os itens.
+     * @param veiculoId Id do veículo.
+     * @return {@code Carga[]}
+     */
+    public Carga[] buscarPorVeiculo(int veiculoId) {
+        return buscarOnde("WHERE veiculo_id = ?", veiculoId);
+    }
+
+    /**
+     * Busca as cargas em que uma embalagem foi colocada.
+     * @param embalagemId Id da embalagem.
+     * @return As ids das cargas.
+     */
+    public int[] buscarIdsPorEmbalagem(int embalagemId) {
+        var sql = "SELECT carga_id FROM CargaItem WHERE embalagem_id = ?";
+
+        try (var bdConn = banco.pegarConnection()) {
+            var stmt = bdConn.prepareStatement(sql);
+            stmt.setInt(1, embalagemId);
+
+            var rs = stmt.executeQuery();
+            var ids = new ArrayList<Integer>();
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+            return ids.stream().mapToInt(Integer::intValue).toArray();
+        } catch (SQLException e) {
+            String err = "Erro ao buscar cargas da embalagem: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * Conta as cargas gravadas.
+     * @return {@code int}
+     */
+    public int contarTodos() {
+        var sql = "SELECT COUNT(*) as quantidade FROM Carga";
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
+
+                return rs.getInt("quantidade");
+            } catch (SQLException e) {
+                String err = "Erro ao contar cargas: " + e.getMessage();
+                log.error(err);
+
+                throw new RuntimeException(err);
+            }
+        });
+    }
+
+    /**
+     * Verifica se a id de carga dada existe ou não na base de dados.
+     * @param id Id da carga.
+     * @return {@code boolean} que diz se existe ou não na tabela.
+     */
+    public boolean existeId(int id) {
+        var sql = "SELECT EXISTS(SELECT 1 FROM Carga WHERE id = ?) as existe";
+
+        try (var bdConn = banco.pegarConnection()) {
+            var stmt = bdConn.prepareStatement(sql);
+            stmt.setInt(1, id);
+
+            var rs = stmt.executeQuery();
+            return rs.getBoolean("existe");
+        } catch (SQLException e) {
+            String err = "Erro ao verificar se existe id em cargas: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * Atualiza uma carga e troca os itens dela, desde que a versão no banco
+     * ainda seja a mesma do objeto. Se for, a versão é incrementada no banco
+     * e no objeto. Se outra edição tiver sido salva antes, ou se a id não
+     * existir, nada é alterado.
+     * @param obj Carga com os atributos e itens atualizados.
+     * @return {@code true} se foi atualizada, {@code false} se houve conflito de
+     * versão ou a id não existe.
+     */
+    public boolean atualizarUm(Carga obj) {
+        var sql = """
+            UPDATE Carga SET descricao = ?, veiculo_id = ?, versao_veiculo = ?, peso_carregado = ?,
+            volume_carregado = ?, posicoes = ?, versao = versao + 1
+            WHERE id = ? AND versao = ?
+            """;
+
+        try (var conn = banco.pegarConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (var stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, obj.getDescricao());
+                    stmt.setInt(2, obj.getVeiculo().getId());
+                    stmt.setInt(3, obj.getVersaoVeiculo());
+                    stmt.setDouble(4, obj.getPesoCarregado());
+                    stmt.setDouble(5, obj.getVolumeCarregado());
+                    stmt.setBytes(6, empacotar(obj.getItens()));
+                    stmt.setInt(7, obj.getId());
+                    stmt.setInt(8, obj.getVersao());
+
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        return false;
+                    }
+                }
+                try (var stmt = conn.prepareStatement("DELETE FROM CargaItem WHERE carga_id = ?")) {
+                    stmt.setInt(1, obj.getId());
+                    stmt.executeUpdate();
+                }
+                gravarItens(conn, obj.getId(), obj.getItens());
+
+                conn.commit();
+                obj.setVersao(obj.getVersao() + 1);
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            String err = "Erro ao atualizar carga: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * Apaga uma carga com id correspondente, junto com os itens dela.
+     * @param id Id da carga a ser apagada.
+     */
+    public void apagarPorId(int id) {
+        var sql = "DELETE FROM Carga WHERE id = ?";
+
+        try (var bdConn = banco.pegarConnection()) {
+            var stmt = bdConn.prepareStatement(sql);
+            stmt.setInt(1, id);
+
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            String err = "Erro ao apagar carga: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    private Carga[] buscarOnde(String filtro, Integer parametro) {
+        var sql = "SELECT * FROM Carga " + filtro;
+        var sqlItens = filtro.isEmpty()
+                ? ""
+                : "WHERE carga_id IN (SELECT id FROM Carga " + filtro + ")";
+        var parametros = parametro == null ? new Object[0] : new Object[] {parametro};
+
+        return cache.buscar(sql, parametros, () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var versoes = buscarVersoes(bdConn, sqlItens, parametro);
+
+                var stmt = bdConn.prepareStatement(sql);
+                if (parametro != null)
+                    stmt.setInt(1, parametro);
+
+                var rs = stmt.executeQuery();
+                var lista = new ArrayList<Carga>();
+                while (rs.next()) {
+                    lista.add(resultParaCarga(rs, versoes));
+                }
+                return lista.toArray(Carga[]::new);
+            } catch (SQLException e) {
+                String err = "Erro ao buscar cargas: " + e.getMessage();
+                log.error(err);
+
+                throw new RuntimeException(err);
+            }
+        }, Copias::cargas);
+    }
+
+    /**
+     * @return Para cada carga, a versão de cada embalagem dela no momento do plano.
+     */
+    private static Map<Integer, Map<Integer, Integer>> buscarVersoes(Connection conn, String filtro, Integer parametro)
+            throws SQLException {
+        var versoes = new HashMap<Integer, Map<Integer, Integer>>();
+        try (var stmt = conn.prepareStatement("SELECT carga_id, embalagem_id, versao_embalagem FROM CargaItem " + filtro)) {
+            if (parametro != null)
+                stmt.setInt(1, parametro);
+
+            try (var rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    versoes.computeIfAbsent(rs.getInt(1), id -> new HashMap<>()).put(rs.getInt(2), rs.getInt(3));
+                }
+            }
+        }
+        return versoes;
+    }
+
+    private static void gravarItens(Connection conn, int cargaId, List<CargaItem> itens) throws SQLException {
+        try (var stmt = conn.prepareStatement("INSERT INTO CargaItem VALUES (?, ?, ?)")) {
+            for (var item : itens) {
+                stmt.setInt(1, cargaId);
+                stmt.setInt(2, item.embalagemId());
+                stmt.setInt(3, item.versaoEmbalagem());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private Carga resultParaCarga(ResultSet rs, Map<Integer, Map<Integer, Integer>> versoes) throws SQLException {
+        int id = rs.getInt("id");
+        var itens = desempacotar(rs.getBytes("posicoes"), versoes.getOrDefault(id, Map.of()));
+
+        var carga = new Carga(
+                new VeiculoRepositorio(banco).buscarPorId(rs.getInt("veiculo_id")),
+                itens,
+                rs.getDouble("peso_carregado"),
+                rs.getDouble("volume_carregado")
+        );
+        carga.setId(id);
+        carga.setDescricao(rs.getString("descricao"));
+        carga.setVersaoVeiculo(rs.getInt("versao_veiculo"));
+        carga.setCriadaEm(rs.getLong("criado_em"));
+        carga.setVersao(rs.getInt("versao"));
+
+        return carga;
+    }
+
+    private static byte[] empacotar(List<CargaItem> itens) {
+        var buffer = ByteBuffer.allocate(1 + itens.size() * BYTES_POR_ITEM).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(FORMATO_POSICOES);
+        for (var item : itens) {
+            buffer.putInt(item.embalagemId());
+            buffer.putDouble(item.x());
+            buffer.putDouble(item.y());
+            buffer.putDouble(item.z());
+            buffer.put(item.girada() ? GIRADA : 0);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @param versoes A versão de cada embalagem no plano. Uma embalagem que não
+     *                está ali foi apagada depois do plano e fica com versão {@code -1}.
+     */
+    private static List<CargaItem> desempacotar(byte[] posicoes, Map<Integer, Integer> versoes) throws SQLException {
+        if (posicoes == null || posicoes.length == 0 || posicoes[0] != FORMATO_POSICOES
+                || (posicoes.length - 1) % BYTES_POR_ITEM != 0)
+            throw new SQLException("As posições da carga estão num formato desconhecido.");
+
+        var buffer = ByteBuffer.wrap(posicoes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.get();
+        var itens = new ArrayList<CargaItem>((posicoes.length - 1) / BYTES_POR_ITEM);
+        while (buffer.hasRemaining()) {
+            int embalagemId = buffer.getInt();
+            double x = buffer.getDouble();
+            double y = buffer.getDouble();
+            double z = buffer.getDouble();
+            boolean girada = (buffer.get() & GIRADA) != 0;
+            itens.add(new CargaItem(embalagemId, versoes.getOrDefault(embalagemId, -1), x, y, z, girada));
+        }
+        return itens;
+    }
+}
@@ -0,0 +1,66 @@
+package sistematransportadora.repositorio;
+
+import sistematransportadora.modelo.Carga;
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Produto;
+import sistematransportadora.modelo.Veiculo;
+
+import java.util.IdentityHashMap;
+
+/**
+ * Cópias dos arrays de registros guardados no {@link CacheConsultas} e na
+ * {@link FotoCatalogo}, para quem os recebe poder alterá-los sem mexer no
+ * que está guardado.
+ */
+final class Copias {
+    private Copias() {}
+
+    static Produto[] produtos(Produto[] produtos) {
+        if (produtos == null)
+            return null;
+
+        var copias = new Produto[produtos.length];
+        for (int i = 0; i < produtos.length; i++) {
+            copias[i] = produtos[i].copiar();
+        }
+        return copias;
+    }
+
+    static Veiculo[] veiculos(Veiculo[] veiculos) {
+        if (veiculos == null)
+            return null;
+
+        var copias = new Veiculo[veiculos.length];
+        for (int i = 0; i < veiculos.length; i++) {
+            copias[i] = veiculos[i].copiar();
+        }
+        return copias;
+    }
+
+    /**
+     * Embalagens que dividiam um produto continuam dividindo a cópia dele.
+     */
+    static Embalagem[] embalagens(Embalagem[] embalagens) {
+        if (embalagens == null)
+            return null;
+
+        var produtos = new IdentityHashMap<Produto, Produto>();
+        var copias = new Embalagem[embalagens.length];
+        for (int i = 0; i < embalagens.length; i++) {
+            var produto = embalagens[i].getProdutoAssociado();
+            copias[i] = embalagens[i].copiar(produto != null ? produtos.computeIfAbsent(produto, Produto::copiar) : null);
+        }
+        return copias;
+    }
+
+    static Carga[] cargas(Carga[] cargas) {
+        if (cargas == null)
+            return null;
+
+        var copias = new Carga[cargas.length];
+        for (int i = 0; i < cargas.length; i++) {
+            copias[i] = cargas[i].copiar();
+        }
+        return copias;
+    }
+}
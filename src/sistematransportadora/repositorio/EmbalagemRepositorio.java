@@ -2,19 +2,58 @@ package sistematransportadora.repositorio;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import sistematransportadora.ConexaoBanco;
+import sistematransportadora.Banco;
+import sistematransportadora.RegistroBancos;
 import sistematransportadora.modelo.Dimensoes;
 import sistematransportadora.modelo.Embalagem;
 import sistematransportadora.modelo.EmbalagemTipo;
+import sistematransportadora.modelo.Produto;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 
 public class EmbalagemRepositorio implements Repositorio<Embalagem> {
     private static final Logger log = LoggerFactory.getLogger(EmbalagemRepositorio.class);
+    private final Banco banco;
+    private final CacheConsultas cache;
+
+    public EmbalagemRepositorio() {
+        this(RegistroBancos.padrao());
+    }
+
+    public EmbalagemRepositorio(Banco banco) {
+        this.banco = banco;
+        this.cache = banco.pegarCache();
+    }
+
+    /**
+     * Cria o repositório de embalagens do banco padrão ou, se a aplicação estiver dividida
+     * por filial, um que consulta todas as filiais.
+     * @return {@link EmbalagemRepositorio}
+     */
+    public static EmbalagemRepositorio padrao() {
+        var filiais = RegistroBancos.filiais();
+        return filiais != null ? new EmbalagemRepositorioFederado(filiais) : new EmbalagemRepositorio();
+    }
+
+    /**
+     * Cria o repositório de embalagens que lê das réplicas de leitura, para relatórios
+     * que não precisam dos dados do último instante.
+     * @return {@link EmbalagemRepositorio}
+     */
+    public static EmbalagemRepositorio paraRelatorios() {
+        var filiais = RegistroBancos.filiais();
+        if (filiais != null)
+            return new EmbalagemRepositorioFederado(filiais.replicas());
+
+        return new EmbalagemRepositorio(RegistroBancos.padrao().pegarReplica().pegarBanco());
+    }
 
     /**
      * Cria um novo embalagem na base de dados.
@@ -22,9 +61,9 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
      */
     @Override
     public void criarNovo(Embalagem obj) {
-        String sql = "INSERT INTO Embalagem VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO Embalagem VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 1, strftime('%s', 'now'))";
 
-        try (var conn = ConexaoBanco.pegarConnection()) {
+        try (var conn = banco.pegarConnection()) {
             var stmt = conn.prepareStatement(sql);
             preparaStmt(stmt, obj, false);
 
@@ -37,6 +76,95 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
         }
     }
 
+    /**
+     * Cria várias embalagens de uma vez, na transação já aberta na conexão dada.
+     * As embalagens com id já cadastrada, com id arquivada ou cujo produto não
+     * existe são ignoradas. As ids arquivadas só são conferidas se o arquivo
+     * estiver anexado à conexão com {@link #anexarArquivo(Connection)}.
+     * @param conn Conexão com a transação do lote.
+     * @param objs Novas embalagens para serem adicionadas.
+     * @return Para cada embalagem, na mesma ordem, se ela foi adicionada.
+     */
+    public boolean[] criarVarios(Connection conn, List<Embalagem> objs) {
+        String sql = "INSERT OR IGNORE INTO Embalagem VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 1, strftime('%s', 'now'))";
+        var adicionados = new boolean[objs.size()];
+
+        try (var stmt = conn.prepareStatement(sql);
+             var stmtProduto = conn.prepareStatement("SELECT EXISTS(SELECT 1 FROM Produto WHERE id = ?)");
+             var stmtArquivada = arquivoAnexado(conn)
+                     ? conn.prepareStatement("SELECT EXISTS(SELECT 1 FROM arquivo.Embalagem WHERE id = ?)")
+                     : null) {
+            var noLote = new int[objs.size()];
+            int quantidade = 0;
+
+            for (int i = 0; i < objs.size(); i++) {
+                var obj = objs.get(i);
+                // A foreign key do produto não é ignorada pelo OR IGNORE e derrubaria o lote inteiro.
+                if (!existe(stmtProduto, obj.getProdutoAssociado().getId()))
+                    continue;
+                if (stmtArquivada != null && existe(stmtArquivada, obj.getId()))
+                    continue;
+
+                stmt.clearParameters();
+                preparaStmt(stmt, obj, false);
+                stmt.addBatch();
+                noLote[quantidade++] = i;
+            }
+
+            if (quantidade > 0) {
+                var contagens = stmt.executeBatch();
+                for (int i = 0; i < quantidade; i++) {
+                    adicionados[noLote[i]] = contagens[i] > 0;
+                }
+            }
+
+            return adicionados;
+        } catch (SQLException e) {
+            String err = "Erro ao adicionar embalagens: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * Anexa o arquivo de embalagens à conexão, se ele existir, para que
+     * {@link #criarVarios(Connection, List)} também recuse as ids arquivadas.
+     * Precisa ser chamado fora de uma transação.
+     * @param conn Conexão que vai receber os lotes.
+     * @return Se o arquivo foi anexado.
+     */
+    public boolean anexarArquivo(Connection conn) {
+        if (!ArquivoEmbalagens.existe(banco))
+            return false;
+
+        try {
+            ArquivoEmbalagens.anexar(banco, conn);
+            return true;
+        } catch (SQLException e) {
+            String err = "Erro ao anexar o arquivo de embalagens: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * Desanexa o arquivo de embalagens anexado por {@link #anexarArquivo(Connection)}.
+     * @param conn Conexão que recebeu os lotes.
+     */
+    public void desanexarArquivo(Connection conn) {
+        try {
+            if (arquivoAnexado(conn))
+                ArquivoEmbalagens.desanexar(conn);
+        } catch (SQLException e) {
+            String err = "Erro ao desanexar o arquivo de embalagens: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
     /**
      * Busca por uma embalagem na base de dados com id correspondente e a retorna.
      * Se não houver, retorna {@code null}.
@@ -51,17 +179,54 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
             WHERE e.id = ?
             """;
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            stmt.setInt(1, id);
+        return cache.buscar(sql, new Object[] {id}, () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                stmt.setInt(1, id);
+
+                var rs = stmt.executeQuery();
+                if (!rs.next())
+                    return null;
+
+                return resultParaEmbalagem(rs);
+            } catch (SQLException e) {
+                String err = "Erro ao conectar com o banco: " + e.getMessage();
+                log.error(err);
+
+                throw new RuntimeException(err);
+            }
+        }, Embalagem::copiar);
+    }
+
+    /**
+     * Busca as embalagens de uma carga gravada, com os produtos delas, em duas
+     * consultas, sejam quantas forem as embalagens.
+     * @param cargaId Id da carga.
+     * @return As embalagens da carga que ainda existem, pela id.
+     */
+    public HashMap<Integer, Embalagem> buscarDaCarga(int cargaId) {
+        String sql = """
+            SELECT e.*, te.nome as tipo, te.padrao as tipo_padrao FROM CargaItem ci
+            JOIN Embalagem e ON e.id = ci.embalagem_id
+            JOIN Tipo_Embalagem te ON te.id = e.tipo_id
+            WHERE ci.carga_id = ?
+            """;
+
+        var produtos = new ProdutoRepositorio(banco).buscarDaCarga(cargaId);
+        try (var conn = banco.pegarConnection()) {
+            var stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, cargaId);
 
             var rs = stmt.executeQuery();
-            if (!rs.next())
-                return null;
+            var embalagens = new HashMap<Integer, Embalagem>();
+            while (rs.next()) {
+                var embalagem = resultParaEmbalagem(rs, produtos.get(rs.getInt("produto_id")));
+                embalagens.put(embalagem.getId(), embalagem);
+            }
 
-            return resultParaEmbalagem(rs);
+            return embalagens;
         } catch (SQLException e) {
-            String err = "Erro ao conectar com o banco: " + e.getMessage();
+            String err = "Erro ao buscar as embalagens da carga: " + e.getMessage();
             log.error(err);
 
             throw new RuntimeException(err);
@@ -69,7 +234,8 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
     }
 
     /**
-     * Busca por todas as embalagens na base de dados e as retorna.
+     * Busca por todas as embalagens na base de dados e as retorna. As embalagens
+     * arquivadas ficam de fora; ver {@link #buscarTodos(boolean)}.
      * @return Um array de embalagens - {@code Embalagem[]}
      */
     @Override
@@ -79,18 +245,127 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
             JOIN Tipo_Embalagem te ON te.id = e.tipo_id
             """;
 
-        try (var conn = ConexaoBanco.pegarConnection()) {
-            var stmt = conn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
-            var lista = new ArrayList<Embalagem>();
+        var foto = banco.pegarFoto().embalagens();
+        if (foto != null)
+            return foto;
 
-            while (rs.next()) {
-                lista.add(resultParaEmbalagem(rs));
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var conn = banco.pegarConnection()) {
+                var stmt = conn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
+                var lista = new ArrayList<Embalagem>();
+
+                while (rs.next()) {
+                    lista.add(resultParaEmbalagem(rs));
+                }
+
+                return lista.toArray(Embalagem[]::new);
+            } catch(SQLException e) {
+                String err = "Erro ao buscar embalagens: " + e.getMessage();
+                log.error(err);
+
+                throw new RuntimeException(err);
+            }
+        }, Copias::embalagens);
+    }
+
+    /**
+     * Busca por todas as embalagens, incluindo ou não as que já foram arquivadas.
+     * @param incluirArquivadas Se as embalagens do banco de arquivo também devem vir.
+     * @return Um array de embalagens - {@code Embalagem[]}
+     */
+    public Embalagem[] buscarTodos(boolean incluirArquivadas) {
+        var recentes = buscarTodos();
+        if (!incluirArquivadas)
+            return recentes;
+
+        var arquivadas = buscarArquivadas();
+        var todas = Arrays.copyOf(recentes, recentes.length + arquivadas.length);
+        System.arraycopy(arquivadas, 0, todas, recentes.length, arquivadas.length);
+
+        return todas;
+    }
+
+    /**
+     * Busca as embalagens que foram movidas para o banco de arquivo.
+     * @return Um array de embalagens - {@code Embalagem[]}
+     */
+    public Embalagem[] buscarArquivadas() {
+        if (!ArquivoEmbalagens.existe(banco))
+            return new Embalagem[0];
+
+        var sql = """
+            SELECT e.*, te.nome as tipo, te.padrao as tipo_padrao FROM arquivo.Embalagem e
+            JOIN main.Tipo_Embalagem te ON te.id = e.tipo_id
+            """;
+
+        try (var conn = banco.pegarConnection()) {
+            ArquivoEmbalagens.anexar(banco, conn);
+            try (var stmt = conn.prepareStatement(sql);
+                 var rs = stmt.executeQuery()) {
+                var lista = new ArrayList<Embalagem>();
+
+                while (rs.next()) {
+                    lista.add(resultParaEmbalagem(rs));
+                }
+
+                return lista.toArray(Embalagem[]::new);
+            } finally {
+                ArquivoEmbalagens.desanexar(conn);
             }
+        } catch (SQLException e) {
+            String err = "Erro ao buscar embalagens arquivadas: " + e.getMessage();
+            log.error(err);
 
-            return lista.toArray(Embalagem[]::new);
-        } catch(SQLException e) {
-            String err = "Erro ao buscar embalagens: " + e.getMessage();
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * Conta as embalagens que foram movidas para o banco de arquivo.
+     * @return {@code int}
+     */
+    public int contarArquivadas() {
+        if (!ArquivoEmbalagens.existe(banco))
+            return 0;
+
+        try (var conn = banco.pegarConnection()) {
+            ArquivoEmbalagens.anexar(banco, conn);
+            try (var stmt = conn.prepareStatement("SELECT COUNT(*) FROM arquivo.Embalagem");
+                 var rs = stmt.executeQuery()) {
+                return rs.getInt(1);
+            } finally {
+                ArquivoEmbalagens.desanexar(conn);
+            }
+        } catch (SQLException e) {
+            String err = "Erro ao contar embalagens arquivadas: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * Verifica se a id de embalagem dada está no banco de arquivo.
+     * @param id Id da embalagem.
+     * @return {@code boolean} que diz se existe ou não no arquivo.
+     */
+    public boolean existeIdArquivado(int id) {
+        if (!ArquivoEmbalagens.existe(banco))
+            return false;
+
+        try (var conn = banco.pegarConnection()) {
+            ArquivoEmbalagens.anexar(banco, conn);
+            try (var stmt = conn.prepareStatement("SELECT EXISTS(SELECT 1 FROM arquivo.Embalagem WHERE id = ?)")) {
+                stmt.setInt(1, id);
+                try (var rs = stmt.executeQuery()) {
+                    return rs.getBoolean(1);
+                }
+            } finally {
+                ArquivoEmbalagens.desanexar(conn);
+            }
+        } catch (SQLException e) {
+            String err = "Erro ao verificar se existe id no arquivo de embalagens: " + e.getMessage();
             log.error(err);
 
             throw new RuntimeException(err);
@@ -112,28 +387,30 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
             GROUP BY tipo_id;
             """;
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
-            HashMap<String, Integer> dicionario = new HashMap<>();
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
+                HashMap<String, Integer> dicionario = new HashMap<>();
 
-            while (rs.next()) {
-                dicionario.put(
-                        rs.getString("tipo"),
-                        rs.getInt("quantidade")
-                );
-            }
+                while (rs.next()) {
+                    dicionario.put(
+                            rs.getString("tipo"),
+                            rs.getInt("quantidade")
+                    );
+                }
 
-            if (dicionario.isEmpty())
-                return null;
+                if (dicionario.isEmpty())
+                    return null;
 
-            return dicionario;
-        } catch (SQLException e) {
-            String err = "Erro ao contar por tipo de embalagens: " + e.getMessage();
-            log.error(err);
+                return dicionario;
+            } catch (SQLException e) {
+                String err = "Erro ao contar por tipo de embalagens: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        }, HashMap::new);
     }
 
     /**
@@ -143,17 +420,19 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
     @Override
     public int contarTodos() {
         var sql = "SELECT COUNT(*) as quantidade FROM Embalagem";
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
 
-            return rs.getInt("quantidade");
-        } catch (SQLException e) {
-            String err = "Erro ao contar todas embalagens: " + e.getMessage();
-            log.error(err);
+                return rs.getInt("quantidade");
+            } catch (SQLException e) {
+                String err = "Erro ao contar todas embalagens: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        });
     }
 
     /**
@@ -165,7 +444,7 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
     public boolean existeId(int id) {
         var sql = "SELECT EXISTS(SELECT 1 FROM Embalagem WHERE id = ?) as existe";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, id);
 
@@ -180,24 +459,32 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
     }
 
     /**
-     * Atualiza uma embalagem com base na id. Por isso, uma embalagem com id inexistente no banco
-     * de dados não surtirá efeito algum caso enviado como parâmetro.
+     * Atualiza uma embalagem com base na id, desde que a versão no banco ainda seja a mesma
+     * do objeto. Se for, a versão é incrementada no banco e no objeto. Se outra
+     * edição tiver sido salva antes, ou se a id não existir, nada é alterado.
      * @param obj Embalagem com atributos atualizados.
+     * @return {@code true} se foi atualizado, {@code false} se houve conflito de versão
+     * ou a id não existe.
      */
     @Override
-    public void atualizarUm(Embalagem obj) {
+    public boolean atualizarUm(Embalagem obj) {
         var sql = """
             UPDATE Embalagem SET altura = ?, largura = ?,
             comprimento = ?, peso = ?, empilhavel = ?,
-            observacoes = ?, tipo_id = ?, produto_id = ?
-            WHERE id = ?
+            observacoes = ?, tipo_id = ?, produto_id = ?,
+            versao = versao + 1, atualizado_em = strftime('%s', 'now')
+            WHERE id = ? AND versao = ?
             """;
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             preparaStmt(stmt, obj, true);
 
-            stmt.executeUpdate();
+            if (stmt.executeUpdate() == 0)
+                return false;
+
+            obj.setVersao(obj.getVersao() + 1);
+            return true;
         } catch (SQLException e) {
             String err = "Erro ao atualizar embalagem: " + e.getMessage();
             log.error(err);
@@ -214,7 +501,7 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
     public void apagarPorId(int id) {
         var sql = "DELETE FROM Embalagem WHERE id = ?";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, id);
 
@@ -227,6 +514,29 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
         }
     }
 
+    /**
+     * Apaga várias embalagens numa única transação, junto com os itens de
+     * carga que as colocam em cargas planejadas. Essas cargas deixam de abrir.
+     * @param ids Ids das embalagens a serem apagadas.
+     * @return A quantidade de itens de carga apagados em cascata.
+     */
+    @Override
+    public int apagarVarios(int[] ids) {
+        var sql = """
+            SELECT COUNT(*) FROM CargaItem
+            WHERE embalagem_id IN (SELECT id FROM temp.ids_apagar)
+            """;
+
+        try {
+            return ApagamentoEmLote.apagar(banco, "Embalagem", sql, ids);
+        } catch (SQLException e) {
+            String err = "Erro ao apagar embalagens: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
     /**
      * Cria um novo tipo de embalagem na base de dados.
      * @param novoTipo O novo tipo que se deseja adicionar.
@@ -234,7 +544,7 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
     public void criarNovoTipo(EmbalagemTipo novoTipo) {
         var sql = "INSERT INTO Tipo_Embalagem VALUES (?, ?, ?)";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, novoTipo.id());
             stmt.setString(2, novoTipo.nome());
@@ -258,26 +568,28 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
     public EmbalagemTipo buscarTipoPorId(int id) {
         var sql = "SELECT * FROM Tipo_Embalagem WHERE id = ?";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            stmt.setInt(1, id);
+        return cache.buscar(sql, new Object[] {id}, () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                stmt.setInt(1, id);
 
-            var rs = stmt.executeQuery();
+                var rs = stmt.executeQuery();
 
-            if (!rs.next())
-                return null;
+                if (!rs.next())
+                    return null;
 
-            return new EmbalagemTipo(
-                    rs.getInt("id"),
-                    rs.getString("nome"),
-                    rs.getBoolean("padrao")
-            );
-        } catch (SQLException e) {
-            String err = "Erro ao buscar tipo de embalagem por id: " + e.getMessage();
-            log.error(err);
+                return new EmbalagemTipo(
+                        rs.getInt("id"),
+                        rs.getString("nome"),
+                        rs.getBoolean("padrao")
+                );
+            } catch (SQLException e) {
+                String err = "Erro ao buscar tipo de embalagem por id: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        });
     }
 
     /**
@@ -287,25 +599,27 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
     public EmbalagemTipo[] buscarTipos() {
         var sql = "SELECT * FROM Tipo_Embalagem";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
-            var lista = new ArrayList<EmbalagemTipo>();
-
-            while (rs.next()) {
-                lista.add(new EmbalagemTipo(
-                        rs.getInt("id"),
-                        rs.getString("nome"),
-                        rs.getBoolean("padrao")
-                ));
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
+                var lista = new ArrayList<EmbalagemTipo>();
+
+                while (rs.next()) {
+                    lista.add(new EmbalagemTipo(
+                            rs.getInt("id"),
+                            rs.getString("nome"),
+                            rs.getBoolean("padrao")
+                    ));
+                }
+                return lista.toArray(EmbalagemTipo[]::new);
+            } catch (SQLException e) {
+                String err = "Erro buscar tipos de embalagem: " + e.getMessage();
+                log.error(err);
+
+                throw new RuntimeException(err);
             }
-            return lista.toArray(EmbalagemTipo[]::new);
-        } catch (SQLException e) {
-            String err = "Erro buscar tipos de embalagem: " + e.getMessage();
-            log.error(err);
-
-            throw new RuntimeException(err);
-        }
+        }).clone();
     }
     
     /**
@@ -314,17 +628,19 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
      */
     public int contarTipos() {
         var sql = "SELECT COUNT(*) as quantidade FROM Tipo_Embalagem";
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
 
-            return rs.getInt("quantidade");
-        } catch (SQLException e) {
-            String err = "Erro ao contar todos os tipos de embalagem: " + e.getMessage();
-            log.error(err);
+                return rs.getInt("quantidade");
+            } catch (SQLException e) {
+                String err = "Erro ao contar todos os tipos de embalagem: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        });
     }
     
     /**
@@ -335,7 +651,7 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
     public boolean existeTipoId(int id) {
         var sql = "SELECT EXISTS(SELECT 1 FROM Tipo_Embalagem WHERE id = ?) as existe";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, id);
 
@@ -356,7 +672,7 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
     public void atualizarUmTipo(EmbalagemTipo novoTipo) {
         var sql = "UPDATE Tipo_Embalagem SET nome = ?, padrao = ? WHERE id = ?";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setString(1, novoTipo.nome());
             stmt.setBoolean(2, novoTipo.isPadrao());
@@ -378,7 +694,7 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
     public void apagarTipo(int id) {
         var sql = "DELETE FROM Tipo_Embalagem WHERE id = ?";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, id);
 
@@ -392,6 +708,10 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
     }
 
     private Embalagem resultParaEmbalagem(ResultSet rs) throws SQLException {
+        return resultParaEmbalagem(rs, new ProdutoRepositorio(banco).buscarPorId(rs.getInt("produto_id")));
+    }
+
+    private Embalagem resultParaEmbalagem(ResultSet rs, Produto produto) throws SQLException {
         var tipo = new EmbalagemTipo(
                 rs.getInt("tipo_id"),
                 rs.getString("tipo"),
@@ -407,16 +727,35 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
         var embalagem = new Embalagem(
                 rs.getInt("id"),
                 tipo,
-                new ProdutoRepositorio().buscarPorId(rs.getInt("produto_id")),
+                produto,
                 dimensoes,
                 rs.getDouble("peso")
         );
         embalagem.setEmpilhavel(rs.getBoolean("empilhavel"));
         embalagem.setObservacoes(rs.getString("observacoes"));
+        embalagem.setVersao(rs.getInt("versao"));
 
         return embalagem;
     }
 
+    private static boolean existe(PreparedStatement stmt, int id) throws SQLException {
+        stmt.setInt(1, id);
+        try (var rs = stmt.executeQuery()) {
+            return rs.getBoolean(1);
+        }
+    }
+
+    private static boolean arquivoAnexado(Connection conn) throws SQLException {
+        try (var stmt = conn.createStatement();
+             var rs = stmt.executeQuery("PRAGMA database_list")) {
+            while (rs.next()) {
+                if ("arquivo".equals(rs.getString("name")))
+                    return true;
+            }
+            return false;
+        }
+    }
+
     private void preparaStmt(PreparedStatement stmt, Embalagem obj, boolean updateMode) throws SQLException {
         var dimensoes = obj.getDimensoes();
         int i = 0;
@@ -430,5 +769,8 @@ public class EmbalagemRepositorio implements Repositorio<Embalagem> {
         stmt.setString(++i, obj.getObservacoes());
         stmt.setInt(++i, obj.getTipo().id());
         stmt.setInt(++i, obj.getProdutoAssociado().getId());
+
+        if (updateMode)
+            stmt.setInt(10, obj.getVersao());
     }
 }
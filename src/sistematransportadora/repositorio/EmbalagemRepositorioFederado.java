@@ -0,0 +1,218 @@
+package sistematransportadora.repositorio;
+
+import sistematransportadora.Filiais;
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.EmbalagemTipo;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Repositório de embalagens para a aplicação dividida por filial.
+ * <p>
+ * Cada embalagem fica no banco da filial do seu produto, por causa da
+ * foreign key entre os dois. As buscas e contagens consultam todas as
+ * filiais em paralelo e juntam os resultados. Os tipos de embalagem são
+ * gravados em todas as filiais e lidos de todas elas, com os da principal na
+ * frente, para um tipo que só exista numa filial ainda ser encontrado.
+ */
+public class EmbalagemRepositorioFederado extends EmbalagemRepositorio {
+    private final Federacao<EmbalagemRepositorio> federacao;
+    private final ProdutoRepositorioFederado produtos;
+    private final String principal;
+
+    public EmbalagemRepositorioFederado(Filiais filiais) {
+        super(filiais.pegar(filiais.principal()));
+        this.principal = filiais.principal();
+        this.federacao = new Federacao<>(filiais, EmbalagemRepositorio::new);
+        this.produtos = new ProdutoRepositorioFederado(filiais);
+    }
+
+    /**
+     * Busca a filial onde a embalagem com a id dada está guardada.
+     * @param id Id da embalagem.
+     * @return O nome da filial, ou {@code null} se a embalagem não existir.
+     */
+    public String filialDe(int id) {
+        return federacao.filialOnde(repositorio -> repositorio.existeId(id));
+    }
+
+    /**
+     * Grava a embalagem na filial do produto associado. Se o produto não
+     * existir, a embalagem vai para a principal e a foreign key a recusa.
+     */
+    @Override
+    public void criarNovo(Embalagem obj) {
+        var produto = obj.getProdutoAssociado();
+        var filial = produto.getFilial() != null ? produto.getFilial() : produtos.filialDe(produto.getId());
+
+        federacao.da(filial).criarNovo(obj);
+    }
+
+    @Override
+    public Embalagem buscarPorId(int id) {
+        return federacao.primeiro((filial, repositorio) -> comFilial(repositorio.buscarPorId(id), filial));
+    }
+
+    /**
+     * As cargas são gravadas na principal, e a foreign key de {@code CargaItem}
+     * só aceita embalagens do mesmo banco, então a busca fica na principal.
+     */
+    @Override
+    public HashMap<Integer, Embalagem> buscarDaCarga(int cargaId) {
+        var embalagens = super.buscarDaCarga(cargaId);
+        for (var embalagem : embalagens.values()) {
+            comFilial(embalagem, principal);
+        }
+        return embalagens;
+    }
+
+    @Override
+    public Embalagem[] buscarTodos() {
+        var todas = new ArrayList<Embalagem>();
+        federacao.emTodas((filial, repositorio) -> {
+            var embalagens = repositorio.buscarTodos();
+            for (var embalagem : embalagens) {
+                comFilial(embalagem, filial);
+            }
+            return embalagens;
+        }).values().forEach(embalagens -> todas.addAll(Arrays.asList(embalagens)));
+
+        return todas.toArray(Embalagem[]::new);
+    }
+
+    @Override
+    public Embalagem[] buscarArquivadas() {
+        var todas = new ArrayList<Embalagem>();
+        federacao.emTodas((filial, repositorio) -> {
+            var embalagens = repositorio.buscarArquivadas();
+            for (var embalagem : embalagens) {
+                comFilial(embalagem, filial);
+            }
+            return embalagens;
+        }).values().forEach(embalagens -> todas.addAll(Arrays.asList(embalagens)));
+
+        return todas.toArray(Embalagem[]::new);
+    }
+
+    @Override
+    public int contarArquivadas() {
+        return federacao.somar((filial, repositorio) -> repositorio.contarArquivadas());
+    }
+
+    @Override
+    public boolean existeIdArquivado(int id) {
+        return federacao.filialOnde(repositorio -> repositorio.existeIdArquivado(id)) != null;
+    }
+
+    @Override
+    public HashMap<String, Integer> contarPorTipo() {
+        return federacao.somarPorTipo(EmbalagemRepositorio::contarPorTipo);
+    }
+
+    @Override
+    public int contarTodos() {
+        return federacao.somar((filial, repositorio) -> repositorio.contarTodos());
+    }
+
+    @Override
+    public boolean existeId(int id) {
+        return filialDe(id) != null;
+    }
+
+    @Override
+    public boolean atualizarUm(Embalagem obj) {
+        var filial = filialDe(obj.getId());
+        if (filial == null)
+            return false;
+
+        return federacao.da(filial).atualizarUm(obj);
+    }
+
+    @Override
+    public void apagarPorId(int id) {
+        federacao.emTodas((filial, repositorio) -> {
+            repositorio.apagarPorId(id);
+            return null;
+        });
+    }
+
+    @Override
+    public int apagarVarios(int[] ids) {
+        return federacao.somar((filial, repositorio) -> repositorio.apagarVarios(ids));
+    }
+
+    /**
+     * Grava cada embalagem na filial do produto associado, como
+     * {@link #criarNovo(Embalagem)}. As filiais dos produtos são procuradas
+     * antes da gravação, uma vez por produto.
+     */
+    @Override
+    public boolean[] criarVarios(Connection conn, List<Embalagem> objs) {
+        var filiais = new HashMap<Integer, String>();
+        for (var obj : objs) {
+            var produto = obj.getProdutoAssociado();
+            if (produto.getFilial() == null && !filiais.containsKey(produto.getId()))
+                filiais.put(produto.getId(), produtos.filialDe(produto.getId()));
+        }
+
+        return federacao.criarVarios(conn, objs, obj -> {
+            var produto = obj.getProdutoAssociado();
+            return produto.getFilial() != null ? produto.getFilial() : filiais.get(produto.getId());
+        }, EmbalagemRepositorio::criarVarios);
+    }
+
+    @Override
+    public EmbalagemTipo buscarTipoPorId(int id) {
+        return federacao.primeiro((filial, repositorio) -> repositorio.buscarTipoPorId(id));
+    }
+
+    @Override
+    public EmbalagemTipo[] buscarTipos() {
+        return federacao.unir(EmbalagemRepositorio::buscarTipos, EmbalagemTipo::id).toArray(EmbalagemTipo[]::new);
+    }
+
+    @Override
+    public int contarTipos() {
+        return buscarTipos().length;
+    }
+
+    @Override
+    public boolean existeTipoId(int id) {
+        return federacao.filialOnde(repositorio -> repositorio.existeTipoId(id)) != null;
+    }
+
+    @Override
+    public void criarNovoTipo(EmbalagemTipo novoTipo) {
+        federacao.emTodas((filial, repositorio) -> {
+            repositorio.criarNovoTipo(novoTipo);
+            return null;
+        });
+    }
+
+    @Override
+    public void atualizarUmTipo(EmbalagemTipo novoTipo) {
+        federacao.emTodas((filial, repositorio) -> {
+            repositorio.atualizarUmTipo(novoTipo);
+            return null;
+        });
+    }
+
+    @Override
+    public void apagarTipo(int id) {
+        federacao.emTodas((filial, repositorio) -> {
+            repositorio.apagarTipo(id);
+            return null;
+        });
+    }
+
+    private static Embalagem comFilial(Embalagem embalagem, String filial) {
+        if (embalagem != null && embalagem.getProdutoAssociado() != null)
+            embalagem.getProdutoAssociado().setFilial(filial);
+
+        return embalagem;
+    }
+}
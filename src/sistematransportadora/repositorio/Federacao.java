@@ -0,0 +1,197 @@
+package sistematransportadora.repositorio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sistematransportadora.Banco;
+import sistematransportadora.Filiais;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Um repositório por filial, com as operações usadas pelos repositórios
+ * federados para distribuir uma consulta entre todas elas.
+ *
+ * @param <R> O tipo de repositório de cada filial.
+ */
+final class Federacao<R> {
+    private static final Logger log = LoggerFactory.getLogger(Federacao.class);
+    private final Filiais filiais;
+    private final Map<String, R> repositorios = new LinkedHashMap<>();
+
+    Federacao(Filiais filiais, Function<Banco, R> criar) {
+        this.filiais = filiais;
+        for (var nome : filiais.nomes()) {
+            repositorios.put(nome, criar.apply(filiais.pegar(nome)));
+        }
+    }
+
+    String principal() {
+        return filiais.principal();
+    }
+
+    /**
+     * @param filial Nome da filial, ou {@code null} para a principal.
+     * @return O repositório da filial.
+     */
+    R da(String filial) {
+        var nome = filial != null ? filial : filiais.principal();
+        filiais.pegar(nome);
+        return repositorios.get(nome);
+    }
+
+    /**
+     * Grava parte de um lote de registros novos no repositório de uma filial,
+     * como os {@code criarVarios} dos repositórios.
+     */
+    @FunctionalInterface
+    interface Gravacao<R, T> {
+        boolean[] gravar(R repositorio, Connection conn, List<T> objs);
+    }
+
+    /**
+     * Executa a consulta no repositório de cada filial, em paralelo. A
+     * consulta não pode chamar de novo as filiais em paralelo: as threads de
+     * {@link Filiais} são tantas quanto as filiais e ficariam esperando umas
+     * pelas outras.
+     * @return Os resultados por filial, na ordem das filiais.
+     */
+    <V> Map<String, V> emTodas(BiFunction<String, R, V> consulta) {
+        return filiais.emParalelo(nome -> consulta.apply(nome, repositorios.get(nome)));
+    }
+
+    /**
+     * @return O primeiro resultado diferente de {@code null}, na ordem das
+     * filiais, ou {@code null} se nenhuma tiver resultado.
+     */
+    <V> V primeiro(BiFunction<String, R, V> consulta) {
+        for (var resultado : emTodas(consulta).values()) {
+            if (resultado != null)
+                return resultado;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return O nome da primeira filial em que o teste passa, ou {@code null}.
+     */
+    String filialOnde(Predicate<R> teste) {
+        for (var resultado : emTodas((nome, repositorio) -> teste.test(repositorio)).entrySet()) {
+            if (resultado.getValue())
+                return resultado.getKey();
+        }
+
+        return null;
+    }
+
+    /**
+     * Junta as listas de cada filial, deixando só o primeiro registro de cada
+     * chave, na ordem das filiais.
+     */
+    <T> List<T> unir(Function<R, T[]> busca, Function<T, ?> chave) {
+        var porChave = new LinkedHashMap<Object, T>();
+        for (var registros : emTodas((nome, repositorio) -> busca.apply(repositorio)).values()) {
+            if (registros == null)
+                continue;
+
+            for (var registro : registros) {
+                porChave.putIfAbsent(chave.apply(registro), registro);
+            }
+        }
+
+        return new ArrayList<>(porChave.values());
+    }
+
+    /**
+     * Soma as contagens de cada filial.
+     */
+    int somar(BiFunction<String, R, Integer> contagem) {
+        int total = 0;
+        for (var parcial : emTodas(contagem).values()) {
+            total += parcial;
+        }
+
+        return total;
+    }
+
+    /**
+     * Junta as contagens por tipo de cada filial, somando as de mesmo tipo.
+     * @return As contagens somadas, ou {@code null} se nenhuma filial tiver registros.
+     */
+    HashMap<String, Integer> somarPorTipo(Function<R, HashMap<String, Integer>> contagem) {
+        var total = new HashMap<String, Integer>();
+        for (var parcial : emTodas((nome, repositorio) -> contagem.apply(repositorio)).values()) {
+            if (parcial != null)
+                parcial.forEach((tipo, quantidade) -> total.merge(tipo, quantidade, Integer::sum));
+        }
+
+        return total.isEmpty() ? null : total;
+    }
+
+    /**
+     * Grava um lote de registros novos, cada um no banco da sua filial. Os da
+     * principal usam a conexão dada, dentro da transação de quem chamou; os
+     * de cada outra filial são gravados numa transação própria no banco dela,
+     * uma filial de cada vez. Se a transação de quem chamou for desfeita
+     * depois, o que já foi gravado nas outras filiais fica.
+     * @param conn Conexão com a transação do lote, no banco da principal.
+     * @param objs Os registros novos.
+     * @param filialDe Dá a filial de cada registro, ou {@code null} para a principal.
+     * @param gravacao Grava a parte do lote de uma filial.
+     * @return Para cada registro, na mesma ordem, se ele foi gravado.
+     */
+    <T> boolean[] criarVarios(Connection conn, List<T> objs, Function<T, String> filialDe, Gravacao<R, T> gravacao) {
+        var indicesPorFilial = new LinkedHashMap<String, List<Integer>>();
+        for (int i = 0; i < objs.size(); i++) {
+            var filial = filialDe.apply(objs.get(i));
+            indicesPorFilial.computeIfAbsent(filial != null ? filial : principal(), nome -> new ArrayList<>()).add(i);
+        }
+
+        var gravados = new boolean[objs.size()];
+        indicesPorFilial.forEach((filial, indices) -> {
+            var lote = new ArrayList<T>(indices.size());
+            for (var i : indices) {
+                lote.add(objs.get(i));
+            }
+
+            var resultado = filial.equals(principal())
+                    ? gravacao.gravar(da(filial), conn, lote)
+                    : gravarNaFilial(filial, lote, gravacao);
+            for (int j = 0; j < indices.size(); j++) {
+                gravados[indices.get(j)] = resultado[j];
+            }
+        });
+
+        return gravados;
+    }
+
+    private <T> boolean[] gravarNaFilial(String filial, List<T> lote, Gravacao<R, T> gravacao) {
+        try (var conn = filiais.pegar(filial).pegarConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                var gravados = gravacao.gravar(da(filial), conn, lote);
+                conn.commit();
+                return gravados;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            String err = "Erro ao gravar lote na filial " + filial + ": " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package sistematransportadora.repositorio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sistematransportadora.Banco;
+import sistematransportadora.modelo.Dimensoes;
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.EmbalagemTipo;
+import sistematransportadora.modelo.Fragilidade;
+import sistematransportadora.modelo.Produto;
+import sistematransportadora.modelo.ProdutoTipo;
+import sistematransportadora.modelo.Veiculo;
+import sistematransportadora.modelo.VeiculoTipo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+
+/**
+ * Foto (snapshot) dos produtos, veículos e embalagens de um banco, gravada
+ * num arquivo binário ao lado dele para que as telas de consulta abram sem
+ * varrer as tabelas.
+ * <p>
+ * A foto é gravada no fechamento da aplicação ou quando pedida, e lida no
+ * início mapeando o arquivo na memória; os registros só são montados quando
+ * alguém pede a tabela. Ela só é usada se o banco ainda estiver como estava
+ * quando foi tirada. O {@code PRAGMA data_version} não serve para isso entre
+ * uma execução e outra, porque ele só é comparável dentro da mesma conexão,
+ * então a foto guarda a última migration aplicada e o último número do
+ * registro de alterações, que os gatilhos aumentam a cada escrita nas três
+ * tabelas. Depois de carregada, o {@code data_version} de uma conexão
+ * sentinela avisa de qualquer escrita, e a foto é descartada; daí em diante
+ * os repositórios voltam a consultar o banco.
+ * <p>
+ * Os tipos não entram na foto, porque as alterações neles não passam pelo
+ * registro de alterações: eles são lidos do banco ao montar os registros.
+ * <p>
+ * São dois arquivos, usados alternadamente, porque no Windows um arquivo
+ * mapeado não pode ser substituído enquanto a aplicação estiver aberta.
+ */
+public class FotoCatalogo {
+    private static final Logger log = LoggerFactory.getLogger(FotoCatalogo.class);
+
+    private final Banco banco;
+    private final File[] arquivos;
+    private final Object trava = new Object();
+    private ArquivoFoto aberta;
+    // Continua mapeado até o coletor de lixo liberá-lo, mesmo depois de descartado.
+    private int arquivoMapeado = -1;
+    private Connection sentinela;
+    private long versaoDados;
+    private Produto[] produtos;
+    private Veiculo[] veiculos;
+    private Embalagem[] embalagens;
+
+    /**
+     * @param banco Banco fotografado.
+     * @param arquivos Os dois arquivos da foto, ou {@code null} para não usar foto.
+     */
+    public FotoCatalogo(Banco banco, File[] arquivos) {
+        this.banco = banco;
+        this.arquivos = arquivos;
+    }
+
+    /**
+     * Cria a foto ao lado do arquivo do banco, com {@code -foto-a.bin} e
+     * {@code -foto-b.bin} no nome. Bancos em memória não têm foto.
+     * @param banco Banco fotografado.
+     * @return {@link FotoCatalogo}
+     */
+    public static FotoCatalogo de(Banco banco) {
+        var arquivo = banco.getArquivo();
+        if (arquivo == null)
+            return new FotoCatalogo(banco, null);
+
+        var pasta = arquivo.getAbsoluteFile().getParentFile();
+        var base = arquivo.getName().replaceFirst("\\.db$", "");
+        return new FotoCatalogo(banco, new File[] {
+                new File(pasta, base + "-foto-a.bin"),
+                new File(pasta, base + "-foto-b.bin")
+        });
+    }
+
+    /**
+     * Carrega a foto mais recente que ainda corresponda ao banco.
+     * @return Se alguma foto pôde ser usada.
+     */
+    public boolean carregar() {
+        if (arquivos == null)
+            return false;
+
+        synchronized (trava) {
+            descartar();
+            long inicio = System.nanoTime();
+            try {
+                abrirSentinela();
+                // A versão dos dados é lida antes do estado, então uma escrita
+                // entre as duas leituras já conta como mudança.
+                versaoDados = versaoDados();
+                var atual = estadoAtual(sentinela);
+
+                int escolhido = -1;
+                ArquivoFoto.Cabecalho maisRecente = null;
+                for (int i = 0; i < arquivos.length; i++) {
+                    var cabecalho = ArquivoFoto.lerCabecalho(arquivos[i]);
+                    if (cabecalho != null && corresponde(cabecalho, atual)
+                            && (maisRecente == null || cabecalho.criadaEm() > maisRecente.criadaEm())) {
+                        escolhido = i;
+                        maisRecente = cabecalho;
+                    }
+                }
+
+                if (escolhido == -1) {
+                    log.info("Nenhuma foto atual do banco {}; as consultas vão ao banco.", banco.getUrl());
+                    fecharSentinela();
+                    return false;
+                }
+
+                aberta = ArquivoFoto.abrir(arquivos[escolhido]);
+                if (aberta == null) {
+                    fecharSentinela();
+                    return false;
+                }
+
+                arquivoMapeado = escolhido;
+                log.info("Foto {} carregada em {} ms.", arquivos[escolhido],
+                        (System.nanoTime() - inicio) / 1_000_000);
+                return true;
+            } catch (SQLException | IOException e) {
+                log.error("Erro ao carregar a foto do banco, ignorando: " + e.getMessage());
+                descartar();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Grava uma foto nova do banco, no arquivo que não estiver em uso.
+     * A foto carregada continua valendo até o banco mudar.
+     * @return A quantidade de registros gravados.
+     */
+    public long gravar() {
+        if (arquivos == null)
+            throw new IllegalStateException("Bancos em memória não têm foto.");
+
+        synchronized (trava) {
+            int destino = arquivoMapeado == -1 ? maisAntigo() : 1 - arquivoMapeado;
+            var arquivo = arquivos[destino];
+            var parcial = new File(arquivo.getPath() + ".parcial");
+            long inicio = System.nanoTime();
+
+            long registros;
+            try (var conn = banco.abrirConnectionDedicada()) {
+                // Uma transação de leitura faz todas as tabelas serem lidas no mesmo estado.
+                conn.setAutoCommit(false);
+                try {
+                    registros = ArquivoFoto.gravar(conn, parcial, estadoAtual(conn));
+                    conn.commit();
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException | IOException e) {
+                parcial.delete();
+                String err = "Erro ao gravar a foto do banco: " + e.getMessage();
+                log.error(err);
+
+                throw new RuntimeException(err);
+            }
+
+            try {
+                Files.move(parcial.toPath(), arquivo.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                parcial.delete();
+                String err = "Não foi possível renomear " + parcial + " para " + arquivo + ": " + e.getMessage();
+                log.error(err);
+
+                throw new RuntimeException(err);
+            }
+
+            // A foto anterior não serve mais; se estiver mapeada, fica para a próxima vez.
+            if (arquivoMapeado == -1)
+                arquivos[1 - destino].delete();
+
+            log.info("Foto {} gravada com {} registros em {} ms.", arquivo, registros,
+                    (System.nanoTime() - inicio) / 1_000_000);
+            return registros;
+        }
+    }
+
+    /**
+     * Grava uma foto nova se a carregada não corresponder mais ao banco, ou
+     * se nenhuma foi carregada.
+     * @return Se a foto foi gravada.
+     */
+    public boolean gravarSeDesatualizada() {
+        if (arquivos == null)
+            return false;
+
+        synchronized (trava) {
+            if (valida())
+                return false;
+
+            gravar();
+            return true;
+        }
+    }
+
+    /**
+     * @return Cópias dos produtos da foto, ou {@code null} se não houver foto válida.
+     */
+    public Produto[] produtos() {
+        synchronized (trava) {
+            if (!valida())
+                return null;
+
+            if (produtos == null)
+                produtos = montar(this::montarProdutos, "produtos");
+
+            return Copias.produtos(produtos);
+        }
+    }
+
+    /**
+     * @return Cópias dos veículos da foto, ou {@code null} se não houver foto válida.
+     */
+    public Veiculo[] veiculos() {
+        synchronized (trava) {
+            if (!valida())
+                return null;
+
+            if (veiculos == null)
+                veiculos = montar(this::montarVeiculos, "veículos");
+
+            return Copias.veiculos(veiculos);
+        }
+    }
+
+    /**
+     * @return Cópias das embalagens da foto, sem as arquivadas, ou {@code null}
+     * se não houver foto válida.
+     */
+    public Embalagem[] embalagens() {
+        synchronized (trava) {
+            if (!valida())
+                return null;
+
+            if (embalagens == null)
+                embalagens = montar(this::montarEmbalagens, "embalagens");
+
+            return Copias.embalagens(embalagens);
+        }
+    }
+
+    /**
+     * Descarta a foto carregada e fecha a conexão sentinela.
+     */
+    public void fechar() {
+        synchronized (trava) {
+            descartar();
+        }
+    }
+
+    private interface Montagem<R> {
+        R montar() throws SQLException;
+    }
+
+    private <R> R montar(Montagem<R> montagem, String descricao) {
+        try {
+            return montagem.montar();
+        } catch (SQLException e) {
+            String err = "Erro ao montar " + descricao + " da foto: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    private Produto[] montarProdutos() throws SQLException {
+        var tipos = new HashMap<Integer, ProdutoTipo>();
+        try (var stmt = sentinela.prepareStatement("SELECT id, nome, padrao FROM Tipo_Produto");
+             var rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                tipos.put(rs.getInt(1), new ProdutoTipo(rs.getInt(1), rs.getString(2), rs.getBoolean(3)));
+            }
+        }
+
+        var bloco = aberta.ler(ArquivoFoto.Tabela.PRODUTO);
+        var ids = bloco.inteiros("id");
+        var tipoIds = bloco.inteiros("tipo_id");
+        var alturas = bloco.reais("altura");
+        var larguras = bloco.reais("largura");
+        var comprimentos = bloco.reais("comprimento");
+        var pesos = bloco.reais("peso");
+        var versoes = bloco.inteiros("versao");
+
+        var lista = new Produto[bloco.linhas()];
+        for (int i = 0; i < lista.length; i++) {
+            var produto = new Produto(ids[i], bloco.texto("nome", i), tipos.get(tipoIds[i]));
+            produto.setDescricao(bloco.texto("descricao", i));
+            produto.setFamilia(bloco.texto("familia", i));
+            produto.setLote(bloco.texto("lote", i));
+            produto.setDimensoes(new Dimensoes(alturas[i], larguras[i], comprimentos[i]));
+            produto.setPeso(pesos[i]);
+            produto.setGrauFragilidade(switch (bloco.texto("grau_fragilidade", i)) {
+                case "alta" -> Fragilidade.ALTA;
+                case "média" -> Fragilidade.MEDIA;
+                default -> Fragilidade.BAIXA;
+            });
+            produto.setObservacoes(bloco.texto("observacoes", i));
+            produto.setVersao(versoes[i]);
+            lista[i] = produto;
+        }
+
+        return lista;
+    }
+
+    private Veiculo[] montarVeiculos() throws SQLException {
+        var tipos = new HashMap<Integer, VeiculoTipo>();
+        try (var stmt = sentinela.prepareStatement("SELECT id, nome, padrao FROM Tipo_Veiculo");
+             var rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                tipos.put(rs.getInt(1), new VeiculoTipo(rs.getInt(1), rs.getString(2), rs.getBoolean(3)));
+            }
+        }
+
+        var bloco = aberta.ler(ArquivoFoto.Tabela.VEICULO);
+        var ids = bloco.inteiros("id");
+        var tipoIds = bloco.inteiros("tipo_id");
+        var alturas = bloco.reais("altura_interna");
+        var larguras = bloco.reais("largura_interna");
+        var comprimentos = bloco.reais("comprimento_interno");
+        var capacidades = bloco.reais("capacidade_peso");
+        var versoes = bloco.inteiros("versao");
+
+        var lista = new Veiculo[bloco.linhas()];
+        for (int i = 0; i < lista.length; i++) {
+            var veiculo = new Veiculo(
+                    ids[i],
+                    bloco.texto("nome", i),
+                    tipos.get(tipoIds[i]),
+                    bloco.texto("placa", i),
+                    bloco.texto("modelo", i),
+                    capacidades[i]
+            );
+            veiculo.setDimensoesInternas(new Dimensoes(alturas[i], larguras[i], comprimentos[i]));
+            veiculo.setObservacoes(bloco.texto("observacoes", i));
+            veiculo.setVersao(versoes[i]);
+            lista[i] = veiculo;
+        }
+
+        return lista;
+    }
+
+    private Embalagem[] montarEmbalagens() throws SQLException {
+        var tipos = new HashMap<Integer, EmbalagemTipo>();
+        try (var stmt = sentinela.prepareStatement("SELECT id, nome, padrao FROM Tipo_Embalagem");
+             var rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                tipos.put(rs.getInt(1), new EmbalagemTipo(rs.getInt(1), rs.getString(2), rs.getBoolean(3)));
+            }
+        }
+
+        if (produtos == null)
+            produtos = montarProdutos();
+        var produtosPorId = new HashMap<Integer, Produto>(produtos.length * 2);
+        for (var produto : produtos) {
+            produtosPorId.put(produto.getId(), produto);
+        }
+
+        var bloco = aberta.ler(ArquivoFoto.Tabela.EMBALAGEM);
+        var ids = bloco.inteiros("id");
+        var tipoIds = bloco.inteiros("tipo_id");
+        var produtoIds = bloco.inteiros("produto_id");
+        var alturas = bloco.reais("altura");
+        var larguras = bloco.reais("largura");
+        var comprimentos = bloco.reais("comprimento");
+        var pesos = bloco.reais("peso");
+        var versoes = bloco.inteiros("versao");
+
+        var lista = new Embalagem[bloco.linhas()];
+        for (int i = 0; i < lista.length; i++) {
+            var embalagem = new Embalagem(
+                    ids[i],
+                    tipos.get(tipoIds[i]),
+                    produtosPorId.get(produtoIds[i]),
+                    new Dimensoes(alturas[i], larguras[i], comprimentos[i]),
+                    pesos[i]
+            );
+            embalagem.setEmpilhavel(bloco.logico("empilhavel", i));
+            embalagem.setObservacoes(bloco.texto("observacoes", i));
+            embalagem.setVersao(versoes[i]);
+            lista[i] = embalagem;
+        }
+
+        return lista;
+    }
+
+    /**
+     * Confere pela conexão sentinela se o banco mudou desde que a foto foi
+     * carregada, descartando-a se tiver mudado.
+     */
+    private boolean valida() {
+        if (aberta == null)
+            return false;
+
+        try {
+            if (versaoDados() == versaoDados)
+                return true;
+
+            log.info("O banco {} mudou; a foto deixa de ser usada.", banco.getUrl());
+        } catch (SQLException e) {
+            log.error("Erro ao verificar versão do banco, ignorando a foto: " + e.getMessage());
+        }
+
+        descartar();
+        return false;
+    }
+
+    private long versaoDados() throws SQLException {
+        try (var stmt = sentinela.createStatement();
+             var rs = stmt.executeQuery("PRAGMA data_version")) {
+            return rs.getLong(1);
+        }
+    }
+
+    private static ArquivoFoto.Cabecalho estadoAtual(Connection conn) throws SQLException {
+        int versaoSchema;
+        try (var stmt = conn.createStatement();
+             var rs = stmt.executeQuery("SELECT MAX(versao) FROM schema_history")) {
+            versaoSchema = rs.next() ? rs.getInt(1) : 0;
+        }
+
+        long sequencia;
+        try (var stmt = conn.createStatement();
+             var rs = stmt.executeQuery("SELECT seq FROM sqlite_sequence WHERE name = 'Alteracao'")) {
+            sequencia = rs.next() ? rs.getLong(1) : 0;
+        }
+
+        return new ArquivoFoto.Cabecalho(versaoSchema, sequencia, System.currentTimeMillis());
+    }
+
+    private static boolean corresponde(ArquivoFoto.Cabecalho foto, ArquivoFoto.Cabecalho atual) {
+        return foto.versaoSchema() == atual.versaoSchema() && foto.sequencia() == atual.sequencia();
+    }
+
+    private int maisAntigo() {
+        if (!arquivos[0].exists())
+            return 0;
+        if (!arquivos[1].exists())
+            return 1;
+
+        return arquivos[0].lastModified() <= arquivos[1].lastModified() ? 0 : 1;
+    }
+
+    private void abrirSentinela() throws SQLException {
+        if (sentinela == null || sentinela.isClosed())
+            sentinela = banco.abrirConnectionDedicada();
+    }
+
+    private void descartar() {
+        aberta = null;
+        produtos = null;
+        veiculos = null;
+        embalagens = null;
+        fecharSentinela();
+    }
+
+    private void fecharSentinela() {
+        try {
+            if (sentinela != null)
+                sentinela.close();
+        } catch (SQLException ignored) {
+            // A conexão já estava inutilizável.
+        }
+        sentinela = null;
+    }
+}
@@ -0,0 +1,105 @@
+package sistematransportadora.repositorio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sistematransportadora.Banco;
+import sistematransportadora.RegistroBancos;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Guarda até que linha cada importação de CSV já foi gravada, para que ela
+ * possa ser retomada depois de interrompida.
+ */
+public class ImportacaoRepositorio {
+    private static final Logger log = LoggerFactory.getLogger(ImportacaoRepositorio.class);
+    private final Banco banco;
+
+    public ImportacaoRepositorio() {
+        this(RegistroBancos.padrao());
+    }
+
+    public ImportacaoRepositorio(Banco banco) {
+        this.banco = banco;
+    }
+
+    /**
+     * Busca a última linha gravada de uma importação.
+     * @param chave Chave da importação.
+     * @param assinatura Assinatura do arquivo sendo importado.
+     * @return A última linha gravada, ou {@code 0} se a importação não começou
+     * ou se o arquivo mudou desde então.
+     */
+    public long buscarUltimaLinha(String chave, String assinatura) {
+        var sql = "SELECT assinatura, ultima_linha FROM Importacao WHERE chave = ?";
+
+        try (var bdConn = banco.pegarConnection()) {
+            var stmt = bdConn.prepareStatement(sql);
+            stmt.setString(1, chave);
+
+            var rs = stmt.executeQuery();
+            if (!rs.next())
+                return 0;
+
+            if (!rs.getString("assinatura").equals(assinatura)) {
+                log.warn("O arquivo da importação {} mudou desde a última vez; ela recomeça do início.", chave);
+                return 0;
+            }
+            return rs.getLong("ultima_linha");
+        } catch (SQLException e) {
+            String err = "Erro ao buscar progresso da importação: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * Grava a última linha importada, na transação já aberta na conexão dada.
+     * @param conn Conexão com a transação do lote.
+     * @param chave Chave da importação.
+     * @param assinatura Assinatura do arquivo sendo importado.
+     * @param ultimaLinha Última linha do lote.
+     */
+    public void gravarUltimaLinha(Connection conn, String chave, String assinatura, long ultimaLinha) {
+        var sql = """
+            INSERT INTO Importacao (chave, assinatura, ultima_linha) VALUES (?, ?, ?)
+            ON CONFLICT (chave) DO UPDATE SET assinatura = excluded.assinatura,
+            ultima_linha = excluded.ultima_linha, atualizado_em = strftime('%s', 'now')
+            """;
+
+        try (var stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, chave);
+            stmt.setString(2, assinatura);
+            stmt.setLong(3, ultimaLinha);
+
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            String err = "Erro ao gravar progresso da importação: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    /**
+     * Apaga o progresso de uma importação concluída.
+     * @param chave Chave da importação.
+     */
+    public void apagar(String chave) {
+        var sql = "DELETE FROM Importacao WHERE chave = ?";
+
+        try (var bdConn = banco.pegarConnection()) {
+            var stmt = bdConn.prepareStatement(sql);
+            stmt.setString(1, chave);
+
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            String err = "Erro ao apagar progresso da importação: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+}
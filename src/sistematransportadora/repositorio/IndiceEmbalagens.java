@@ -0,0 +1,344 @@
+package sistematransportadora.repositorio;
+
+import sistematransportadora.RegistroBancos;
+import sistematransportadora.modelo.Dimensoes;
+import sistematransportadora.modelo.Embalagem;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Índice em memória das embalagens pelas medidas e pelo peso, para responder
+ * quais embalagens cabem num veículo. É o caminho inverso do
+ * {@link IndiceVeiculos}.
+ * <p>
+ * As três medidas de cada embalagem são postas em ordem crescente, então uma
+ * embalagem cabe numa caixa de medidas {@code a×b×c} em alguma orientação se e
+ * só se cada medida dela, na ordem, é menor ou igual à de {@code a×b×c}, também
+ * em ordem. Com o peso, cada embalagem vira um ponto de quatro coordenadas, e a
+ * pergunta vira "quais pontos são menores ou iguais ao pedido em todas".
+ * <p>
+ * Os pontos ficam numa árvore k-d implícita sobre arrays, uma coluna por
+ * coordenada, com baldes de {@value #BALDE} embalagens nas folhas; cada nó
+ * guarda o menor e o maior valor de cada coordenada do seu trecho. Um trecho
+ * cujo menor valor já passa do pedido é pulado, e um cujo maior valor cabe no
+ * pedido é entregue inteiro, sem conferir embalagem por embalagem. Com um
+ * milhão de embalagens a árvore ocupa uns 45 MB e as ids saem à medida que são
+ * achadas, sem montar uma lista.
+ * <p>
+ * A árvore não muda depois de montada. As embalagens cadastradas ou editadas
+ * depois ficam numa lista à parte, conferida inteira a cada consulta, e as
+ * apagadas ou editadas são só marcadas; quando essas mudanças passam de uma
+ * fração da árvore, ela é montada de novo na consulta seguinte.
+ */
+public class IndiceEmbalagens {
+    private static final double FOLGA = 1e-9;
+    private static final int DIMENSOES = 4;
+    private static final int BALDE = 32;
+    private static final int MUDANCAS_MINIMAS = 1024;
+
+    private final EmbalagemRepositorio fonte;
+    private boolean carregado;
+    /** Ids e coordenadas na ordem da árvore. */
+    private int[] ids;
+    private double[][] pontos;
+    /** Menor e maior valor de cada coordenada, {@value #DIMENSOES} por nó. */
+    private double[] minimos;
+    private double[] maximos;
+    /** Ids da árvore que foram apagadas ou editadas depois de ela ser montada. */
+    private final Set<Integer> marcadas = new HashSet<>();
+    /** Embalagens cadastradas ou editadas depois de a árvore ser montada. */
+    private final Map<Integer, double[]> novas = new HashMap<>();
+
+    /**
+     * @param fonte De onde as embalagens são lidas na primeira consulta.
+     */
+    public IndiceEmbalagens(EmbalagemRepositorio fonte) {
+        this.fonte = fonte;
+    }
+
+    /**
+     * Busca o índice do banco padrão ou, se a aplicação estiver dividida por
+     * filial, cria um que consulta todas as filiais.
+     * @return {@link IndiceEmbalagens}
+     */
+    public static IndiceEmbalagens padrao() {
+        if (RegistroBancos.filiais() != null)
+            return new IndiceEmbalagens(EmbalagemRepositorio.padrao());
+
+        return RegistroBancos.padrao().pegarIndiceEmbalagens();
+    }
+
+    /**
+     * Entrega as ids das embalagens que cabem num espaço com as medidas
+     * dadas, em qualquer orientação, e que não passam do peso dado. A ordem é
+     * a da árvore. O índice fica travado enquanto as ids são entregues.
+     * @param espaco Medidas do espaço, como as internas de um veículo.
+     * @param capacidade Peso máximo de cada embalagem.
+     * @param aoAchar Recebe cada id achada.
+     */
+    public synchronized void buscarQueCabem(Dimensoes espaco, double capacidade, IntConsumer aoAchar) {
+        carregar();
+
+        var pedido = ponto(espaco, capacidade);
+        if (ids.length > 0)
+            buscar(0, 0, ids.length, pedido, aoAchar);
+
+        for (var entrada : novas.entrySet()) {
+            if (cabe(entrada.getValue(), pedido))
+                aoAchar.accept(entrada.getKey());
+        }
+    }
+
+    /**
+     * @return Quantas embalagens cabem no espaço; ver
+     * {@link #buscarQueCabem(Dimensoes, double, IntConsumer)}.
+     */
+    public int contarQueCabem(Dimensoes espaco, double capacidade) {
+        var contador = new int[1];
+        buscarQueCabem(espaco, capacidade, id -> contador[0]++);
+        return contador[0];
+    }
+
+    /**
+     * Coloca uma embalagem recém-cadastrada no índice.
+     */
+    public synchronized void adicionar(Embalagem embalagem) {
+        if (!carregado)
+            return;
+
+        if (embalagem.getDimensoes() != null)
+            novas.put(embalagem.getId(), ponto(embalagem.getDimensoes(), embalagem.getPeso()));
+    }
+
+    /**
+     * Troca uma embalagem editada no índice.
+     */
+    public synchronized void atualizar(Embalagem embalagem) {
+        if (!carregado)
+            return;
+
+        remover(embalagem.getId());
+        adicionar(embalagem);
+    }
+
+    /**
+     * Tira uma embalagem apagada do índice.
+     */
+    public synchronized void remover(int id) {
+        if (!carregado)
+            return;
+
+        // Marcar uma id que não está na árvore não tem efeito na busca.
+        novas.remove(id);
+        marcadas.add(id);
+    }
+
+    /**
+     * Descarta o índice, para ser lido do banco de novo na próxima consulta.
+     * Serve para quando as embalagens mudam por fora dos avisos, como numa
+     * importação, num arquivamento ou quando um produto é apagado.
+     */
+    public synchronized void descartar() {
+        carregado = false;
+        ids = null;
+        pontos = null;
+        minimos = null;
+        maximos = null;
+        marcadas.clear();
+        novas.clear();
+    }
+
+    private void carregar() {
+        if (carregado && marcadas.size() + novas.size() <= Math.max(MUDANCAS_MINIMAS, ids.length / 16))
+            return;
+
+        if (!carregado) {
+            var embalagens = fonte.buscarTodos();
+            var lidas = new HashMap<Integer, double[]>(embalagens.length * 2);
+            for (var embalagem : embalagens) {
+                if (embalagem.getDimensoes() != null)
+                    lidas.put(embalagem.getId(), ponto(embalagem.getDimensoes(), embalagem.getPeso()));
+            }
+            montar(lidas);
+            carregado = true;
+            return;
+        }
+
+        // Remonta com o que já está em memória, sem ir ao banco.
+        var atuais = new HashMap<Integer, double[]>(ids.length + novas.size());
+        for (int i = 0; i < ids.length; i++) {
+            if (!marcadas.contains(ids[i]))
+                atuais.put(ids[i], new double[] {pontos[0][i], pontos[1][i], pontos[2][i], pontos[3][i]});
+        }
+        atuais.putAll(novas);
+        marcadas.clear();
+        novas.clear();
+        montar(atuais);
+    }
+
+    private void montar(Map<Integer, double[]> embalagens) {
+        int n = embalagens.size();
+        var ordem = new int[n];
+        var idsLidas = new int[n];
+        var colunas = new double[DIMENSOES][n];
+        int i = 0;
+        for (var entrada : embalagens.entrySet()) {
+            ordem[i] = i;
+            idsLidas[i] = entrada.getKey();
+            for (int d = 0; d < DIMENSOES; d++) {
+                colunas[d][i] = entrada.getValue()[d];
+            }
+            i++;
+        }
+
+        int nos = 2;
+        while (nos / 2 * BALDE < n) {
+            nos *= 2;
+        }
+        minimos = new double[nos * DIMENSOES];
+        maximos = new double[nos * DIMENSOES];
+
+        dividir(ordem, colunas, 0, n, 0);
+
+        // As colunas passam a seguir a ordem da árvore, para cada trecho ficar contíguo.
+        ids = new int[n];
+        pontos = new double[DIMENSOES][n];
+        for (i = 0; i < n; i++) {
+            ids[i] = idsLidas[ordem[i]];
+            for (int d = 0; d < DIMENSOES; d++) {
+                pontos[d][i] = colunas[d][ordem[i]];
+            }
+        }
+        if (n > 0)
+            limites(0, 0, n);
+    }
+
+    /**
+     * Ordena o trecho de {@code ordem} em volta da mediana, pela coordenada do
+     * nível, e repete nas duas metades até os trechos caberem num balde.
+     */
+    private static void dividir(int[] ordem, double[][] colunas, int inicio, int fim, int nivel) {
+        if (fim - inicio <= BALDE)
+            return;
+
+        int meio = (inicio + fim) >>> 1;
+        selecionar(ordem, colunas[nivel % DIMENSOES], inicio, fim - 1, meio);
+        dividir(ordem, colunas, inicio, meio, nivel + 1);
+        dividir(ordem, colunas, meio, fim, nivel + 1);
+    }
+
+    /**
+     * Deixa em {@code ordem[k]} o elemento que ficaria ali se o trecho fosse
+     * ordenado pela coluna, os menores antes e os maiores depois.
+     */
+    private static void selecionar(int[] ordem, double[] coluna, int esquerda, int direita, int k) {
+        while (esquerda < direita) {
+            double pivo = coluna[ordem[(esquerda + direita) >>> 1]];
+            int i = esquerda;
+            int j = direita;
+            while (i <= j) {
+                while (coluna[ordem[i]] < pivo) i++;
+                while (coluna[ordem[j]] > pivo) j--;
+                if (i <= j) {
+                    int troca = ordem[i];
+                    ordem[i] = ordem[j];
+                    ordem[j] = troca;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j)
+                direita = j;
+            else if (k >= i)
+                esquerda = i;
+            else
+                return;
+        }
+    }
+
+    /**
+     * Calcula o menor e o maior valor de cada coordenada do nó e dos nós abaixo dele.
+     */
+    private void limites(int no, int inicio, int fim) {
+        int base = no * DIMENSOES;
+        if (fim - inicio <= BALDE) {
+            for (int d = 0; d < DIMENSOES; d++) {
+                double menor = Double.POSITIVE_INFINITY;
+                double maior = Double.NEGATIVE_INFINITY;
+                var coluna = pontos[d];
+                for (int i = inicio; i < fim; i++) {
+                    menor = Math.min(menor, coluna[i]);
+                    maior = Math.max(maior, coluna[i]);
+                }
+                minimos[base + d] = menor;
+                maximos[base + d] = maior;
+            }
+            return;
+        }
+
+        int meio = (inicio + fim) >>> 1;
+        int esquerdo = 2 * no + 1;
+        int direito = 2 * no + 2;
+        limites(esquerdo, inicio, meio);
+        limites(direito, meio, fim);
+        for (int d = 0; d < DIMENSOES; d++) {
+            minimos[base + d] = Math.min(minimos[esquerdo * DIMENSOES + d], minimos[direito * DIMENSOES + d]);
+            maximos[base + d] = Math.max(maximos[esquerdo * DIMENSOES + d], maximos[direito * DIMENSOES + d]);
+        }
+    }
+
+    private void buscar(int no, int inicio, int fim, double[] pedido, IntConsumer aoAchar) {
+        int base = no * DIMENSOES;
+        boolean inteiro = true;
+        for (int d = 0; d < DIMENSOES; d++) {
+            if (minimos[base + d] > pedido[d] + FOLGA)
+                return;
+            if (maximos[base + d] > pedido[d] + FOLGA)
+                inteiro = false;
+        }
+
+        if (inteiro) {
+            for (int i = inicio; i < fim; i++) {
+                entregar(i, aoAchar);
+            }
+            return;
+        }
+
+        if (fim - inicio <= BALDE) {
+            for (int i = inicio; i < fim; i++) {
+                if (pontos[0][i] <= pedido[0] + FOLGA && pontos[1][i] <= pedido[1] + FOLGA
+                        && pontos[2][i] <= pedido[2] + FOLGA && pontos[3][i] <= pedido[3] + FOLGA)
+                    entregar(i, aoAchar);
+            }
+            return;
+        }
+
+        int meio = (inicio + fim) >>> 1;
+        buscar(2 * no + 1, inicio, meio, pedido, aoAchar);
+        buscar(2 * no + 2, meio, fim, pedido, aoAchar);
+    }
+
+    private void entregar(int i, IntConsumer aoAchar) {
+        if (marcadas.isEmpty() || !marcadas.contains(ids[i]))
+            aoAchar.accept(ids[i]);
+    }
+
+    private static boolean cabe(double[] ponto, double[] pedido) {
+        for (int d = 0; d < DIMENSOES; d++) {
+            if (ponto[d] > pedido[d] + FOLGA)
+                return false;
+        }
+        return true;
+    }
+
+    private static double[] ponto(Dimensoes d, double peso) {
+        var medidas = new double[] {d.altura, d.largura, d.comprimento, peso};
+        Arrays.sort(medidas, 0, 3);
+        return medidas;
+    }
+}
@@ -0,0 +1,327 @@
+package sistematransportadora.repositorio;
+
+import sistematransportadora.RegistroBancos;
+import sistematransportadora.modelo.Dimensoes;
+import sistematransportadora.modelo.Veiculo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice em memória dos veículos pelas medidas internas e pela capacidade de
+ * peso, para responder em quais veículos uma embalagem ou produto cabe.
+ * <p>
+ * Cada veículo vira um ponto de quatro coordenadas e a pergunta vira "quais
+ * pontos são maiores ou iguais ao pedido em todas as coordenadas". Os pontos
+ * ficam numa árvore k-d, em que cada nó guarda o maior valor de cada coordenada
+ * da sua subárvore; uma subárvore que não alcança o pedido em alguma
+ * coordenada é pulada inteira, então só se visita o caminho até os veículos que
+ * servem.
+ * <p>
+ * Há duas árvores. Na que deixa tombar, as três medidas do veículo e as da
+ * embalagem são postas em ordem crescente antes de comparar: uma caixa cabe em
+ * alguma das seis orientações se e só se a menor medida dela cabe na menor do
+ * veículo, a do meio na do meio e a maior na maior. Na que mantém a embalagem
+ * em pé, a altura é comparada com a altura e só o piso pode girar.
+ * <p>
+ * O índice é carregado do banco na primeira consulta e depois acompanha as
+ * alterações avisadas por {@link #adicionar(Veiculo)}, {@link #atualizar(Veiculo)}
+ * e {@link #remover(int)}. Um veículo removido só é marcado; a árvore é
+ * remontada quando os marcados passam da metade, ou quando as inserções a
+ * deixam funda demais.
+ */
+public class IndiceVeiculos {
+    private static final double FOLGA = 1e-9;
+
+    private final VeiculoRepositorio fonte;
+    private Map<Integer, Veiculo> veiculos;
+    private Arvore podeTombar;
+    private Arvore emPe;
+
+    /**
+     * @param fonte De onde os veículos são lidos na primeira consulta.
+     */
+    public IndiceVeiculos(VeiculoRepositorio fonte) {
+        this.fonte = fonte;
+    }
+
+    /**
+     * Busca o índice do banco padrão ou, se a aplicação estiver dividida por
+     * filial, cria um que consulta todas as filiais.
+     * @return {@link IndiceVeiculos}
+     */
+    public static IndiceVeiculos padrao() {
+        if (RegistroBancos.filiais() != null)
+            return new IndiceVeiculos(VeiculoRepositorio.padrao());
+
+        return RegistroBancos.padrao().pegarIndiceVeiculos();
+    }
+
+    /**
+     * Busca os veículos em que uma caixa com as medidas e o peso dados cabe.
+     * @param dimensoes Medidas da caixa.
+     * @param peso Peso da caixa.
+     * @param podeTombar Se a caixa pode ir deitada ou de lado, além de em pé.
+     * @return Os veículos, do de menor volume interno para o de maior.
+     */
+    public synchronized Veiculo[] buscarQueCarregam(Dimensoes dimensoes, double peso, boolean podeTombar) {
+        carregar();
+
+        var achados = new ArrayList<No>();
+        if (podeTombar)
+            this.podeTombar.buscar(pontoPodeTombar(dimensoes, peso), achados);
+        else
+            emPe.buscar(pontoEmPe(dimensoes, peso), achados);
+
+        achados.sort(Comparator.comparingDouble(no -> no.volume));
+        var resultado = new Veiculo[achados.size()];
+        for (int i = 0; i < resultado.length; i++) {
+            resultado[i] = achados.get(i).veiculo;
+        }
+        return resultado;
+    }
+
+    /**
+     * Coloca um veículo recém-cadastrado no índice.
+     */
+    public synchronized void adicionar(Veiculo veiculo) {
+        if (veiculos == null)
+            return;
+
+        veiculos.put(veiculo.getId(), veiculo);
+        inserir(veiculo);
+    }
+
+    /**
+     * Troca um veículo editado no índice.
+     */
+    public synchronized void atualizar(Veiculo veiculo) {
+        if (veiculos == null)
+            return;
+
+        remover(veiculo.getId());
+        adicionar(veiculo);
+    }
+
+    /**
+     * Tira um veículo apagado do índice.
+     */
+    public synchronized void remover(int id) {
+        if (veiculos == null || veiculos.remove(id) == null)
+            return;
+
+        podeTombar.remover(id);
+        emPe.remover(id);
+        if (podeTombar.precisaRemontar())
+            remontar();
+    }
+
+    /**
+     * Descarta o índice, para ser lido do banco de novo na próxima consulta.
+     * Serve para quando os veículos mudam por fora dos avisos, como numa
+     * importação ou quando um tipo de veículo é apagado.
+     */
+    public synchronized void descartar() {
+        veiculos = null;
+        podeTombar = null;
+        emPe = null;
+    }
+
+    private void carregar() {
+        if (veiculos != null)
+            return;
+
+        veiculos = new HashMap<>();
+        for (var veiculo : fonte.buscarTodos()) {
+            veiculos.put(veiculo.getId(), veiculo);
+        }
+        remontar();
+    }
+
+    private void inserir(Veiculo veiculo) {
+        var interno = veiculo.getDimensoesInternas();
+        if (interno == null)
+            return;
+
+        podeTombar.inserir(new No(veiculo, pontoPodeTombar(interno, veiculo.getCapacidadeDePeso())));
+        emPe.inserir(new No(veiculo, pontoEmPe(interno, veiculo.getCapacidadeDePeso())));
+        if (podeTombar.precisaRemontar())
+            remontar();
+    }
+
+    private void remontar() {
+        var nosPodeTombar = new ArrayList<No>(veiculos.size());
+        var nosEmPe = new ArrayList<No>(veiculos.size());
+        for (var veiculo : veiculos.values()) {
+            var interno = veiculo.getDimensoesInternas();
+            if (interno == null)
+                continue;
+
+            nosPodeTombar.add(new No(veiculo, pontoPodeTombar(interno, veiculo.getCapacidadeDePeso())));
+            nosEmPe.add(new No(veiculo, pontoEmPe(interno, veiculo.getCapacidadeDePeso())));
+        }
+        podeTombar = new Arvore(nosPodeTombar);
+        emPe = new Arvore(nosEmPe);
+    }
+
+    private static double[] pontoPodeTombar(Dimensoes d, double peso) {
+        var medidas = new double[] {d.altura, d.largura, d.comprimento};
+        Arrays.sort(medidas);
+        return new double[] {medidas[0], medidas[1], medidas[2], peso};
+    }
+
+    private static double[] pontoEmPe(Dimensoes d, double peso) {
+        return new double[] {d.altura, Math.min(d.largura, d.comprimento), Math.max(d.largura, d.comprimento), peso};
+    }
+
+    private static final class No {
+        final Veiculo veiculo;
+        final double[] ponto;
+        final double volume;
+        /** O maior valor de cada coordenada nesta subárvore, contando os removidos. */
+        final double[] maximo;
+        No esquerda;
+        No direita;
+        boolean removido;
+
+        No(Veiculo veiculo, double[] ponto) {
+            this.veiculo = veiculo;
+            this.ponto = ponto;
+            this.volume = ponto[0] * ponto[1] * ponto[2];
+            this.maximo = ponto.clone();
+        }
+    }
+
+    /**
+     * Árvore k-d de pontos de quatro coordenadas. No nível {@code n} os nós são
+     * divididos pela coordenada {@code n % 4}: os menores à esquerda, os
+     * maiores ou iguais à direita.
+     */
+    private static final class Arvore {
+        private static final int DIMENSOES = 4;
+
+        private No raiz;
+        private final Map<Integer, No> porId = new HashMap<>();
+        private int removidos;
+        private int profundidade;
+
+        Arvore(List<No> nos) {
+            for (var no : nos) {
+                porId.put(no.veiculo.getId(), no);
+            }
+            raiz = montar(nos.toArray(No[]::new), 0, nos.size(), 0);
+        }
+
+        private No montar(No[] nos, int inicio, int fim, int nivel) {
+            if (inicio >= fim)
+                return null;
+
+            profundidade = Math.max(profundidade, nivel + 1);
+            int dimensao = nivel % DIMENSOES;
+            Arrays.sort(nos, inicio, fim, Comparator.comparingDouble(no -> no.ponto[dimensao]));
+            int meio = (inicio + fim) >>> 1;
+            // Os iguais à mediana ficam todos à direita, como na inserção.
+            while (meio > inicio && nos[meio - 1].ponto[dimensao] == nos[meio].ponto[dimensao]) {
+                meio--;
+            }
+
+            var no = nos[meio];
+            no.esquerda = montar(nos, inicio, meio, nivel + 1);
+            no.direita = montar(nos, meio + 1, fim, nivel + 1);
+            for (var filho : new No[] {no.esquerda, no.direita}) {
+                if (filho == null)
+                    continue;
+                for (int d = 0; d < DIMENSOES; d++) {
+                    no.maximo[d] = Math.max(no.maximo[d], filho.maximo[d]);
+                }
+            }
+            return no;
+        }
+
+        void inserir(No novo) {
+            porId.put(novo.veiculo.getId(), novo);
+            if (raiz == null) {
+                raiz = novo;
+                profundidade = Math.max(profundidade, 1);
+                return;
+            }
+
+            var no = raiz;
+            int nivel = 0;
+            while (true) {
+                for (int d = 0; d < DIMENSOES; d++) {
+                    no.maximo[d] = Math.max(no.maximo[d], novo.ponto[d]);
+                }
+                int dimensao = nivel % DIMENSOES;
+                nivel++;
+                if (novo.ponto[dimensao] < no.ponto[dimensao]) {
+                    if (no.esquerda == null) {
+                        no.esquerda = novo;
+                        break;
+                    }
+                    no = no.esquerda;
+                } else {
+                    if (no.direita == null) {
+                        no.direita = novo;
+                        break;
+                    }
+                    no = no.direita;
+                }
+            }
+            profundidade = Math.max(profundidade, nivel + 1);
+        }
+
+        void remover(int id) {
+            var no = porId.remove(id);
+            if (no != null) {
+                no.removido = true;
+                removidos++;
+            }
+        }
+
+        /**
+         * @return Se metade dos nós foi removida ou se a árvore ficou bem mais
+         * funda que uma árvore equilibrada com os mesmos nós.
+         */
+        boolean precisaRemontar() {
+            int vivos = porId.size();
+            int equilibrada = 32 - Integer.numberOfLeadingZeros(vivos + removidos);
+            return removidos > vivos || profundidade > 2 * equilibrada + 4;
+        }
+
+        void buscar(double[] minimo, List<No> achados) {
+            buscar(raiz, 0, minimo, achados);
+        }
+
+        private static void buscar(No no, int nivel, double[] minimo, List<No> achados) {
+            while (no != null) {
+                for (int d = 0; d < DIMENSOES; d++) {
+                    if (no.maximo[d] + FOLGA < minimo[d])
+                        return;
+                }
+
+                if (!no.removido && domina(no.ponto, minimo))
+                    achados.add(no);
+
+                // À esquerda só há valores menores que o do nó nesta coordenada.
+                int dimensao = nivel % DIMENSOES;
+                nivel++;
+                if (no.ponto[dimensao] + FOLGA >= minimo[dimensao])
+                    buscar(no.esquerda, nivel, minimo, achados);
+                no = no.direita;
+            }
+        }
+
+        private static boolean domina(double[] ponto, double[] minimo) {
+            for (int d = 0; d < DIMENSOES; d++) {
+                if (ponto[d] + FOLGA < minimo[d])
+                    return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package sistematransportadora.repositorio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sistematransportadora.Banco;
+import sistematransportadora.modelo.Alteracao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Observa a tabela {@code Alteracao}, preenchida por triggers em Veiculo, Produto
+ * e Embalagem, e repassa as alterações novas para quem estiver inscrito na tabela.
+ * <p>
+ * Uma única thread em segundo plano faz a verificação. A cada ciclo ela lê
+ * {@code PRAGMA data_version} e só consulta o registro quando alguma conexão,
+ * deste ou de outro processo, fez commit desde o ciclo anterior.
+ * <p>
+ * Os gatilhos escrevem no registro mesmo sem ninguém observando, então as
+ * alterações antigas também são apagadas por {@link #limparRegistro()}, que o
+ * {@link ArquivadorEmbalagens} chama a cada ciclo.
+ */
+public class ObservadorAlteracoes {
+    private static final Logger log = LoggerFactory.getLogger(ObservadorAlteracoes.class);
+    private static final long INTERVALO_MS = 500;
+    private static final long RETENCAO_SEGUNDOS = 10 * 60;
+    private static final int CICLOS_ENTRE_LIMPEZAS = 120;
+
+    private final Banco banco;
+    private final Map<String, List<Consumer<List<Alteracao>>>> assinantes = new ConcurrentHashMap<>();
+    private ScheduledExecutorService executor;
+    private Connection conexao;
+    private long ultimaVersao = -1;
+    private long ultimoSeq = -1;
+    private int ciclos = 0;
+
+    public ObservadorAlteracoes(Banco banco) {
+        this.banco = banco;
+    }
+
+    /**
+     * Inscreve um assinante para receber as alterações de uma tabela. As alterações
+     * chegam agrupadas por ciclo, com uma só entrada por registro, e são entregues
+     * na thread do observador.
+     * @param tabela Nome da tabela, como {@code "Produto"}.
+     * @param assinante Quem vai receber as alterações.
+     */
+    public void inscrever(String tabela, Consumer<List<Alteracao>> assinante) {
+        assinantes.computeIfAbsent(tabela, t -> new CopyOnWriteArrayList<>()).add(assinante);
+        iniciar();
+    }
+
+    /**
+     * Cancela a inscrição de um assinante em todas as tabelas.
+     * @param assinante O assinante inscrito anteriormente.
+     */
+    public void cancelar(Consumer<List<Alteracao>> assinante) {
+        for (var lista : assinantes.values()) {
+            lista.remove(assinante);
+        }
+    }
+
+    /**
+     * Para a thread de verificação e fecha a conexão usada por ela.
+     */
+    public synchronized void parar() {
+        if (executor == null)
+            return;
+
+        executor.execute(this::fecharConexao);
+        executor.shutdown();
+        executor = null;
+    }
+
+    private synchronized void iniciar() {
+        if (executor != null)
+            return;
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "observador-alteracoes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::verificar, 0, INTERVALO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void verificar() {
+        try {
+            if (conexao == null) {
+                conexao = banco.abrirConnectionDedicada();
+                if (ultimoSeq < 0)
+                    ultimoSeq = buscarUltimoSeq();
+            }
+
+            if (++ciclos % CICLOS_ENTRE_LIMPEZAS == 0)
+                limparAntigas(conexao);
+
+            long versao;
+            try (var stmt = conexao.createStatement();
+                 var rs = stmt.executeQuery("PRAGMA data_version")) {
+                versao = rs.getLong(1);
+            }
+            if (versao == ultimaVersao)
+                return;
+            ultimaVersao = versao;
+
+            publicar(buscarNovas());
+        } catch (SQLException e) {
+            log.error("Erro ao verificar alterações no banco: " + e.getMessage());
+            fecharConexao();
+        }
+    }
+
+    private long buscarUltimoSeq() throws SQLException {
+        try (var stmt = conexao.createStatement();
+             var rs = stmt.executeQuery("SELECT COALESCE(MAX(seq), 0) FROM Alteracao")) {
+            return rs.getLong(1);
+        }
+    }
+
+    private Map<String, List<Alteracao>> buscarNovas() throws SQLException {
+        var sql = """
+            SELECT seq, tabela, registro_id, operacao FROM Alteracao
+            WHERE seq > ? ORDER BY seq
+            """;
+
+        // Agrupa por tabela e guarda só a última operação de cada registro.
+        var porTabela = new LinkedHashMap<String, LinkedHashMap<Integer, Alteracao>>();
+        try (var stmt = conexao.prepareStatement(sql)) {
+            stmt.setLong(1, ultimoSeq);
+
+            var rs = stmt.executeQuery();
+            while (rs.next()) {
+                var operacao = switch (rs.getString("operacao")) {
+                    case "I" -> Alteracao.Operacao.INSERCAO;
+                    case "R" -> Alteracao.Operacao.REMOCAO;
+                    default -> Alteracao.Operacao.ATUALIZACAO;
+                };
+                var alteracao = new Alteracao(
+                        rs.getLong("seq"),
+                        rs.getString("tabela"),
+                        rs.getInt("registro_id"),
+                        operacao
+                );
+
+                var registros = porTabela.computeIfAbsent(alteracao.tabela(), t -> new LinkedHashMap<>());
+                registros.remove(alteracao.registroId());
+                registros.put(alteracao.registroId(), alteracao);
+                ultimoSeq = alteracao.seq();
+            }
+        }
+
+        var resultado = new LinkedHashMap<String, List<Alteracao>>();
+        porTabela.forEach((tabela, registros) -> resultado.put(tabela, new ArrayList<>(registros.values())));
+        return resultado;
+    }
+
+    private void publicar(Map<String, List<Alteracao>> novas) {
+        novas.forEach((tabela, alteracoes) -> {
+            var inscritos = assinantes.get(tabela);
+            if (inscritos == null)
+                return;
+
+            for (var assinante : inscritos) {
+                // Um assinante com problema não pode parar o observador.
+                try {
+                    assinante.accept(alteracoes);
+                } catch (RuntimeException e) {
+                    log.error("Erro ao publicar alterações de " + tabela + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Apaga do registro as alterações mais antigas que a retenção, que nenhum
+     * observador vai mais pedir.
+     * @return A quantidade de alterações apagadas.
+     */
+    public int limparRegistro() {
+        try (var conn = banco.pegarConnection()) {
+            return limparAntigas(conn);
+        } catch (SQLException e) {
+            String err = "Erro ao limpar o registro de alterações: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
+    private static int limparAntigas(Connection conn) throws SQLException {
+        var sql = "DELETE FROM Alteracao WHERE criado_em < strftime('%s', 'now') - ?";
+        try (var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, RETENCAO_SEGUNDOS);
+            return stmt.executeUpdate();
+        }
+    }
+
+    private void fecharConexao() {
+        try {
+            if (conexao != null)
+                conexao.close();
+        } catch (SQLException ignored) {
+            // A conexão já estava inutilizável.
+        }
+        conexao = null;
+        ultimaVersao = -1;
+    }
+}
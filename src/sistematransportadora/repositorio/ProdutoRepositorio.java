@@ -2,20 +2,57 @@ package sistematransportadora.repositorio;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import sistematransportadora.ConexaoBanco;
+import sistematransportadora.Banco;
+import sistematransportadora.RegistroBancos;
 import sistematransportadora.modelo.Dimensoes;
 import sistematransportadora.modelo.Fragilidade;
 import sistematransportadora.modelo.Produto;
 import sistematransportadora.modelo.ProdutoTipo;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 public class ProdutoRepositorio implements Repositorio<Produto> {
     private static final Logger log = LoggerFactory.getLogger(ProdutoRepositorio.class);
+    private final Banco banco;
+    private final CacheConsultas cache;
+
+    public ProdutoRepositorio() {
+        this(RegistroBancos.padrao());
+    }
+
+    public ProdutoRepositorio(Banco banco) {
+        this.banco = banco;
+        this.cache = banco.pegarCache();
+    }
+
+    /**
+     * Cria o repositório de produtos do banco padrão ou, se a aplicação estiver dividida
+     * por filial, um que consulta todas as filiais.
+     * @return {@link ProdutoRepositorio}
+     */
+    public static ProdutoRepositorio padrao() {
+        var filiais = RegistroBancos.filiais();
+        return filiais != null ? new ProdutoRepositorioFederado(filiais) : new ProdutoRepositorio();
+    }
+
+    /**
+     * Cria o repositório de produtos que lê das réplicas de leitura, para relatórios
+     * que não precisam dos dados do último instante.
+     * @return {@link ProdutoRepositorio}
+     */
+    public static ProdutoRepositorio paraRelatorios() {
+        var filiais = RegistroBancos.filiais();
+        if (filiais != null)
+            return new ProdutoRepositorioFederado(filiais.replicas());
+
+        return new ProdutoRepositorio(RegistroBancos.padrao().pegarReplica().pegarBanco());
+    }
 
     /**
      * Cria um novo produto na base de dados.
@@ -23,9 +60,9 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
      */
     @Override
     public void criarNovo(Produto obj) {
-        String sql = "INSERT INTO Produto VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO Produto VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1)";
 
-        try (var conn = ConexaoBanco.pegarConnection()) {
+        try (var conn = banco.pegarConnection()) {
             var stmt = conn.prepareStatement(sql);
             preparaStmt(stmt, obj, false);
 
@@ -38,6 +75,39 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
         }
     }
 
+    /**
+     * Cria vários produtos de uma vez, na transação já aberta na conexão dada.
+     * Os produtos com id já cadastrada são ignorados.
+     * @param conn Conexão com a transação do lote.
+     * @param objs Novos produtos para serem adicionados.
+     * @return Para cada produto, na mesma ordem, se ele foi adicionade.
+     */
+    public boolean[] criarVarios(Connection conn, List<Produto> objs) {
+        String sql = "INSERT OR IGNORE INTO Produto VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1)";
+
+        try (var stmt = conn.prepareStatement(sql)) {
+            for (var obj : objs) {
+                // Os parâmetros de um item do lote não podem sobrar para o próximo.
+                stmt.clearParameters();
+                preparaStmt(stmt, obj, false);
+                stmt.addBatch();
+            }
+
+            var contagens = stmt.executeBatch();
+            var adicionados = new boolean[objs.size()];
+            for (int i = 0; i < contagens.length; i++) {
+                adicionados[i] = contagens[i] > 0;
+            }
+
+            return adicionados;
+        } catch (SQLException e) {
+            String err = "Erro ao adicionar produtos: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
     /**
      * Busca por um produto na base de dados com id correspondente e o retorna.
      * Se não houver, retorna {@code null}.
@@ -52,21 +122,23 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
             WHERE p.id = ?
             """;
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            stmt.setInt(1, id);
+        return cache.buscar(sql, new Object[] {id}, () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                stmt.setInt(1, id);
 
-            var rs = stmt.executeQuery();
-            if (!rs.next())
-                return null;
+                var rs = stmt.executeQuery();
+                if (!rs.next())
+                    return null;
 
-            return resultParaProduto(rs);
-        } catch (SQLException e) {
-            String err = "Erro ao conectar com o banco: " + e.getMessage();
-            log.error(err);
+                return resultParaProduto(rs);
+            } catch (SQLException e) {
+                String err = "Erro ao conectar com o banco: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        }, Produto::copiar);
     }
 
     /**
@@ -80,18 +152,61 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
             JOIN Tipo_Produto tp ON tp.id = p.tipo_id
             """;
 
-        try (var conn = ConexaoBanco.pegarConnection()) {
+        // Enquanto o banco não mudar desde a abertura, a foto poupa a consulta.
+        var foto = banco.pegarFoto().produtos();
+        if (foto != null)
+            return foto;
+
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var conn = banco.pegarConnection()) {
+                var stmt = conn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
+                var lista = new ArrayList<Produto>();
+
+                while (rs.next()) {
+                    lista.add(resultParaProduto(rs));
+                }
+
+                return lista.toArray(Produto[]::new);
+            } catch(SQLException e) {
+                String err = "Erro ao buscar produtos: " + e.getMessage();
+                log.error(err);
+
+                throw new RuntimeException(err);
+            }
+        }, Copias::produtos);
+    }
+
+    /**
+     * Busca numa consulta só os produtos das embalagens de uma carga.
+     * @param cargaId Id da carga.
+     * @return Os produtos, pela id.
+     */
+    HashMap<Integer, Produto> buscarDaCarga(int cargaId) {
+        String sql = """
+            SELECT p.*, tp.nome as tipo, tp.padrao as tipo_padrao FROM Produto p
+            JOIN Tipo_Produto tp ON tp.id = p.tipo_id
+            WHERE p.id IN (
+                SELECT e.produto_id FROM CargaItem ci
+                JOIN Embalagem e ON e.id = ci.embalagem_id
+                WHERE ci.carga_id = ?
+            )
+            """;
+
+        try (var conn = banco.pegarConnection()) {
             var stmt = conn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
-            var lista = new ArrayList<Produto>();
+            stmt.setInt(1, cargaId);
 
+            var rs = stmt.executeQuery();
+            var produtos = new HashMap<Integer, Produto>();
             while (rs.next()) {
-                lista.add(resultParaProduto(rs));
+                var produto = resultParaProduto(rs);
+                produtos.put(produto.getId(), produto);
             }
 
-            return lista.toArray(Produto[]::new);
-        } catch(SQLException e) {
-            String err = "Erro ao buscar produtos: " + e.getMessage();
+            return produtos;
+        } catch (SQLException e) {
+            String err = "Erro ao buscar os produtos da carga: " + e.getMessage();
             log.error(err);
 
             throw new RuntimeException(err);
@@ -113,28 +228,30 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
             GROUP BY tipo_id;
             """;
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
-            HashMap<String, Integer> dicionario = new HashMap<>();
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
+                HashMap<String, Integer> dicionario = new HashMap<>();
 
-            while (rs.next()) {
-                dicionario.put(
-                        rs.getString("tipo"),
-                        rs.getInt("quantidade")
-                );
-            }
+                while (rs.next()) {
+                    dicionario.put(
+                            rs.getString("tipo"),
+                            rs.getInt("quantidade")
+                    );
+                }
 
-            if (dicionario.isEmpty())
-                return null;
+                if (dicionario.isEmpty())
+                    return null;
 
-            return dicionario;
-        } catch (SQLException e) {
-            String err = "Erro ao contar por tipo de produtos: " + e.getMessage();
-            log.error(err);
+                return dicionario;
+            } catch (SQLException e) {
+                String err = "Erro ao contar por tipo de produtos: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        }, HashMap::new);
     }
 
     /**
@@ -144,17 +261,19 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
     @Override
     public int contarTodos() {
         var sql = "SELECT COUNT(*) as quantidade FROM Produto";
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
 
-            return rs.getInt("quantidade");
-        } catch (SQLException e) {
-            String err = "Erro ao contar todos produtos: " + e.getMessage();
-            log.error(err);
+                return rs.getInt("quantidade");
+            } catch (SQLException e) {
+                String err = "Erro ao contar todos produtos: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        });
     }
 
     /**
@@ -166,17 +285,19 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
             SELECT COUNT(DISTINCT p.familia) as quantidade FROM Produto p
             """;
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
 
-            return rs.getInt("quantidade");
-        } catch (SQLException e) {
-            String err = "Erro ao contar famílias cadastradas: " + e.getMessage();
-            log.error(err);
+                return rs.getInt("quantidade");
+            } catch (SQLException e) {
+                String err = "Erro ao contar famílias cadastradas: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        });
     }
 
     /**
@@ -188,17 +309,35 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
             SELECT COUNT(DISTINCT lote) as quantidade FROM Produto
             """;
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
 
-            return rs.getInt("quantidade");
-        } catch (SQLException e) {
-            String err = "Erro ao contar lotes cadastrados: " + e.getMessage();
-            log.error(err);
+                return rs.getInt("quantidade");
+            } catch (SQLException e) {
+                String err = "Erro ao contar lotes cadastrados: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        });
+    }
+
+    /**
+     * Busca as famílias distintas cadastradas no banco.
+     * @return {@code String[]}
+     */
+    public String[] buscarFamilias() {
+        return buscarDistintos("SELECT DISTINCT familia FROM Produto WHERE familia IS NOT NULL", "famílias");
+    }
+
+    /**
+     * Busca os lotes distintos cadastrados no banco.
+     * @return {@code String[]}
+     */
+    public String[] buscarLotes() {
+        return buscarDistintos("SELECT DISTINCT lote FROM Produto WHERE lote IS NOT NULL", "lotes");
     }
 
     /**
@@ -210,7 +349,7 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
     public boolean existeId(int id) {
         var sql = "SELECT EXISTS(SELECT 1 FROM Produto WHERE id = ?) as existe";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, id);
 
@@ -225,25 +364,33 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
     }
 
     /**
-     * Atualiza um produto com base na id. Por isso, um produto com id inexistente no banco
-     * de dados não surtirá efeito algum caso enviado como parâmetro.
+     * Atualiza um produto com base na id, desde que a versão no banco ainda seja a mesma
+     * do objeto. Se for, a versão é incrementada no banco e no objeto. Se outra
+     * edição tiver sido salva antes, ou se a id não existir, nada é alterado.
      * @param obj Produto com atributos atualizados.
+     * @return {@code true} se foi atualizado, {@code false} se houve conflito de versão
+     * ou a id não existe.
      */
     @Override
-    public void atualizarUm(Produto obj) {
+    public boolean atualizarUm(Produto obj) {
         var sql = """
             UPDATE Produto SET nome = ?, descricao = ?,
             familia = ?, tipo_id = ?, lote = ?,
             altura = ?, largura = ?, comprimento = ?,
-            peso = ?, grau_fragilidade = ?, observacoes = ?
-            WHERE id = ?
+            peso = ?, grau_fragilidade = ?, observacoes = ?,
+            versao = versao + 1
+            WHERE id = ? AND versao = ?
             """;
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             preparaStmt(stmt, obj, true);
 
-            stmt.executeUpdate();
+            if (stmt.executeUpdate() == 0)
+                return false;
+
+            obj.setVersao(obj.getVersao() + 1);
+            return true;
         } catch (SQLException e) {
             String err = "Erro ao atualizar produto: " + e.getMessage();
             log.error(err);
@@ -252,6 +399,54 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
         }
     }
 
+    /**
+     * Cria ou atualiza vários produtos numa única transação. Nos produtos que
+     * já existem, o nome e o lote são atualizados, e a família e o peso só se
+     * ainda não eram conhecidos, já que quem chama costuma ter só estimativas
+     * deles: tipo, descrição, dimensões, fragilidade e observações ficam como
+     * foram cadastrados. Os que não mudaram não são regravados.
+     * @param objs Produtos a serem salvos.
+     */
+    public void salvarVarios(List<Produto> objs) {
+        String sql = """
+            INSERT INTO Produto VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1)
+            ON CONFLICT (id) DO UPDATE SET nome = excluded.nome,
+            familia = COALESCE(NULLIF(familia, ''), excluded.familia),
+            lote = COALESCE(excluded.lote, lote),
+            peso = CASE WHEN peso > 0 THEN peso ELSE excluded.peso END,
+            versao = versao + 1
+            WHERE nome IS NOT excluded.nome
+            OR familia IS NOT COALESCE(NULLIF(familia, ''), excluded.familia)
+            OR lote IS NOT COALESCE(excluded.lote, lote)
+            OR peso IS NOT (CASE WHEN peso > 0 THEN peso ELSE excluded.peso END)
+            """;
+
+        try (var conn = banco.pegarConnection()) {
+            conn.setAutoCommit(false);
+
+            try (var stmt = conn.prepareStatement(sql)) {
+                for (var obj : objs) {
+                    stmt.clearParameters();
+                    preparaStmt(stmt, obj, false);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            String err = "Erro ao salvar produtos: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
     /**
      * Apaga um produto com id correspondente na base de dados.
      * @param id Id do produto a ser apagado.
@@ -260,7 +455,7 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
     public void apagarPorId(int id) {
         var sql = "DELETE FROM Produto WHERE id = ?";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, id);
 
@@ -273,6 +468,29 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
         }
     }
 
+    /**
+     * Apaga vários produtos numa única transação, junto com as embalagens
+     * associadas a eles.
+     * @param ids Ids dos produtos a serem apagados.
+     * @return A quantidade de embalagens apagadas em cascata.
+     */
+    @Override
+    public int apagarVarios(int[] ids) {
+        var sql = """
+            SELECT COUNT(*) FROM Embalagem
+            WHERE produto_id IN (SELECT id FROM temp.ids_apagar)
+            """;
+
+        try {
+            return ApagamentoEmLote.apagar(banco, "Produto", sql, ids);
+        } catch (SQLException e) {
+            String err = "Erro ao apagar produtos: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
     /**
      * Cria um novo tipo de produto na base de dados.
      * @param novoTipo O novo tipo que se deseja adicionar.
@@ -280,7 +498,7 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
     public void criarNovoTipo(ProdutoTipo novoTipo) {
         var sql = "INSERT INTO Tipo_Produto VALUES (?, ?, ?)";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, novoTipo.id());
             stmt.setString(2, novoTipo.nome());
@@ -304,26 +522,28 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
     public ProdutoTipo buscarTipoPorId(int id) {
         var sql = "SELECT * FROM Tipo_Produto WHERE id = ?";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            stmt.setInt(1, id);
+        return cache.buscar(sql, new Object[] {id}, () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                stmt.setInt(1, id);
 
-            var rs = stmt.executeQuery();
+                var rs = stmt.executeQuery();
 
-            if (!rs.next())
-                return null;
+                if (!rs.next())
+                    return null;
 
-            return new ProdutoTipo(
-                    rs.getInt("id"),
-                    rs.getString("nome"),
-                    rs.getBoolean("padrao")
-            );
-        } catch (SQLException e) {
-            String err = "Erro ao buscar tipo de produto por id: " + e.getMessage();
-            log.error(err);
+                return new ProdutoTipo(
+                        rs.getInt("id"),
+                        rs.getString("nome"),
+                        rs.getBoolean("padrao")
+                );
+            } catch (SQLException e) {
+                String err = "Erro ao buscar tipo de produto por id: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        });
     }
 
     /**
@@ -333,25 +553,27 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
     public ProdutoTipo[] buscarTipos() {
         var sql = "SELECT * FROM Tipo_Produto";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
-            var lista = new ArrayList<ProdutoTipo>();
-
-            while (rs.next()) {
-                lista.add(new ProdutoTipo(
-                        rs.getInt("id"),
-                        rs.getString("nome"),
-                        rs.getBoolean("padrao")
-                ));
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
+                var lista = new ArrayList<ProdutoTipo>();
+
+                while (rs.next()) {
+                    lista.add(new ProdutoTipo(
+                            rs.getInt("id"),
+                            rs.getString("nome"),
+                            rs.getBoolean("padrao")
+                    ));
+                }
+                return lista.toArray(ProdutoTipo[]::new);
+            } catch (SQLException e) {
+                String err = "Erro buscar tipos de produto: " + e.getMessage();
+                log.error(err);
+
+                throw new RuntimeException(err);
             }
-            return lista.toArray(ProdutoTipo[]::new);
-        } catch (SQLException e) {
-            String err = "Erro buscar tipos de produto: " + e.getMessage();
-            log.error(err);
-
-            throw new RuntimeException(err);
-        }
+        }).clone();
     }
     
     /**
@@ -360,17 +582,19 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
      */
     public int contarTipos() {
         var sql = "SELECT COUNT(*) as quantidade FROM Tipo_Produto";
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
 
-            return rs.getInt("quantidade");
-        } catch (SQLException e) {
-            String err = "Erro ao contar todos os tipos de produto: " + e.getMessage();
-            log.error(err);
+                return rs.getInt("quantidade");
+            } catch (SQLException e) {
+                String err = "Erro ao contar todos os tipos de produto: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        });
     }
     
     /**
@@ -381,7 +605,7 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
     public boolean existeTipoId(int id) {
         var sql = "SELECT EXISTS(SELECT 1 FROM Tipo_Produto WHERE id = ?) as existe";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, id);
 
@@ -402,7 +626,7 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
     public void atualizarUmTipo(ProdutoTipo novoTipo) {
         var sql = "UPDATE Tipo_Produto SET nome = ?, padrao = ? WHERE id = ?";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setString(1, novoTipo.nome());
             stmt.setBoolean(2, novoTipo.isPadrao());
@@ -424,7 +648,7 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
     public void apagarTipo(int id) {
         var sql = "DELETE FROM Tipo_Produto WHERE id = ?";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, id);
 
@@ -437,6 +661,26 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
         }
     }
 
+    private String[] buscarDistintos(String sql, String descricao) {
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
+                var lista = new ArrayList<String>();
+
+                while (rs.next()) {
+                    lista.add(rs.getString(1));
+                }
+                return lista.toArray(String[]::new);
+            } catch (SQLException e) {
+                String err = "Erro ao buscar " + descricao + ": " + e.getMessage();
+                log.error(err);
+
+                throw new RuntimeException(err);
+            }
+        }).clone();
+    }
+
     private Produto resultParaProduto(ResultSet rs) throws SQLException {
         var tipo = new ProdutoTipo(
                 rs.getInt("tipo_id"),
@@ -466,6 +710,7 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
         produto.setPeso(rs.getDouble("peso"));
         produto.setGrauFragilidade(fragilidade);
         produto.setObservacoes(rs.getString("observacoes"));
+        produto.setVersao(rs.getInt("versao"));
 
         return produto;
     }
@@ -499,5 +744,8 @@ public class ProdutoRepositorio implements Repositorio<Produto> {
         stmt.setDouble(++i, obj.getPeso());
         stmt.setString(++i, fragilidadeString);
         stmt.setString(++i, obj.getObservacoes());
+
+        if (updateMode)
+            stmt.setInt(13, obj.getVersao());
     }
 }
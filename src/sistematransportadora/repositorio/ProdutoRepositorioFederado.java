@@ -0,0 +1,216 @@
+package sistematransportadora.repositorio;
+
+import sistematransportadora.Filiais;
+import sistematransportadora.modelo.Produto;
+import sistematransportadora.modelo.ProdutoTipo;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Repositório de produtos para a aplicação dividida por filial.
+ * <p>
+ * Cada produto é gravado no banco da filial indicada em {@link Produto#getFilial()},
+ * ou no da principal se ela não for indicada. As buscas e contagens consultam
+ * todas as filiais em paralelo e juntam os resultados. Os tipos de produto
+ * são gravados em todas as filiais, já que cada produto precisa do seu tipo
+ * no mesmo banco, e lidos de todas elas, com os da principal na frente, para
+ * um tipo que só exista numa filial ainda ser encontrado.
+ */
+public class ProdutoRepositorioFederado extends ProdutoRepositorio {
+    private final Federacao<ProdutoRepositorio> federacao;
+
+    public ProdutoRepositorioFederado(Filiais filiais) {
+        super(filiais.pegar(filiais.principal()));
+        this.federacao = new Federacao<>(filiais, ProdutoRepositorio::new);
+    }
+
+    /**
+     * Busca a filial onde o produto com a id dada está guardado.
+     * @param id Id do produto.
+     * @return O nome da filial, ou {@code null} se o produto não existir.
+     */
+    public String filialDe(int id) {
+        return federacao.filialOnde(repositorio -> repositorio.existeId(id));
+    }
+
+    @Override
+    public void criarNovo(Produto obj) {
+        var filial = obj.getFilial() != null ? obj.getFilial() : federacao.principal();
+        federacao.da(filial).criarNovo(obj);
+        obj.setFilial(filial);
+    }
+
+    @Override
+    public Produto buscarPorId(int id) {
+        return federacao.primeiro((filial, repositorio) -> comFilial(repositorio.buscarPorId(id), filial));
+    }
+
+    @Override
+    public Produto[] buscarTodos() {
+        var todos = new ArrayList<Produto>();
+        federacao.emTodas((filial, repositorio) -> {
+            var produtos = repositorio.buscarTodos();
+            for (var produto : produtos) {
+                comFilial(produto, filial);
+            }
+            return produtos;
+        }).values().forEach(produtos -> todos.addAll(Arrays.asList(produtos)));
+
+        return todos.toArray(Produto[]::new);
+    }
+
+    @Override
+    public HashMap<String, Integer> contarPorTipo() {
+        return federacao.somarPorTipo(ProdutoRepositorio::contarPorTipo);
+    }
+
+    @Override
+    public int contarTodos() {
+        return federacao.somar((filial, repositorio) -> repositorio.contarTodos());
+    }
+
+    @Override
+    public int contarFamiliasCadastradas() {
+        return buscarFamilias().length;
+    }
+
+    @Override
+    public int contarLotesCadastrados() {
+        return buscarLotes().length;
+    }
+
+    @Override
+    public String[] buscarFamilias() {
+        return unir(federacao.emTodas((filial, repositorio) -> repositorio.buscarFamilias()).values());
+    }
+
+    @Override
+    public String[] buscarLotes() {
+        return unir(federacao.emTodas((filial, repositorio) -> repositorio.buscarLotes()).values());
+    }
+
+    @Override
+    public boolean existeId(int id) {
+        return filialDe(id) != null;
+    }
+
+    /**
+     * Atualiza o produto no banco da filial em que ele está. Se a filial não
+     * estiver no objeto, ela é procurada antes.
+     */
+    @Override
+    public boolean atualizarUm(Produto obj) {
+        var filial = obj.getFilial() != null ? obj.getFilial() : filialDe(obj.getId());
+        if (filial == null)
+            return false;
+
+        return federacao.da(filial).atualizarUm(obj);
+    }
+
+    /**
+     * Salva cada produto na filial onde ele já está. Os novos vão para a
+     * filial indicada no objeto, ou para a principal.
+     */
+    @Override
+    public void salvarVarios(List<Produto> objs) {
+        var porFilial = new LinkedHashMap<String, List<Produto>>();
+        for (var obj : objs) {
+            var filial = obj.getFilial() != null ? obj.getFilial() : filialDe(obj.getId());
+            if (filial == null)
+                filial = federacao.principal();
+
+            porFilial.computeIfAbsent(filial, nome -> new ArrayList<>()).add(obj);
+        }
+
+        porFilial.forEach((filial, produtos) -> federacao.da(filial).salvarVarios(produtos));
+    }
+
+    @Override
+    public void apagarPorId(int id) {
+        federacao.emTodas((filial, repositorio) -> {
+            repositorio.apagarPorId(id);
+            return null;
+        });
+    }
+
+    @Override
+    public int apagarVarios(int[] ids) {
+        return federacao.somar((filial, repositorio) -> repositorio.apagarVarios(ids));
+    }
+
+    /**
+     * Grava cada produto na filial indicada nele, ou na principal. Os da
+     * principal usam a conexão dada; os das outras filiais, uma transação
+     * própria no banco delas.
+     */
+    @Override
+    public boolean[] criarVarios(Connection conn, List<Produto> objs) {
+        return federacao.criarVarios(conn, objs, Produto::getFilial, ProdutoRepositorio::criarVarios);
+    }
+
+    @Override
+    public ProdutoTipo buscarTipoPorId(int id) {
+        return federacao.primeiro((filial, repositorio) -> repositorio.buscarTipoPorId(id));
+    }
+
+    @Override
+    public ProdutoTipo[] buscarTipos() {
+        return federacao.unir(ProdutoRepositorio::buscarTipos, ProdutoTipo::id).toArray(ProdutoTipo[]::new);
+    }
+
+    @Override
+    public int contarTipos() {
+        return buscarTipos().length;
+    }
+
+    @Override
+    public boolean existeTipoId(int id) {
+        return federacao.filialOnde(repositorio -> repositorio.existeTipoId(id)) != null;
+    }
+
+    @Override
+    public void criarNovoTipo(ProdutoTipo novoTipo) {
+        federacao.emTodas((filial, repositorio) -> {
+            repositorio.criarNovoTipo(novoTipo);
+            return null;
+        });
+    }
+
+    @Override
+    public void atualizarUmTipo(ProdutoTipo novoTipo) {
+        federacao.emTodas((filial, repositorio) -> {
+            repositorio.atualizarUmTipo(novoTipo);
+            return null;
+        });
+    }
+
+    @Override
+    public void apagarTipo(int id) {
+        federacao.emTodas((filial, repositorio) -> {
+            repositorio.apagarTipo(id);
+            return null;
+        });
+    }
+
+    private static Produto comFilial(Produto produto, String filial) {
+        if (produto != null)
+            produto.setFilial(filial);
+
+        return produto;
+    }
+
+    private static String[] unir(Iterable<String[]> porFilial) {
+        var distintos = new HashSet<String>();
+        for (var valores : porFilial) {
+            distintos.addAll(Arrays.asList(valores));
+        }
+
+        return distintos.toArray(String[]::new);
+    }
+}
@@ -21,8 +21,9 @@ public interface Repositorio<T> {
     boolean existeId(int id);
 
     // Update
-    void atualizarUm(T obj);
+    boolean atualizarUm(T obj);
 
     // Delete
     void apagarPorId(int id);
+    int apagarVarios(int[] ids);
 }
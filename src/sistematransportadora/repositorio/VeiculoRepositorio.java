@@ -2,19 +2,56 @@ package sistematransportadora.repositorio;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import sistematransportadora.ConexaoBanco;
+import sistematransportadora.Banco;
+import sistematransportadora.RegistroBancos;
 import sistematransportadora.modelo.Dimensoes;
 import sistematransportadora.modelo.Veiculo;
 import sistematransportadora.modelo.VeiculoTipo;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 public class VeiculoRepositorio implements Repositorio<Veiculo> {
     private static final Logger log = LoggerFactory.getLogger(VeiculoRepositorio.class);
+    private final Banco banco;
+    private final CacheConsultas cache;
+
+    public VeiculoRepositorio() {
+        this(RegistroBancos.padrao());
+    }
+
+    public VeiculoRepositorio(Banco banco) {
+        this.banco = banco;
+        this.cache = banco.pegarCache();
+    }
+
+    /**
+     * Cria o repositório de veículos do banco padrão ou, se a aplicação estiver dividida
+     * por filial, um que consulta todas as filiais.
+     * @return {@link VeiculoRepositorio}
+     */
+    public static VeiculoRepositorio padrao() {
+        var filiais = RegistroBancos.filiais();
+        return filiais != null ? new VeiculoRepositorioFederado(filiais) : new VeiculoRepositorio();
+    }
+
+    /**
+     * Cria o repositório de veículos que lê das réplicas de leitura, para relatórios
+     * que não precisam dos dados do último instante.
+     * @return {@link VeiculoRepositorio}
+     */
+    public static VeiculoRepositorio paraRelatorios() {
+        var filiais = RegistroBancos.filiais();
+        if (filiais != null)
+            return new VeiculoRepositorioFederado(filiais.replicas());
+
+        return new VeiculoRepositorio(RegistroBancos.padrao().pegarReplica().pegarBanco());
+    }
 
     /**
      * Cria um novo veículo na base de dados.
@@ -22,9 +59,9 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
      */
     @Override
     public void criarNovo(Veiculo obj) {
-        String sql = "INSERT INTO Veiculo VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO Veiculo VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1)";
 
-        try (var conn = ConexaoBanco.pegarConnection()) {
+        try (var conn = banco.pegarConnection()) {
             var stmt = conn.prepareStatement(sql);
             preparaStmt(stmt, obj, false);
 
@@ -37,6 +74,39 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
         }
     }
 
+    /**
+     * Cria vários veículos de uma vez, na transação já aberta na conexão dada.
+     * Os veículos com id ou placa já cadastrada são ignorados.
+     * @param conn Conexão com a transação do lote.
+     * @param objs Novos veículos para serem adicionados.
+     * @return Para cada veículo, na mesma ordem, se ele foi adicionade.
+     */
+    public boolean[] criarVarios(Connection conn, List<Veiculo> objs) {
+        String sql = "INSERT OR IGNORE INTO Veiculo VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1)";
+
+        try (var stmt = conn.prepareStatement(sql)) {
+            for (var obj : objs) {
+                // Os parâmetros de um item do lote não podem sobrar para o próximo.
+                stmt.clearParameters();
+                preparaStmt(stmt, obj, false);
+                stmt.addBatch();
+            }
+
+            var contagens = stmt.executeBatch();
+            var adicionados = new boolean[objs.size()];
+            for (int i = 0; i < contagens.length; i++) {
+                adicionados[i] = contagens[i] > 0;
+            }
+
+            return adicionados;
+        } catch (SQLException e) {
+            String err = "Erro ao adicionar veículos: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
     /**
      * Busca por um veículo na base de dados com id correspondente e o retorna.
      * Se não houver, retorna {@code null}.
@@ -51,21 +121,23 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
             WHERE v.id = ?
             """;
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            stmt.setInt(1, id);
+        return cache.buscar(sql, new Object[] {id}, () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                stmt.setInt(1, id);
 
-            var rs = stmt.executeQuery();
-            if (!rs.next())
-                return null;
+                var rs = stmt.executeQuery();
+                if (!rs.next())
+                    return null;
 
-            return resultParaVeiculo(rs);
-        } catch (SQLException e) {
-            String err = "Erro ao conectar com o banco: " + e.getMessage();
-            log.error(err);
+                return resultParaVeiculo(rs);
+            } catch (SQLException e) {
+                String err = "Erro ao conectar com o banco: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        }, Veiculo::copiar);
     }
 
     /**
@@ -81,21 +153,23 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
             WHERE v.placa = ?
             """;
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            stmt.setString(1, placa);
+        return cache.buscar(sql, new Object[] {placa}, () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                stmt.setString(1, placa);
 
-            var rs = stmt.executeQuery();
-            if (!rs.next())
-                return null;
+                var rs = stmt.executeQuery();
+                if (!rs.next())
+                    return null;
 
-            return resultParaVeiculo(rs);
-        } catch (SQLException e) {
-            String err = "Erro ao buscar veículo por placa: " + e.getMessage();
-            log.error(err);
+                return resultParaVeiculo(rs);
+            } catch (SQLException e) {
+                String err = "Erro ao buscar veículo por placa: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        }, Veiculo::copiar);
     }
 
     /**
@@ -109,22 +183,28 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
             JOIN Tipo_Veiculo tv ON tv.id = v.tipo_id
             """;
 
-        try (var conn = ConexaoBanco.pegarConnection()) {
-            var stmt = conn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
-            var lista = new ArrayList<Veiculo>();
+        var foto = banco.pegarFoto().veiculos();
+        if (foto != null)
+            return foto;
 
-            while (rs.next()) {
-                lista.add(resultParaVeiculo(rs));
-            }
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var conn = banco.pegarConnection()) {
+                var stmt = conn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
+                var lista = new ArrayList<Veiculo>();
 
-            return lista.toArray(Veiculo[]::new);
-        } catch(SQLException e) {
-            String err = "Erro ao buscar carros: " + e.getMessage();
-            log.error(err);
+                while (rs.next()) {
+                    lista.add(resultParaVeiculo(rs));
+                }
 
-            throw new RuntimeException(err);
-        }
+                return lista.toArray(Veiculo[]::new);
+            } catch(SQLException e) {
+                String err = "Erro ao buscar carros: " + e.getMessage();
+                log.error(err);
+
+                throw new RuntimeException(err);
+            }
+        }, Copias::veiculos);
     }
     
     /**
@@ -135,7 +215,7 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
     public boolean existeTipoId(int id) {
         var sql = "SELECT EXISTS(SELECT 1 FROM Tipo_Veiculo WHERE id = ?) as existe";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, id);
 
@@ -164,28 +244,30 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
             GROUP BY tipo_id;
             """;
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
-            HashMap<String, Integer> dicionario = new HashMap<>();
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
+                HashMap<String, Integer> dicionario = new HashMap<>();
 
-            while (rs.next()) {
-                dicionario.put(
-                        rs.getString("tipo"),
-                        rs.getInt("quantidade")
-                );
-            }
+                while (rs.next()) {
+                    dicionario.put(
+                            rs.getString("tipo"),
+                            rs.getInt("quantidade")
+                    );
+                }
 
-            if (dicionario.isEmpty())
-                return null;
+                if (dicionario.isEmpty())
+                    return null;
 
-            return dicionario;
-        } catch (SQLException e) {
-            String err = "Erro ao contar por tipo de veículos: " + e.getMessage();
-            log.error(err);
+                return dicionario;
+            } catch (SQLException e) {
+                String err = "Erro ao contar por tipo de veículos: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        }, HashMap::new);
     }
 
     /**
@@ -195,17 +277,19 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
     @Override
     public int contarTodos() {
         var sql = "SELECT COUNT(*) as quantidade FROM Veiculo";
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
 
-            return rs.getInt("quantidade");
-        } catch (SQLException e) {
-            String err = "Erro ao contar todos veículos: " + e.getMessage();
-            log.error(err);
+                return rs.getInt("quantidade");
+            } catch (SQLException e) {
+                String err = "Erro ao contar todos veículos: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        });
     }
     
     /**
@@ -214,17 +298,19 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
      */
     public int contarTipos() {
         var sql = "SELECT COUNT(*) as quantidade FROM Tipo_Veiculo";
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
 
-            return rs.getInt("quantidade");
-        } catch (SQLException e) {
-            String err = "Erro ao contar todos os tipos de veículo: " + e.getMessage();
-            log.error(err);
+                return rs.getInt("quantidade");
+            } catch (SQLException e) {
+                String err = "Erro ao contar todos os tipos de veículo: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        });
     }
 
     /**
@@ -236,7 +322,7 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
     public boolean existeId(int id) {
         var sql = "SELECT EXISTS(SELECT 1 FROM Veiculo WHERE id = ?) as existe";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, id);
 
@@ -251,25 +337,33 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
     }
 
     /**
-     * Atualiza um veículo com base na id. Por isso, um veículo com id inexistente no banco
-     * de dados não surtirá efeito algum caso enviado como parâmetro.
+     * Atualiza um veículo com base na id, desde que a versão no banco ainda seja a mesma
+     * do objeto. Se for, a versão é incrementada no banco e no objeto. Se outra
+     * edição tiver sido salva antes, ou se a id não existir, nada é alterado.
      * @param obj Veículo com atributos atualizados.
+     * @return {@code true} se foi atualizado, {@code false} se houve conflito de versão
+     * ou a id não existe.
      */
     @Override
-    public void atualizarUm(Veiculo obj) {
+    public boolean atualizarUm(Veiculo obj) {
         var sql = """
             UPDATE Veiculo SET nome = ?, placa = ?,
             modelo = ?, tipo_id = ?, altura_interna = ?,
             largura_interna = ?, comprimento_interno = ?,
-            capacidade_peso = ?, observacoes = ?
-            WHERE id = ?
+            capacidade_peso = ?, observacoes = ?,
+            versao = versao + 1
+            WHERE id = ? AND versao = ?
             """;
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             preparaStmt(stmt, obj, true);
 
-            stmt.executeUpdate();
+            if (stmt.executeUpdate() == 0)
+                return false;
+
+            obj.setVersao(obj.getVersao() + 1);
+            return true;
         } catch (SQLException e) {
             String err = "Erro ao atualizar veículo: " + e.getMessage();
             log.error(err);
@@ -286,7 +380,7 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
     public void apagarPorId(int id) {
         var sql = "DELETE FROM Veiculo WHERE id = ?";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, id);
 
@@ -299,6 +393,29 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
         }
     }
 
+    /**
+     * Apaga vários veículos numa única transação, junto com as cargas
+     * planejadas para eles.
+     * @param ids Ids dos veículos a serem apagados.
+     * @return A quantidade de cargas apagadas em cascata.
+     */
+    @Override
+    public int apagarVarios(int[] ids) {
+        var sql = """
+            SELECT COUNT(*) FROM Carga
+            WHERE veiculo_id IN (SELECT id FROM temp.ids_apagar)
+            """;
+
+        try {
+            return ApagamentoEmLote.apagar(banco, "Veiculo", sql, ids);
+        } catch (SQLException e) {
+            String err = "Erro ao apagar veículos: " + e.getMessage();
+            log.error(err);
+
+            throw new RuntimeException(err);
+        }
+    }
+
     /**
      * Cria um novo tipo de veículo na base de dados.
      * @param novoTipo O novo tipo que se deseja adicionar.
@@ -306,7 +423,7 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
     public void criarNovoTipo(VeiculoTipo novoTipo) {
         var sql = "INSERT INTO Tipo_Veiculo VALUES (?, ?, ?)";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, novoTipo.id());
             stmt.setString(2, novoTipo.nome());
@@ -330,26 +447,28 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
     public VeiculoTipo buscarTipoPorId(int id) {
         var sql = "SELECT * FROM Tipo_Veiculo WHERE id = ?";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            stmt.setInt(1, id);
+        return cache.buscar(sql, new Object[] {id}, () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                stmt.setInt(1, id);
 
-            var rs = stmt.executeQuery();
+                var rs = stmt.executeQuery();
 
-            if (!rs.next())
-                return null;
+                if (!rs.next())
+                    return null;
 
-            return new VeiculoTipo(
-                    rs.getInt("id"),
-                    rs.getString("nome"),
-                    rs.getBoolean("padrao")
-            );
-        } catch (SQLException e) {
-            String err = "Erro ao buscar tipo de veículo por id: " + e.getMessage();
-            log.error(err);
+                return new VeiculoTipo(
+                        rs.getInt("id"),
+                        rs.getString("nome"),
+                        rs.getBoolean("padrao")
+                );
+            } catch (SQLException e) {
+                String err = "Erro ao buscar tipo de veículo por id: " + e.getMessage();
+                log.error(err);
 
-            throw new RuntimeException(err);
-        }
+                throw new RuntimeException(err);
+            }
+        });
     }
 
     /**
@@ -359,25 +478,27 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
     public VeiculoTipo[] buscarTipos() {
         var sql = "SELECT * FROM Tipo_Veiculo";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
-            var stmt = bdConn.prepareStatement(sql);
-            var rs = stmt.executeQuery();
-            var lista = new ArrayList<VeiculoTipo>();
-
-            while (rs.next()) {
-                lista.add(new VeiculoTipo(
-                        rs.getInt("id"),
-                        rs.getString("nome"),
-                        rs.getBoolean("padrao")
-                ));
+        return cache.buscar(sql, new Object[0], () -> {
+            try (var bdConn = banco.pegarConnection()) {
+                var stmt = bdConn.prepareStatement(sql);
+                var rs = stmt.executeQuery();
+                var lista = new ArrayList<VeiculoTipo>();
+
+                while (rs.next()) {
+                    lista.add(new VeiculoTipo(
+                            rs.getInt("id"),
+                            rs.getString("nome"),
+                            rs.getBoolean("padrao")
+                    ));
+                }
+                return lista.toArray(VeiculoTipo[]::new);
+            } catch (SQLException e) {
+                String err = "Erro buscar tipos de veículo: " + e.getMessage();
+                log.error(err);
+
+                throw new RuntimeException(err);
             }
-            return lista.toArray(VeiculoTipo[]::new);
-        } catch (SQLException e) {
-            String err = "Erro buscar tipos de veículo: " + e.getMessage();
-            log.error(err);
-
-            throw new RuntimeException(err);
-        }
+        }).clone();
     }
 
     /**
@@ -387,7 +508,7 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
     public void atualizarUmTipo(VeiculoTipo novoTipo) {
         var sql = "UPDATE Tipo_Veiculo SET nome = ?, padrao = ? WHERE id = ?";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setString(1, novoTipo.nome());
             stmt.setBoolean(2, novoTipo.isPadrao());
@@ -409,7 +530,7 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
     public void apagarTipo(int id) {
         var sql = "DELETE FROM Tipo_Veiculo WHERE id = ?";
 
-        try (var bdConn = ConexaoBanco.pegarConnection()) {
+        try (var bdConn = banco.pegarConnection()) {
             var stmt = bdConn.prepareStatement(sql);
             stmt.setInt(1, id);
 
@@ -443,6 +564,7 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
                 rs.getDouble("comprimento_interno")
         ));
         veiculo.setObservacoes(rs.getString("observacoes"));
+        veiculo.setVersao(rs.getInt("versao"));
 
         return veiculo;
     }
@@ -463,5 +585,8 @@ public class VeiculoRepositorio implements Repositorio<Veiculo> {
         } else i += 3;
         stmt.setDouble(++i, obj.getCapacidadeDePeso());
         stmt.setString(++i, obj.getObservacoes());
+
+        if (updateMode)
+            stmt.setInt(11, obj.getVersao());
     }
 }
@@ -0,0 +1,171 @@
+package sistematransportadora.repositorio;
+
+import sistematransportadora.Filiais;
+import sistematransportadora.modelo.Veiculo;
+import sistematransportadora.modelo.VeiculoTipo;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Repositório de veículos para a aplicação dividida por filial.
+ * <p>
+ * Cada veículo é gravado no banco da filial indicada em {@link Veiculo#getFilial()},
+ * ou no da principal se ela não for indicada. As buscas e contagens consultam
+ * todas as filiais em paralelo e juntam os resultados. Os tipos de veículo
+ * são gravados em todas as filiais e lidos de todas elas, com os da principal
+ * na frente, para um tipo que só exista numa filial ainda ser encontrado.
+ */
+public class VeiculoRepositorioFederado extends VeiculoRepositorio {
+    private final Federacao<VeiculoRepositorio> federacao;
+
+    public VeiculoRepositorioFederado(Filiais filiais) {
+        super(filiais.pegar(filiais.principal()));
+        this.federacao = new Federacao<>(filiais, VeiculoRepositorio::new);
+    }
+
+    /**
+     * Busca a filial onde o veículo com a id dada está guardado.
+     * @param id Id do veículo.
+     * @return O nome da filial, ou {@code null} se o veículo não existir.
+     */
+    public String filialDe(int id) {
+        return federacao.filialOnde(repositorio -> repositorio.existeId(id));
+    }
+
+    @Override
+    public void criarNovo(Veiculo obj) {
+        var filial = obj.getFilial() != null ? obj.getFilial() : federacao.principal();
+        federacao.da(filial).criarNovo(obj);
+        obj.setFilial(filial);
+    }
+
+    @Override
+    public Veiculo buscarPorId(int id) {
+        return federacao.primeiro((filial, repositorio) -> comFilial(repositorio.buscarPorId(id), filial));
+    }
+
+    @Override
+    public Veiculo buscarPorPlaca(String placa) {
+        return federacao.primeiro((filial, repositorio) -> comFilial(repositorio.buscarPorPlaca(placa), filial));
+    }
+
+    @Override
+    public Veiculo[] buscarTodos() {
+        var todos = new ArrayList<Veiculo>();
+        federacao.emTodas((filial, repositorio) -> {
+            var veiculos = repositorio.buscarTodos();
+            for (var veiculo : veiculos) {
+                comFilial(veiculo, filial);
+            }
+            return veiculos;
+        }).values().forEach(veiculos -> todos.addAll(Arrays.asList(veiculos)));
+
+        return todos.toArray(Veiculo[]::new);
+    }
+
+    @Override
+    public HashMap<String, Integer> contarPorTipo() {
+        return federacao.somarPorTipo(VeiculoRepositorio::contarPorTipo);
+    }
+
+    @Override
+    public int contarTodos() {
+        return federacao.somar((filial, repositorio) -> repositorio.contarTodos());
+    }
+
+    @Override
+    public boolean existeId(int id) {
+        return filialDe(id) != null;
+    }
+
+    /**
+     * Atualiza o veículo no banco da filial em que ele está. Se a filial não
+     * estiver no objeto, ela é procurada antes.
+     */
+    @Override
+    public boolean atualizarUm(Veiculo obj) {
+        var filial = obj.getFilial() != null ? obj.getFilial() : filialDe(obj.getId());
+        if (filial == null)
+            return false;
+
+        return federacao.da(filial).atualizarUm(obj);
+    }
+
+    @Override
+    public void apagarPorId(int id) {
+        federacao.emTodas((filial, repositorio) -> {
+            repositorio.apagarPorId(id);
+            return null;
+        });
+    }
+
+    @Override
+    public int apagarVarios(int[] ids) {
+        return federacao.somar((filial, repositorio) -> repositorio.apagarVarios(ids));
+    }
+
+    /**
+     * Grava cada veículo na filial indicada nele, ou na principal. Os da
+     * principal usam a conexão dada; os das outras filiais, uma transação
+     * própria no banco delas.
+     */
+    @Override
+    public boolean[] criarVarios(Connection conn, List<Veiculo> objs) {
+        return federacao.criarVarios(conn, objs, Veiculo::getFilial, VeiculoRepositorio::criarVarios);
+    }
+
+    @Override
+    public VeiculoTipo buscarTipoPorId(int id) {
+        return federacao.primeiro((filial, repositorio) -> repositorio.buscarTipoPorId(id));
+    }
+
+    @Override
+    public VeiculoTipo[] buscarTipos() {
+        return federacao.unir(VeiculoRepositorio::buscarTipos, VeiculoTipo::id).toArray(VeiculoTipo[]::new);
+    }
+
+    @Override
+    public int contarTipos() {
+        return buscarTipos().length;
+    }
+
+    @Override
+    public boolean existeTipoId(int id) {
+        return federacao.filialOnde(repositorio -> repositorio.existeTipoId(id)) != null;
+    }
+
+    @Override
+    public void criarNovoTipo(VeiculoTipo novoTipo) {
+        federacao.emTodas((filial, repositorio) -> {
+            repositorio.criarNovoTipo(novoTipo);
+            return null;
+        });
+    }
+
+    @Override
+    public void atualizarUmTipo(VeiculoTipo novoTipo) {
+        federacao.emTodas((filial, repositorio) -> {
+            repositorio.atualizarUmTipo(novoTipo);
+            return null;
+        });
+    }
+
+    @Override
+    public void apagarTipo(int id) {
+        federacao.emTodas((filial, repositorio) -> {
+            repositorio.apagarTipo(id);
+            return null;
+        });
+    }
+
+    private static Veiculo comFilial(Veiculo veiculo, String filial) {
+        if (veiculo != null)
+            veiculo.setFilial(filial);
+
+        return veiculo;
+    }
+}
@@ -0,0 +1,206 @@
+package sistematransportadora.servico;
+
+import sistematransportadora.Banco;
+import sistematransportadora.carga.PlanoCarga;
+import sistematransportadora.carga.Posicionamento;
+import sistematransportadora.modelo.Carga;
+import sistematransportadora.modelo.CargaItem;
+import sistematransportadora.repositorio.CargaRepositorio;
+import sistematransportadora.repositorio.EmbalagemRepositorio;
+import sistematransportadora.repositorio.VeiculoRepositorio;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serviço que grava os planos de carga e os abre de novo sem precisar
+ * planejar outra vez.
+ * <p>
+ * Um plano gravado só vale enquanto o veículo e as embalagens dele continuam
+ * como estavam: se algum for editado ou apagado depois, o plano não é aberto
+ * e precisa ser refeito.
+ */
+public class CargaServico {
+    private final CargaRepositorio cargaRepositorio;
+    private final EmbalagemRepositorio embalagemRepositorio;
+    private final VeiculoRepositorio veiculoRepositorio;
+
+    public CargaServico() {
+        this(new CargaRepositorio(), EmbalagemRepositorio.padrao(), VeiculoRepositorio.padrao());
+    }
+
+    public CargaServico(Banco banco) {
+        this(new CargaRepositorio(banco), new EmbalagemRepositorio(banco), new VeiculoRepositorio(banco));
+    }
+
+    public CargaServico(CargaRepositorio cargaRepositorio, EmbalagemRepositorio embalagemRepositorio,
+                        VeiculoRepositorio veiculoRepositorio) {
+        this.cargaRepositorio = cargaRepositorio;
+        this.embalagemRepositorio = embalagemRepositorio;
+        this.veiculoRepositorio = veiculoRepositorio;
+    }
+
+    /**
+     * Grava um plano como uma nova carga.
+     * @param plano O plano a gravar.
+     * @param descricao Descrição da carga; pode ser {@code null}.
+     * @return A carga gravada, já com a id.
+     * @throws ValorInvalidoException Se o plano não carregar nenhuma embalagem.
+     * @throws IdNaoExisteException Se o veículo do plano não estiver cadastrado.
+     * @throws ConflitoDeVersaoException Se o veículo foi editado depois do plano.
+     */
+    public Carga salvarPlano(PlanoCarga plano, String descricao) {
+        var carga = paraCarga(plano);
+        carga.setDescricao(descricao);
+
+        cargaRepositorio.criarNovo(carga);
+        return carga;
+    }
+
+    /**
+     * Troca o plano de uma carga já gravada, como depois de um ajuste.
+     * A troca só é salva se nenhuma outra tiver sido salva depois do carregamento.
+     * @param carga A carga, como foi carregada.
+     * @param plano O novo plano.
+     * @throws ValorInvalidoException Se o plano não carregar nenhuma embalagem.
+     * @throws IdNaoExisteException Se a carga ou o veículo do plano não estiverem cadastrados.
+     * @throws ConflitoDeVersaoException Se a carga foi alterada por outra edição depois de carregada,
+     * ou se o veículo foi editado depois do plano.
+     */
+    public void atualizarPlano(Carga carga, PlanoCarga plano) {
+        var nova = paraCarga(plano);
+        carga.setVeiculo(nova.getVeiculo());
+        carga.setVersaoVeiculo(nova.getVersaoVeiculo());
+        carga.setItens(nova.getItens());
+        carga.setPesoCarregado(nova.getPesoCarregado());
+        carga.setVolumeCarregado(nova.getVolumeCarregado());
+
+        if (cargaRepositorio.atualizarUm(carga))
+            return;
+
+        if (!cargaRepositorio.existeId(carga.getId())) {
+            throw new IdNaoExisteException(String.format("Não há carga com id %d.", carga.getId()));
+        }
+        throw new ConflitoDeVersaoException(String.format(
+                "A carga com id %d foi alterada por outra edição. Carregue-a novamente antes de salvar.", carga.getId()
+        ));
+    }
+
+    /**
+     * Monta de novo o plano de uma carga gravada, com as posições que foram
+     * gravadas. As embalagens que ficaram de fora quando ela foi planejada não
+     * são gravadas, então o plano volta sem recusadas.
+     * @param id Id da carga.
+     * @return {@link PlanoCarga}
+     * @throws IdNaoExisteException Se não houver carga com a id.
+     * @throws ConflitoDeVersaoException Se o veículo ou alguma embalagem da
+     * carga foi editado ou apagado depois do plano.
+     */
+    public PlanoCarga abrirPlano(int id) {
+        long inicio = System.nanoTime();
+        var carga = buscarPorId(id);
+
+        var veiculo = carga.getVeiculo();
+        if (veiculo == null || veiculo.getVersao() != carga.getVersaoVeiculo()) {
+            throw new ConflitoDeVersaoException(String.format(
+                    "O veículo da carga %d mudou depois do plano. Planeje a carga novamente.", id
+            ));
+        }
+
+        var embalagens = embalagemRepositorio.buscarDaCarga(id);
+        var posicionamentos = new ArrayList<Posicionamento>(carga.getItens().size());
+        for (var item : carga.getItens()) {
+            var embalagem = embalagens.get(item.embalagemId());
+            if (embalagem == null || embalagem.getVersao() != item.versaoEmbalagem()) {
+                throw new ConflitoDeVersaoException(String.format(
+                        "A embalagem com id %d da carga %d mudou depois do plano. Planeje a carga novamente.",
+                        item.embalagemId(), id
+                ));
+            }
+
+            var d = embalagem.getDimensoes();
+            posicionamentos.add(new Posicionamento(
+                    embalagem, item.x(), item.y(), item.z(),
+                    item.girada() ? d.comprimento : d.largura,
+                    item.girada() ? d.largura : d.comprimento,
+                    d.altura, item.girada()
+            ));
+        }
+
+        return new PlanoCarga(
+                carga.getVeiculo(), posicionamentos, List.of(),
+                carga.getPesoCarregado(), carga.getVolumeCarregado(),
+                Duration.ofNanos(System.nanoTime() - inicio)
+        );
+    }
+
+    /**
+     * Busca uma carga com base na id e a retorna.
+     * @param id Id da carga.
+     * @return {@link Carga}
+     * @throws IdNaoExisteException Se não encontrar por uma carga com id correspondente.
+     */
+    public Carga buscarPorId(int id) {
+        var carga = cargaRepositorio.buscarPorId(id);
+        if (carga == null) {
+            throw new IdNaoExisteException(String.format(
+                    "Não foi possível buscar por uma carga com id %d", id
+            ));
+        }
+
+        return carga;
+    }
+
+    /**
+     * Retorna todas as cargas gravadas.
+     * @return {@code Carga[]}
+     */
+    public Carga[] buscarTodas() {
+        return cargaRepositorio.buscarTodos();
+    }
+
+    /**
+     * Retorna as cargas planejadas para um veículo.
+     * @param veiculoId Id do veículo.
+     * @return {@code Carga[]}
+     */
+    public Carga[] buscarPorVeiculo(int veiculoId) {
+        return cargaRepositorio.buscarPorVeiculo(veiculoId);
+    }
+
+    /**
+     * Exclui uma carga gravada com base na id.
+     * @param id Id da carga a ser apagada.
+     * @throws IdNaoExisteException Se a id da carga não estiver cadastrada.
+     */
+    public void excluirCarga(int id) {
+        if (!cargaRepositorio.existeId(id)) {
+            throw new IdNaoExisteException(String.format("Não há carga com id %d.", id));
+        }
+        cargaRepositorio.apagarPorId(id);
+    }
+
+    private Carga paraCarga(PlanoCarga plano) {
+        if (plano.posicionamentos().isEmpty())
+            throw new ValorInvalidoException("O plano não carrega nenhuma embalagem.");
+
+        var veiculo = plano.veiculo();
+        var cadastrado = veiculoRepositorio.buscarPorId(veiculo.getId());
+        if (cadastrado == null) {
+            throw new IdNaoExisteException(String.format("Não há veículo com id %d.", veiculo.getId()));
+        }
+        if (cadastrado.getVersao() != veiculo.getVersao()) {
+            throw new ConflitoDeVersaoException(String.format(
+                    "O veículo com id %d foi editado depois do plano. Planeje a carga novamente.", veiculo.getId()
+            ));
+        }
+
+        var itens = new ArrayList<CargaItem>(plano.posicionamentos().size());
+        for (var p : plano.posicionamentos()) {
+            var embalagem = p.embalagem();
+            itens.add(new CargaItem(embalagem.getId(), embalagem.getVersao(), p.x(), p.y(), p.z(), p.girada()));
+        }
+        return new Carga(veiculo, itens, plano.pesoCarregado(), plano.volumeCarregado());
+    }
+}
@@ -0,0 +1,7 @@
+package sistematransportadora.servico;
+
+public class ConflitoDeVersaoException extends RuntimeException {
+    public ConflitoDeVersaoException(String mensagem) {
+        super(mensagem);
+    }
+}
@@ -0,0 +1,50 @@
+package sistematransportadora.servico;
+
+import sistematransportadora.cubagem.CalculadoraCubagem;
+import sistematransportadora.cubagem.ColunasCubagem;
+import sistematransportadora.cubagem.ResultadoCubagem;
+import sistematransportadora.cubagem.UnidadeComprimento;
+import sistematransportadora.repositorio.EmbalagemRepositorio;
+import sistematransportadora.repositorio.ProdutoRepositorio;
+
+/**
+ * Serviço que calcula a cubagem do catálogo inteiro, para a tabela de frete.
+ * Lê das réplicas de leitura, como os outros relatórios.
+ */
+public class CubagemServico {
+    private final ProdutoRepositorio produtoRepositorio;
+    private final EmbalagemRepositorio embalagemRepositorio;
+
+    public CubagemServico() {
+        this(ProdutoRepositorio.paraRelatorios(), EmbalagemRepositorio.paraRelatorios());
+    }
+
+    public CubagemServico(ProdutoRepositorio produtoRepositorio, EmbalagemRepositorio embalagemRepositorio) {
+        this.produtoRepositorio = produtoRepositorio;
+        this.embalagemRepositorio = embalagemRepositorio;
+    }
+
+    /**
+     * Calcula a cubagem de todos os produtos.
+     * @param fator Fator de cubagem, em kg por m³, como {@link CalculadoraCubagem#FATOR_RODOVIARIO}.
+     * @param unidade A unidade das medidas cadastradas, como {@link CalculadoraCubagem#UNIDADE_CADASTRO}.
+     * @return {@link ResultadoCubagem}
+     * @throws ValorInvalidoException Se o fator não for positivo.
+     */
+    public ResultadoCubagem calcularProdutos(double fator, UnidadeComprimento unidade) {
+        var calculadora = new CalculadoraCubagem(fator, unidade);
+        return calculadora.calcular(ColunasCubagem.deProdutos(produtoRepositorio.buscarTodos()));
+    }
+
+    /**
+     * Calcula a cubagem de todas as embalagens, sem as arquivadas.
+     * @param fator Fator de cubagem, em kg por m³, como {@link CalculadoraCubagem#FATOR_RODOVIARIO}.
+     * @param unidade A unidade das medidas cadastradas, como {@link CalculadoraCubagem#UNIDADE_CADASTRO}.
+     * @return {@link ResultadoCubagem}
+     * @throws ValorInvalidoException Se o fator não for positivo.
+     */
+    public ResultadoCubagem calcularEmbalagens(double fator, UnidadeComprimento unidade) {
+        var calculadora = new CalculadoraCubagem(fator, unidade);
+        return calculadora.calcular(ColunasCubagem.deEmbalagens(embalagemRepositorio.buscarTodos()));
+    }
+}
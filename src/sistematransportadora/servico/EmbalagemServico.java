@@ -1,10 +1,15 @@
 package sistematransportadora.servico;
 
+import sistematransportadora.Banco;
 import sistematransportadora.modelo.Embalagem;
 import sistematransportadora.modelo.EmbalagemTipo;
+import sistematransportadora.modelo.Veiculo;
 import sistematransportadora.repositorio.EmbalagemRepositorio;
+import sistematransportadora.repositorio.IndiceEmbalagens;
 import sistematransportadora.repositorio.ProdutoRepositorio;
 
+import java.util.function.IntConsumer;
+
 /**
  * Serviço que faz validação e teste das regras de negócio antes de
  * fazer uma alteração no banco de dados.
@@ -12,10 +17,25 @@ import sistematransportadora.repositorio.ProdutoRepositorio;
 public class EmbalagemServico {
     private final EmbalagemRepositorio embalagemRepositorio;
     private final ProdutoRepositorio produtoRepositorio;
+    private final IndiceEmbalagens indiceEmbalagens;
 
     public EmbalagemServico() {
-        this.embalagemRepositorio = new EmbalagemRepositorio();
-        produtoRepositorio = new ProdutoRepositorio();
+        this(EmbalagemRepositorio.padrao(), ProdutoRepositorio.padrao(), IndiceEmbalagens.padrao());
+    }
+
+    public EmbalagemServico(Banco banco) {
+        this(new EmbalagemRepositorio(banco), new ProdutoRepositorio(banco), banco.pegarIndiceEmbalagens());
+    }
+
+    public EmbalagemServico(EmbalagemRepositorio embalagemRepositorio, ProdutoRepositorio produtoRepositorio) {
+        this(embalagemRepositorio, produtoRepositorio, new IndiceEmbalagens(embalagemRepositorio));
+    }
+
+    public EmbalagemServico(EmbalagemRepositorio embalagemRepositorio, ProdutoRepositorio produtoRepositorio,
+                            IndiceEmbalagens indiceEmbalagens) {
+        this.embalagemRepositorio = embalagemRepositorio;
+        this.produtoRepositorio = produtoRepositorio;
+        this.indiceEmbalagens = indiceEmbalagens;
     }
 
     /**
@@ -28,6 +48,7 @@ public class EmbalagemServico {
         checarValidezCadastro(novoEmbalagem, false);
 
         embalagemRepositorio.criarNovo(novoEmbalagem);
+        indiceEmbalagens.adicionar(novoEmbalagem);
     }
 
     /**
@@ -49,26 +70,74 @@ public class EmbalagemServico {
     }
 
     /**
-     * Retorna todas as embalagens cadastradas.
+     * Retorna todas as embalagens cadastradas, sem as que já foram arquivadas.
      * @return {@code Embalagem[]}
      */
     public Embalagem[] buscarTodas() {
         return embalagemRepositorio.buscarTodos();
     }
 
+    /**
+     * Retorna todas as embalagens cadastradas, incluindo ou não as arquivadas.
+     * @param incluirArquivadas Se as embalagens antigas, já arquivadas, também devem vir.
+     * @return {@code Embalagem[]}
+     */
+    public Embalagem[] buscarTodas(boolean incluirArquivadas) {
+        return embalagemRepositorio.buscarTodos(incluirArquivadas);
+    }
+
+    /**
+     * Entrega as ids das embalagens que cabem no veículo em alguma
+     * orientação, pelas medidas internas, e que não passam da capacidade de
+     * peso dele. As arquivadas ficam de fora.
+     * @param veiculo O veículo.
+     * @param aoAchar Recebe cada id, à medida que é achada.
+     * @throws ValorInvalidoException Se o veículo não tiver as dimensões internas cadastradas.
+     */
+    public void buscarQueCabem(Veiculo veiculo, IntConsumer aoAchar) {
+        var interno = veiculo.getDimensoesInternas();
+        if (interno == null || !interno.isValida()) {
+            throw new ValorInvalidoException("O veículo não tem as dimensões internas cadastradas.");
+        }
+
+        indiceEmbalagens.buscarQueCabem(interno, veiculo.getCapacidadeDePeso(), aoAchar);
+    }
+
+    /**
+     * Conta as embalagens que cabem no veículo; ver {@link #buscarQueCabem(Veiculo, IntConsumer)}.
+     * @param veiculo O veículo.
+     * @return {@code int}
+     * @throws ValorInvalidoException Se o veículo não tiver as dimensões internas cadastradas.
+     */
+    public int contarQueCabem(Veiculo veiculo) {
+        var contador = new int[1];
+        buscarQueCabem(veiculo, id -> contador[0]++);
+        return contador[0];
+    }
+
     /**
      * Edita uma embalagem já cadastrada com base na id.
+     * A edição só é salva se nenhuma outra tiver sido salva depois do carregamento.
      * @param embalagem Embalagem a ser salva.
      * @throws IdNaoExisteException Se a id da embalagem não estiver cadastrada.
+     * @throws ConflitoDeVersaoException Se a embalagem foi alterada por outra edição depois de carregada.
      * @throws ValorInvalidoException Se no mínimo um atributo não estiver conforme as regras de negócio.
      */
     public void editarEmbalagem(Embalagem embalagem) {
+        checarValidezCadastro(embalagem, true);
+
+        if (embalagemRepositorio.atualizarUm(embalagem)) {
+            indiceEmbalagens.atualizar(embalagem);
+            return;
+        }
+
+        // Só quando a atualização falha é preciso ir ao banco descobrir o motivo.
         if (!embalagemRepositorio.existeId(embalagem.getId())) {
             throw new IdNaoExisteException(String.format("Não há embalagem com id %d.", embalagem.getId()));
         }
-        checarValidezCadastro(embalagem, true);
-
-        embalagemRepositorio.atualizarUm(embalagem);
+        throw new ConflitoDeVersaoException(String.format(
+                "A embalagem com id %d foi alterada por outra edição. Carregue-a novamente antes de salvar.", embalagem.getId()
+        ));
     }
 
     /**
@@ -81,6 +150,7 @@ public class EmbalagemServico {
             throw new IdNaoExisteException(String.format("Não há embalagem com id %d.", id));
         }
         embalagemRepositorio.apagarPorId(id);
+        indiceEmbalagens.remover(id);
     }
 
     /**
@@ -144,10 +214,13 @@ public class EmbalagemServico {
         }
         
         embalagemRepositorio.apagarTipo(id);
+        // As embalagens do tipo são apagadas junto pelo banco.
+        indiceEmbalagens.descartar();
     }
     
     private void checarValidezCadastro(Embalagem e, boolean updateMode) throws IdJaExisteException, ValorInvalidoException {
-        if (embalagemRepositorio.existeId(e.getId()) && !updateMode) {
+        // Uma id arquivada também está em uso, senão o histórico teria duas embalagens com ela.
+        if (!updateMode && (embalagemRepositorio.existeId(e.getId()) || embalagemRepositorio.existeIdArquivado(e.getId()))) {
             throw new IdJaExisteException("Id de embalagem já existe no banco de dados.");
         }
 
@@ -155,6 +228,23 @@ public class EmbalagemServico {
             throw new ValorInvalidoException("Tipo de embalagem inválido!");
         }
 
+        validarCampos(e);
+
+        if (!produtoRepositorio.existeId(e.getProdutoAssociado().getId())) {
+            throw new ValorInvalidoException(String.format(
+                    "Não há produto cadastrado com id %d.", e.getProdutoAssociado().getId()
+                    ));
+        }
+    }
+
+    /**
+     * Confere as regras de negócio que dependem só da própria embalagem, sem
+     * consultar o banco. A importação em lote usa esta conferência e faz as
+     * que dependem do banco de uma vez para o lote todo.
+     * @param e Embalagem a ser conferida.
+     * @throws ValorInvalidoException Se no mínimo um atributo não estiver conforme as regras de negócio.
+     */
+    public static void validarCampos(Embalagem e) throws ValorInvalidoException {
         if (!e.getDimensoes().isValida()) {
             throw new ValorInvalidoException("Dimensões de embalagem inválidas!");
         }
@@ -162,12 +252,6 @@ public class EmbalagemServico {
         if (e.getPeso() < 0) {
             throw new ValorInvalidoException("Peso não pode ser negativo!");
         }
-
-        if (!produtoRepositorio.existeId(e.getProdutoAssociado().getId())) {
-            throw new ValorInvalidoException(String.format(
-                    "Não há produto cadastrado com id %d.", e.getProdutoAssociado().getId()
-                    ));
-        }
     }
 }
 
@@ -1,7 +1,9 @@
 package sistematransportadora.servico;
 
+import sistematransportadora.Banco;
 import sistematransportadora.modelo.Produto;
 import sistematransportadora.modelo.ProdutoTipo;
+import sistematransportadora.repositorio.IndiceEmbalagens;
 import sistematransportadora.repositorio.ProdutoRepositorio;
 
 /**
@@ -10,9 +12,24 @@ import sistematransportadora.repositorio.ProdutoRepositorio;
  */
 public class ProdutoServico {
     private final ProdutoRepositorio produtoRepositorio;
+    // Os produtos apagados levam junto as embalagens deles; null se não houver índice a avisar.
+    private final IndiceEmbalagens indiceEmbalagens;
 
     public ProdutoServico() {
-        this.produtoRepositorio = new ProdutoRepositorio();
+        this(ProdutoRepositorio.padrao(), IndiceEmbalagens.padrao());
+    }
+
+    public ProdutoServico(Banco banco) {
+        this(new ProdutoRepositorio(banco), banco.pegarIndiceEmbalagens());
+    }
+
+    public ProdutoServico(ProdutoRepositorio produtoRepositorio) {
+        this(produtoRepositorio, null);
+    }
+
+    public ProdutoServico(ProdutoRepositorio produtoRepositorio, IndiceEmbalagens indiceEmbalagens) {
+        this.produtoRepositorio = produtoRepositorio;
+        this.indiceEmbalagens = indiceEmbalagens;
     }
 
     /**
@@ -55,17 +72,25 @@ public class ProdutoServico {
     
     /**
      * Edita um produto já cadastrado com base na id.
+     * A edição só é salva se nenhuma outra tiver sido salva depois do carregamento.
      * @param produto Produto a ser salvo.
      * @throws IdNaoExisteException Se a id do produto não estiver cadastrada.
+     * @throws ConflitoDeVersaoException Se o produto foi alterado por outra edição depois de carregado.
      * @throws ValorInvalidoException Se no mínimo um atributo não estiver conforme as regras de negócio.
      */
     public void editarProduto(Produto produto) {
+        checarValidezCadastro(produto, true);
+
+        if (produtoRepositorio.atualizarUm(produto))
+            return;
+
+        // Só quando a atualização falha é preciso ir ao banco descobrir o motivo.
         if (!produtoRepositorio.existeId(produto.getId())) {
             throw new IdNaoExisteException(String.format("Não há produto com id %d.", produto.getId()));
         }
-        checarValidezCadastro(produto, true);
-
-        produtoRepositorio.atualizarUm(produto);
+        throw new ConflitoDeVersaoException(String.format(
+                "O produto com id %d foi alterado por outra edição. Carregue-o novamente antes de salvar.", produto.getId()
+        ));
     }
 
     /**
@@ -78,6 +103,8 @@ public class ProdutoServico {
             throw new IdNaoExisteException(String.format("Não há produto com id %d.", id));
         }
         produtoRepositorio.apagarPorId(id);
+        if (indiceEmbalagens != null)
+            indiceEmbalagens.descartar();
     }
     
     /**
@@ -140,21 +167,34 @@ public class ProdutoServico {
         }
         
         produtoRepositorio.apagarTipo(id);
+        if (indiceEmbalagens != null)
+            indiceEmbalagens.descartar();
     }
 
     private void checarValidezCadastro(Produto p, boolean updateMode) throws IdJaExisteException, ValorInvalidoException {
-        if (produtoRepositorio.existeId(p.getId()) && !updateMode) {
+        if (!updateMode && produtoRepositorio.existeId(p.getId())) {
             throw new IdJaExisteException("Id de produto já existe no banco de dados.");
         }
 
-        if (p.getNome().isBlank() || p.getNome().trim().length() < 3) {
-            throw new ValorInvalidoException("Nome inválido! O nome precisa ter no mínimo 3 caracteres");
-        }
-
         if (produtoRepositorio.buscarTipoPorId(p.getTipo().id()) == null) {
             throw new ValorInvalidoException("Tipo de produto inválido!");
         }
 
+        validarCampos(p);
+    }
+
+    /**
+     * Confere as regras de negócio que dependem só do próprio produto, sem
+     * consultar o banco. A importação em lote usa esta conferência e faz as
+     * que dependem do banco de uma vez para o lote todo.
+     * @param p Produto a ser conferido.
+     * @throws ValorInvalidoException Se no mínimo um atributo não estiver conforme as regras de negócio.
+     */
+    public static void validarCampos(Produto p) throws ValorInvalidoException {
+        if (p.getNome().isBlank() || p.getNome().trim().length() < 3) {
+            throw new ValorInvalidoException("Nome inválido! O nome precisa ter no mínimo 3 caracteres");
+        }
+
         if (!p.getDimensoes().isValida()) {
             throw new ValorInvalidoException("Dimensões de produto inválidas!");
         }
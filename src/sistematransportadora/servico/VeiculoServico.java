@@ -1,7 +1,12 @@
 package sistematransportadora.servico;
 
+import sistematransportadora.Banco;
+import sistematransportadora.modelo.Dimensoes;
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Produto;
 import sistematransportadora.modelo.Veiculo;
 import sistematransportadora.modelo.VeiculoTipo;
+import sistematransportadora.repositorio.IndiceVeiculos;
 import sistematransportadora.repositorio.VeiculoRepositorio;
 
 /**
@@ -10,9 +15,23 @@ import sistematransportadora.repositorio.VeiculoRepositorio;
  */
 public class VeiculoServico {
     private final VeiculoRepositorio veiculoRepositorio;
+    private final IndiceVeiculos indiceVeiculos;
 
     public VeiculoServico() {
-        this.veiculoRepositorio = new VeiculoRepositorio();
+        this(VeiculoRepositorio.padrao(), IndiceVeiculos.padrao());
+    }
+
+    public VeiculoServico(Banco banco) {
+        this(new VeiculoRepositorio(banco), banco.pegarIndiceVeiculos());
+    }
+
+    public VeiculoServico(VeiculoRepositorio veiculoRepositorio) {
+        this(veiculoRepositorio, new IndiceVeiculos(veiculoRepositorio));
+    }
+
+    public VeiculoServico(VeiculoRepositorio veiculoRepositorio, IndiceVeiculos indiceVeiculos) {
+        this.veiculoRepositorio = veiculoRepositorio;
+        this.indiceVeiculos = indiceVeiculos;
     }
 
     /**
@@ -25,6 +44,7 @@ public class VeiculoServico {
         checarValidezCadastro(novoVeiculo, false);
 
         veiculoRepositorio.criarNovo(novoVeiculo);
+        indiceVeiculos.adicionar(novoVeiculo);
     }
 
     /**
@@ -52,20 +72,62 @@ public class VeiculoServico {
     public Veiculo[] buscarTodos() {
         return veiculoRepositorio.buscarTodos();
     }
+
+    /**
+     * Busca os veículos em que uma embalagem cabe, pelas medidas internas e
+     * pela capacidade de peso.
+     * @param embalagem A embalagem.
+     * @param podeTombar Se a embalagem pode ir deitada ou de lado, além de em pé.
+     * @return Os veículos, do de menor volume interno para o de maior.
+     * @throws ValorInvalidoException Se a embalagem não tiver dimensões válidas.
+     */
+    public Veiculo[] buscarQueCarregam(Embalagem embalagem, boolean podeTombar) {
+        return buscarQueCarregam(embalagem.getDimensoes(), embalagem.getPeso(), podeTombar);
+    }
+
+    /**
+     * Busca os veículos em que um produto cabe, pelas medidas internas e
+     * pela capacidade de peso.
+     * @param produto O produto.
+     * @param podeTombar Se o produto pode ir deitado ou de lado, além de em pé.
+     * @return Os veículos, do de menor volume interno para o de maior.
+     * @throws ValorInvalidoException Se o produto não tiver dimensões válidas.
+     */
+    public Veiculo[] buscarQueCarregam(Produto produto, boolean podeTombar) {
+        return buscarQueCarregam(produto.getDimensoes(), produto.getPeso(), podeTombar);
+    }
+
+    private Veiculo[] buscarQueCarregam(Dimensoes dimensoes, double peso, boolean podeTombar) {
+        if (dimensoes == null || !dimensoes.isValida()) {
+            throw new ValorInvalidoException("Dimensões inválidas! Não é possível saber em que veículos cabe.");
+        }
+
+        return indiceVeiculos.buscarQueCarregam(dimensoes, peso, podeTombar);
+    }
     
     /**
      * Edita um veículo já cadastrado com base na id.
+     * A edição só é salva se nenhuma outra tiver sido salva depois do carregamento.
      * @param veiculo Veículo a ser salvo.
      * @throws IdNaoExisteException Se a id do veículo não estiver cadastrada.
+     * @throws ConflitoDeVersaoException Se o veículo foi alterado por outra edição depois de carregado.
      * @throws ValorInvalidoException Se no mínimo um atributo não estiver conforme as regras de negócio.
      */
     public void editarVeiculo(Veiculo veiculo) {
+        checarValidezCadastro(veiculo, true);
+
+        if (veiculoRepositorio.atualizarUm(veiculo)) {
+            indiceVeiculos.atualizar(veiculo);
+            return;
+        }
+
+        // Só quando a atualização falha é preciso ir ao banco descobrir o motivo.
         if (!veiculoRepositorio.existeId(veiculo.getId())) {
             throw new IdNaoExisteException(String.format("Não há veículo com id %d.", veiculo.getId()));
         }
-        checarValidezCadastro(veiculo, true);
-
-        veiculoRepositorio.atualizarUm(veiculo);
+        throw new ConflitoDeVersaoException(String.format(
+                "O veículo com id %d foi alterado por outra edição. Carregue-o novamente antes de salvar.", veiculo.getId()
+        ));
     }
 
     /**
@@ -78,6 +140,7 @@ public class VeiculoServico {
             throw new IdNaoExisteException(String.format("Não há veículo com id %d.", id));
         }
         veiculoRepositorio.apagarPorId(id);
+        indiceVeiculos.remover(id);
     }
     
     /**
@@ -141,22 +204,18 @@ public class VeiculoServico {
         }
         
         veiculoRepositorio.apagarTipo(id);
+        // Os veículos do tipo são apagados junto pelo banco.
+        indiceVeiculos.descartar();
     }
     
     private void checarValidezCadastro(Veiculo v, boolean updateMode) throws IdJaExisteException, ValorInvalidoException {
-        if (veiculoRepositorio.existeId(v.getId()) && !updateMode) {
+        if (!updateMode && veiculoRepositorio.existeId(v.getId())) {
             throw new IdJaExisteException("Id de veículo já existe no banco de dados.");
         }
 
-        if (v.getNome().isBlank() || v.getNome().trim().length() < 3) {
-            throw new ValorInvalidoException("Nome inválido! O nome precisa ter no mínimo 3 caracteres");
-        }
+        validarCampos(v);
 
-        if (v.getPlaca().isBlank() || v.getPlaca().trim().length() < 7) {
-            throw new ValorInvalidoException("Placa inválida! Ela precisa ter no mínimo 7 caracteres");
-        }
-
-        if (veiculoRepositorio.buscarPorPlaca(v.getPlaca()) != null && !updateMode) {
+        if (!updateMode && veiculoRepositorio.buscarPorPlaca(v.getPlaca()) != null) {
             throw new ValorInvalidoException("Placa inválida! Já existe uma mesma placa cadastrada no banco de dados.");
         }
 
@@ -166,6 +225,24 @@ public class VeiculoServico {
             );
         }
 
+    }
+
+    /**
+     * Confere as regras de negócio que dependem só do próprio veículo, sem
+     * consultar o banco. A importação em lote usa esta conferência e faz as
+     * que dependem do banco de uma vez para o lote todo.
+     * @param v Veículo a ser conferido.
+     * @throws ValorInvalidoException Se no mínimo um atributo não estiver conforme as regras de negócio.
+     */
+    public static void validarCampos(Veiculo v) throws ValorInvalidoException {
+        if (v.getNome().isBlank() || v.getNome().trim().length() < 3) {
+            throw new ValorInvalidoException("Nome inválido! O nome precisa ter no mínimo 3 caracteres");
+        }
+
+        if (v.getPlaca().isBlank() || v.getPlaca().trim().length() < 7) {
+            throw new ValorInvalidoException("Placa inválida! Ela precisa ter no mínimo 7 caracteres");
+        }
+
         if (v.getCapacidadeDePeso() < 0) {
             throw new ValorInvalidoException("Capacidade de peso não pode ser negativa!");
         }
@@ -0,0 +1,97 @@
+package sistematransportadora.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableModel;
+import sistematransportadora.modelo.Alteracao;
+
+/**
+ * Aplica num {@link DefaultTableModel} as alterações publicadas pelo
+ * observador de alterações, mexendo só nas linhas dos registros alterados.
+ * A id do registro precisa estar na primeira coluna da tabela.
+ * <p>
+ * Quando chegam muitas alterações de uma vez, como numa importação em lote,
+ * buscar registro por registro sairia mais caro que recarregar a tabela,
+ * então ela é recarregada inteira.
+ *
+ * @param <T> O tipo de registro mostrado na tabela.
+ */
+class AtualizadorTabela<T> implements Consumer<List<Alteracao>> {
+    /** A partir de quantas alterações juntas a tabela é recarregada inteira. */
+    private static final int LIMITE_POR_REGISTRO = 200;
+
+    private final DefaultTableModel modelo;
+    private final IntFunction<T> buscarPorId;
+    private final Supplier<T[]> buscarTodos;
+    private final Function<T, Object[]> paraLinha;
+
+    AtualizadorTabela(DefaultTableModel modelo, IntFunction<T> buscarPorId, Supplier<T[]> buscarTodos,
+                      Function<T, Object[]> paraLinha) {
+        this.modelo = modelo;
+        this.buscarPorId = buscarPorId;
+        this.buscarTodos = buscarTodos;
+        this.paraLinha = paraLinha;
+    }
+
+    @Override
+    public void accept(List<Alteracao> alteracoes) {
+        if (alteracoes.size() > LIMITE_POR_REGISTRO) {
+            recarregar();
+            return;
+        }
+
+        // As buscas no banco ficam fora da thread da interface.
+        var linhas = new ArrayList<Object[]>(alteracoes.size());
+        for (var alteracao : alteracoes) {
+            T registro = alteracao.operacao() == Alteracao.Operacao.REMOCAO
+                    ? null
+                    : buscarPorId.apply(alteracao.registroId());
+            linhas.add(registro != null ? paraLinha.apply(registro) : null);
+        }
+
+        SwingUtilities.invokeLater(() -> {
+            for (int i = 0; i < alteracoes.size(); i++) {
+                aplicar(alteracoes.get(i).registroId(), linhas.get(i));
+            }
+        });
+    }
+
+    private void recarregar() {
+        var registros = buscarTodos.get();
+        var linhas = new ArrayList<Object[]>(registros.length);
+        for (var registro : registros) {
+            linhas.add(paraLinha.apply(registro));
+        }
+
+        SwingUtilities.invokeLater(() -> {
+            modelo.setRowCount(0);
+            linhas.forEach(modelo::addRow);
+        });
+    }
+
+    private void aplicar(int id, Object[] linha) {
+        int indice = -1;
+        for (int i = 0; i < modelo.getRowCount(); i++) {
+            if (modelo.getValueAt(i, 0).equals(id)) {
+                indice = i;
+                break;
+            }
+        }
+
+        if (linha == null) {
+            if (indice != -1)
+                modelo.removeRow(indice);
+        } else if (indice == -1) {
+            modelo.addRow(linha);
+        } else {
+            for (int coluna = 0; coluna < linha.length; coluna++) {
+                modelo.setValueAt(linha[coluna], indice, coluna);
+            }
+        }
+    }
+}
@@ -29,7 +29,7 @@ public class CadastrarEmbalagem extends javax.swing.JInternalFrame {
      */
     public CadastrarEmbalagem() {
         embalagemServico = new EmbalagemServico();
-        embalagemRepositorio = new EmbalagemRepositorio();
+        embalagemRepositorio = EmbalagemRepositorio.padrao();
         ajustarTipos();
         ajustarProdutos();
         initComponents();
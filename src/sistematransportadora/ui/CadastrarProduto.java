@@ -27,7 +27,7 @@ public class CadastrarProduto extends javax.swing.JInternalFrame {
      */
     public CadastrarProduto() {
         produtoServico = new ProdutoServico();
-        produtoRepositorio = new ProdutoRepositorio();
+        produtoRepositorio = ProdutoRepositorio.padrao();
         var tipoProdutos = produtoRepositorio.buscarTipos();
         var tipoNomes = new ArrayList<String>();
         
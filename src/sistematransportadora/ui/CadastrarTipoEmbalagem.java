@@ -25,7 +25,7 @@ public class CadastrarTipoEmbalagem extends javax.swing.JInternalFrame {
      * Creates new form CadastrarTipoProduto
      */
     public CadastrarTipoEmbalagem() {
-        embalagemRepositorio = new EmbalagemRepositorio();
+        embalagemRepositorio = EmbalagemRepositorio.padrao();
         embalagemServico = new EmbalagemServico();
         initComponents();
         carregarTabela();
@@ -25,7 +25,7 @@ public class CadastrarTipoProduto extends javax.swing.JInternalFrame {
      * Creates new form CadastrarTipoProduto
      */
     public CadastrarTipoProduto() {
-        produtoRepositorio = new ProdutoRepositorio();
+        produtoRepositorio = ProdutoRepositorio.padrao();
         produtoServico = new ProdutoServico();
         initComponents();
         carregarTabela();
@@ -25,7 +25,7 @@ public class CadastrarTipoVeiculo extends javax.swing.JInternalFrame {
      * Creates new form CadastrarTipoProduto
      */
     public CadastrarTipoVeiculo() {
-        veiculoRepositorio = new VeiculoRepositorio();
+        veiculoRepositorio = VeiculoRepositorio.padrao();
         veiculoServico = new VeiculoServico();
         initComponents();
         carregarTabela();
@@ -26,7 +26,7 @@ public class CadastrarVeiculo extends javax.swing.JInternalFrame {
      */
     public CadastrarVeiculo() {
         veiculoServico = new VeiculoServico();
-        veiculoRepositorio = new VeiculoRepositorio();
+        veiculoRepositorio = VeiculoRepositorio.padrao();
         var tiposVeiculos = veiculoRepositorio.buscarTipos();
         var tiposNomes = new ArrayList<String>();
         
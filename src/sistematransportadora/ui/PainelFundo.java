@@ -0,0 +1,84 @@
+package sistematransportadora.ui;
+
+import java.awt.Graphics;
+import java.awt.Image;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import javax.imageio.ImageIO;
+import javax.swing.JDesktopPane;
+import javax.swing.SwingUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Área de trabalho da tela principal, com uma imagem cobrindo o fundo.
+ * <p>
+ * A imagem é lida fora da thread da interface: até ela ficar pronta, o fundo
+ * é pintado liso, e a janela não espera o arquivo ser decodificado para abrir.
+ */
+class PainelFundo extends JDesktopPane {
+    private static final Logger log = LoggerFactory.getLogger(PainelFundo.class);
+    private static final ExecutorService leitor = Executors.newSingleThreadExecutor(tarefa -> {
+        var thread = new Thread(tarefa, "leitura-imagens");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Image fundo;
+
+    /**
+     * @param recurso Caminho da imagem de fundo entre os recursos da aplicação.
+     */
+    PainelFundo(String recurso) {
+        carregarImagem(recurso, imagem -> {
+            fundo = imagem;
+            repaint();
+        });
+    }
+
+    /**
+     * Lê uma imagem dos recursos da aplicação em segundo plano.
+     * @param recurso Caminho da imagem.
+     * @param aoCarregar Recebe a imagem na thread da interface. Não é chamado se a leitura falhar.
+     */
+    static void carregarImagem(String recurso, Consumer<Image> aoCarregar) {
+        leitor.execute(() -> {
+            try (var entrada = PainelFundo.class.getResourceAsStream(recurso)) {
+                var imagem = entrada != null ? ImageIO.read(entrada) : null;
+                if (imagem == null) {
+                    log.error("Imagem não encontrada: " + recurso);
+                    return;
+                }
+
+                SwingUtilities.invokeLater(() -> aoCarregar.accept(imagem));
+            } catch (IOException e) {
+                log.error("Erro ao ler a imagem " + recurso + ": " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (fundo == null)
+            return;
+
+        int imgWidth = fundo.getWidth(this);
+        int imgHeight = fundo.getHeight(this);
+        int paneWidth = getWidth();
+        int paneHeight = getHeight();
+
+        double scaleX = (double) paneWidth / imgWidth;
+        double scaleY = (double) paneHeight / imgHeight;
+        double scale = Math.max(scaleX, scaleY);
+
+        int newWidth = (int) (imgWidth * scale);
+        int newHeight = (int) (imgHeight * scale);
+        int x = (paneWidth - newWidth) / 2;
+        int y = (paneHeight - newHeight) / 2;
+
+        g.drawImage(fundo, x, y, newWidth, newHeight, this);
+    }
+}
@@ -6,7 +6,11 @@ package sistematransportadora.ui;
 
 import java.awt.Graphics;
 import java.awt.Image;
-import javax.swing.ImageIcon;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import sistematransportadora.Inicializacao;
 
 /**
  *
@@ -14,17 +18,65 @@ import javax.swing.ImageIcon;
  */
 public class TelaPrincipal extends javax.swing.JFrame {
 
+    private Image icone;
+    private boolean pintada;
+
     /**
      * Creates new form telaPrincipal
      */
     public TelaPrincipal() {
+        this(CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Cria a tela principal com os menus desabilitados até os bancos ficarem prontos.
+     * @param preparacao Etapa que termina quando os bancos podem ser usados.
+     */
+    public TelaPrincipal(CompletableFuture<Void> preparacao) {
         initComponents();
+        PainelFundo.carregarImagem("/img/logo.png", imagem -> {
+            icone = imagem;
+            setIconImage(imagem);
+        });
+        aguardar(preparacao);
     }
-    
+
     @Override
     public Image getIconImage() {
-        Image img = new ImageIcon(getClass().getResource("/img/logo.png")).getImage();
-        return img;
+        return icone;
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (!pintada) {
+            pintada = true;
+            Inicializacao.marcar(Inicializacao.PRIMEIRA_PINTURA);
+        }
+    }
+
+    private void aguardar(CompletableFuture<Void> preparacao) {
+        if (preparacao.isDone() && !preparacao.isCompletedExceptionally())
+            return;
+
+        jMenu1.setEnabled(false);
+        mnExibir.setEnabled(false);
+        setTitle("JavaLog - carregando...");
+
+        preparacao.whenComplete((nada, erro) -> SwingUtilities.invokeLater(() -> {
+            if (erro != null) {
+                var causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+                JOptionPane.showMessageDialog(
+                        this, "Não foi possível abrir o banco de dados:\n" + causa.getMessage(),
+                        "Erro!", JOptionPane.ERROR_MESSAGE
+                );
+                System.exit(1);
+            }
+
+            jMenu1.setEnabled(true);
+            mnExibir.setEnabled(true);
+            setTitle("JavaLog");
+        }));
     }
     
     /**
@@ -36,33 +88,7 @@ public class TelaPrincipal extends javax.swing.JFrame {
     // <editor-fold defaultstate="collapsed" desc="Generated Code">//GEN-BEGIN:initComponents
     private void initComponents() {
 
-        dpTelinha = new javax.swing.JDesktopPane() {
-            private Image backgroundImg;
-            {
-                backgroundImg = new ImageIcon(getClass().getResource("/img/background.png")).getImage();
-            }
-
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-
-                int imgWidth = backgroundImg.getWidth(this);
-                int imgHeight = backgroundImg.getHeight(this);
-                int paneWidth = getWidth();
-                int paneHeight = getHeight();
-
-                double scaleX = (double) paneWidth / imgWidth;
-                double scaleY = (double) paneHeight / imgHeight;
-                double scale = Math.max(scaleX, scaleY);
-
-                int newWidth = (int) (imgWidth * scale);
-                int newHeight = (int) (imgHeight * scale);
-                int x = (paneWidth - newWidth) / 2;
-                int y = (paneHeight - newHeight) / 2;
-
-                g.drawImage(backgroundImg, x, y, newWidth, newHeight, this);
-            }
-        };
+        dpTelinha = new PainelFundo("/img/background.png");
         jMenuBar1 = new javax.swing.JMenuBar();
         jMenu1 = new javax.swing.JMenu();
         mnuVeiculo = new javax.swing.JMenuItem();
@@ -310,6 +336,14 @@ public class TelaPrincipal extends javax.swing.JFrame {
      * @param args the command line arguments
      */
     public static void main(String args[]) {
+        exibir(CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Abre a tela principal sem esperar os bancos, que continuam sendo preparados.
+     * @param preparacao Etapa que termina quando os bancos podem ser usados.
+     */
+    public static void exibir(CompletableFuture<Void> preparacao) {
         /* Set the Nimbus look and feel */
         //<editor-fold defaultstate="collapsed" desc=" Look and feel setting code (optional) ">
         /* If Nimbus (introduced in Java SE 6) is not available, stay with the default look and feel.
@@ -337,7 +371,7 @@ public class TelaPrincipal extends javax.swing.JFrame {
         /* Create and display the form */
         java.awt.EventQueue.invokeLater(new Runnable() {
             public void run() {
-                new TelaPrincipal().setVisible(true);
+                new TelaPrincipal(preparacao).setVisible(true);
             }
         });
     }
@@ -4,7 +4,15 @@
  */
 package sistematransportadora.ui;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import sistematransportadora.RegistroBancos;
 import sistematransportadora.repositorio.EmbalagemRepositorio;
 import sistematransportadora.repositorio.ProdutoRepositorio;
 import sistematransportadora.repositorio.VeiculoRepositorio;
@@ -20,13 +28,53 @@ public class TelaResumo extends javax.swing.JInternalFrame {
      */
     public TelaResumo() {
         initComponents();
-        resumoProdutos(); 
-        resumoEmbalagens();
-        resumoVeiculos();
+        carregar();
+    }
+    
+    /**
+     * Os números vêm da réplica de leitura, que pode ainda estar fazendo a
+     * primeira cópia. A tela abre mostrando que está carregando e as
+     * consultas correm fora da thread da interface.
+     */
+    private void carregar(){
+        resumoProduto.setText("Carregando...");
+        resumoEmbalagem.setText("Carregando...");
+        resumoVeiculo.setText("Carregando...");
+        setTitle("Resumo (preparando os dados...)");
+        
+        RegistroBancos.relatoriosProntos()
+                .thenApplyAsync(nada -> new String[] {resumoProdutos(), resumoEmbalagens(), resumoVeiculos()})
+                .whenComplete((textos, erro) -> SwingUtilities.invokeLater(() -> {
+                    if (erro != null) {
+                        var causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+                        setTitle("Resumo");
+                        JOptionPane.showMessageDialog(this, "Não foi possível carregar o resumo:\n" + causa.getMessage(),
+                                "Erro!", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    
+                    resumoProduto.setText(textos[0]);
+                    resumoEmbalagem.setText(textos[1]);
+                    resumoVeiculo.setText(textos[2]);
+                    mostrarAtraso();
+                }));
+    }
+    
+    /**
+     * Os números vêm da réplica de leitura, então o título mostra de quando
+     * eles são.
+     */
+    private void mostrarAtraso(){
+        var momento = RegistroBancos.dadosDosRelatoriosEm();
+        if (momento == null)
+            return;
         
+        var hora = DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault()).format(momento);
+        var segundos = Duration.between(momento, Instant.now()).toSeconds();
+        setTitle(String.format("Resumo (dados de %s, há %d s)", hora, segundos));
     }
-    private void resumoProdutos(){
-        var produtoRepositorio = new ProdutoRepositorio();
+    private String resumoProdutos(){
+        var produtoRepositorio = ProdutoRepositorio.paraRelatorios();
         var porTipo = produtoRepositorio.contarPorTipo();
         var quantidadeTipos = porTipo != null ? porTipo.size() : 0;
         var total = produtoRepositorio.contarTodos();
@@ -47,11 +95,11 @@ public class TelaResumo extends javax.swing.JInternalFrame {
         sb.append(String.format("Quantidade de Tipos:\n%d \n\n", quantidadeTipos));
         sb.append(String.format("Quantidade de Famílias:\n%d \n\n", familiasProduto));
         sb.append(String.format("Quantidade de Lotes:\n%d ", quantidadeLotes));
-        resumoProduto.setText(sb.toString());   
+        return sb.toString();
     }
     
-    private void resumoEmbalagens(){
-        var embalagemRepositorio = new EmbalagemRepositorio();
+    private String resumoEmbalagens(){
+        var embalagemRepositorio = EmbalagemRepositorio.paraRelatorios();
         var porTipo = embalagemRepositorio.contarPorTipo();
         var total = embalagemRepositorio.contarTodos();
         
@@ -67,10 +115,10 @@ public class TelaResumo extends javax.swing.JInternalFrame {
         }
         
         sb.append(String.format("Total = %d ", total));
-        resumoEmbalagem.setText(sb.toString());  
+        return sb.toString();
     }
-    private void resumoVeiculos(){
-        var veiculoRepositorio = new VeiculoRepositorio();
+    private String resumoVeiculos(){
+        var veiculoRepositorio = VeiculoRepositorio.paraRelatorios();
         var porTipo = veiculoRepositorio.contarPorTipo();
         var total = veiculoRepositorio.contarTodos();
         
@@ -86,7 +134,7 @@ public class TelaResumo extends javax.swing.JInternalFrame {
         }
         
         sb.append(String.format("Total = %d ", total));
-        resumoVeiculo.setText(sb.toString());  
+        return sb.toString();
     }
     /**
      * This method is called from within the constructor to initialize the form.
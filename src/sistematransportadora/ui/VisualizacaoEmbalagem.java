@@ -5,7 +5,12 @@
 package sistematransportadora.ui;
 
 import javax.swing.JOptionPane;
+import javax.swing.event.InternalFrameAdapter;
+import javax.swing.event.InternalFrameEvent;
 import javax.swing.table.DefaultTableModel;
+import sistematransportadora.RegistroBancos;
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.repositorio.EmbalagemRepositorio;
 import sistematransportadora.servico.EmbalagemServico;
 
 /**
@@ -22,6 +27,7 @@ public class VisualizacaoEmbalagem extends javax.swing.JInternalFrame {
         embalagemServico = new EmbalagemServico();
         initComponents();
         criarModelo();
+        observarAlteracoes();
     }
     public DefaultTableModel getModeloTabela() {
         return modeloTabela;
@@ -45,24 +51,44 @@ public class VisualizacaoEmbalagem extends javax.swing.JInternalFrame {
         modeloTabela.addColumn("Observações");
         
         for(var embalagem : embalagemServico.buscarTodas()){
-            var produto = embalagem.getProdutoAssociado();
-            var empilhavel = embalagem.isEmpilhavel();
-            
-            modeloTabela.addRow(new Object[] {
-                embalagem.getId(),
-                embalagem.getTipo().nome(),
-                produto != null ? produto.getNome() : "N/A",
-                embalagem.getDimensoes().altura,
-                embalagem.getDimensoes().largura,
-                embalagem.getDimensoes().comprimento,
-                embalagem.getPeso(),
-                empilhavel ? "Sim" : "Não",
-                embalagem.getObservacoes()
-            });
+            modeloTabela.addRow(paraLinha(embalagem));
         }
          tEmbalagem.setModel(modeloTabela);
          tEmbalagem.getColumn("Observações").setMinWidth(200);   
     }
+    
+    private Object[] paraLinha(Embalagem embalagem){
+        var produto = embalagem.getProdutoAssociado();
+        var empilhavel = embalagem.isEmpilhavel();
+        
+        return new Object[] {
+            embalagem.getId(),
+            embalagem.getTipo().nome(),
+            produto != null ? produto.getNome() : "N/A",
+            embalagem.getDimensoes().altura,
+            embalagem.getDimensoes().largura,
+            embalagem.getDimensoes().comprimento,
+            embalagem.getPeso(),
+            empilhavel ? "Sim" : "Não",
+            embalagem.getObservacoes()
+        };
+    }
+    
+    private void observarAlteracoes(){
+        var observadores = RegistroBancos.observadores();
+        var repositorio = EmbalagemRepositorio.padrao();
+        var atualizador = new AtualizadorTabela<>(
+                modeloTabela, repositorio::buscarPorId, repositorio::buscarTodos, this::paraLinha
+        );
+        
+        observadores.forEach(observador -> observador.inscrever("Embalagem", atualizador));
+        addInternalFrameListener(new InternalFrameAdapter() {
+            @Override
+            public void internalFrameClosed(InternalFrameEvent e) {
+                observadores.forEach(observador -> observador.cancelar(atualizador));
+            }
+        });
+    }
     /**
      * This method is called from within the constructor to initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is always
@@ -5,7 +5,12 @@
 package sistematransportadora.ui;
 
 import javax.swing.JOptionPane;
+import javax.swing.event.InternalFrameAdapter;
+import javax.swing.event.InternalFrameEvent;
 import javax.swing.table.DefaultTableModel;
+import sistematransportadora.RegistroBancos;
+import sistematransportadora.modelo.Produto;
+import sistematransportadora.repositorio.ProdutoRepositorio;
 import sistematransportadora.servico.ProdutoServico;
 
 /**
@@ -22,6 +27,7 @@ public class VisualizacaoProduto extends javax.swing.JInternalFrame {
         produtoServico = new ProdutoServico();
         initComponents();
         criarModelo();
+        observarAlteracoes();
     }
      public DefaultTableModel getModeloTabela() {
         return modeloTabela;
@@ -48,32 +54,52 @@ public class VisualizacaoProduto extends javax.swing.JInternalFrame {
         modeloTabela.addColumn("Observações");
         
         for(var produto : produtoServico.buscarTodos()){
-            var fragilidade = switch (produto.getGrauFragilidade()) {
-              case ALTA -> "Alta";
-              case MEDIA -> "Média";
-              default -> "Baixa";
-            };
-            
-            modeloTabela.addRow(new Object[] {
-                produto.getId(),
-                produto.getNome(),
-                produto.getDescricao(),
-                produto.getFamilia(),
-                produto.getTipo().nome(),
-                produto.getLote(),
-                produto.getDimensoes().altura,
-                produto.getDimensoes().largura,
-                produto.getDimensoes().comprimento,
-                produto.getPeso(),
-                fragilidade,
-                produto.getObservacoes()
-            });
+            modeloTabela.addRow(paraLinha(produto));
         }
         tProdutos.setModel(modeloTabela);
         tProdutos.getColumn("Observações").setMinWidth(200);
         tProdutos.getColumn("Descrição").setMinWidth(200);
     }
     
+    private Object[] paraLinha(Produto produto){
+        var fragilidade = switch (produto.getGrauFragilidade()) {
+          case ALTA -> "Alta";
+          case MEDIA -> "Média";
+          default -> "Baixa";
+        };
+        
+        return new Object[] {
+            produto.getId(),
+            produto.getNome(),
+            produto.getDescricao(),
+            produto.getFamilia(),
+            produto.getTipo().nome(),
+            produto.getLote(),
+            produto.getDimensoes().altura,
+            produto.getDimensoes().largura,
+            produto.getDimensoes().comprimento,
+            produto.getPeso(),
+            fragilidade,
+            produto.getObservacoes()
+        };
+    }
+    
+    private void observarAlteracoes(){
+        var observadores = RegistroBancos.observadores();
+        var repositorio = ProdutoRepositorio.padrao();
+        var atualizador = new AtualizadorTabela<>(
+                modeloTabela, repositorio::buscarPorId, repositorio::buscarTodos, this::paraLinha
+        );
+        
+        observadores.forEach(observador -> observador.inscrever("Produto", atualizador));
+        addInternalFrameListener(new InternalFrameAdapter() {
+            @Override
+            public void internalFrameClosed(InternalFrameEvent e) {
+                observadores.forEach(observador -> observador.cancelar(atualizador));
+            }
+        });
+    }
+    
  private void Apagar(){
         var linha = tProdutos.getSelectedRow();
         
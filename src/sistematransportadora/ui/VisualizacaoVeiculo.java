@@ -5,7 +5,12 @@
 package sistematransportadora.ui;
 
 import javax.swing.JOptionPane;
+import javax.swing.event.InternalFrameAdapter;
+import javax.swing.event.InternalFrameEvent;
 import javax.swing.table.DefaultTableModel;
+import sistematransportadora.RegistroBancos;
+import sistematransportadora.modelo.Veiculo;
+import sistematransportadora.repositorio.VeiculoRepositorio;
 import sistematransportadora.servico.VeiculoServico;
 
 /**
@@ -22,6 +27,7 @@ public class VisualizacaoVeiculo extends javax.swing.JInternalFrame {
         veiculoServico = new VeiculoServico();
         initComponents();
         criarModelo();
+        observarAlteracoes();
     }
 
     public DefaultTableModel getModeloTabela() {
@@ -47,23 +53,43 @@ public class VisualizacaoVeiculo extends javax.swing.JInternalFrame {
         modeloTabela.addColumn("Observações");
         
         for(var veiculo : veiculoServico.buscarTodos()){
-            modeloTabela.addRow(new Object[] {
-                veiculo.getId(),
-                veiculo.getPlaca(),
-                veiculo.getNome(),
-                veiculo.getModelo(),
-                veiculo.getTipo().nome(),
-                veiculo.getDimensoesInternas().largura,
-                veiculo.getDimensoesInternas().altura,
-                veiculo.getDimensoesInternas().comprimento,
-                veiculo.getCapacidadeDePeso(),
-                veiculo.getObservacoes()
-            });
+            modeloTabela.addRow(paraLinha(veiculo));
         }
         jTabela.setModel(modeloTabela);
         jTabela.getColumn("Observações").setMinWidth(200);
     }
     
+    private Object[] paraLinha(Veiculo veiculo){
+        return new Object[] {
+            veiculo.getId(),
+            veiculo.getPlaca(),
+            veiculo.getNome(),
+            veiculo.getModelo(),
+            veiculo.getTipo().nome(),
+            veiculo.getDimensoesInternas().largura,
+            veiculo.getDimensoesInternas().altura,
+            veiculo.getDimensoesInternas().comprimento,
+            veiculo.getCapacidadeDePeso(),
+            veiculo.getObservacoes()
+        };
+    }
+    
+    private void observarAlteracoes(){
+        var observadores = RegistroBancos.observadores();
+        var repositorio = VeiculoRepositorio.padrao();
+        var atualizador = new AtualizadorTabela<>(
+                modeloTabela, repositorio::buscarPorId, repositorio::buscarTodos, this::paraLinha
+        );
+        
+        observadores.forEach(observador -> observador.inscrever("Veiculo", atualizador));
+        addInternalFrameListener(new InternalFrameAdapter() {
+            @Override
+            public void internalFrameClosed(InternalFrameEvent e) {
+                observadores.forEach(observador -> observador.cancelar(atualizador));
+            }
+        });
+    }
+    
     private void Apagar(){
         var linha = jTabela.getSelectedRow();
         
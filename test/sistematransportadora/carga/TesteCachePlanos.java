@@ -0,0 +1,86 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Dimensoes;
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Veiculo;
+import sistematransportadora.modelo.VeiculoTipo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Confere o {@link CachePlanos} em casos que já deram errado.
+ * <p>
+ * Uso: {@code TesteCachePlanos}; termina com {@link AssertionError} no
+ * primeiro caso que falhar.
+ */
+public class TesteCachePlanos {
+    public static void main(String[] args) {
+        embalagemSemDimensoes();
+        pedidoRepetidoEAlterado();
+        System.out.println("TesteCachePlanos: todos os casos passaram.");
+    }
+
+    /**
+     * Uma embalagem sem dimensões é recusada pelo planejamento, como sem o
+     * cache, e o plano não é guardado.
+     */
+    static void embalagemSemDimensoes() {
+        var cache = new CachePlanos(CachePlanos.TAMANHO_PADRAO);
+        var ok = new Embalagem(1, null, null, new Dimensoes(1, 1, 1), 10);
+        var semDimensoes = new Embalagem(2, null, null, null, 10);
+
+        var plano = cache.planejar(veiculo(), List.of(ok, semDimensoes), new PlanejadorCarga()::planejar);
+
+        confirmar(plano.posicionamentos().size() == 1 && plano.posicionamentos().get(0).embalagem() == ok,
+                "a embalagem com dimensões deveria ser carregada");
+        confirmar(plano.recusadas().size() == 1 && plano.recusadas().get(0).embalagem() == semDimensoes,
+                "a embalagem sem dimensões deveria ser recusada");
+        confirmar(cache.getTamanho() == 0, "o plano não deveria ser guardado");
+    }
+
+    /**
+     * Um pedido repetido sai do plano já montado; se uma embalagem mudar de
+     * peso entre um pedido e outro, o plano pronto não serve mais.
+     */
+    static void pedidoRepetidoEAlterado() {
+        var cache = new CachePlanos(CachePlanos.TAMANHO_PADRAO);
+        var veiculo = veiculo();
+        var embalagens = new ArrayList<Embalagem>();
+        for (int i = 1; i <= 50; i++) {
+            embalagens.add(new Embalagem(i, null, null, new Dimensoes(0.5, 0.5 + i % 3 * 0.1, 0.6), 10 + i % 4));
+        }
+        var primeiro = cache.planejar(veiculo, embalagens, new PlanejadorCarga()::planejar);
+
+        PlanoCarga repetido = null;
+        for (int i = 0; i < 3; i++) {
+            repetido = cache.planejar(veiculo, new ArrayList<>(embalagens), (v, e) -> {
+                throw new AssertionError("o pedido repetido deveria sair do cache");
+            });
+        }
+        confirmar(cache.getAcertos() == 3 && cache.getFaltas() == 1, "deveriam ser 3 acertos e 1 falta");
+        confirmar(repetido.posicionamentos().equals(primeiro.posicionamentos()),
+                "o plano repetido deveria ser igual ao planejado");
+
+        embalagens.get(0).setPeso(99);
+        var planejou = new boolean[1];
+        var alterado = cache.planejar(veiculo, embalagens, (v, e) -> {
+            planejou[0] = true;
+            return new PlanejadorCarga().planejar(v, e);
+        });
+        confirmar(planejou[0], "o pedido com a embalagem alterada deveria ser planejado de novo");
+        confirmar(Math.abs(alterado.pesoCarregado() - (primeiro.pesoCarregado() + 99 - 11)) < 1e-9,
+                "o peso do plano novo deveria ter o peso alterado");
+    }
+
+    private static Veiculo veiculo() {
+        var veiculo = new Veiculo(1, "Truck", new VeiculoTipo(1, "Truck", true), "ABC1D23", "Modelo", 10000);
+        veiculo.setDimensoesInternas(new Dimensoes(2.5, 2.4, 7));
+        return veiculo;
+    }
+
+    private static void confirmar(boolean condicao, String mensagem) {
+        if (!condicao)
+            throw new AssertionError(mensagem);
+    }
+}
@@ -0,0 +1,103 @@
+package sistematransportadora.carga;
+
+import sistematransportadora.modelo.Dimensoes;
+import sistematransportadora.modelo.Embalagem;
+import sistematransportadora.modelo.Veiculo;
+import sistematransportadora.modelo.VeiculoTipo;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Confere o {@link ReplanejadorCarga} em casos que já deram errado.
+ * <p>
+ * Uso: {@code TesteReplanejadorCarga}; termina com {@link AssertionError} no
+ * primeiro caso que falhar.
+ */
+public class TesteReplanejadorCarga {
+    public static void main(String[] args) {
+        remocaoAtrasNaoExcedeTracao();
+        ajusteInformaEixosExcedidos();
+        System.out.println("TesteReplanejadorCarga: todos os casos passaram.");
+    }
+
+    /**
+     * Numa carreta, a embalagem atrás dos eixos do semirreboque levanta o
+     * pino-rei e alivia a tração. Tirá-la passaria a tração do limite, então
+     * uma das embalagens da frente tem de sair do lugar.
+     */
+    static void remocaoAtrasNaoExcedeTracao() {
+        var veiculo = carreta();
+        var frente1 = caixa(1, 7250);
+        var frente2 = caixa(2, 7250);
+        var tras = caixa(3, 3000);
+        var plano = plano(veiculo,
+                new Posicionamento(frente1, 0, 0, 0, 1, 1, 1, false),
+                new Posicionamento(frente2, 1, 0, 0, 1, 1, 1, false),
+                new Posicionamento(tras, 0, 13.6, 0, 1, 1, 1, false));
+        confirmar(plano.distribuicaoPeso().eixosExcedidos().isEmpty(), "o plano de partida já passava de um eixo");
+        var semTras = plano(veiculo, plano.posicionamentos().get(0), plano.posicionamentos().get(1));
+        confirmar(!semTras.distribuicaoPeso().eixosExcedidos().isEmpty(), "tirar a de trás deveria exceder a tração");
+
+        var replanejador = new ReplanejadorCarga(plano);
+        var ajuste = replanejador.ajustar(AlteracaoCarga.remocao(tras));
+        var resultado = replanejador.getPlano();
+
+        confirmar(resultado.distribuicaoPeso().eixosExcedidos().isEmpty(),
+                "eixos excedidos depois da remoção: " + resultado.distribuicaoPeso().eixosExcedidos());
+        confirmar(ajuste.movidas() >= 2, "uma embalagem da frente deveria ter mudado de lugar");
+        confirmar(resultado.posicionamentos().size() + resultado.recusadas().size() == 2,
+                "as embalagens da frente deveriam continuar no plano ou entre as recusadas");
+        double soma = 0;
+        for (var p : resultado.posicionamentos()) {
+            soma += p.embalagem().getPeso();
+        }
+        confirmar(Math.abs(soma - resultado.pesoCarregado()) < 1e-9, "o peso carregado não bate com as posições");
+        confirmar(ajuste.viavel() && ajuste.eixosExcedidos().isEmpty(), "o ajuste deveria ser viável");
+    }
+
+    /**
+     * Um plano que já chega ao replanejador com a tração acima do limite
+     * continua assim depois de uma inclusão, e o ajuste tem de dizer isso.
+     */
+    static void ajusteInformaEixosExcedidos() {
+        var veiculo = carreta();
+        var plano = plano(veiculo,
+                new Posicionamento(caixa(1, 7250), 0, 0, 0, 1, 1, 1, false),
+                new Posicionamento(caixa(2, 7250), 1, 0, 0, 1, 1, 1, false));
+
+        var replanejador = new ReplanejadorCarga(plano);
+        var ajuste = replanejador.ajustar(AlteracaoCarga.inclusao(caixa(3, 10)));
+
+        confirmar(!ajuste.viavel(), "o ajuste deveria ser inviável");
+        confirmar(ajuste.eixosExcedidos().size() == 1 && ajuste.eixosExcedidos().get(0).nome().equals("Tração"),
+                "deveria informar a tração, informou " + ajuste.eixosExcedidos());
+        confirmar(ajuste.eixosExcedidos().equals(replanejador.getPlano().distribuicaoPeso().eixosExcedidos()),
+                "os eixos do ajuste não batem com os do plano");
+    }
+
+    private static Veiculo carreta() {
+        var veiculo = new Veiculo(1, "Carreta", new VeiculoTipo(4, "Carreta", true), "ABC1D23", "Modelo", 30000);
+        veiculo.setDimensoesInternas(new Dimensoes(2.7, 2.48, 14.6));
+        return veiculo;
+    }
+
+    private static Embalagem caixa(int id, double peso) {
+        return new Embalagem(id, null, null, new Dimensoes(1, 1, 1), peso);
+    }
+
+    private static PlanoCarga plano(Veiculo veiculo, Posicionamento... posicionamentos) {
+        double peso = 0;
+        double volume = 0;
+        for (var p : posicionamentos) {
+            peso += p.embalagem().getPeso();
+            volume += p.volume();
+        }
+        return new PlanoCarga(veiculo, List.of(posicionamentos), List.of(), peso, volume, Duration.ZERO);
+    }
+
+    private static void confirmar(boolean condicao, String mensagem) {
+        if (!condicao)
+            throw new AssertionError(mensagem);
+    }
+}
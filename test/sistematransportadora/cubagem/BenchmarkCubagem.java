@@ -0,0 +1,146 @@
+package sistematransportadora.cubagem;
+
+import sistematransportadora.modelo.Dimensoes;
+import sistematransportadora.modelo.Produto;
+import sistematransportadora.modelo.ProdutoTipo;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compara a {@link CalculadoraCubagem} com o laço por objeto que ela
+ * substituiu, sobre um catálogo gerado com medidas em centímetros, e confere
+ * se as somas por tipo, família e lote batem.
+ * <p>
+ * Uso: {@code BenchmarkCubagem [produtos] [rodadas]}, com padrão de 2 milhões
+ * de produtos e 10 rodadas. As primeiras rodadas aquecem o compilador da
+ * JVM; a mediana e o mínimo das rodadas são mostrados no fim.
+ */
+public class BenchmarkCubagem {
+    private static final int TIPOS = 8;
+    private static final int FAMILIAS = 50;
+    private static final int LOTES = 1000;
+
+    public static void main(String[] args) {
+        int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int rodadas = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        var produtos = gerar(quantidade);
+        var colunas = ColunasCubagem.deProdutos(produtos);
+        var sequencial = CalculadoraCubagem.padrao();
+        sequencial.setParalelo(false);
+        var paralelo = CalculadoraCubagem.padrao();
+
+        var tempos = new long[3][rodadas];
+        ResultadoCubagem resultado = null;
+        Map<Agrupamento, Map<String, double[]>> porObjeto = null;
+        for (int r = 0; r < rodadas; r++) {
+            long inicio = System.nanoTime();
+            resultado = sequencial.calcular(colunas);
+            tempos[0][r] = System.nanoTime() - inicio;
+
+            inicio = System.nanoTime();
+            paralelo.calcular(colunas);
+            tempos[1][r] = System.nanoTime() - inicio;
+
+            inicio = System.nanoTime();
+            porObjeto = porObjeto(produtos, CalculadoraCubagem.FATOR_RODOVIARIO,
+                    CalculadoraCubagem.UNIDADE_CADASTRO.emMetrosCubicos());
+            tempos[2][r] = System.nanoTime() - inicio;
+        }
+
+        System.out.printf("%d produtos, %d tipos, %d famílias, %d lotes, %d rodadas%n",
+                quantidade, TIPOS, FAMILIAS, LOTES, rodadas);
+        mostrar("colunas, sequencial", tempos[0]);
+        mostrar("colunas, paralelo", tempos[1]);
+        mostrar("laço por objeto", tempos[2]);
+        conferir(resultado, porObjeto);
+    }
+
+    private static Produto[] gerar(int quantidade) {
+        var aleatorio = new Random(42);
+        var tipos = new ProdutoTipo[TIPOS];
+        for (int t = 0; t < TIPOS; t++) {
+            tipos[t] = new ProdutoTipo(t + 1, "Tipo " + t, false);
+        }
+
+        var produtos = new Produto[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            var produto = new Produto(i + 1, "Produto " + i, tipos[aleatorio.nextInt(TIPOS)]);
+            produto.setFamilia("Família " + aleatorio.nextInt(FAMILIAS));
+            produto.setLote("L" + aleatorio.nextInt(LOTES));
+            produto.setDimensoes(new Dimensoes(
+                    1 + aleatorio.nextInt(200), 1 + aleatorio.nextInt(200), 1 + aleatorio.nextInt(200)
+            ));
+            produto.setPeso(0.1 + aleatorio.nextDouble() * 500);
+            produtos[i] = produto;
+        }
+        return produtos;
+    }
+
+    /**
+     * O cálculo como seria feito direto nos objetos, somando cada grupo num
+     * {@link HashMap}: quantidade, volume, peso, peso cubado e peso taxado.
+     */
+    private static Map<Agrupamento, Map<String, double[]>> porObjeto(Produto[] produtos, double fator,
+                                                                     double metrosCubicos) {
+        var somas = new EnumMap<Agrupamento, Map<String, double[]>>(Agrupamento.class);
+        for (var agrupamento : Agrupamento.values()) {
+            somas.put(agrupamento, new HashMap<>());
+        }
+
+        for (var produto : produtos) {
+            var d = produto.getDimensoes();
+            double volume = d.altura * d.largura * d.comprimento * metrosCubicos;
+            double pesoCubado = volume * fator;
+            double pesoTaxado = Math.max(produto.getPeso(), pesoCubado);
+
+            somar(somas.get(Agrupamento.TIPO), produto.getTipo().nome(), volume, produto.getPeso(), pesoCubado, pesoTaxado);
+            somar(somas.get(Agrupamento.FAMILIA), produto.getFamilia(), volume, produto.getPeso(), pesoCubado, pesoTaxado);
+            somar(somas.get(Agrupamento.LOTE), produto.getLote(), volume, produto.getPeso(), pesoCubado, pesoTaxado);
+        }
+        return somas;
+    }
+
+    private static void somar(Map<String, double[]> somas, String grupo, double volume, double peso,
+                              double pesoCubado, double pesoTaxado) {
+        var soma = somas.computeIfAbsent(grupo, g -> new double[5]);
+        soma[0]++;
+        soma[1] += volume;
+        soma[2] += peso;
+        soma[3] += pesoCubado;
+        soma[4] += pesoTaxado;
+    }
+
+    private static void mostrar(String nome, long[] tempos) {
+        var ordenados = tempos.clone();
+        Arrays.sort(ordenados);
+        System.out.printf("%-22s mediana %7.1f ms, mínimo %7.1f ms%n",
+                nome, ordenados[ordenados.length / 2] / 1e6, ordenados[0] / 1e6);
+    }
+
+    private static void conferir(ResultadoCubagem resultado, Map<Agrupamento, Map<String, double[]>> porObjeto) {
+        for (var agrupamento : Agrupamento.values()) {
+            var grupos = resultado.porGrupo(agrupamento);
+            var esperados = porObjeto.get(agrupamento);
+            if (grupos.size() != esperados.size())
+                throw new AssertionError("Quantidade de grupos diferente em " + agrupamento);
+
+            for (var grupo : grupos) {
+                var esperado = esperados.get(grupo.grupo());
+                if (esperado == null || grupo.quantidade() != (int) esperado[0]
+                        || !proximo(grupo.volume(), esperado[1]) || !proximo(grupo.peso(), esperado[2])
+                        || !proximo(grupo.pesoCubado(), esperado[3]) || !proximo(grupo.pesoTaxado(), esperado[4]))
+                    throw new AssertionError("Somas diferentes em " + agrupamento + ", grupo " + grupo.grupo());
+            }
+        }
+        System.out.println("Somas por grupo iguais às do laço por objeto.");
+    }
+
+    private static boolean proximo(double a, double b) {
+        return Math.abs(a - b) <= 1e-9 * Math.max(1, Math.max(Math.abs(a), Math.abs(b)));
+    }
+}